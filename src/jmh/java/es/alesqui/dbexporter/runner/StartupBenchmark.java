@@ -0,0 +1,78 @@
+package es.alesqui.dbexporter.runner;
+
+import es.alesqui.dbexporter.DatabaseStructureExporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo de arranque en frío de una exportación de una tabla: contexto de
+ * Spring Boot frente a {@link FastExportLauncher}. Cada medida se hace en una
+ * JVM nueva, sin calentamiento, contra una base de datos H2 en memoria.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1";
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        String[] args;
+
+        @Setup
+        public void setUp() throws SQLException, IOException {
+            try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE SCHEMA APP");
+                statement.execute("CREATE TABLE APP.CLIENTES (ID INT PRIMARY KEY, NOMBRE VARCHAR(100) NOT NULL)");
+                statement.execute("CREATE TABLE APP.PEDIDOS (ID INT PRIMARY KEY, CLIENTE_ID INT, "
+                    + "CONSTRAINT FK_PED_CLI FOREIGN KEY (CLIENTE_ID) REFERENCES APP.CLIENTES (ID))");
+            }
+            Path output = Files.createTempDirectory("startup-benchmark");
+            args = new String[] {
+                "--spring.datasource.url=" + URL,
+                "--spring.datasource.username=sa",
+                "--app.schema=APP",
+                "--app.output.directory=" + output,
+                "--app.tables.include=CLIENTES",
+                "--app.metrics.enabled=false",
+                "--logging.level.root=WARN"
+            };
+        }
+    }
+
+    @Benchmark
+    public void springBoot(Database database) {
+        try (ConfigurableApplicationContext context = SpringApplication.run(DatabaseStructureExporter.class,
+                database.args)) {
+            context.getId();
+        }
+    }
+
+    @Benchmark
+    public void fastStart(Database database) throws IOException {
+        FastExportLauncher.main(database.args);
+    }
+}
@@ -0,0 +1,62 @@
+package es.alesqui.dbexporter.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ResultSet en memoria para medir los mapeadores de filas sin base de datos.
+ * Sólo implementa lo que usan los extractores: next, beforeFirst, getString,
+ * getInt, getTimestamp y getObject por nombre de columna.
+ */
+final class InMemoryResultSet implements InvocationHandler {
+
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final List<Object[]> rows;
+    private int cursor = -1;
+
+    private InMemoryResultSet(String[] columnNames, List<Object[]> rows) {
+        for (int i = 0; i < columnNames.length; i++) {
+            columns.put(columnNames[i], i);
+        }
+        this.rows = rows;
+    }
+
+    static ResultSet of(String[] columnNames, List<Object[]> rows) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+            new Class<?>[]{ResultSet.class}, new InMemoryResultSet(columnNames, rows));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "next":
+                return ++cursor < rows.size();
+            case "beforeFirst":
+                cursor = -1;
+                return null;
+            case "getString":
+                Object value = value(args[0]);
+                return value != null ? value.toString() : null;
+            case "getInt":
+                Object number = value(args[0]);
+                return number != null ? ((Number) number).intValue() : 0;
+            case "getTimestamp":
+            case "getObject":
+                return value(args[0]);
+            case "close":
+                return null;
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private Object value(Object column) {
+        Integer index = column instanceof Integer ? (Integer) column - 1 : columns.get(column);
+        return rows.get(cursor)[index];
+    }
+}
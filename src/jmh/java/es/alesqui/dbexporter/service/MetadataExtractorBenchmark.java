@@ -0,0 +1,88 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide los mapeadores de filas de DB2MetadataExtractor y la agrupación de
+ * foreign keys sobre un ResultSet en memoria.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataExtractorBenchmark {
+
+    @State(Scope.Thread)
+    public static class ColumnRows {
+        @Param({"10", "200", "2000"})
+        public int columns;
+
+        ResultSet rows;
+
+        @Setup
+        public void setUp() {
+            rows = SyntheticMetadata.columnRows("BENCH_TABLE", columns);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ForeignKeyRows {
+        @Param({"0", "5", "50"})
+        public int foreignKeys;
+
+        ResultSet rows;
+
+        @Setup
+        public void setUp() {
+            rows = SyntheticMetadata.foreignKeyRows("BENCH_TABLE", foreignKeys);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Extractor {
+        DB2MetadataExtractor extractor = new DB2MetadataExtractor(null);
+    }
+
+    @Benchmark
+    public List<ColumnInfo> mapColumns(Extractor extractor, ColumnRows state) throws SQLException {
+        ResultSet rs = state.rows;
+        rs.beforeFirst();
+        List<ColumnInfo> columns = new ArrayList<>();
+        while (rs.next()) {
+            columns.add(extractor.extractor.mapColumn(rs));
+        }
+        return columns;
+    }
+
+    @Benchmark
+    public List<ForeignKeyInfo> groupForeignKeys(Extractor extractor, ForeignKeyRows state) throws SQLException {
+        ResultSet rs = state.rows;
+        rs.beforeFirst();
+        Map<String, DB2MetadataExtractor.ForeignKeyData> fkMap = new HashMap<>();
+        while (rs.next()) {
+            extractor.extractor.accumulateForeignKey(fkMap, rs);
+        }
+        return extractor.extractor.toForeignKeys(fkMap);
+    }
+}
@@ -0,0 +1,63 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.TableInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la generación del formato descriptivo sobre tablas sintéticas de
+ * distintos tamaños, escribiendo en un buffer UTF-8 reutilizado como hace el
+ * pipeline de exportación.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RendererBenchmark {
+
+    @Param({"10", "200", "2000"})
+    public int columns;
+
+    @Param({"0", "5", "50"})
+    public int foreignKeys;
+
+    private TableRenderer renderer;
+    private TableInfo table;
+    private ByteArrayOutputStream bytes;
+    private Writer writer;
+
+    @Setup
+    public void setUp() {
+        renderer = new DescriptiveTableRenderer();
+        table = SyntheticMetadata.table("BENCH_TABLE", columns, foreignKeys);
+        bytes = new ByteArrayOutputStream(64 * 1024);
+        writer = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public int descriptiveFormat() throws IOException {
+        bytes.reset();
+        renderer.render(table, writer);
+        writer.flush();
+        return bytes.size();
+    }
+}
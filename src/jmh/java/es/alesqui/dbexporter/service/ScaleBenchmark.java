@@ -0,0 +1,168 @@
+package es.alesqui.dbexporter.service;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import es.alesqui.dbexporter.runner.FastExportLauncher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Prueba de escala de {@link TableExportService#exportAllTables()} sobre el
+ * catálogo simulado, con 1 ms de latencia por consulta. Además del tiempo,
+ * comprueba al terminar que la exportación ha terminado sin errores con todas
+ * las tablas y tres límites, y hace fallar la medida si no se cumplen: tiempo
+ * total, consultas al catálogo y memoria viva máxima (la ocupación del heap
+ * tras cada recolección). El perfil benchmark ejecuta JMH con
+ * {@code -foe true}, de modo que un límite superado hace fallar el build.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class ScaleBenchmark {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int THREADS = 4;
+
+    @State(Scope.Benchmark)
+    public static class Export {
+        @Param({"100", "10000", "100000"})
+        public int tables;
+
+        SimulatedMetadataExtractor extractor;
+        TableExportService service;
+        Path output;
+        long startNanos;
+        long elapsedNanos;
+        ExportResult result;
+        final AtomicLong peakLiveHeap = new AtomicLong();
+        private final NotificationListener gcListener = this::onGc;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            extractor = new SimulatedMetadataExtractor(tables, 20, 1.5, 1000);
+            output = Files.createTempDirectory("scale-benchmark");
+
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("app.schema", "SIM");
+            properties.put("app.output.directory", output.resolve("out").toString());
+            properties.put("app.output.mode", "shards");
+            properties.put("app.export.threads", String.valueOf(THREADS));
+            properties.put("app.bulk.chunk-size", String.valueOf(CHUNK_SIZE));
+            properties.put("app.metrics.enabled", "false");
+            StandardEnvironment environment = new StandardEnvironment();
+            environment.getPropertySources().addFirst(new MapPropertySource("scale", properties));
+            service = FastExportLauncher.bind(
+                new TableExportService(extractor, new DescriptiveTableRenderer(), new ExportMetrics()), environment);
+
+            System.gc();
+            peakLiveHeap.set(0);
+            result = null;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).addNotificationListener(gcListener, null, null);
+            }
+            startNanos = System.nanoTime();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws Exception {
+            elapsedNanos = System.nanoTime() - startNanos;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).removeNotificationListener(gcListener);
+            }
+            try (Stream<Path> files = Files.walk(output)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+            checkLimits();
+        }
+
+        private void onGc(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+                (CompositeData) notification.getUserData());
+            long used = 0;
+            for (MemoryUsage usage : info.getGcInfo().getMemoryUsageAfterGc().values()) {
+                used += usage.getUsed();
+            }
+            peakLiveHeap.accumulateAndGet(used, Math::max);
+        }
+
+        /**
+         * Límites: 2 s más 1 ms por tabla; las consultas de la lectura en bloque
+         * (tres por bloque, más índices, vistas y estadísticas) y las globales;
+         * 64 MB de memoria viva más 1 KB por tabla (lista de tablas y grafo de
+         * relaciones, lo único que crece con el esquema).
+         */
+        private void checkLimits() {
+            // Una exportación a medias también es rápida: no cuenta como medida
+            if (result == null || !result.isCompleted()) {
+                throw new IllegalStateException("La exportación no ha terminado: "
+                    + (result != null ? result.getError() : "sin resultado"));
+            }
+            if (result.getErrors() != 0 || result.getExported() != tables) {
+                throw new IllegalStateException("Exportadas " + result.getExported() + " de " + tables
+                    + " tablas, " + result.getErrors() + " con error");
+            }
+
+            // Mismo reparto que TableExportService: bloques de hasta CHUNK_SIZE, al menos uno por hilo
+            long chunkSize = Math.max(1, Math.min(CHUNK_SIZE, (tables + THREADS - 1) / THREADS));
+            long chunks = (tables + chunkSize - 1) / chunkSize;
+            long maxMillis = 2_000 + tables;
+            long maxRoundTrips = 2 + chunks * 6;
+            long maxLiveHeap = 64L * 1024 * 1024 + tables * 1024L;
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            System.out.printf("%n%d tablas: %d ms (límite %d), %d consultas (límite %d), memoria viva máxima %d MB "
+                    + "(límite %d MB)%n", tables, millis, maxMillis, extractor.getRoundTrips(), maxRoundTrips,
+                peakLiveHeap.get() >> 20, maxLiveHeap >> 20);
+            if (millis > maxMillis) {
+                throw new IllegalStateException("Tiempo por encima del límite: " + millis + " ms");
+            }
+            if (extractor.getRoundTrips() > maxRoundTrips) {
+                throw new IllegalStateException("Consultas por encima del límite: " + extractor.getRoundTrips());
+            }
+            if (peakLiveHeap.get() > maxLiveHeap) {
+                throw new IllegalStateException("Memoria viva por encima del límite: " + (peakLiveHeap.get() >> 20)
+                    + " MB");
+            }
+        }
+    }
+
+    @Benchmark
+    public ExportResult exportAllTables(Export export) {
+        export.result = export.service.exportAllTables();
+        return export.result;
+    }
+}
@@ -0,0 +1,102 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Metadatos sintéticos, deterministas, para los benchmarks.
+ */
+final class SyntheticMetadata {
+
+    private static final String[] TYPES = {"VARCHAR", "DECIMAL", "INTEGER", "CHARACTER", "TIMESTAMP", "DATE"};
+
+    private SyntheticMetadata() {
+    }
+
+    /**
+     * Tabla con el número de columnas y foreign keys indicado. Las dos primeras
+     * columnas forman la clave primaria y cada FK usa dos columnas.
+     */
+    static TableInfo table(String name, int columnCount, int foreignKeyCount) {
+        List<ColumnInfo> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            String type = TYPES[i % TYPES.length];
+            columns.add(ColumnInfo.builder()
+                .nombre(columnName(i))
+                .tipo(type)
+                .longitud("INTEGER".equals(type) ? 4 : 10 + i % 40)
+                .escala("DECIMAL".equals(type) ? i % 4 : 0)
+                .nullable(i % 3 != 0)
+                .valorDefault(i % 5 == 0 ? "'N'" : null)
+                .comentario(i % 2 == 0 ? "Descripción de la columna " + i : null)
+                .build());
+        }
+
+        List<ForeignKeyInfo> foreignKeys = new ArrayList<>(foreignKeyCount);
+        for (int i = 0; i < foreignKeyCount; i++) {
+            foreignKeys.add(ForeignKeyInfo.builder()
+                .nombre("FK_" + name + "_" + i)
+                .columnasOrigen(new ArrayList<>(Arrays.asList(
+                    columnName((2 * i) % columnCount), columnName((2 * i + 1) % columnCount))))
+                .tablaDestino("REF_TABLE_" + i)
+                .columnasDestino(new ArrayList<>(Arrays.asList("ID", "VERSION")))
+                .onDeleteAction(i % 3 == 0 ? "CASCADE" : "NO ACTION")
+                .onUpdateAction(i % 4 == 0 ? "RESTRICT" : "NO ACTION")
+                .build());
+        }
+
+        return TableInfo.builder()
+            .nombre(name)
+            .esquema("BENCH")
+            .comentario("Tabla sintética " + name)
+            .columnas(columns)
+            .primaryKeyColumns(new ArrayList<>(Arrays.asList(columnName(0), columnName(1 % columnCount))))
+            .primaryKeyName("PK_" + name)
+            .foreignKeys(foreignKeys)
+            .build();
+    }
+
+    /**
+     * Filas con la forma de la consulta sobre SYSCAT.COLUMNS.
+     */
+    static ResultSet columnRows(String tableName, int columnCount) {
+        List<Object[]> rows = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            String type = TYPES[i % TYPES.length];
+            rows.add(new Object[]{
+                tableName, columnName(i) + "  ", type + " ", "INTEGER".equals(type) ? 4 : 10 + i % 40,
+                "DECIMAL".equals(type) ? i % 4 : 0, i % 3 != 0 ? "Y" : "N",
+                i % 5 == 0 ? "'N'" : null, i % 2 == 0 ? "Descripción de la columna " + i : null});
+        }
+        return InMemoryResultSet.of(new String[]{
+            "TABNAME", "COLNAME", "TYPENAME", "LENGTH", "SCALE", "NULLS", "DEFAULT", "REMARKS"}, rows);
+    }
+
+    /**
+     * Filas con la forma de la consulta de foreign keys (SYSCAT.REFERENCES con
+     * KEYCOLUSE), dos filas por constraint.
+     */
+    static ResultSet foreignKeyRows(String tableName, int foreignKeyCount) {
+        List<Object[]> rows = new ArrayList<>(foreignKeyCount * 2);
+        for (int i = 0; i < foreignKeyCount; i++) {
+            for (int seq = 1; seq <= 2; seq++) {
+                rows.add(new Object[]{
+                    tableName, "FK_" + tableName + "_" + i, "REF_TABLE_" + i, i % 3 == 0 ? "C" : "A",
+                    i % 4 == 0 ? "R" : "A", columnName(2 * i + seq), seq == 1 ? "ID" : "VERSION", seq});
+            }
+        }
+        return InMemoryResultSet.of(new String[]{
+            "TABNAME", "CONSTNAME", "REFTABNAME", "DELETERULE", "UPDATERULE", "FK_COLUMN", "REF_COLUMN", "COLSEQ"},
+            rows);
+    }
+
+    private static String columnName(int index) {
+        return "COLUMN_" + index;
+    }
+}
@@ -1,12 +1,35 @@
 package es.alesqui.dbexporter;
 
+import es.alesqui.dbexporter.runner.FastExportLauncher;
+import es.alesqui.dbexporter.runner.MetadataSearchCommand;
+import es.alesqui.dbexporter.runner.MultiTargetExporter;
+import es.alesqui.dbexporter.runner.ShardMergeCommand;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 @SpringBootApplication
 public class DatabaseStructureExporter {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+		args = ShardMergeCommand.expandShardOption(args);
+		// Búsquedas en el índice, combinación de shards, exportaciones pequeñas y
+		// de varios esquemas sin contexto de Spring Boot
+		if (MetadataSearchCommand.isRequested(args)) {
+			MetadataSearchCommand.main(args);
+			return;
+		}
+		if (ShardMergeCommand.isRequested(args)) {
+			ShardMergeCommand.main(args);
+			return;
+		}
+		if (MultiTargetExporter.isRequested(args)) {
+			MultiTargetExporter.main(args);
+			return;
+		}
+		if (FastExportLauncher.isRequested(args)) {
+			FastExportLauncher.main(args);
+			return;
+		}
 		SpringApplication.run(DatabaseStructureExporter.class, args);
 	}
 
@@ -0,0 +1,146 @@
+package es.alesqui.dbexporter.config;
+
+import es.alesqui.dbexporter.service.CatalogThrottle;
+import es.alesqui.dbexporter.service.DB2MetadataExtractor;
+import es.alesqui.dbexporter.service.DatabaseMetadataExtractor;
+import es.alesqui.dbexporter.service.ExportMetrics;
+import es.alesqui.dbexporter.service.JdbcMetadataExtractor;
+import es.alesqui.dbexporter.service.SimulatedMetadataExtractor;
+import es.alesqui.dbexporter.service.SnapshotMetadataExtractor;
+import es.alesqui.dbexporter.service.ThrottledMetadataExtractor;
+import es.alesqui.dbexporter.service.TimedMetadataExtractor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Selecciona en tiempo de ejecución el extractor de metadatos:
+ * <ul>
+ *   <li>instantánea local si se ha configurado app.snapshot.input;</li>
+ *   <li>el indicado en app.extractor (db2, jdbc, o simulated para un catálogo
+ *   sintético configurado con app.simulator.*);</li>
+ *   <li>o, por defecto, según la URL JDBC: DB2 usa las vistas SYSCAT y el
+ *   resto de bases de datos el extractor genérico de DatabaseMetaData.</li>
+ * </ul>
+ * Con app.metrics.enabled el extractor se envuelve para medir cada consulta y,
+ * con app.throttle.enabled, para limitar la carga sobre el catálogo. Las
+ * consultas a la base de datos tienen un timeout de app.query.timeout-seconds.
+ */
+@Slf4j
+@Configuration
+public class MetadataExtractorConfiguration {
+
+    @Value("${app.snapshot.input:}")
+    private String snapshotInput;
+
+    @Value("${app.extractor:auto}")
+    private String extractor;
+
+    @Value("${spring.datasource.url:}")
+    private String jdbcUrl;
+
+    @Value("${app.jdbc.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.jdbc.schema-wide-keys:false}")
+    private boolean schemaWideKeys;
+
+    @Value("${app.metrics.enabled:true}")
+    private boolean metricsEnabled;
+
+    @Value("${app.query.timeout-seconds:60}")
+    private int queryTimeoutSeconds;
+
+    @Value("${app.throttle.enabled:false}")
+    private boolean throttleEnabled;
+
+    @Value("${app.throttle.target-latency-ms:500}")
+    private long targetLatencyMs;
+
+    @Value("${app.throttle.max-queries-per-second:0}")
+    private double maxQueriesPerSecond;
+
+    @Value("${app.throttle.min-concurrency:1}")
+    private int minConcurrency;
+
+    @Value("${app.throttle.max-concurrency:0}")
+    private int maxConcurrency;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${app.simulator.tables:1000}")
+    private int simulatorTables;
+
+    @Value("${app.simulator.columns-per-table:20}")
+    private int simulatorColumns;
+
+    @Value("${app.simulator.foreign-keys-per-table:1.5}")
+    private double simulatorForeignKeys;
+
+    @Value("${app.simulator.latency-micros:1000}")
+    private long simulatorLatencyMicros;
+
+    @Bean
+    public DatabaseMetadataExtractor metadataExtractor(ObjectProvider<DataSource> dataSource,
+            ObjectProvider<JdbcTemplate> jdbcTemplate, ExportMetrics metrics) throws IOException {
+        DatabaseMetadataExtractor extractor = createExtractor(dataSource, jdbcTemplate, metrics);
+        if (metricsEnabled) {
+            extractor = new TimedMetadataExtractor(extractor, metrics);
+        }
+        if (throttleEnabled && snapshotInput.trim().isEmpty()) {
+            // Sin límite explícito, tantas consultas simultáneas como conexiones
+            int max = maxConcurrency > 0 ? maxConcurrency : connectionPoolSize;
+            CatalogThrottle throttle = new CatalogThrottle(maxQueriesPerSecond, targetLatencyMs, minConcurrency, max);
+            log.info("Limitación de consultas al catálogo: objetivo {} ms, {} consultas simultáneas como máximo{}",
+                targetLatencyMs, throttle.getMaxConcurrency(),
+                maxQueriesPerSecond > 0 ? ", " + maxQueriesPerSecond + " consultas/s" : "");
+            extractor = new ThrottledMetadataExtractor(extractor, throttle, metricsEnabled ? metrics : null);
+        }
+        return extractor;
+    }
+
+    private DatabaseMetadataExtractor createExtractor(ObjectProvider<DataSource> dataSource,
+            ObjectProvider<JdbcTemplate> jdbcTemplate, ExportMetrics metrics) throws IOException {
+        if (!snapshotInput.trim().isEmpty()) {
+            log.info("Extractor de metadatos: instantánea local {}", snapshotInput);
+            return new SnapshotMetadataExtractor(Paths.get(snapshotInput));
+        }
+
+        String type = extractor.trim().toLowerCase();
+        if ("auto".equals(type)) {
+            type = DatabaseDriver.fromJdbcUrl(jdbcUrl) == DatabaseDriver.DB2 ? "db2" : "jdbc";
+        }
+
+        switch (type) {
+            case "db2":
+                log.info("Extractor de metadatos: DB2 (SYSCAT)");
+                JdbcTemplate template = jdbcTemplate.getObject();
+                if (queryTimeoutSeconds > 0) {
+                    template.setQueryTimeout(queryTimeoutSeconds);
+                }
+                return new DB2MetadataExtractor(template, metricsEnabled ? metrics : null);
+            case "jdbc":
+                log.info("Extractor de metadatos: JDBC genérico (DatabaseMetaData)");
+                return new JdbcMetadataExtractor(dataSource.getObject(), fetchSize, schemaWideKeys,
+                    queryTimeoutSeconds);
+            case "simulated":
+                log.info("Extractor de metadatos: catálogo simulado de {} tablas ({} columnas, {} FK por tabla, "
+                    + "{} µs por consulta)", simulatorTables, simulatorColumns, simulatorForeignKeys,
+                    simulatorLatencyMicros);
+                return new SimulatedMetadataExtractor(simulatorTables, simulatorColumns, simulatorForeignKeys,
+                    simulatorLatencyMicros);
+            default:
+                throw new IllegalArgumentException("Valor no válido para app.extractor: " + extractor
+                    + " (admitidos: auto, db2, jdbc, simulated)");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package es.alesqui.dbexporter.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertyResolver;
+
+import java.util.Collections;
+
+/**
+ * Cuando se genera la documentación desde una instantánea local
+ * (app.snapshot.input) o desde el catálogo simulado (app.extractor=simulated)
+ * no hace falta base de datos: se desactiva la configuración automática del
+ * DataSource para poder arrancar sin él.
+ */
+public class SnapshotEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String EXCLUDE_PROPERTY = "spring.autoconfigure.exclude";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (needsDatabase(environment)) {
+            return;
+        }
+
+        String excluded = environment.getProperty(EXCLUDE_PROPERTY, "");
+        String exclusions = excluded.trim().isEmpty()
+            ? DataSourceAutoConfiguration.class.getName()
+            : excluded + "," + DataSourceAutoConfiguration.class.getName();
+
+        environment.getPropertySources().addFirst(new MapPropertySource("snapshotMode",
+            Collections.singletonMap(EXCLUDE_PROPERTY, exclusions)));
+    }
+
+    /**
+     * Indica si la configuración lee los metadatos de una base de datos.
+     */
+    public static boolean needsDatabase(PropertyResolver environment) {
+        return environment.getProperty("app.snapshot.input", "").trim().isEmpty()
+            && !"simulated".equalsIgnoreCase(environment.getProperty("app.extractor", "").trim());
+    }
+}
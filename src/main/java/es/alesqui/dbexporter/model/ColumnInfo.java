@@ -1,19 +1,71 @@
 package es.alesqui.dbexporter.model;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 /**
  * Información de una columna.
+ *
+ * <p>Longitud y escala se guardan como enteros primitivos y el tipo como
+ * instancia compartida ({@link MetadataNames}); los getters mantienen el
+ * contrato de siempre, con null cuando no hay valor.
  */
-@Data
-@Builder
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
 public class ColumnInfo {
+
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+
     private String nombre;
     private String tipo;
-    private Integer longitud;
-    private Integer escala;
+    private int longitud;
+    private int escala;
     private boolean nullable;
     private String valorDefault;
     private String comentario;
+
+    @Builder
+    public ColumnInfo(String nombre, String tipo, Integer longitud, Integer escala, boolean nullable,
+            String valorDefault, String comentario) {
+        this.nombre = nombre;
+        this.tipo = MetadataNames.canonical(tipo);
+        this.longitud = pack(longitud);
+        this.escala = pack(escala);
+        this.nullable = nullable;
+        this.valorDefault = valorDefault;
+        this.comentario = comentario;
+    }
+
+    public Integer getLongitud() {
+        return unpack(longitud);
+    }
+
+    public void setLongitud(Integer longitud) {
+        this.longitud = pack(longitud);
+    }
+
+    public Integer getEscala() {
+        return unpack(escala);
+    }
+
+    public void setEscala(Integer escala) {
+        this.escala = pack(escala);
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = MetadataNames.canonical(tipo);
+    }
+
+    private static int pack(Integer value) {
+        return value != null ? value : NO_VALUE;
+    }
+
+    private static Integer unpack(int value) {
+        return value != NO_VALUE ? value : null;
+    }
 }
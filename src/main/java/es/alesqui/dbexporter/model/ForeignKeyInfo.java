@@ -9,13 +9,36 @@ import java.util.List;
  * Información de una foreign key.
  */
 @Data
-@Builder
 public class ForeignKeyInfo {
     private String nombre;                    // Nombre de la constraint
     private List<String> columnasOrigen;      // Columnas de la tabla actual
     private String tablaDestino;              // Tabla referenciada
+    private String esquemaDestino;            // Esquema de la tabla referenciada; null si es el de la tabla actual
     private List<String> columnasDestino;     // Columnas referenciadas
     private String onDeleteAction;            // CASCADE, RESTRICT, etc.
     private String onUpdateAction;            // CASCADE, RESTRICT, etc.
-}
 
+    /**
+     * Las reglas se guardan como instancias compartidas: sólo hay unas pocas
+     * distintas en todo el catálogo.
+     */
+    @Builder
+    public ForeignKeyInfo(String nombre, List<String> columnasOrigen, String tablaDestino, String esquemaDestino,
+            List<String> columnasDestino, String onDeleteAction, String onUpdateAction) {
+        this.nombre = nombre;
+        this.columnasOrigen = columnasOrigen;
+        this.tablaDestino = tablaDestino;
+        this.esquemaDestino = esquemaDestino;
+        this.columnasDestino = columnasDestino;
+        this.onDeleteAction = MetadataNames.canonical(onDeleteAction);
+        this.onUpdateAction = MetadataNames.canonical(onUpdateAction);
+    }
+
+    public void setOnDeleteAction(String onDeleteAction) {
+        this.onDeleteAction = MetadataNames.canonical(onDeleteAction);
+    }
+
+    public void setOnUpdateAction(String onUpdateAction) {
+        this.onUpdateAction = MetadataNames.canonical(onUpdateAction);
+    }
+}
@@ -0,0 +1,20 @@
+package es.alesqui.dbexporter.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Información de un índice.
+ */
+@Data
+@Builder
+public class IndexInfo {
+    private String nombre;                    // Nombre del índice
+    private List<String> columnas;            // Columnas en orden, con " DESC" si son descendentes
+    private List<String> columnasIncluidas;   // Columnas INCLUDE, fuera de la clave
+    private boolean unico;                    // No admite valores duplicados
+    private boolean clavePrimaria;            // Índice de la clave primaria
+    private boolean cluster;                  // Índice de clustering
+}
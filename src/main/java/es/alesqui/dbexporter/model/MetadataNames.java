@@ -0,0 +1,41 @@
+package es.alesqui.dbexporter.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de los valores que se repiten miles de veces en un catálogo grande
+ * y de los que sólo hay unos pocos distintos: nombres de tipo (VARCHAR,
+ * DECIMAL...) y reglas de las foreign keys (CASCADE, NO ACTION...). Cada valor
+ * se guarda una sola vez. Los nombres de columna y los valores por defecto no
+ * se registran: el registro es global y crecería sin límite.
+ */
+public final class MetadataNames {
+
+    // Tope de seguridad ante catálogos con miles de tipos de usuario
+    private static final int MAX_VALUES = 4096;
+
+    private static final Map<String, String> CANONICAL = new ConcurrentHashMap<>();
+
+    private MetadataNames() {
+    }
+
+    /**
+     * Instancia única del valor indicado. Si el registro está lleno se devuelve
+     * el propio valor.
+     */
+    public static String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = CANONICAL.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (CANONICAL.size() >= MAX_VALUES) {
+            return value;
+        }
+        existing = CANONICAL.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
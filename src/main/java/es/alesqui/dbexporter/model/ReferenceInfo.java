@@ -0,0 +1,14 @@
+package es.alesqui.dbexporter.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Foreign key de otra tabla que apunta a la tabla actual.
+ */
+@Data
+@AllArgsConstructor
+public class ReferenceInfo {
+    private String tablaOrigen;               // Tabla que contiene la FK
+    private ForeignKeyInfo foreignKey;        // FK tal como la ve la tabla de origen
+}
@@ -2,6 +2,7 @@ package es.alesqui.dbexporter.model;
 
 import lombok.Builder;
 import lombok.Data;
+
 import java.util.List;
 
 /**
@@ -17,5 +18,9 @@ public class TableInfo {
     private List<String> primaryKeyColumns;
     private String primaryKeyName;
     private List<ForeignKeyInfo> foreignKeys;
-}
+    private List<ReferenceInfo> referencedBy;   // FK de otras tablas; null si no se ha calculado
+    private List<IndexInfo> indices;            // null si no se han leído
+    private List<String> vistas;                // Vistas que dependen de la tabla; null si no se han leído
+    private TableStatistics estadisticas;       // null si no se han leído o no hay
 
+}
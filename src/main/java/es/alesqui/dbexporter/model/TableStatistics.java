@@ -0,0 +1,16 @@
+package es.alesqui.dbexporter.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Estadísticas de una tabla tal como las guarda el catálogo (RUNSTATS en DB2).
+ * Nunca se calculan contando filas.
+ */
+@Data
+@Builder
+public class TableStatistics {
+    private Long filas;                       // Número estimado de filas; null si no hay estadísticas
+    private Long paginas;                     // Páginas con filas; null si no hay estadísticas
+    private String fechaEstadisticas;         // Fecha en que se recogieron
+}
@@ -5,6 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import es.alesqui.dbexporter.service.ExportDaemon;
+import es.alesqui.dbexporter.service.SchemaDiffService;
 import es.alesqui.dbexporter.service.TableExportService;
 
 @Slf4j
@@ -14,8 +16,24 @@ public class DatabaseStructureExporterRunner implements CommandLineRunner {
     
     private final TableExportService tableExportService;
     
+    private final SchemaDiffService schemaDiffService;
+    
+    private final ExportDaemon exportDaemon;
+    
     @Override
     public void run(String... args) throws Exception {
+        if (schemaDiffService.isEnabled()) {
+            log.info("Iniciando comparación de esquemas...");
+            schemaDiffService.compare();
+            return;
+        }
+        
+        if (exportDaemon.isEnabled()) {
+            log.info("Iniciando modo servicio...");
+            exportDaemon.start();
+            return;
+        }
+        
         log.info("Iniciando exportación de tablas GST...");
         tableExportService.exportAllTables();
         log.info("Exportación completada.");
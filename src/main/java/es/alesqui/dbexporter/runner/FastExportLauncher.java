@@ -0,0 +1,250 @@
+package es.alesqui.dbexporter.runner;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import es.alesqui.dbexporter.config.MetadataExtractorConfiguration;
+import es.alesqui.dbexporter.config.SnapshotEnvironmentPostProcessor;
+import es.alesqui.dbexporter.service.DatabaseMetadataExtractor;
+import es.alesqui.dbexporter.service.DescriptiveTableRenderer;
+import es.alesqui.dbexporter.service.ExportMetrics;
+import es.alesqui.dbexporter.service.TableExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingInitializationContext;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.system.ApplicationPid;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.env.CommandLinePropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arranque rápido para exportaciones pequeñas (una tabla o una lista de
+ * tablas), pensado para CI: monta a mano el DataSource, el extractor y el
+ * {@link TableExportService} sin contexto de Spring Boot ni escaneo del
+ * classpath. Se activa con {@code --fast-start}.
+ *
+ * <p>Lee las mismas propiedades que la aplicación, con la misma prioridad:
+ * argumentos {@code --clave=valor}, propiedades del sistema, variables de
+ * entorno, {@code config/application.properties}, {@code application.properties}
+ * del directorio actual y, por último, el del classpath. Los argumentos que no
+ * son opciones se toman como la lista de tablas a exportar
+ * (app.tables.include). No admite perfiles ni los modos de comparación y de
+ * servicio.
+ */
+@Slf4j
+public final class FastExportLauncher {
+
+    public static final String FLAG = "--fast-start";
+
+    private static final String LOGGING_LEVEL = "logging.level.";
+    private static final String HIKARI = "spring.datasource.hikari.";
+
+    private FastExportLauncher() {
+    }
+
+    /**
+     * Indica si se ha pedido el arranque rápido.
+     */
+    public static boolean isRequested(String[] args) {
+        for (String arg : args) {
+            if (FLAG.equals(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        List<String> options = new ArrayList<>();
+        for (String arg : args) {
+            if (!FLAG.equals(arg)) {
+                options.add(arg);
+            }
+        }
+        ConfigurableEnvironment environment = createEnvironment(options.toArray(new String[0]));
+        initializeLogging(environment);
+
+        HikariDataSource dataSource = SnapshotEnvironmentPostProcessor.needsDatabase(environment)
+            ? createDataSource(environment) : null;
+        try {
+            ExportMetrics metrics = new ExportMetrics();
+            DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+            if (dataSource != null) {
+                beans.registerSingleton("dataSource", dataSource);
+                beans.registerSingleton("jdbcTemplate", new JdbcTemplate(dataSource));
+            }
+            DatabaseMetadataExtractor extractor = bind(new MetadataExtractorConfiguration(), environment)
+                .metadataExtractor(beans.getBeanProvider(DataSource.class), beans.getBeanProvider(JdbcTemplate.class),
+                    metrics);
+            try {
+                TableExportService exportService = bind(
+                    new TableExportService(extractor, new DescriptiveTableRenderer(), metrics), environment);
+
+                log.info("Arranque rápido completado en {} ms (JVM en marcha desde hace {} ms)",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    ManagementFactory.getRuntimeMXBean().getUptime());
+                log.info("Iniciando exportación de tablas GST...");
+                exportService.exportAllTables();
+                log.info("Exportación completada.");
+            } finally {
+                if (extractor instanceof Closeable) {
+                    ((Closeable) extractor).close();
+                }
+            }
+        } finally {
+            if (dataSource != null) {
+                dataSource.close();
+            }
+        }
+    }
+
+    /**
+     * Entorno con las fuentes de propiedades de la aplicación. Las tablas
+     * indicadas como argumentos tienen prioridad sobre app.tables.include.
+     */
+    static ConfigurableEnvironment createEnvironment(String[] args) throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        MutablePropertySources sources = environment.getPropertySources();
+        SimpleCommandLinePropertySource commandLine = new SimpleCommandLinePropertySource(args);
+        sources.addFirst(commandLine);
+        String tables = commandLine.getProperty(CommandLinePropertySource.DEFAULT_NON_OPTION_ARGS_PROPERTY_NAME);
+        if (tables != null && !tables.isEmpty()) {
+            sources.addFirst(new MapPropertySource("tableArguments",
+                Collections.singletonMap("app.tables.include", tables)));
+        }
+
+        Resource[] files = {
+            new FileSystemResource("config/application.properties"),
+            new FileSystemResource("application.properties"),
+            new ClassPathResource("application.properties")
+        };
+        for (Resource file : files) {
+            if (file.exists()) {
+                sources.addLast(new ResourcePropertySource(file.getDescription(), file));
+            }
+        }
+        return environment;
+    }
+
+    /**
+     * Configura el log como lo haría Spring Boot, incluidos los niveles
+     * logging.level.*.
+     */
+    static void initializeLogging(ConfigurableEnvironment environment) {
+        if (System.getProperty("PID") == null) {
+            System.setProperty("PID", new ApplicationPid().toString());
+        }
+        LoggingSystem loggingSystem = LoggingSystem.get(FastExportLauncher.class.getClassLoader());
+        loggingSystem.beforeInitialize();
+        loggingSystem.initialize(new LoggingInitializationContext(environment), null, null);
+        for (String name : propertyNames(environment, LOGGING_LEVEL)) {
+            String logger = name.substring(LOGGING_LEVEL.length());
+            loggingSystem.setLogLevel("root".equalsIgnoreCase(logger) ? LoggingSystem.ROOT_LOGGER_NAME : logger,
+                LogLevel.valueOf(environment.getProperty(name).trim().toUpperCase()));
+        }
+    }
+
+    /**
+     * Pool de conexiones con spring.datasource.* y las propiedades
+     * spring.datasource.hikari.* que admite Hikari.
+     */
+    static HikariDataSource createDataSource(ConfigurableEnvironment environment) {
+        Properties hikari = new Properties();
+        for (String name : propertyNames(environment, HIKARI)) {
+            hikari.setProperty(camelCase(name.substring(HIKARI.length())), environment.getProperty(name));
+        }
+        HikariConfig config = new HikariConfig(hikari);
+        config.setJdbcUrl(environment.getRequiredProperty("spring.datasource.url"));
+        config.setUsername(environment.getProperty("spring.datasource.username"));
+        config.setPassword(environment.getProperty("spring.datasource.password"));
+        String driver = environment.getProperty("spring.datasource.driver-class-name", "");
+        if (!driver.trim().isEmpty()) {
+            config.setDriverClassName(driver.trim());
+        }
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Asigna los campos {@link Value} del objeto como lo haría el contenedor,
+     * con los mismos valores por defecto.
+     */
+    public static <T> T bind(T bean, ConfigurableEnvironment environment) {
+        ConversionService conversion = DefaultConversionService.getSharedInstance();
+        for (Class<?> type = bean.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                Value value = field.getAnnotation(Value.class);
+                if (value == null) {
+                    continue;
+                }
+                String resolved = environment.resolveRequiredPlaceholders(value.value());
+                try {
+                    field.setAccessible(true);
+                    field.set(bean, conversion.convert(resolved, field.getType()));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("No se puede asignar " + type.getSimpleName() + "."
+                        + field.getName(), e);
+                }
+            }
+        }
+        return bean;
+    }
+
+    static Set<String> propertyNames(ConfigurableEnvironment environment, String prefix) {
+        Set<String> names = new TreeSet<>();
+        for (PropertySource<?> source : environment.getPropertySources()) {
+            if (source instanceof EnumerablePropertySource) {
+                for (String name : ((EnumerablePropertySource<?>) source).getPropertyNames()) {
+                    if (name.startsWith(prefix)) {
+                        names.add(name);
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * maximum-pool-size -> maximumPoolSize
+     */
+    private static String camelCase(String name) {
+        StringBuilder camel = new StringBuilder(name.length());
+        boolean upper = false;
+        for (char c : name.toCharArray()) {
+            if (c == '-') {
+                upper = true;
+            } else {
+                camel.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return camel.toString();
+    }
+}
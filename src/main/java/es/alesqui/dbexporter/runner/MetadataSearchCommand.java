@@ -0,0 +1,125 @@
+package es.alesqui.dbexporter.runner;
+
+import es.alesqui.dbexporter.service.MetadataSearchIndex;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consulta el índice de búsqueda que genera la exportación, sin contexto de
+ * Spring Boot ni base de datos. Se activa con {@code --search}; los argumentos
+ * que no son opciones forman la consulta (ver {@link MetadataSearchIndex}):
+ *
+ * <pre>
+ * java -jar db-exporter.jar --search column:CUST_ID
+ * java -jar db-exporter.jar --search "type:DECIMAL(15,2)" comment:factura*
+ * </pre>
+ *
+ * <p>El índice es app.search.index-file o el del directorio app.output.directory;
+ * app.search.index-file admite varios índices separados por comas para buscar
+ * en varios esquemas a la vez. Cada coincidencia se escribe en una línea,
+ * ESQUEMA.TABLA.COLUMNA y el tipo separados por un tabulador, o ESQUEMA.TABLA
+ * si la condición era de la tabla. El resumen va a la salida de error.
+ */
+public final class MetadataSearchCommand {
+
+    public static final String FLAG = "--search";
+
+    private MetadataSearchCommand() {
+    }
+
+    /**
+     * Indica si se ha pedido una búsqueda.
+     */
+    public static boolean isRequested(String[] args) {
+        for (String arg : args) {
+            if (FLAG.equals(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Sólo se muestran avisos y errores: la salida es el resultado
+        LoggingSystem.get(MetadataSearchCommand.class.getClassLoader())
+            .setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+        List<String> options = new ArrayList<>();
+        StringBuilder query = new StringBuilder();
+        for (String arg : args) {
+            if (FLAG.equals(arg)) {
+                continue;
+            }
+            if (arg.startsWith("--")) {
+                options.add(arg);
+            } else {
+                query.append(query.length() > 0 ? " " : "").append(arg);
+            }
+        }
+        if (query.length() == 0) {
+            throw new IllegalArgumentException("Falta la consulta: " + FLAG + " column:CUST_ID type:DECIMAL(15,2) ...");
+        }
+
+        ConfigurableEnvironment environment = FastExportLauncher.createEnvironment(options.toArray(new String[0]));
+        long start = System.nanoTime();
+        int matches = 0;
+        int tables = 0;
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        for (Path file : indexFiles(environment)) {
+            try (MetadataSearchIndex index = MetadataSearchIndex.open(file)) {
+                tables += index.getTableCount();
+                List<MetadataSearchIndex.Hit> hits;
+                try {
+                    hits = index.search(query.toString());
+                } catch (IllegalArgumentException e) {
+                    // Las coincidencias de los índices anteriores ya están en el buffer
+                    out.flush();
+                    System.err.println("Consulta no válida: " + e.getMessage());
+                    System.exit(2);
+                    return;
+                }
+                for (MetadataSearchIndex.Hit hit : hits) {
+                    out.write(hit.getSchema() != null ? hit.getSchema() + "." + hit.getTable() : hit.getTable());
+                    if (hit.getColumn() != null) {
+                        out.write('.');
+                        out.write(hit.getColumn());
+                        out.write('\t');
+                        out.write(String.valueOf(hit.getType()));
+                    }
+                    out.write('\n');
+                    matches++;
+                }
+            }
+        }
+        out.flush();
+
+        System.err.printf("%d coincidencias en %d tablas indexadas (búsqueda: %.1f ms)%n", matches, tables,
+            (System.nanoTime() - start) / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static List<Path> indexFiles(ConfigurableEnvironment environment) {
+        List<Path> files = new ArrayList<>();
+        String configured = environment.getProperty("app.search.index-file", "");
+        if (configured.trim().isEmpty()) {
+            files.add(Paths.get(environment.getRequiredProperty("app.output.directory"), MetadataSearchIndex.FILE_NAME));
+            return files;
+        }
+        for (String file : configured.split(",")) {
+            if (!file.trim().isEmpty()) {
+                files.add(Paths.get(file.trim()));
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,290 @@
+package es.alesqui.dbexporter.runner;
+
+import com.zaxxer.hikari.HikariDataSource;
+import es.alesqui.dbexporter.config.MetadataExtractorConfiguration;
+import es.alesqui.dbexporter.config.SnapshotEnvironmentPostProcessor;
+import es.alesqui.dbexporter.service.DatabaseMetadataExtractor;
+import es.alesqui.dbexporter.service.DescriptiveTableRenderer;
+import es.alesqui.dbexporter.service.ExportMetrics;
+import es.alesqui.dbexporter.service.ExportResult;
+import es.alesqui.dbexporter.service.TableExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.env.AbstractEnvironment;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exportación de varios esquemas, de una o varias bases de datos, en una sola
+ * ejecución. Los destinos se indican en app.targets como una lista de
+ * {@code [origen:]ESQUEMA}; cada origen se configura con las propiedades
+ * app.datasources.&lt;origen&gt;.* (url, username, password, hikari.*, que
+ * sustituyen a las spring.datasource.*, y cualquier propiedad app.* que deba
+ * cambiar para ese origen). Sin origen se usa spring.datasource.
+ *
+ * <p>Cada destino tiene su propio pool de conexiones y sus propios hilos
+ * (app.export.threads), y se exporta en el subdirectorio
+ * &lt;app.output.directory&gt;/&lt;origen&gt;/&lt;ESQUEMA&gt;. Los destinos se
+ * exportan a la vez, como mucho app.targets.parallelism (todos si es 0), y al
+ * final se escribe un resumen conjunto en _SUMMARY.txt. Como el arranque
+ * rápido, monta los servicios sin contexto de Spring Boot.
+ */
+@Slf4j
+public final class MultiTargetExporter {
+
+    static final String SUMMARY_FILE = "_SUMMARY.txt";
+
+    private static final String TARGETS = "app.targets";
+    private static final String DATASOURCES = "app.datasources.";
+
+    /**
+     * Propiedades con la ruta de un archivo, que no puede ser el mismo en dos
+     * destinos.
+     */
+    private static final String[] FILE_PROPERTIES = {
+        "app.snapshot.output", "app.metrics.report-file", "app.relationships.summary-file", "app.search.index-file"
+    };
+
+    private MultiTargetExporter() {
+    }
+
+    /**
+     * Indica si la configuración (argumentos o archivos de propiedades) tiene
+     * una lista de destinos.
+     */
+    public static boolean isRequested(String[] args) throws IOException {
+        return !FastExportLauncher.createEnvironment(args).getProperty(TARGETS, "").trim().isEmpty();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> options = new ArrayList<>();
+        for (String arg : args) {
+            if (!FastExportLauncher.FLAG.equals(arg)) {
+                options.add(arg);
+            }
+        }
+        ConfigurableEnvironment environment = FastExportLauncher.createEnvironment(options.toArray(new String[0]));
+        FastExportLauncher.initializeLogging(environment);
+        export(environment);
+    }
+
+    /**
+     * Exporta todos los destinos y escribe el resumen conjunto.
+     */
+    static List<ExportResult> export(ConfigurableEnvironment environment) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Map<String, ConfigurableEnvironment> targets = createTargets(environment);
+        int parallelism = environment.getProperty("app.targets.parallelism", Integer.class, 0);
+        int threads = parallelism > 0 ? Math.min(parallelism, targets.size()) : targets.size();
+        log.info("Exportando {} esquemas, {} a la vez", targets.size(), threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("target-"));
+        Map<String, Future<ExportResult>> futures = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, ConfigurableEnvironment> target : targets.entrySet()) {
+                futures.put(target.getKey(), executor.submit(() -> exportTarget(target.getKey(), target.getValue())));
+            }
+            Map<String, ExportResult> results = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<ExportResult>> future : futures.entrySet()) {
+                ConfigurableEnvironment target = targets.get(future.getKey());
+                try {
+                    results.put(future.getKey(), future.getValue().get());
+                } catch (ExecutionException e) {
+                    log.error("Error exportando {}: {}", future.getKey(), e.getCause().getMessage(), e.getCause());
+                    results.put(future.getKey(), ExportResult.failed(target.getProperty("app.schema"),
+                        Paths.get(target.getProperty("app.output.directory")), 0, e.getCause().getMessage()));
+                }
+            }
+            Path summary = Paths.get(environment.getRequiredProperty("app.output.directory")).resolve(SUMMARY_FILE);
+            writeSummary(results, summary, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return new ArrayList<>(results.values());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Entorno de cada destino, por nombre (origen/ESQUEMA): el general con las
+     * propiedades del origen, el esquema y el subdirectorio de salida delante.
+     */
+    static Map<String, ConfigurableEnvironment> createTargets(ConfigurableEnvironment environment) {
+        Path outputDirectory = Paths.get(environment.getRequiredProperty("app.output.directory"));
+        Map<String, ConfigurableEnvironment> targets = new LinkedHashMap<>();
+        for (String target : environment.getRequiredProperty(TARGETS).split(",")) {
+            target = target.trim();
+            if (target.isEmpty()) {
+                continue;
+            }
+            int colon = target.indexOf(':');
+            String source = colon >= 0 ? target.substring(0, colon).trim() : "";
+            String schema = target.substring(colon + 1).trim();
+            if (schema.isEmpty()) {
+                throw new IllegalArgumentException("Destino sin esquema en app.targets: " + target);
+            }
+            String name = source.isEmpty() ? schema : source + "/" + schema;
+            if (targets.containsKey(name)) {
+                throw new IllegalArgumentException("Destino repetido en app.targets: " + target);
+            }
+
+            Map<String, Object> properties = new HashMap<>();
+            if (!source.isEmpty()) {
+                String prefix = DATASOURCES + source + ".";
+                for (String property : FastExportLauncher.propertyNames(environment, prefix)) {
+                    String key = property.substring(prefix.length());
+                    properties.put(key.startsWith("app.") ? key : "spring.datasource." + key,
+                        environment.getProperty(property));
+                }
+                if (properties.isEmpty()) {
+                    throw new IllegalArgumentException("El origen " + source + " de app.targets no está configurado ("
+                        + prefix + "url...)");
+                }
+            }
+            properties.putIfAbsent("spring.datasource.hikari.pool-name", "pool-" + name);
+            properties.put("app.schema", schema);
+            properties.put("app.output.directory", outputDirectory.resolve(name).toString());
+            targets.put(name, withOverrides(environment, "target " + name, properties));
+        }
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("app.targets no tiene ningún destino");
+        }
+
+        // Los archivos configurados con ruta fija se sobrescribirían entre destinos
+        for (String property : FILE_PROPERTIES) {
+            Map<String, String> owners = new HashMap<>();
+            for (Map.Entry<String, ConfigurableEnvironment> target : targets.entrySet()) {
+                String file = target.getValue().getProperty(property, "").trim();
+                String other = file.isEmpty() ? null : owners.put(file, target.getKey());
+                if (other != null) {
+                    throw new IllegalArgumentException("Los destinos " + other + " y " + target.getKey()
+                        + " usan el mismo archivo " + property + "=" + file
+                        + ": configúrelo para cada origen o déjelo vacío");
+                }
+            }
+        }
+        return targets;
+    }
+
+    private static ConfigurableEnvironment withOverrides(ConfigurableEnvironment environment, String name,
+            Map<String, Object> properties) {
+        // Sin fuentes propias: las del entorno general, en el mismo orden
+        ConfigurableEnvironment target = new AbstractEnvironment() { };
+        MutablePropertySources sources = target.getPropertySources();
+        for (PropertySource<?> source : environment.getPropertySources()) {
+            sources.addLast(source);
+        }
+        sources.addFirst(new MapPropertySource(name, properties));
+        return target;
+    }
+
+    /**
+     * Monta el pool, el extractor y el servicio del destino, y exporta.
+     */
+    private static ExportResult exportTarget(String name, ConfigurableEnvironment environment) throws IOException {
+        Thread.currentThread().setName("target-" + name);
+        log.info("Exportando {} en {}", name, Paths.get(environment.getProperty("app.output.directory"))
+            .toAbsolutePath());
+        HikariDataSource dataSource = SnapshotEnvironmentPostProcessor.needsDatabase(environment)
+            ? FastExportLauncher.createDataSource(environment) : null;
+        try {
+            ExportMetrics metrics = new ExportMetrics();
+            DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+            if (dataSource != null) {
+                beans.registerSingleton("dataSource", dataSource);
+                beans.registerSingleton("jdbcTemplate", new JdbcTemplate(dataSource));
+            }
+            DatabaseMetadataExtractor extractor = FastExportLauncher.bind(new MetadataExtractorConfiguration(),
+                environment).metadataExtractor(beans.getBeanProvider(DataSource.class),
+                    beans.getBeanProvider(JdbcTemplate.class), metrics);
+            try {
+                return FastExportLauncher.bind(
+                    new TableExportService(extractor, new DescriptiveTableRenderer(), metrics), environment)
+                    .exportAllTables();
+            } finally {
+                if (extractor instanceof Closeable) {
+                    ((Closeable) extractor).close();
+                }
+            }
+        } finally {
+            if (dataSource != null) {
+                dataSource.close();
+            }
+        }
+    }
+
+    /**
+     * Resumen conjunto: una línea por destino (o por shard) con sus totales,
+     * las tablas con error y la suma de todos. Se muestra en el log y se guarda en el
+     * directorio de salida.
+     */
+    static void writeSummary(Map<String, ExportResult> results, Path file, long elapsedMillis) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-30s %8s %10s %7s %10s %9s  %s", "TARGET", "TABLES", "EXPORTED", "ERRORS",
+            "UNCHANGED", "TIME (s)", "STATUS"));
+        int tables = 0;
+        int exported = 0;
+        int errors = 0;
+        int unchanged = 0;
+        int failedTargets = 0;
+        for (Map.Entry<String, ExportResult> entry : results.entrySet()) {
+            ExportResult result = entry.getValue();
+            lines.add(String.format("%-30s %8d %10d %7d %10d %9.1f  %s", entry.getKey(), result.getTables(),
+                result.getExported(), result.getErrors(), result.getUnchanged(), result.getElapsedMillis() / 1000.0,
+                result.isCompleted() ? "OK" : "FAILED: " + result.getError()));
+            tables += result.getTables();
+            exported += result.getExported();
+            errors += result.getErrors();
+            unchanged += result.getUnchanged();
+            failedTargets += result.isCompleted() ? 0 : 1;
+        }
+        lines.add(String.format("%-30s %8d %10d %7d %10d %9.1f  %s", "TOTAL", tables, exported, errors, unchanged,
+            elapsedMillis / 1000.0, failedTargets == 0 ? "OK" : failedTargets + " FAILED"));
+        for (Map.Entry<String, ExportResult> entry : results.entrySet()) {
+            if (!entry.getValue().getFailedTables().isEmpty()) {
+                lines.add("");
+                lines.add(entry.getKey() + " - tables with errors: "
+                    + String.join(", ", entry.getValue().getFailedTables()));
+            }
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                out.write(line);
+                out.write('\n');
+            }
+        }
+        log.info("========================================");
+        log.info("Resumen de {} exportaciones:", results.size());
+        for (String line : lines) {
+            log.info(line);
+        }
+        log.info("- Resumen en {}", file.toAbsolutePath());
+        log.info("========================================");
+        if (failedTargets > 0) {
+            log.error("{} de {} exportaciones no han terminado", failedTargets, results.size());
+        }
+    }
+}
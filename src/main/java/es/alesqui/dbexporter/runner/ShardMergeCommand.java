@@ -0,0 +1,92 @@
+package es.alesqui.dbexporter.runner;
+
+import es.alesqui.dbexporter.service.ExportPartition;
+import es.alesqui.dbexporter.service.ExportResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Combina las exportaciones repartidas con {@code --shard i/N}, sin contexto de
+ * Spring Boot ni base de datos. Se activa con {@code --merge-shards} y trabaja
+ * sobre app.output.directory, donde deben estar los archivos de todos los
+ * workers (en un directorio compartido o copiados antes de combinar):
+ *
+ * <pre>
+ * java -jar db-exporter.jar --shard 1/4    (en cada worker, de 1/4 a 4/4)
+ * java -jar db-exporter.jar --merge-shards
+ * </pre>
+ *
+ * <p>Si falta algún shard, alguno no terminó o no repartieron la misma lista
+ * de tablas, no se combina nada y la salida es 1.
+ */
+@Slf4j
+public final class ShardMergeCommand {
+
+    public static final String FLAG = "--merge-shards";
+
+    private ShardMergeCommand() {
+    }
+
+    /**
+     * Indica si se ha pedido combinar los shards.
+     */
+    public static boolean isRequested(String[] args) {
+        for (String arg : args) {
+            if (FLAG.equals(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> options = new ArrayList<>();
+        for (String arg : args) {
+            if (!FLAG.equals(arg)) {
+                options.add(arg);
+            }
+        }
+        ConfigurableEnvironment environment = FastExportLauncher.createEnvironment(options.toArray(new String[0]));
+        FastExportLauncher.initializeLogging(environment);
+
+        Path directory = Paths.get(environment.getRequiredProperty("app.output.directory"));
+        Map<String, ExportResult> results;
+        try {
+            results = ExportPartition.merge(directory);
+        } catch (IllegalStateException e) {
+            log.error("No se pueden combinar los shards: {}", e.getMessage());
+            System.exit(1);
+            return;
+        }
+        // Los workers trabajan a la vez: el total es el del más lento
+        long elapsed = 0;
+        for (ExportResult result : results.values()) {
+            elapsed = Math.max(elapsed, result.getElapsedMillis());
+        }
+        MultiTargetExporter.writeSummary(results, directory.resolve(MultiTargetExporter.SUMMARY_FILE), elapsed);
+    }
+
+    /**
+     * {@code --shard i/N} y {@code --shard=i/N} equivalen a {@code --app.shard=i/N}.
+     */
+    public static String[] expandShardOption(String[] args) {
+        List<String> expanded = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--shard".equals(args[i]) && i + 1 < args.length) {
+                expanded.add("--app.shard=" + args[++i]);
+            } else if (args[i].startsWith("--shard=")) {
+                expanded.add("--app.shard=" + args[i].substring("--shard=".length()));
+            } else {
+                expanded.add(args[i]);
+            }
+        }
+        return expanded.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,216 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.TableInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Escribe los documentos directamente en un archivo comprimido (ZIP o tar.gz),
+ * una entrada por tabla y formato, sin crear archivos intermedios. Todas las entradas
+ * las escribe el hilo de escritura del pipeline, bloque a bloque y, dentro de cada
+ * bloque, en el orden en que las entrega el catálogo.
+ *
+ * <p>El archivo se escribe en un temporal y se publica al cerrarlo, de modo que
+ * una exportación interrumpida no deja un archivo a medias.
+ */
+@Slf4j
+abstract class ArchiveSink implements ExportSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path archive;
+    private final Path temp;
+    private final String entryPrefix;
+    private int entries;
+
+    /**
+     * @param entryDirectory directorio raíz de las entradas dentro del archivo
+     */
+    private ArchiveSink(Path archive, String entryDirectory) {
+        this.archive = archive;
+        this.temp = archive.resolveSibling(archive.getFileName() + ".tmp");
+        this.entryPrefix = entryDirectory + "/";
+    }
+
+    /**
+     * Crea el archivo en el formato indicado ("zip" o "tar.gz") con el nivel de
+     * compresión de {@link java.util.zip.Deflater} (0-9).
+     */
+    static ArchiveSink create(String format, Path archive, String entryDirectory, int compressionLevel)
+            throws IOException {
+        if (archive.getParent() != null) {
+            Files.createDirectories(archive.getParent());
+        }
+        ArchiveSink sink = "zip".equals(format)
+            ? new Zip(archive, entryDirectory)
+            : new TarGz(archive, entryDirectory);
+        sink.open(new BufferedOutputStream(Files.newOutputStream(sink.temp), BUFFER_SIZE), compressionLevel);
+        return sink;
+    }
+
+    @Override
+    public void write(TableInfo tableInfo, ExportPipeline.RenderBuffer content) throws IOException {
+        writeEntry(entryPrefix + tableInfo.getNombre() + content.getExtension(), content);
+        entries++;
+    }
+
+    @Override
+    public Path getLocation() {
+        return archive;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Archivo generado: {} ({} documentos)", archive.toAbsolutePath(), entries);
+    }
+
+    @Override
+    public void discard() throws IOException {
+        try {
+            finish();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    abstract void open(OutputStream out, int compressionLevel) throws IOException;
+
+    abstract void writeEntry(String name, ExportPipeline.RenderBuffer content) throws IOException;
+
+    abstract void finish() throws IOException;
+
+    /**
+     * Archivo ZIP, comprimido entrada a entrada.
+     */
+    private static final class Zip extends ArchiveSink {
+        private final long time = System.currentTimeMillis();
+        private ZipOutputStream zip;
+
+        Zip(Path archive, String entryDirectory) {
+            super(archive, entryDirectory);
+        }
+
+        @Override
+        void open(OutputStream out, int compressionLevel) {
+            zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+            zip.setLevel(compressionLevel);
+        }
+
+        @Override
+        void writeEntry(String name, ExportPipeline.RenderBuffer content) throws IOException {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime(time);
+            zip.putNextEntry(entry);
+            content.writeTo(zip);
+            zip.closeEntry();
+        }
+
+        @Override
+        void finish() throws IOException {
+            zip.close();
+        }
+    }
+
+    /**
+     * Archivo tar (formato ustar) comprimido con gzip como un único flujo. Los
+     * nombres de más de 100 bytes se escriben con una entrada GNU LongLink.
+     */
+    private static final class TarGz extends ArchiveSink {
+        private static final int BLOCK = 512;
+        private static final byte[] ZEROS = new byte[2 * BLOCK];
+
+        private final long time = System.currentTimeMillis() / 1000;
+        private final byte[] header = new byte[BLOCK];
+        private OutputStream tar;
+
+        TarGz(Path archive, String entryDirectory) {
+            super(archive, entryDirectory);
+        }
+
+        @Override
+        void open(OutputStream out, int compressionLevel) throws IOException {
+            tar = new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(compressionLevel);
+                }
+            };
+        }
+
+        @Override
+        void writeEntry(String name, ExportPipeline.RenderBuffer content) throws IOException {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            if (nameBytes.length > 100) {
+                writeHeader("././@LongLink".getBytes(StandardCharsets.US_ASCII), nameBytes.length + 1, 'L');
+                tar.write(nameBytes);
+                tar.write(0);
+                pad(nameBytes.length + 1);
+            }
+            writeHeader(nameBytes, content.size(), '0');
+            content.writeTo(tar);
+            pad(content.size());
+        }
+
+        @Override
+        void finish() throws IOException {
+            tar.write(ZEROS);
+            tar.close();
+        }
+
+        private void writeHeader(byte[] name, long size, char type) throws IOException {
+            Arrays.fill(header, (byte) 0);
+            System.arraycopy(name, 0, header, 0, Math.min(name.length, 100));
+            octal(100, 8, 0644);
+            octal(108, 8, 0);
+            octal(116, 8, 0);
+            octal(124, 12, size);
+            octal(136, 12, time);
+            header[156] = (byte) type;
+            ascii(257, "ustar\u0000");
+            ascii(263, "00");
+
+            // La suma de control se calcula con su propio campo relleno de espacios
+            Arrays.fill(header, 148, 156, (byte) ' ');
+            long checksum = 0;
+            for (byte b : header) {
+                checksum += b & 0xff;
+            }
+            octal(148, 7, checksum);
+            tar.write(header);
+        }
+
+        private void octal(int offset, int length, long value) {
+            String digits = Long.toOctalString(value);
+            int width = length - 1;
+            for (int i = 0; i < width; i++) {
+                int d = i - (width - digits.length());
+                header[offset + i] = (byte) (d < 0 ? '0' : digits.charAt(d));
+            }
+            header[offset + width] = 0;
+        }
+
+        private void ascii(int offset, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(bytes, 0, header, offset, bytes.length);
+        }
+
+        private void pad(long size) throws IOException {
+            int remainder = (int) (size % BLOCK);
+            if (remainder != 0) {
+                tar.write(ZEROS, 0, BLOCK - remainder);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package es.alesqui.dbexporter.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limita la carga que la exportación genera en el catálogo: un máximo de
+ * consultas por segundo y un número de consultas simultáneas que se adapta a la
+ * latencia observada.
+ *
+ * <p>La concurrencia sigue un esquema AIMD por ventanas de tantas consultas
+ * como permite el límite actual: si la latencia media de la ventana supera el
+ * objetivo, el límite se reduce un 25 %; si queda por debajo y el límite
+ * llegó a agotarse, se aumenta en uno. Tras una reducción se descartan las
+ * consultas que ya estaban en curso, que aún reflejan la carga anterior.
+ *
+ * <p>Se empieza por el mínimo, de modo que la exportación sólo gana
+ * paralelismo mientras la base de datos responde dentro del objetivo.
+ */
+@Slf4j
+public class CatalogThrottle {
+
+    private static final double BACKOFF_RATIO = 0.75;
+
+    private final long intervalNanos;
+    private final long targetNanos;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private int limit;
+    private int inFlight;
+    private long nextPermitNanos = System.nanoTime();
+
+    // Ventana actual
+    private int samples;
+    private long latencySum;
+    private boolean saturated;
+    private int discard;
+
+    /**
+     * @param maxQueriesPerSecond máximo de consultas por segundo; 0 o negativo, sin límite
+     * @param targetLatencyMs     latencia media por consulta a partir de la cual se reduce la concurrencia
+     * @param minConcurrency      consultas simultáneas mínimas
+     * @param maxConcurrency      consultas simultáneas máximas
+     */
+    public CatalogThrottle(double maxQueriesPerSecond, long targetLatencyMs, int minConcurrency, int maxConcurrency) {
+        this.intervalNanos = maxQueriesPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxQueriesPerSecond) : 0;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, targetLatencyMs));
+        this.minConcurrency = Math.max(1, minConcurrency);
+        this.maxConcurrency = Math.max(this.minConcurrency, maxConcurrency);
+        this.limit = this.minConcurrency;
+    }
+
+    /**
+     * Espera turno para lanzar una consulta. Devuelve el tiempo esperado en
+     * nanosegundos; cada llamada debe ir seguida de {@link #release(long)}.
+     */
+    public long acquire() throws InterruptedException {
+        long start = System.nanoTime();
+        long delay;
+        lock.lock();
+        try {
+            while (inFlight >= limit) {
+                released.await();
+            }
+            inFlight++;
+            if (inFlight == limit) {
+                saturated = true;
+            }
+            long now = System.nanoTime();
+            long permit = Math.max(now, nextPermitNanos);
+            nextPermitNanos = permit + intervalNanos;
+            delay = permit - now;
+        } finally {
+            lock.unlock();
+        }
+        if (delay > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                release(-1);
+                throw e;
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Libera el turno y registra la latencia de la consulta. Una latencia
+     * negativa indica que la consulta no llegó a lanzarse.
+     */
+    public void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (discard > 0) {
+                discard--;
+            } else if (latencyNanos >= 0) {
+                samples++;
+                latencySum += latencyNanos;
+                if (samples >= limit) {
+                    adjust(latencySum / samples);
+                }
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(long averageNanos) {
+        int previous = limit;
+        if (averageNanos > targetNanos) {
+            limit = Math.max(minConcurrency, Math.min(limit - 1, (int) (limit * BACKOFF_RATIO)));
+        } else if (saturated) {
+            limit = Math.min(maxConcurrency, limit + 1);
+        }
+        if (limit < previous) {
+            discard = inFlight;
+            log.debug("Latencia media del catálogo {} ms (objetivo {} ms): consultas simultáneas {} -> {}",
+                TimeUnit.NANOSECONDS.toMillis(averageNanos), TimeUnit.NANOSECONDS.toMillis(targetNanos),
+                previous, limit);
+        } else if (limit > previous) {
+            log.debug("Latencia media del catálogo {} ms: consultas simultáneas {} -> {}",
+                TimeUnit.NANOSECONDS.toMillis(averageNanos), previous, limit);
+        }
+        samples = 0;
+        latencySum = 0;
+        saturated = inFlight >= limit;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+}
@@ -2,36 +2,152 @@ package es.alesqui.dbexporter.service;
 
 import es.alesqui.dbexporter.model.ColumnInfo;
 import es.alesqui.dbexporter.model.ForeignKeyInfo;
-import lombok.RequiredArgsConstructor;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
 
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.stereotype.Component;
+import org.springframework.jdbc.core.RowCallbackHandler;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 /**
  * Extractor de metadatos para DB2.
  */
-@Component("db2Extractor")
-@RequiredArgsConstructor
 public class DB2MetadataExtractor implements DatabaseMetadataExtractor {
     
+    private static final String BULK_PREFIX = "extractor.bulk.";
+    
     private final JdbcTemplate jdbcTemplate;
+    private final ExportMetrics metrics;
+    
+    public DB2MetadataExtractor(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, null);
+    }
+    
+    /**
+     * @param metrics si no es null, cada consulta de la lectura en bloque se
+     *                mide por separado (extractor.bulk.TABLES, COLUMNS...)
+     */
+    public DB2MetadataExtractor(JdbcTemplate jdbcTemplate, ExportMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+    }
     
     @Override
     public List<String> getTables(String schema) {
+        return getTables(schema, TableFilter.ALL);
+    }
+    
+    /**
+     * Los patrones glob y LIKE se añaden a la consulta como condiciones LIKE /
+     * NOT LIKE sobre TABNAME; las expresiones regulares se aplican después.
+     */
+    @Override
+    public List<String> getTables(String schema, TableFilter filter) {
+        List<Object> params = new ArrayList<>();
+        params.add(schema.toUpperCase());
         String sql = "SELECT TABNAME FROM SYSCAT.TABLES " +
-                    "WHERE TABSCHEMA = ? AND TYPE = 'T' ORDER BY TABNAME";
+                    "WHERE TABSCHEMA = ? AND TYPE = 'T'" + filter.toSqlPredicate("TABNAME", params) +
+                    " ORDER BY TABNAME";
         
-        return jdbcTemplate.query(sql, 
-            new Object[]{schema.toUpperCase()},
+        List<String> tables = jdbcTemplate.query(sql, 
+            params.toArray(),
             (rs, rowNum) -> rs.getString("TABNAME").trim()
         );
+        return filter.apply(tables);
+    }
+    
+    @Override
+    public Map<String, String> getTableChangeTimes(String schema) {
+        return getTableChangeTimes(schema, TableFilter.ALL);
+    }
+    
+    @Override
+    public Map<String, String> getTableChangeTimes(String schema, TableFilter filter) {
+        List<Object> params = new ArrayList<>();
+        params.add(schema.toUpperCase());
+        String sql = "SELECT TABNAME, ALTER_TIME FROM SYSCAT.TABLES " +
+                    "WHERE TABSCHEMA = ? AND TYPE = 'T'" + filter.toSqlPredicate("TABNAME", params);
+        
+        Map<String, String> changeTimes = new HashMap<>();
+        jdbcTemplate.query(sql, params.toArray(), rs -> {
+            Timestamp alterTime = rs.getTimestamp("ALTER_TIME");
+            changeTimes.put(rs.getString("TABNAME").trim(), alterTime != null ? alterTime.toString() : null);
+        });
+        
+        return changeTimes;
+    }
+    
+    /**
+     * Clave de los detalles de cada tabla, con una consulta por sección: fecha de
+     * RUNSTATS (SYSCAT.TABLES.STATS_TIME), número de índices y fecha del más
+     * reciente (SYSCAT.INDEXES) y huella de los nombres de las vistas
+     * dependientes (SYSCAT.TABDEP).
+     */
+    @Override
+    public Map<String, String> getTableDetailKeys(String schema, TableFilter filter, boolean indexes,
+            boolean views, boolean statistics) {
+        List<Object> params = new ArrayList<>();
+        params.add(schema.toUpperCase());
+        String tablesSql = "SELECT TABNAME, STATS_TIME FROM SYSCAT.TABLES " +
+                    "WHERE TABSCHEMA = ? AND TYPE = 'T'" + filter.toSqlPredicate("TABNAME", params);
+        Object[] filterParams = params.toArray();
+        
+        Map<String, StringBuilder> keys = new HashMap<>();
+        jdbcTemplate.query(tablesSql, filterParams, rs -> {
+            Timestamp statsTime = rs.getTimestamp("STATS_TIME");
+            keys.put(rs.getString("TABNAME").trim(), new StringBuilder(statistics ? "S" + statsTime : "S"));
+        });
+        
+        if (indexes) {
+            params.clear();
+            params.add(schema.toUpperCase());
+            String indexesSql = "SELECT TABNAME, COUNT(*) AS INDEXES, MAX(CREATE_TIME) AS CREATED " +
+                        "FROM SYSCAT.INDEXES WHERE TABSCHEMA = ?" + filter.toSqlPredicate("TABNAME", params) +
+                        " GROUP BY TABNAME";
+            Map<String, String> indexKeys = new HashMap<>();
+            jdbcTemplate.query(indexesSql, params.toArray(), rs -> {
+                indexKeys.put(rs.getString("TABNAME").trim(), rs.getInt("INDEXES") + "/" + rs.getTimestamp("CREATED"));
+            });
+            keys.forEach((tableName, key) -> key.append("|I").append(indexKeys.getOrDefault(tableName, "0")));
+        }
+        
+        if (views) {
+            params.clear();
+            params.add(schema.toUpperCase());
+            String viewsSql = "SELECT BNAME, TABSCHEMA, TABNAME FROM SYSCAT.TABDEP " +
+                        "WHERE BSCHEMA = ? AND BTYPE = 'T' AND DTYPE = 'V'" + filter.toSqlPredicate("BNAME", params) +
+                        " ORDER BY BNAME, TABSCHEMA, TABNAME";
+            Map<String, CRC32> viewKeys = new HashMap<>();
+            jdbcTemplate.query(viewsSql, params.toArray(), rs -> {
+                String view = rs.getString("TABSCHEMA").trim() + "." + rs.getString("TABNAME").trim() + "\n";
+                viewKeys.computeIfAbsent(rs.getString("BNAME").trim(), k -> new CRC32())
+                    .update(view.getBytes(StandardCharsets.UTF_8));
+            });
+            keys.forEach((tableName, key) -> {
+                CRC32 crc = viewKeys.get(tableName);
+                key.append("|V").append(crc != null ? Long.toHexString(crc.getValue()) : "0");
+            });
+        }
+        
+        Map<String, String> detailKeys = new HashMap<>();
+        keys.forEach((tableName, key) -> detailKeys.put(tableName, key.toString()));
+        return detailKeys;
     }
     
     @Override
@@ -43,7 +159,7 @@ public class DB2MetadataExtractor implements DatabaseMetadataExtractor {
             String comment = jdbcTemplate.queryForObject(sql, String.class, 
                 schema.toUpperCase(), tableName.toUpperCase());
             
-            return (comment != null && !comment.trim().isEmpty()) ? comment.trim() : null;
+            return normalizeComment(comment);
             
         } catch (EmptyResultDataAccessException e) {
             return null;
@@ -60,15 +176,7 @@ public class DB2MetadataExtractor implements DatabaseMetadataExtractor {
         
         return jdbcTemplate.query(sql,
             new Object[]{schema.toUpperCase(), tableName},
-            (rs, rowNum) -> ColumnInfo.builder()
-                .nombre(rs.getString("COLNAME").trim())
-                .tipo(rs.getString("TYPENAME").trim())
-                .longitud(rs.getInt("LENGTH"))
-                .escala(rs.getInt("SCALE"))
-                .nullable("Y".equals(rs.getString("NULLS")))
-                .valorDefault(rs.getString("DEFAULT"))
-                .comentario(rs.getString("REMARKS"))
-                .build()
+            (rs, rowNum) -> mapColumn(rs)
         );
     }
     
@@ -92,6 +200,8 @@ public class DB2MetadataExtractor implements DatabaseMetadataExtractor {
     public List<ForeignKeyInfo> getForeignKeys(String schema, String tableName) {
         String sql = "SELECT " +
                     "    R.CONSTNAME, " +
+                    "    R.TABSCHEMA AS FK_SCHEMA, " +
+                    "    R.REFTABSCHEMA, " +
                     "    R.REFTABNAME, " +
                     "    R.DELETERULE, " +
                     "    R.UPDATERULE, " +
@@ -113,22 +223,350 @@ public class DB2MetadataExtractor implements DatabaseMetadataExtractor {
         Map<String, ForeignKeyData> fkMap = new HashMap<>();
         
         jdbcTemplate.query(sql, new Object[]{schema.toUpperCase(), tableName}, rs -> {
-            String fkName = rs.getString("CONSTNAME").trim();
-            
-            ForeignKeyData fkData = fkMap.computeIfAbsent(fkName, k -> new ForeignKeyData());
-            fkData.nombre = fkName;
-            fkData.tablaDestino = rs.getString("REFTABNAME").trim();
-            fkData.onDeleteAction = mapDeleteRule(rs.getString("DELETERULE"));
-            fkData.onUpdateAction = mapUpdateRule(rs.getString("UPDATERULE"));
-            fkData.columnasOrigen.add(rs.getString("FK_COLUMN").trim());
-            fkData.columnasDestino.add(rs.getString("REF_COLUMN").trim());
+            accumulateForeignKey(fkMap, rs);
+        });
+        
+        return toForeignKeys(fkMap);
+    }
+
+    /**
+     * Una única consulta a SYSCAT.REFERENCES para todo el esquema, agrupada en
+     * memoria por TABNAME. Se descartan las tablas no solicitadas.
+     */
+    @Override
+    public Map<String, List<ForeignKeyInfo>> getSchemaForeignKeys(String schema, List<String> tableNames) {
+        String sql = "SELECT " +
+                    "    R.TABNAME, " +
+                    "    R.CONSTNAME, " +
+                    "    R.TABSCHEMA AS FK_SCHEMA, " +
+                    "    R.REFTABSCHEMA, " +
+                    "    R.REFTABNAME, " +
+                    "    R.DELETERULE, " +
+                    "    R.UPDATERULE, " +
+                    "    KC1.COLNAME AS FK_COLUMN, " +
+                    "    KC2.COLNAME AS REF_COLUMN, " +
+                    "    KC1.COLSEQ " +
+                    "FROM SYSCAT.REFERENCES R " +
+                    "JOIN SYSCAT.KEYCOLUSE KC1 ON R.CONSTNAME = KC1.CONSTNAME " +
+                    "    AND R.TABSCHEMA = KC1.TABSCHEMA " +
+                    "    AND R.TABNAME = KC1.TABNAME " +
+                    "JOIN SYSCAT.KEYCOLUSE KC2 ON R.REFKEYNAME = KC2.CONSTNAME " +
+                    "    AND R.REFTABSCHEMA = KC2.TABSCHEMA " +
+                    "    AND R.REFTABNAME = KC2.TABNAME " +
+                    "    AND KC1.COLSEQ = KC2.COLSEQ " +
+                    "WHERE R.TABSCHEMA = ? " +
+                    "ORDER BY R.TABNAME, R.CONSTNAME, KC1.COLSEQ";
+        
+        Set<String> requested = new HashSet<>(tableNames);
+        Map<String, Map<String, ForeignKeyData>> fkMaps = new HashMap<>();
+        
+        jdbcTemplate.query(sql, new Object[]{schema.toUpperCase()}, rs -> {
+            String tableName = rs.getString("TABNAME").trim();
+            if (requested.contains(tableName)) {
+                accumulateForeignKey(fkMaps.computeIfAbsent(tableName, k -> new HashMap<>()), rs);
+            }
+        });
+        
+        Map<String, List<ForeignKeyInfo>> foreignKeys = new HashMap<>();
+        for (String tableName : tableNames) {
+            Map<String, ForeignKeyData> fkMap = fkMaps.get(tableName);
+            foreignKeys.put(tableName, fkMap != null ? toForeignKeys(fkMap) : new ArrayList<>());
+        }
+        return foreignKeys;
+    }
+
+    /**
+     * Índices del bloque de tablas con una consulta a SYSCAT.INDEXES e
+     * INDEXCOLUSE, agrupada en memoria por TABNAME.
+     */
+    @Override
+    public Map<String, List<IndexInfo>> getIndexes(String schema, List<String> tableNames) {
+        Map<String, List<IndexInfo>> indexes = new HashMap<>();
+        if (tableNames.isEmpty()) {
+            return indexes;
+        }
+        String sql = "SELECT I.TABNAME, I.INDNAME, I.UNIQUERULE, I.INDEXTYPE, C.COLNAME, C.COLORDER " +
+                    "FROM SYSCAT.INDEXES I " +
+                    "JOIN SYSCAT.INDEXCOLUSE C ON I.INDSCHEMA = C.INDSCHEMA AND I.INDNAME = C.INDNAME " +
+                    "WHERE I.TABSCHEMA = ? AND I.TABNAME IN (" + inClause(tableNames) + ") " +
+                    "ORDER BY I.TABNAME, I.INDNAME, C.COLSEQ";
+        
+        Map<String, IndexInfo> current = new HashMap<>();
+        jdbcTemplate.query(sql, inParams(schema, tableNames), rs -> {
+            String tableName = rs.getString("TABNAME").trim();
+            String indexName = rs.getString("INDNAME").trim();
+            IndexInfo index = current.get(tableName);
+            if (index == null || !index.getNombre().equals(indexName)) {
+                String uniqueRule = rs.getString("UNIQUERULE");
+                index = IndexInfo.builder()
+                    .nombre(indexName)
+                    .columnas(new ArrayList<>())
+                    .columnasIncluidas(new ArrayList<>())
+                    .unico(!"D".equals(uniqueRule))
+                    .clavePrimaria("P".equals(uniqueRule))
+                    .cluster("CLUS".equals(rs.getString("INDEXTYPE").trim()))
+                    .build();
+                current.put(tableName, index);
+                indexes.computeIfAbsent(tableName, k -> new ArrayList<>()).add(index);
+            }
+            // COLORDER: A ascendente, D descendente, I columna incluida
+            String column = rs.getString("COLNAME").trim();
+            switch (rs.getString("COLORDER")) {
+                case "I":
+                    index.getColumnasIncluidas().add(column);
+                    break;
+                case "D":
+                    index.getColumnas().add(column + " DESC");
+                    break;
+                default:
+                    index.getColumnas().add(column);
+            }
+        });
+        
+        for (String tableName : tableNames) {
+            indexes.putIfAbsent(tableName, new ArrayList<>());
+        }
+        return indexes;
+    }
+    
+    /**
+     * Vistas que dependen de cada tabla del bloque, según SYSCAT.TABDEP. Las
+     * vistas de otros esquemas se cualifican con el suyo.
+     */
+    @Override
+    public Map<String, List<String>> getDependentViews(String schema, List<String> tableNames) {
+        Map<String, List<String>> views = new HashMap<>();
+        if (tableNames.isEmpty()) {
+            return views;
+        }
+        String sql = "SELECT BNAME, TABSCHEMA, TABNAME FROM SYSCAT.TABDEP " +
+                    "WHERE BSCHEMA = ? AND BTYPE = 'T' AND DTYPE = 'V' AND BNAME IN (" + inClause(tableNames) + ") " +
+                    "ORDER BY BNAME, TABSCHEMA, TABNAME";
+        
+        String upperSchema = schema.toUpperCase();
+        jdbcTemplate.query(sql, inParams(schema, tableNames), rs -> {
+            String viewSchema = rs.getString("TABSCHEMA").trim();
+            String viewName = rs.getString("TABNAME").trim();
+            views.computeIfAbsent(rs.getString("BNAME").trim(), k -> new ArrayList<>())
+                .add(viewSchema.equals(upperSchema) ? viewName : viewSchema + "." + viewName);
+        });
+        
+        for (String tableName : tableNames) {
+            views.putIfAbsent(tableName, new ArrayList<>());
+        }
+        return views;
+    }
+    
+    /**
+     * Estadísticas de RUNSTATS guardadas en SYSCAT.TABLES (CARD, NPAGES y
+     * STATS_TIME). Un valor -1 indica que no se han recogido.
+     */
+    @Override
+    public Map<String, TableStatistics> getTableStatistics(String schema, List<String> tableNames) {
+        Map<String, TableStatistics> statistics = new HashMap<>();
+        if (tableNames.isEmpty()) {
+            return statistics;
+        }
+        String sql = "SELECT TABNAME, CARD, NPAGES, STATS_TIME FROM SYSCAT.TABLES " +
+                    "WHERE TABSCHEMA = ? AND TABNAME IN (" + inClause(tableNames) + ")";
+        
+        jdbcTemplate.query(sql, inParams(schema, tableNames), rs -> {
+            long card = rs.getLong("CARD");
+            long pages = rs.getLong("NPAGES");
+            Timestamp statsTime = rs.getTimestamp("STATS_TIME");
+            statistics.put(rs.getString("TABNAME").trim(), TableStatistics.builder()
+                .filas(card >= 0 ? card : null)
+                .paginas(pages >= 0 ? pages : null)
+                .fechaEstadisticas(statsTime != null ? statsTime.toString() : null)
+                .build());
+        });
+        
+        return statistics;
+    }
+    
+    private static String inClause(List<String> tableNames) {
+        return String.join(", ", Collections.nCopies(tableNames.size(), "?"));
+    }
+    
+    /**
+     * Parámetros de las consultas por bloque: el esquema y los nombres de tabla.
+     */
+    private static Object[] inParams(String schema, List<String> tableNames) {
+        Object[] params = new Object[tableNames.size() + 1];
+        params[0] = schema.toUpperCase();
+        for (int i = 0; i < tableNames.size(); i++) {
+            params[i + 1] = tableNames.get(i);
+        }
+        return params;
+    }
+
+    /**
+     * Lectura en bloque del catálogo: en lugar de cinco consultas por tabla,
+     * lanza una consulta por vista de SYSCAT para todo el bloque de tablas
+     * y agrupa las filas en memoria por TABNAME. La de SYSCAT.TABLES trae los
+     * comentarios de las tablas.
+     */
+    @Override
+    public List<TableInfo> getTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys) {
+        if (tableNames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        String inClause = inClause(tableNames);
+        Object[] params = inParams(schema, tableNames);
+        
+        // Una entrada por tabla solicitada, en el mismo orden
+        Map<String, TableInfo> tables = new LinkedHashMap<>();
+        for (String tableName : tableNames) {
+            tables.put(tableName, TableInfo.builder()
+                .nombre(tableName)
+                .esquema(schema)
+                .columnas(new ArrayList<>())
+                .primaryKeyColumns(new ArrayList<>())
+                .foreignKeys(new ArrayList<>())
+                .build());
+        }
+        
+        // Comentarios de tabla
+        String tablesSql = "SELECT TABNAME, REMARKS FROM SYSCAT.TABLES " +
+                    "WHERE TABSCHEMA = ? AND TABNAME IN (" + inClause + ")";
+        
+        bulkQuery("TABLES", tablesSql, params, rs -> {
+            TableInfo table = tables.get(rs.getString("TABNAME").trim());
+            if (table != null) {
+                table.setComentario(normalizeComment(rs.getString("REMARKS")));
+            }
+        });
+        
+        // Columnas
+        String columnsSql = "SELECT TABNAME, COLNAME, TYPENAME, LENGTH, SCALE, NULLS, DEFAULT, REMARKS " +
+                    "FROM SYSCAT.COLUMNS " +
+                    "WHERE TABSCHEMA = ? AND TABNAME IN (" + inClause + ") " +
+                    "ORDER BY TABNAME, COLNO";
+        
+        bulkQuery("COLUMNS", columnsSql, params, rs -> {
+            TableInfo table = tables.get(rs.getString("TABNAME").trim());
+            if (table != null) {
+                table.getColumnas().add(mapColumn(rs));
+            }
+        });
+        
+        // Clave primaria (nombre y columnas en la misma consulta)
+        String primaryKeySql = "SELECT C.TABNAME, C.CONSTNAME, KC.COLNAME " +
+                    "FROM SYSCAT.TABCONST C " +
+                    "JOIN SYSCAT.KEYCOLUSE KC ON KC.CONSTNAME = C.CONSTNAME " +
+                    "  AND KC.TABSCHEMA = C.TABSCHEMA " +
+                    "  AND KC.TABNAME = C.TABNAME " +
+                    "WHERE C.TABSCHEMA = ? AND C.TABNAME IN (" + inClause + ") AND C.TYPE = 'P' " +
+                    "ORDER BY C.TABNAME, KC.COLSEQ";
+        
+        bulkQuery("KEYCOLUSE", primaryKeySql, params, rs -> {
+            TableInfo table = tables.get(rs.getString("TABNAME").trim());
+            if (table != null) {
+                table.setPrimaryKeyName(rs.getString("CONSTNAME").trim());
+                table.getPrimaryKeyColumns().add(rs.getString("COLNAME").trim());
+            }
         });
         
-        // Convertir a ForeignKeyInfo
+        // Foreign keys, agrupadas por tabla y constraint
+        if (includeForeignKeys) {
+            String foreignKeysSql = "SELECT " +
+                    "    R.TABNAME, " +
+                    "    R.CONSTNAME, " +
+                    "    R.TABSCHEMA AS FK_SCHEMA, " +
+                    "    R.REFTABSCHEMA, " +
+                    "    R.REFTABNAME, " +
+                    "    R.DELETERULE, " +
+                    "    R.UPDATERULE, " +
+                    "    KC1.COLNAME AS FK_COLUMN, " +
+                    "    KC2.COLNAME AS REF_COLUMN, " +
+                    "    KC1.COLSEQ " +
+                    "FROM SYSCAT.REFERENCES R " +
+                    "JOIN SYSCAT.KEYCOLUSE KC1 ON R.CONSTNAME = KC1.CONSTNAME " +
+                    "    AND R.TABSCHEMA = KC1.TABSCHEMA " +
+                    "    AND R.TABNAME = KC1.TABNAME " +
+                    "JOIN SYSCAT.KEYCOLUSE KC2 ON R.REFKEYNAME = KC2.CONSTNAME " +
+                    "    AND R.REFTABSCHEMA = KC2.TABSCHEMA " +
+                    "    AND R.REFTABNAME = KC2.TABNAME " +
+                    "    AND KC1.COLSEQ = KC2.COLSEQ " +
+                    "WHERE R.TABSCHEMA = ? AND R.TABNAME IN (" + inClause + ") " +
+                    "ORDER BY R.TABNAME, R.CONSTNAME, KC1.COLSEQ";
+            
+            Map<String, Map<String, ForeignKeyData>> fkMaps = new HashMap<>();
+            
+            bulkQuery("REFERENCES", foreignKeysSql, params, rs -> {
+                String tableName = rs.getString("TABNAME").trim();
+                accumulateForeignKey(fkMaps.computeIfAbsent(tableName, k -> new HashMap<>()), rs);
+            });
+            
+            fkMaps.forEach((tableName, fkMap) -> {
+                TableInfo table = tables.get(tableName);
+                if (table != null) {
+                    table.setForeignKeys(toForeignKeys(fkMap));
+                }
+            });
+        }
+        
+        return new ArrayList<>(tables.values());
+    }
+
+    /**
+     * Consulta de la lectura en bloque, medida por separado si hay métricas.
+     */
+    private void bulkQuery(String name, String sql, Object[] params, RowCallbackHandler handler) {
+        if (metrics == null) {
+            jdbcTemplate.query(sql, params, handler);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.query(sql, params, handler);
+        } finally {
+            metrics.record(BULK_PREFIX + name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Convierte una fila de SYSCAT.COLUMNS en un ColumnInfo.
+     */
+    ColumnInfo mapColumn(ResultSet rs) throws SQLException {
+        return ColumnInfo.builder()
+            .nombre(rs.getString("COLNAME").trim())
+            .tipo(rs.getString("TYPENAME").trim())
+            .longitud(rs.getInt("LENGTH"))
+            .escala(rs.getInt("SCALE"))
+            .nullable("Y".equals(rs.getString("NULLS")))
+            .valorDefault(rs.getString("DEFAULT"))
+            .comentario(rs.getString("REMARKS"))
+            .build();
+    }
+
+    /**
+     * Añade una fila de la consulta de foreign keys al mapa de agrupación.
+     */
+    void accumulateForeignKey(Map<String, ForeignKeyData> fkMap, ResultSet rs) throws SQLException {
+        String fkName = rs.getString("CONSTNAME").trim();
+        
+        ForeignKeyData fkData = fkMap.computeIfAbsent(fkName, k -> new ForeignKeyData());
+        fkData.nombre = fkName;
+        fkData.tablaDestino = rs.getString("REFTABNAME").trim();
+        String targetSchema = rs.getString("REFTABSCHEMA").trim();
+        fkData.esquemaDestino = targetSchema.equals(rs.getString("FK_SCHEMA").trim()) ? null : targetSchema;
+        fkData.onDeleteAction = mapDeleteRule(rs.getString("DELETERULE"));
+        fkData.onUpdateAction = mapUpdateRule(rs.getString("UPDATERULE"));
+        fkData.columnasOrigen.add(rs.getString("FK_COLUMN").trim());
+        fkData.columnasDestino.add(rs.getString("REF_COLUMN").trim());
+    }
+
+    /**
+     * Convierte las foreign keys agrupadas a ForeignKeyInfo.
+     */
+    List<ForeignKeyInfo> toForeignKeys(Map<String, ForeignKeyData> fkMap) {
         return fkMap.values().stream()
             .map(fkData -> ForeignKeyInfo.builder()
                 .nombre(fkData.nombre)
                 .tablaDestino(fkData.tablaDestino)
+                .esquemaDestino(fkData.esquemaDestino)
                 .onDeleteAction(fkData.onDeleteAction)
                 .onUpdateAction(fkData.onUpdateAction)
                 .columnasOrigen(fkData.columnasOrigen)
@@ -137,12 +575,17 @@ public class DB2MetadataExtractor implements DatabaseMetadataExtractor {
             .collect(Collectors.toList());
     }
 
+    private String normalizeComment(String comment) {
+        return (comment != null && !comment.trim().isEmpty()) ? comment.trim() : null;
+    }
+
     /**
      * Clase auxiliar para agrupar datos de FK durante la consulta.
      */
-    private static class ForeignKeyData {
+    static class ForeignKeyData {
         String nombre;
         String tablaDestino;
+        String esquemaDestino;
         String onDeleteAction;
         String onUpdateAction;
         List<String> columnasOrigen = new ArrayList<>();
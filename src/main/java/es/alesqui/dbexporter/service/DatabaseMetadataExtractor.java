@@ -2,19 +2,93 @@ package es.alesqui.dbexporter.service;
 
 import es.alesqui.dbexporter.model.ColumnInfo;
 import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface para extraer metadatos de diferentes tipos de base de datos.
  */
 public interface DatabaseMetadataExtractor {
     
+    /**
+     * Receptor de las tablas leídas en bloque.
+     */
+    @FunctionalInterface
+    interface TableInfoHandler {
+        void handle(TableInfo tableInfo) throws InterruptedException;
+    }
+    
+    /**
+     * Índices y estadísticas de un bloque de tablas leídos a la vez. Cualquiera
+     * de los dos es null si el extractor no sabe leerlo.
+     */
+    final class IndexesAndStatistics {
+        private final Map<String, List<IndexInfo>> indexes;
+        private final Map<String, TableStatistics> statistics;
+        
+        public IndexesAndStatistics(Map<String, List<IndexInfo>> indexes, Map<String, TableStatistics> statistics) {
+            this.indexes = indexes;
+            this.statistics = statistics;
+        }
+        
+        public Map<String, List<IndexInfo>> getIndexes() {
+            return indexes;
+        }
+        
+        public Map<String, TableStatistics> getStatistics() {
+            return statistics;
+        }
+    }
+    
     /**
      * Obtiene la lista de tablas del esquema.
      */
     List<String> getTables(String schema);
     
+    /**
+     * Obtiene la lista de tablas del esquema que pasan el filtro. Por defecto se
+     * filtra en el cliente; los extractores que pueden trasladan el filtro a la
+     * consulta del catálogo.
+     */
+    default List<String> getTables(String schema, TableFilter filter) {
+        return filter.apply(getTables(schema));
+    }
+    
+    /**
+     * Obtiene, en una sola consulta, la fecha de última modificación de cada tabla
+     * del esquema. Devuelve un mapa vacío si la base de datos no la expone.
+     */
+    default Map<String, String> getTableChangeTimes(String schema) {
+        return Collections.emptyMap();
+    }
+    
+    /**
+     * Fechas de modificación de las tablas que pasan el filtro. Puede incluir
+     * tablas de más si el filtro no se traslada a la consulta.
+     */
+    default Map<String, String> getTableChangeTimes(String schema, TableFilter filter) {
+        return getTableChangeTimes(schema);
+    }
+    
+    /**
+     * Obtiene, con unas pocas consultas para todo el esquema, una clave por tabla
+     * que cambia al crear o borrar sus índices o sus vistas dependientes y al
+     * recoger estadísticas, cambios que no modifican la fecha de
+     * {@link #getTableChangeTimes}. Sólo cubre las secciones indicadas. Devuelve
+     * un mapa vacío si el extractor no sabe calcularla.
+     */
+    default Map<String, String> getTableDetailKeys(String schema, TableFilter filter, boolean indexes,
+            boolean views, boolean statistics) {
+        return Collections.emptyMap();
+    }
+    
     /**
      * Obtiene información detallada del contenido de una tabla.
      */
@@ -35,11 +109,143 @@ public interface DatabaseMetadataExtractor {
      */
     List<ForeignKeyInfo> getForeignKeys(String schema, String tableName);
     
+    /**
+     * Obtiene las foreign keys de todas las tablas indicadas, agrupadas por tabla
+     * de origen. Por defecto consulta tabla a tabla; los extractores que puedan
+     * leerlas en una sola pasada por el esquema deben sobrescribirlo.
+     */
+    default Map<String, List<ForeignKeyInfo>> getSchemaForeignKeys(String schema, List<String> tableNames) {
+        Map<String, List<ForeignKeyInfo>> foreignKeys = new HashMap<>();
+        for (String tableName : tableNames) {
+            foreignKeys.put(tableName, getForeignKeys(schema, tableName));
+        }
+        return foreignKeys;
+    }
+    
+    /**
+     * Obtiene los índices de un bloque de tablas, agrupados por tabla. Devuelve
+     * null si el extractor no sabe leerlos.
+     */
+    default Map<String, List<IndexInfo>> getIndexes(String schema, List<String> tableNames) {
+        return null;
+    }
+    
+    /**
+     * Obtiene las vistas que dependen de cada tabla de un bloque. Devuelve null
+     * si el extractor no sabe leerlas.
+     */
+    default Map<String, List<String>> getDependentViews(String schema, List<String> tableNames) {
+        return null;
+    }
+    
+    /**
+     * Obtiene las estadísticas del catálogo de un bloque de tablas. Nunca deben
+     * calcularse con COUNT(*), para no recorrer los datos. Devuelve null si el
+     * extractor no sabe leerlas.
+     */
+    default Map<String, TableStatistics> getTableStatistics(String schema, List<String> tableNames) {
+        return null;
+    }
+    
+    /**
+     * Obtiene los índices y las estadísticas de un bloque de tablas. Los
+     * extractores que sacan ambos de la misma consulta los leen de una vez; por
+     * defecto se piden por separado.
+     */
+    default IndexesAndStatistics getIndexesAndStatistics(String schema, List<String> tableNames) {
+        return new IndexesAndStatistics(getIndexes(schema, tableNames), getTableStatistics(schema, tableNames));
+    }
+    
     /**
      * Obtiene el nombre de la constraint de clave primaria.
      */
     String getPrimaryKeyName(String schema, String tableName);
     
+    /**
+     * Recopila toda la información de una tabla (columnas, PK, FK, comentarios)
+     * consultando el catálogo tabla a tabla.
+     */
+    default TableInfo getTableInfo(String schema, String tableName, boolean includeForeignKeys) {
+        return TableInfo.builder()
+            .nombre(tableName)
+            .esquema(schema)
+            .comentario(getTableComment(schema, tableName))
+            .columnas(getColumns(schema, tableName))
+            .primaryKeyColumns(getPrimaryKeyColumns(schema, tableName))
+            .primaryKeyName(getPrimaryKeyName(schema, tableName))
+            .foreignKeys(includeForeignKeys ? getForeignKeys(schema, tableName) : new ArrayList<>())
+            .build();
+    }
+    
+    /**
+     * Recopila la información completa de un bloque de tablas, en el mismo orden
+     * en que se solicitan. Por defecto consulta tabla a tabla; los extractores
+     * que puedan leer el catálogo en bloque deben sobrescribirlo.
+     */
+    default List<TableInfo> getTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys) {
+        List<TableInfo> tables = new ArrayList<>(tableNames.size());
+        for (String tableName : tableNames) {
+            tables.add(getTableInfo(schema, tableName, includeForeignKeys));
+        }
+        return tables;
+    }
+    
+    /**
+     * Lee un bloque de tablas y entrega cada una al receptor en cuanto está
+     * completa, sin esperar al resto. Por defecto delega en
+     * {@link #getTablesInfo}.
+     */
+    default void readTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys,
+            TableInfoHandler handler) throws InterruptedException {
+        for (TableInfo tableInfo : getTablesInfo(schema, tableNames, includeForeignKeys)) {
+            handler.handle(tableInfo);
+        }
+    }
+    
+    /**
+     * Como {@link #readTablesInfo(String, List, boolean, TableInfoHandler)}, pero
+     * añade a cada tabla sus índices y estadísticas si se piden. Por defecto se
+     * leen antes, con {@link #getIndexesAndStatistics} para todo el bloque; los
+     * extractores que recorren el esquema completo los leen tabla a tabla durante
+     * el recorrido, para no retrasar la primera tabla ni retener los de todo el
+     * esquema.
+     */
+    default void readTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys,
+            boolean includeIndexes, boolean includeStatistics, TableInfoHandler handler) throws InterruptedException {
+        if (!includeIndexes && !includeStatistics) {
+            readTablesInfo(schema, tableNames, includeForeignKeys, handler);
+            return;
+        }
+        Map<String, List<IndexInfo>> indexes;
+        Map<String, TableStatistics> statistics;
+        if (includeIndexes && includeStatistics) {
+            IndexesAndStatistics both = getIndexesAndStatistics(schema, tableNames);
+            indexes = both.getIndexes();
+            statistics = both.getStatistics();
+        } else {
+            indexes = includeIndexes ? getIndexes(schema, tableNames) : null;
+            statistics = includeStatistics ? getTableStatistics(schema, tableNames) : null;
+        }
+        readTablesInfo(schema, tableNames, includeForeignKeys, tableInfo -> {
+            if (indexes != null) {
+                tableInfo.setIndices(indexes.getOrDefault(tableInfo.getNombre(), Collections.emptyList()));
+            }
+            if (statistics != null) {
+                tableInfo.setEstadisticas(statistics.get(tableInfo.getNombre()));
+            }
+            handler.handle(tableInfo);
+        });
+    }
+    
+    /**
+     * Indica si la lectura en bloque recorre el esquema completo con el mismo
+     * coste sea cual sea el número de tablas pedidas. En ese caso conviene
+     * solicitar todas las tablas en un único bloque.
+     */
+    default boolean isSchemaWideBulkRead() {
+        return false;
+    }
+    
     /**
      * Formatea el tipo de dato específico de cada BD.
      */
@@ -0,0 +1,199 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Formato DDL: CREATE TABLE con la PK, las FK como ALTER TABLE (para que los
+ * scripts se puedan ejecutar en cualquier orden una vez creadas las tablas),
+ * los comentarios y los índices que no son de la PK. Los tipos y los valores
+ * por defecto los formatea el extractor, con la sintaxis de su base de datos.
+ */
+public class DdlTableRenderer implements TableRenderer {
+
+    private static final String NO_ACTION = "NO ACTION";
+    private static final Pattern REGULAR_IDENTIFIER = Pattern.compile("[A-Z_][A-Z0-9_$#@]*");
+
+    private final DatabaseMetadataExtractor extractor;
+
+    public DdlTableRenderer(DatabaseMetadataExtractor extractor) {
+        this.extractor = extractor;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".sql";
+    }
+
+    @Override
+    public void render(TableInfo tableInfo, Writer out) throws IOException {
+        String table = qualified(tableInfo.getEsquema(), tableInfo.getNombre());
+        List<ColumnInfo> columns = tableInfo.getColumnas();
+        List<String> pkColumns = tableInfo.getPrimaryKeyColumns();
+
+        out.write("CREATE TABLE ");
+        out.write(table);
+        out.write(" (\n");
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnInfo col = columns.get(i);
+            out.write("    ");
+            out.write(identifier(col.getNombre()));
+            out.write(' ');
+            out.write(col.getTipo() != null ? extractor.formatColumnType(col) : "UNKNOWN");
+            if (col.getTipo() != null && TableIndex.hasText(col.getValorDefault())) {
+                out.write(extractor.formatDefault(col.getValorDefault(), col.getTipo()));
+            }
+            if (!col.isNullable()) {
+                out.write(" NOT NULL");
+            }
+            out.write(i < columns.size() - 1 || !pkColumns.isEmpty() ? ",\n" : "\n");
+        }
+        if (!pkColumns.isEmpty()) {
+            out.write("    ");
+            if (tableInfo.getPrimaryKeyName() != null) {
+                out.write("CONSTRAINT ");
+                out.write(identifier(tableInfo.getPrimaryKeyName()));
+                out.write(' ');
+            }
+            out.write("PRIMARY KEY (");
+            writeIdentifiers(out, pkColumns);
+            out.write(")\n");
+        }
+        out.write(");\n");
+
+        for (ForeignKeyInfo fk : tableInfo.getForeignKeys()) {
+            out.write("\nALTER TABLE ");
+            out.write(table);
+            out.write(" ADD ");
+            if (fk.getNombre() != null) {
+                out.write("CONSTRAINT ");
+                out.write(identifier(fk.getNombre()));
+                out.write(' ');
+            }
+            out.write("FOREIGN KEY (");
+            writeIdentifiers(out, fk.getColumnasOrigen());
+            out.write(")\n    REFERENCES ");
+            out.write(qualified(fk.getEsquemaDestino() != null ? fk.getEsquemaDestino() : tableInfo.getEsquema(),
+                fk.getTablaDestino()));
+            out.write(" (");
+            writeIdentifiers(out, fk.getColumnasDestino());
+            out.write(')');
+            if (fk.getOnDeleteAction() != null && !NO_ACTION.equals(fk.getOnDeleteAction())) {
+                out.write(" ON DELETE ");
+                out.write(fk.getOnDeleteAction());
+            }
+            if (fk.getOnUpdateAction() != null && !NO_ACTION.equals(fk.getOnUpdateAction())) {
+                out.write(" ON UPDATE ");
+                out.write(fk.getOnUpdateAction());
+            }
+            out.write(";\n");
+        }
+
+        if (TableIndex.hasText(tableInfo.getComentario())) {
+            out.write("\nCOMMENT ON TABLE ");
+            out.write(table);
+            out.write(" IS ");
+            writeLiteral(out, tableInfo.getComentario().trim());
+            out.write(";\n");
+        }
+        boolean first = true;
+        for (ColumnInfo col : columns) {
+            if (TableIndex.hasText(col.getComentario())) {
+                out.write(first ? "\nCOMMENT ON COLUMN " : "COMMENT ON COLUMN ");
+                out.write(table);
+                out.write('.');
+                out.write(identifier(col.getNombre()));
+                out.write(" IS ");
+                writeLiteral(out, col.getComentario().trim());
+                out.write(";\n");
+                first = false;
+            }
+        }
+
+        List<IndexInfo> indexes = tableInfo.getIndices();
+        if (indexes != null) {
+            first = true;
+            for (IndexInfo idx : indexes) {
+                // Algunas bases de datos no marcan el índice de la PK: se
+                // reconoce por ser único y tener las mismas columnas
+                if (idx.isClavePrimaria() || idx.isUnico() && idx.getColumnas().equals(pkColumns)) {
+                    continue;
+                }
+                out.write(first ? "\nCREATE " : "CREATE ");
+                out.write(idx.isUnico() ? "UNIQUE INDEX " : "INDEX ");
+                out.write(qualified(tableInfo.getEsquema(), idx.getNombre()));
+                out.write(" ON ");
+                out.write(table);
+                out.write(" (");
+                for (int i = 0; i < idx.getColumnas().size(); i++) {
+                    if (i > 0) {
+                        out.write(", ");
+                    }
+                    writeIndexColumn(out, idx.getColumnas().get(i));
+                }
+                out.write(')');
+                if (idx.getColumnasIncluidas() != null && !idx.getColumnasIncluidas().isEmpty()) {
+                    out.write(" INCLUDE (");
+                    writeIdentifiers(out, idx.getColumnasIncluidas());
+                    out.write(')');
+                }
+                if (idx.isCluster()) {
+                    out.write(" CLUSTER");
+                }
+                out.write(";\n");
+                first = false;
+            }
+        }
+    }
+
+    private static String qualified(String schema, String name) {
+        return schema != null ? identifier(schema) + "." + identifier(name) : identifier(name);
+    }
+
+    /**
+     * El nombre tal cual si es un identificador normal (en mayúsculas) o entre
+     * comillas dobles si no, para conservar minúsculas y caracteres especiales.
+     */
+    private static String identifier(String name) {
+        if (REGULAR_IDENTIFIER.matcher(name).matches()) {
+            return name;
+        }
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Columna de un índice, que puede llevar " DESC" o " ASC" al final.
+     */
+    private static void writeIndexColumn(Writer out, String column) throws IOException {
+        for (String order : new String[] {" DESC", " ASC"}) {
+            if (column.endsWith(order)) {
+                out.write(identifier(column.substring(0, column.length() - order.length())));
+                out.write(order);
+                return;
+            }
+        }
+        out.write(identifier(column));
+    }
+
+    private static void writeIdentifiers(Writer out, List<String> names) throws IOException {
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            out.write(identifier(names.get(i)));
+        }
+    }
+
+    private static void writeLiteral(Writer out, String value) throws IOException {
+        out.write('\'');
+        out.write(value.replace("'", "''"));
+        out.write('\'');
+    }
+}
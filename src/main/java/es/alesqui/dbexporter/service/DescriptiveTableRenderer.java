@@ -0,0 +1,318 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.ReferenceInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Formato descriptivo optimizado para NotebookLM. Este formato prioriza la
+ * claridad y el contexto para modelos de lenguaje.
+ *
+ * <p>Las búsquedas de PK y FK por columna se resuelven con un {@link TableIndex}
+ * y los textos se recortan al escribirlos, sin crear cadenas intermedias.
+ */
+@Component
+public class DescriptiveTableRenderer implements TableRenderer {
+
+    private static final String NO_ACTION = "NO ACTION";
+
+    @Override
+    public String getFileExtension() {
+        return ".txt";
+    }
+
+    @Override
+    public void render(TableInfo tableInfo, Writer desc) throws IOException {
+        TableIndex index = new TableIndex(tableInfo);
+        List<String> pkColumns = tableInfo.getPrimaryKeyColumns();
+        List<ForeignKeyInfo> foreignKeys = tableInfo.getForeignKeys();
+
+        // === ENCABEZADO ===
+        desc.write("==============================================\n");
+        desc.write("TABLE: ");
+        desc.write(tableInfo.getNombre());
+        desc.write("\n==============================================\n\n");
+
+        // === DESCRIPCIÓN DE LA TABLA ===
+        if (TableIndex.hasText(tableInfo.getComentario())) {
+            desc.write("TABLE DESCRIPTION:\n");
+            writeTrimmed(desc, tableInfo.getComentario(), false);
+            desc.write("\n\n");
+        }
+
+        // === COLUMNAS ===
+        desc.write("COLUMNS:\n");
+        desc.write("------------------\n");
+
+        int colNum = 1;
+        for (ColumnInfo col : tableInfo.getColumnas()) {
+            writeInt(desc, colNum++);
+            desc.write(". ");
+            desc.write(col.getNombre());
+            desc.write('\n');
+
+            // Tipo de dato
+            desc.write("   - Type: ");
+            desc.write(String.valueOf(col.getTipo()));
+            if (col.getLongitud() != null && col.getLongitud() > 0) {
+                desc.write('(');
+                writeInt(desc, col.getLongitud());
+                if (col.getEscala() != null && col.getEscala() > 0) {
+                    desc.write(',');
+                    writeInt(desc, col.getEscala());
+                }
+                desc.write(')');
+            }
+            desc.write('\n');
+
+            // Nullable
+            desc.write(col.isNullable() ? "   - Nullable: YES\n" : "   - Nullable: NO\n");
+
+            // Valor por defecto, sin las comillas de los literales
+            if (TableIndex.hasText(col.getValorDefault())) {
+                desc.write("   - Default value: ");
+                writeTrimmed(desc, col.getValorDefault(), true);
+                desc.write('\n');
+            }
+
+            // Es Primary Key?
+            if (index.primaryKeyPosition(col.getNombre()) >= 0) {
+                desc.write(pkColumns.size() > 1
+                    ? "   - Constraint: PRIMARY KEY (part of composite key)\n"
+                    : "   - Constraint: PRIMARY KEY\n");
+            }
+
+            // Foreign Keys
+            for (TableIndex.ForeignKeyRef ref : index.foreignKeyRefs(col.getNombre())) {
+                desc.write("   - Foreign Key: references ");
+                desc.write(String.valueOf(ref.foreignKey.getTablaDestino()));
+                desc.write('.');
+                desc.write(String.valueOf(ref.targetColumn));
+                if (!NO_ACTION.equals(ref.foreignKey.getOnDeleteAction())) {
+                    desc.write(" (ON DELETE ");
+                    desc.write(String.valueOf(ref.foreignKey.getOnDeleteAction()));
+                    desc.write(')');
+                }
+                desc.write('\n');
+            }
+
+            // Comentario/Descripción de la columna
+            if (TableIndex.hasText(col.getComentario())) {
+                desc.write("   - Description: ");
+                writeTrimmed(desc, col.getComentario(), false);
+                desc.write('\n');
+            }
+
+            desc.write('\n');
+        }
+
+        // === PRIMARY KEY ===
+        if (!pkColumns.isEmpty()) {
+            desc.write("PRIMARY KEY:\n");
+            desc.write("------------------\n");
+            desc.write("- Constraint name: ");
+            desc.write(tableInfo.getPrimaryKeyName() != null ? tableInfo.getPrimaryKeyName() : "[Unnamed]");
+            desc.write("\n- Columns: ");
+            writeList(desc, pkColumns);
+            desc.write(pkColumns.size() > 1 ? "\n- Type: Composite key\n\n" : "\n- Type: Simple key\n\n");
+        }
+
+        // === FOREIGN KEYS ===
+        if (!foreignKeys.isEmpty()) {
+            desc.write("FOREIGN KEYS:\n");
+            desc.write("------------------\n");
+
+            int fkNum = 1;
+            for (ForeignKeyInfo fk : foreignKeys) {
+                writeInt(desc, fkNum++);
+                desc.write(". ");
+                desc.write(String.valueOf(fk.getNombre()));
+                desc.write("\n   - Source columns: ");
+                writeList(desc, fk.getColumnasOrigen());
+                desc.write("\n   - Target table: ");
+                desc.write(String.valueOf(fk.getTablaDestino()));
+                desc.write("\n   - Target columns: ");
+                writeList(desc, fk.getColumnasDestino());
+                desc.write('\n');
+
+                boolean onDelete = !NO_ACTION.equals(fk.getOnDeleteAction());
+                boolean onUpdate = !NO_ACTION.equals(fk.getOnUpdateAction());
+                if (onDelete || onUpdate) {
+                    desc.write("   - Rules: ");
+                    if (onDelete) {
+                        desc.write("ON DELETE ");
+                        desc.write(String.valueOf(fk.getOnDeleteAction()));
+                    }
+                    if (onUpdate) {
+                        if (onDelete) {
+                            desc.write(", ");
+                        }
+                        desc.write("ON UPDATE ");
+                        desc.write(String.valueOf(fk.getOnUpdateAction()));
+                    }
+                    desc.write('\n');
+                }
+                desc.write('\n');
+            }
+        }
+
+        // === REFERENCIAS ENTRANTES ===
+        List<ReferenceInfo> referencedBy = tableInfo.getReferencedBy();
+        if (referencedBy != null && !referencedBy.isEmpty()) {
+            desc.write("REFERENCED BY:\n");
+            desc.write("------------------\n");
+
+            int refNum = 1;
+            for (ReferenceInfo ref : referencedBy) {
+                ForeignKeyInfo fk = ref.getForeignKey();
+                writeInt(desc, refNum++);
+                desc.write(". ");
+                desc.write(ref.getTablaOrigen());
+                desc.write(" (");
+                desc.write(String.valueOf(fk.getNombre()));
+                desc.write(")\n   - Source columns: ");
+                writeList(desc, fk.getColumnasOrigen());
+                desc.write("\n   - Referenced columns: ");
+                writeList(desc, fk.getColumnasDestino());
+                desc.write('\n');
+                if (!NO_ACTION.equals(fk.getOnDeleteAction())) {
+                    desc.write("   - On delete: ");
+                    desc.write(String.valueOf(fk.getOnDeleteAction()));
+                    desc.write('\n');
+                }
+                desc.write('\n');
+            }
+        }
+
+        // === ÍNDICES ===
+        List<IndexInfo> indexes = tableInfo.getIndices();
+        if (indexes != null && !indexes.isEmpty()) {
+            desc.write("INDEXES:\n");
+            desc.write("------------------\n");
+
+            int indexNum = 1;
+            for (IndexInfo idx : indexes) {
+                writeInt(desc, indexNum++);
+                desc.write(". ");
+                desc.write(String.valueOf(idx.getNombre()));
+                desc.write("\n   - Columns: ");
+                writeList(desc, idx.getColumnas());
+                desc.write('\n');
+                if (idx.getColumnasIncluidas() != null && !idx.getColumnasIncluidas().isEmpty()) {
+                    desc.write("   - Included columns: ");
+                    writeList(desc, idx.getColumnasIncluidas());
+                    desc.write('\n');
+                }
+                desc.write(idx.isClavePrimaria() ? "   - Type: Primary key\n"
+                    : idx.isUnico() ? "   - Type: Unique\n" : "   - Type: Non-unique\n");
+                if (idx.isCluster()) {
+                    desc.write("   - Clustered: YES\n");
+                }
+                desc.write('\n');
+            }
+        }
+
+        // === VISTAS DEPENDIENTES ===
+        List<String> views = tableInfo.getVistas();
+        if (views != null && !views.isEmpty()) {
+            desc.write("USED BY VIEWS:\n");
+            desc.write("------------------\n");
+            for (String view : views) {
+                desc.write("- ");
+                desc.write(view);
+                desc.write('\n');
+            }
+            desc.write('\n');
+        }
+
+        // === ESTADÍSTICAS DEL CATÁLOGO ===
+        TableStatistics statistics = tableInfo.getEstadisticas();
+        if (statistics != null) {
+            desc.write("STATISTICS:\n");
+            desc.write("------------------\n");
+            desc.write("- Rows (catalog estimate): ");
+            desc.write(statistics.getFilas() != null ? String.valueOf(statistics.getFilas()) : "unknown");
+            desc.write("\n- Pages: ");
+            desc.write(statistics.getPaginas() != null ? String.valueOf(statistics.getPaginas()) : "unknown");
+            desc.write("\n- Collected: ");
+            desc.write(statistics.getFechaEstadisticas() != null ? statistics.getFechaEstadisticas() : "never");
+            desc.write("\n\n");
+        }
+
+        // === RESUMEN ===
+        desc.write("SUMMARY:\n");
+        desc.write("------------------\n");
+        desc.write("- Total columns: ");
+        writeInt(desc, tableInfo.getColumnas().size());
+        desc.write(pkColumns.isEmpty() ? "\n- Has primary key: NO\n" : "\n- Has primary key: YES\n");
+        if (!pkColumns.isEmpty()) {
+            desc.write(pkColumns.size() > 1 ? "- Primary key type: Composite\n" : "- Primary key type: Simple\n");
+        }
+        desc.write("- Number of foreign keys: ");
+        writeInt(desc, foreignKeys.size());
+        if (referencedBy != null) {
+            desc.write("\n- Referenced by foreign keys: ");
+            writeInt(desc, referencedBy.size());
+        }
+        if (indexes != null) {
+            desc.write("\n- Number of indexes: ");
+            writeInt(desc, indexes.size());
+        }
+        desc.write("\n- Required columns (NOT NULL): ");
+        writeInt(desc, index.getRequiredColumns());
+        desc.write("\n- Columns with default values: ");
+        writeInt(desc, index.getColumnsWithDefaults());
+        desc.write('\n');
+    }
+
+    /**
+     * Escribe el texto sin los espacios de los extremos (como {@link String#trim()})
+     * y, si se pide, sin las comillas simples que lo rodean.
+     */
+    static void writeTrimmed(Writer out, String value, boolean unquote) throws IOException {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (unquote && end - start >= 2 && value.charAt(start) == '\'' && value.charAt(end - 1) == '\'') {
+            start++;
+            end--;
+        }
+        out.write(value, start, end - start);
+    }
+
+    /**
+     * Escribe un entero positivo sin crear la cadena intermedia.
+     */
+    static void writeInt(Writer out, int value) throws IOException {
+        if (value < 0) {
+            out.write(String.valueOf(value));
+            return;
+        }
+        if (value >= 10) {
+            writeInt(out, value / 10);
+        }
+        out.write('0' + value % 10);
+    }
+
+    private static void writeList(Writer out, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            out.write(String.valueOf(values.get(i)));
+        }
+    }
+}
@@ -0,0 +1,558 @@
+package es.alesqui.dbexporter.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import es.alesqui.dbexporter.model.TableInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Modo servicio: en lugar de exportar una vez, mantiene los documentos de las
+ * tablas en una caché en memoria acotada por tamaño y los sirve por HTTP en
+ * la dirección local configurada:
+ *
+ * <ul>
+ * <li>{@code GET /tables}: lista de tablas, una por línea.</li>
+ * <li>{@code GET /tables/{tabla}}: documento de una tabla.</li>
+ * <li>{@code GET /bundle}: todos los documentos en un ZIP.</li>
+ * <li>{@code GET /status}: estado de la caché en JSON.</li>
+ * </ul>
+ *
+ * <p>La caché se refresca periódicamente. Para detectar cambios basta una
+ * consulta al catálogo con las fechas de modificación de las tablas; sólo se
+ * vuelven a leer las tablas cuya fecha ha cambiado y sólo se vuelven a generar
+ * las que además tienen una huella de metadatos distinta. Si la base de datos
+ * no informa de fechas, se releen las tablas en caché y se comparan sus huellas.
+ * Con el grafo de relaciones también se regeneran las tablas cuyas referencias
+ * entrantes han cambiado.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportDaemon {
+
+	private final DatabaseMetadataExtractor metadataExtractor;
+
+	private final TableRenderer renderer;
+
+	@Value("${app.schema}")
+	private String schema;
+
+	@Value("${app.output.directory:database_structure}")
+	private String outputDirectory;
+
+	@Value("${app.output.compression-level:6}")
+	private int compressionLevel;
+
+	@Value("${app.include.foreign.keys:true}")
+	private boolean includeForeignKeys;
+
+	@Value("${app.bulk.enabled:true}")
+	private boolean bulkExtraction;
+
+	@Value("${app.bulk.chunk-size:500}")
+	private int bulkChunkSize;
+
+	@Value("${app.tables.include:}")
+	private String tablesInclude;
+
+	@Value("${app.tables.exclude:}")
+	private String tablesExclude;
+
+	@Value("${app.relationships.enabled:true}")
+	private boolean relationships;
+
+	@Value("${app.include.indexes:true}")
+	private boolean includeIndexes;
+
+	@Value("${app.include.views:true}")
+	private boolean includeViews;
+
+	@Value("${app.include.statistics:true}")
+	private boolean includeStatistics;
+
+	@Value("${app.daemon.enabled:false}")
+	private boolean enabled;
+
+	@Value("${app.daemon.address:127.0.0.1}")
+	private String address;
+
+	@Value("${app.daemon.port:8085}")
+	private int port;
+
+	@Value("${app.daemon.threads:4}")
+	private int threads;
+
+	@Value("${app.daemon.cache-size-mb:256}")
+	private int cacheSizeMb;
+
+	@Value("${app.daemon.refresh-interval-seconds:300}")
+	private int refreshIntervalSeconds;
+
+	private RenderedTableCache cache;
+	private HttpServer server;
+	private ExecutorService requestExecutor;
+	private ScheduledExecutorService refreshExecutor;
+
+	// Estado del último refresco; se sustituye completo en cada refresco
+	private volatile List<String> tables = Collections.emptyList();
+	private volatile Set<String> tableSet = Collections.emptySet();
+	private volatile Map<String, String> changeTimes = Collections.emptyMap();
+	private volatile RelationshipGraph graph;
+	private volatile Instant lastRefresh;
+	private volatile long lastRefreshMillis;
+
+	// Tablas que ya han pasado por la caché o que la carga ha dejado fuera por
+	// falta de espacio: si no están en caché se generan al pedirlas y el
+	// refresco no las vuelve a cargar
+	private final Set<String> known = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Indica si se ha pedido el modo servicio en lugar de una exportación.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Carga la caché, arranca el servidor HTTP y programa los refrescos. El
+	 * método vuelve en cuanto el servidor está escuchando; los hilos del
+	 * servidor mantienen viva la aplicación.
+	 */
+	public void start() throws IOException {
+		cache = new RenderedTableCache(Math.max(1, cacheSizeMb) * 1024L * 1024L);
+		refresh();
+
+		server = HttpServer.create(new InetSocketAddress(address, port), 0);
+		server.createContext("/tables", this::handleTables);
+		server.createContext("/bundle", this::handleBundle);
+		server.createContext("/status", this::handleStatus);
+		requestExecutor = Executors.newFixedThreadPool(Math.max(1, threads));
+		server.setExecutor(requestExecutor);
+		server.start();
+		log.info("Servidor de documentos escuchando en http://{}:{}/", address, server.getAddress().getPort());
+
+		if (refreshIntervalSeconds > 0) {
+			refreshExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "daemon-refresh");
+				thread.setDaemon(true);
+				return thread;
+			});
+			refreshExecutor.scheduleWithFixedDelay(this::scheduledRefresh, refreshIntervalSeconds,
+					refreshIntervalSeconds, TimeUnit.SECONDS);
+			log.info("La caché se refrescará cada {} segundos", refreshIntervalSeconds);
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+			requestExecutor.shutdownNow();
+			log.info("Servidor de documentos detenido");
+		}
+		if (refreshExecutor != null) {
+			refreshExecutor.shutdownNow();
+		}
+	}
+
+	private void scheduledRefresh() {
+		try {
+			refresh();
+		} catch (Exception e) {
+			// Se conserva la caché actual y se reintenta en el siguiente refresco
+			log.error("Error refrescando la caché: {}", e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Compara el catálogo con la caché: descarta las tablas eliminadas, vuelve a
+	 * generar las modificadas y, si queda espacio, carga las que nunca han estado
+	 * en caché.
+	 */
+	synchronized void refresh() {
+		long start = System.nanoTime();
+		TableFilter filter = TableFilter.of(tablesInclude, tablesExclude);
+		List<String> current = metadataExtractor.getTables(schema, filter);
+		Map<String, String> catalogTimes = metadataExtractor.getTableChangeTimes(schema, filter);
+		// Índices, vistas y estadísticas cambian sin modificar la fecha de la tabla
+		Map<String, String> times = !catalogTimes.isEmpty() && (includeIndexes || includeViews || includeStatistics)
+				? ExportManifest.changeKeys(catalogTimes, metadataExtractor.getTableDetailKeys(schema, filter,
+						includeIndexes, includeViews, includeStatistics))
+				: catalogTimes;
+		Set<String> currentSet = new HashSet<>(current);
+
+		// Las tablas nuevas se pueden pedir desde ya, aunque aún no estén en caché
+		tables = Collections.unmodifiableList(new ArrayList<>(current));
+		tableSet = Collections.unmodifiableSet(currentSet);
+		changeTimes = Collections.unmodifiableMap(new HashMap<>(times));
+		RelationshipGraph currentGraph = relationships && includeForeignKeys
+				? RelationshipGraph.build(current, metadataExtractor.getSchemaForeignKeys(schema, current))
+				: null;
+		graph = currentGraph;
+
+		Map<String, RenderedTableCache.Entry> cached = cache.snapshot();
+		known.retainAll(currentSet);
+		known.addAll(cached.keySet());
+		List<String> candidates = new ArrayList<>();
+		int dropped = 0;
+		for (Map.Entry<String, RenderedTableCache.Entry> entry : cached.entrySet()) {
+			String tableName = entry.getKey();
+			if (!currentSet.contains(tableName)) {
+				cache.remove(tableName);
+				dropped++;
+			} else if (times.isEmpty() || !Objects.equals(entry.getValue().changeTime, times.get(tableName))
+					|| !Objects.equals(entry.getValue().referencesHash, referencesHash(currentGraph, tableName))) {
+				candidates.add(tableName);
+			}
+		}
+
+		// Tablas con fecha o referencias distintas: sólo se regeneran si ha
+		// cambiado alguna de las dos huellas
+		int[] rendered = new int[1];
+		readTables(candidates, () -> false, tableInfo -> {
+			RenderedTableCache.Entry previous = cached.get(tableInfo.getNombre());
+			long fingerprint = MetadataSnapshotCodec.fingerprint(tableInfo);
+			if (previous.fingerprint == fingerprint
+					&& Objects.equals(previous.referencesHash, referencesHash(currentGraph, tableInfo.getNombre()))) {
+				cache.touch(tableInfo.getNombre(), times.get(tableInfo.getNombre()));
+			} else {
+				cache.put(tableInfo.getNombre(), render(tableInfo, fingerprint));
+				rendered[0]++;
+			}
+		});
+
+		// Tablas que nunca han estado en caché, hasta que haya que descartar
+		// otra para hacer sitio; las que quedan fuera se generan al pedirlas
+		List<String> missing = new ArrayList<>();
+		for (String tableName : current) {
+			if (!known.contains(tableName)) {
+				missing.add(tableName);
+			}
+		}
+		int[] loaded = new int[1];
+		boolean[] full = new boolean[1];
+		readTables(missing, () -> full[0], tableInfo -> {
+			if (!full[0]) {
+				known.add(tableInfo.getNombre());
+				full[0] = cache.put(tableInfo.getNombre(), render(tableInfo,
+						MetadataSnapshotCodec.fingerprint(tableInfo)));
+				loaded[0]++;
+			}
+		});
+		if (full[0]) {
+			known.addAll(missing);
+			log.debug("Caché llena: las tablas que no se han cargado se generarán al pedirlas");
+		}
+
+		lastRefresh = Instant.now();
+		lastRefreshMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		log.info("Caché actualizada en {} ms: {} tablas, {} en caché ({} KB), {} nuevas, {} regeneradas, {} eliminadas",
+				lastRefreshMillis, current.size(), cache.size(), cache.getBytes() / 1024, loaded[0], rendered[0],
+				dropped);
+	}
+
+	/**
+	 * Lee las tablas por bloques y las entrega al consumidor. Si la lectura en
+	 * bloque falla, las tablas que falten se leen una a una; las que tampoco se
+	 * pueden leer se omiten y se vuelven a intentar en el siguiente refresco. Con
+	 * el grafo de relaciones, las FK se toman del grafo.
+	 */
+	private void readTables(List<String> tableNames, BooleanSupplier stop, Consumer<TableInfo> handler) {
+		RelationshipGraph currentGraph = graph;
+		boolean readForeignKeys = includeForeignKeys && currentGraph == null;
+		int chunkSize = !bulkExtraction ? 1
+				: metadataExtractor.isSchemaWideBulkRead() ? Math.max(1, tableNames.size()) : Math.max(1, bulkChunkSize);
+		// Con el esquema completo en un bloque, índices y estadísticas se leen durante el recorrido
+		boolean streamDetails = bulkExtraction && metadataExtractor.isSchemaWideBulkRead();
+		for (int from = 0; from < tableNames.size() && !stop.getAsBoolean(); from += chunkSize) {
+			Set<String> pending = new LinkedHashSet<>(tableNames.subList(from, Math.min(from + chunkSize,
+					tableNames.size())));
+			TableDetails details;
+			try {
+				details = readDetails(new ArrayList<>(pending), streamDetails);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (bulkExtraction) {
+				try {
+					metadataExtractor.readTablesInfo(schema, new ArrayList<>(pending), readForeignKeys,
+							streamDetails && includeIndexes, streamDetails && includeStatistics, tableInfo -> {
+								if (pending.remove(tableInfo.getNombre())) {
+									handler.accept(complete(tableInfo, currentGraph, details));
+								}
+							});
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (Exception e) {
+					log.warn("Error en la lectura en bloque, se consultarán una a una las {} tablas restantes: {}",
+							pending.size(), e.getMessage());
+				}
+			}
+
+			for (String tableName : pending) {
+				if (stop.getAsBoolean()) {
+					return;
+				}
+				try {
+					TableInfo tableInfo = metadataExtractor.getTableInfo(schema, tableName, readForeignKeys);
+					if (streamDetails) {
+						TableDetails.read(metadataExtractor, schema, Collections.singletonList(tableName), includeIndexes,
+								false, includeStatistics, new RetryPolicy(1, 0, 0)).apply(tableInfo);
+					}
+					handler.accept(complete(tableInfo, currentGraph, details));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (Exception e) {
+					log.error("Error leyendo la tabla {}: {}", tableName, e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Índices, vistas y estadísticas de un bloque de tablas, sin reintentos: lo
+	 * que falle se vuelve a leer en el siguiente refresco. Con streamed, sólo las
+	 * vistas; los índices y las estadísticas llegan con cada tabla.
+	 */
+	private TableDetails readDetails(List<String> tableNames, boolean streamed) throws InterruptedException {
+		return TableDetails.read(metadataExtractor, schema, tableNames, includeIndexes && !streamed, includeViews,
+				includeStatistics && !streamed, new RetryPolicy(1, 0, 0));
+	}
+
+	/**
+	 * Completa la tabla con sus índices, vistas y estadísticas y, si hay grafo,
+	 * con sus FK y las que la referencian.
+	 */
+	private static TableInfo complete(TableInfo tableInfo, RelationshipGraph graph, TableDetails details) {
+		details.apply(tableInfo);
+		if (graph != null) {
+			tableInfo.setForeignKeys(graph.foreignKeys(tableInfo.getNombre()));
+			tableInfo.setReferencedBy(graph.referencedBy(tableInfo.getNombre()));
+		}
+		return tableInfo;
+	}
+
+	private static String referencesHash(RelationshipGraph graph, String tableName) {
+		return graph != null ? graph.referencesHash(tableName) : null;
+	}
+
+	/**
+	 * Genera el documento de una tabla en memoria.
+	 */
+	private RenderedTableCache.Entry render(TableInfo tableInfo, long fingerprint) {
+		ByteArrayOutputStream content = new ByteArrayOutputStream(renderer.estimateSize(tableInfo));
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(content, StandardCharsets.UTF_8))) {
+			renderer.render(tableInfo, writer);
+		} catch (IOException e) {
+			throw new IllegalStateException("Error generando el documento de " + tableInfo.getNombre(), e);
+		}
+		return new RenderedTableCache.Entry(content.toByteArray(), changeTimes.get(tableInfo.getNombre()),
+				fingerprint, referencesHash(graph, tableInfo.getNombre()));
+	}
+
+	/**
+	 * Documento de la tabla: de la caché o, si no está, leído y generado en el
+	 * momento. Devuelve null si la tabla no existe o está excluida.
+	 */
+	private byte[] document(String tableName) throws InterruptedException {
+		if (!tableSet.contains(tableName)) {
+			return null;
+		}
+		RenderedTableCache.Entry entry = cache.get(tableName);
+		if (entry == null) {
+			RelationshipGraph currentGraph = graph;
+			TableInfo tableInfo = complete(metadataExtractor.getTableInfo(schema, tableName,
+					includeForeignKeys && currentGraph == null), currentGraph,
+					readDetails(Collections.singletonList(tableName), false));
+			entry = render(tableInfo, MetadataSnapshotCodec.fingerprint(tableInfo));
+			cache.put(tableName, entry);
+			known.add(tableName);
+		}
+		return entry.content;
+	}
+
+	private void handleTables(HttpExchange exchange) throws IOException {
+		handle(exchange, () -> {
+			String path = exchange.getRequestURI().getPath();
+			if ("/tables".equals(path) || "/tables/".equals(path)) {
+				StringBuilder list = new StringBuilder();
+				for (String tableName : tables) {
+					list.append(tableName).append('\n');
+				}
+				send(exchange, 200, "text/plain; charset=UTF-8", list.toString().getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+
+			String tableName = path.substring("/tables/".length());
+			if (tableName.endsWith(renderer.getFileExtension())) {
+				tableName = tableName.substring(0, tableName.length() - renderer.getFileExtension().length());
+			}
+			byte[] content = document(tableName);
+			if (content == null) {
+				send(exchange, 404, "text/plain; charset=UTF-8",
+						("Tabla no encontrada: " + tableName + "\n").getBytes(StandardCharsets.UTF_8));
+			} else {
+				send(exchange, 200, contentType(), content);
+			}
+		});
+	}
+
+	/**
+	 * Envía todos los documentos en un ZIP, con las mismas entradas que
+	 * app.output.mode=zip. Primero los que están en caché y después el resto,
+	 * leídos por bloques; estos últimos no se guardan en la caché para no
+	 * desplazar a los documentos más pedidos.
+	 */
+	private void handleBundle(HttpExchange exchange) throws IOException {
+		handle(exchange, () -> {
+			String directory = Paths.get(outputDirectory).getFileName().toString();
+			String extension = renderer.getFileExtension();
+			exchange.getResponseHeaders().set("Content-Type", "application/zip");
+			exchange.getResponseHeaders().set("Content-Disposition",
+					"attachment; filename=\"" + directory + ".zip\"");
+			exchange.sendResponseHeaders(200, 0);
+
+			List<String> missing = new ArrayList<>();
+			try (ZipOutputStream zip = new ZipOutputStream(exchange.getResponseBody())) {
+				zip.setLevel(compressionLevel);
+				for (String tableName : tables) {
+					RenderedTableCache.Entry entry = cache.get(tableName);
+					if (entry == null) {
+						missing.add(tableName);
+					} else {
+						writeEntry(zip, directory + "/" + tableName + extension, entry.content);
+					}
+				}
+
+				IOException[] error = new IOException[1];
+				readTables(missing, () -> error[0] != null, tableInfo -> {
+					try {
+						writeEntry(zip, directory + "/" + tableInfo.getNombre() + extension,
+								render(tableInfo, 0L).content);
+					} catch (IOException e) {
+						error[0] = e;
+					}
+				});
+				if (error[0] != null) {
+					throw error[0];
+				}
+			}
+		});
+	}
+
+	private void handleStatus(HttpExchange exchange) throws IOException {
+		handle(exchange, () -> {
+			String json = "{\n"
+					+ "  \"schema\": " + ExportMetrics.quote(schema) + ",\n"
+					+ "  \"tables\": " + tables.size() + ",\n"
+					+ "  \"cachedTables\": " + cache.size() + ",\n"
+					+ "  \"cachedBytes\": " + cache.getBytes() + ",\n"
+					+ "  \"maxBytes\": " + cache.getMaxBytes() + ",\n"
+					+ "  \"hits\": " + cache.getHits() + ",\n"
+					+ "  \"misses\": " + cache.getMisses() + ",\n"
+					+ "  \"evictions\": " + cache.getEvictions() + ",\n"
+					+ "  \"lastRefresh\": " + (lastRefresh != null ? ExportMetrics.quote(lastRefresh.toString()) : "null")
+					+ ",\n"
+					+ "  \"lastRefreshMillis\": " + lastRefreshMillis + "\n"
+					+ "}\n";
+			send(exchange, 200, "application/json; charset=UTF-8", json.getBytes(StandardCharsets.UTF_8));
+		});
+	}
+
+	private interface Handler {
+		void handle() throws IOException, InterruptedException;
+	}
+
+	/**
+	 * Sólo se admite GET. Los errores se devuelven como 500 sin detener el
+	 * servidor.
+	 */
+	private void handle(HttpExchange exchange, Handler handler) throws IOException {
+		long start = System.nanoTime();
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().set("Allow", "GET");
+				send(exchange, 405, "text/plain; charset=UTF-8", new byte[0]);
+				return;
+			}
+			handler.handle();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			log.error("Error atendiendo {}: {}", exchange.getRequestURI(), e.getMessage(), e);
+			try {
+				send(exchange, 500, "text/plain; charset=UTF-8",
+						(String.valueOf(e.getMessage()) + "\n").getBytes(StandardCharsets.UTF_8));
+			} catch (IOException | IllegalStateException ignored) {
+				// La respuesta ya se había empezado a enviar
+			}
+		} finally {
+			exchange.close();
+			log.debug("{} {} en {} ms", exchange.getRequestMethod(), exchange.getRequestURI(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+	}
+
+	private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		if (body.length > 0) {
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+
+	private static void writeEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+	private String contentType() {
+		switch (renderer.getFileExtension()) {
+			case ".json":
+				return "application/json; charset=UTF-8";
+			case ".md":
+				return "text/markdown; charset=UTF-8";
+			default:
+				return "text/plain; charset=UTF-8";
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package es.alesqui.dbexporter.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Diario de control de una exportación en curso. Cada tabla terminada se añade
+ * al final del archivo, de modo que si la ejecución se interrumpe la siguiente
+ * puede continuar sin repetir las tablas ya exportadas. Al terminar la
+ * ejecución el diario se borra y las tablas con error definitivo se guardan
+ * aparte, para poder volver a exportar sólo esas.
+ */
+@Slf4j
+class ExportJournal implements Closeable {
+
+    static final String FILE_NAME = ".export-journal";
+    static final String FAILED_FILE_NAME = ".export-failed";
+
+    private static final String HEADER = "# schema\t";
+
+    private final Path file;
+    private final String suffix;
+    private final Set<String> completed;
+    private final BufferedWriter writer;
+
+    private ExportJournal(Path file, String suffix, Set<String> completed, BufferedWriter writer) {
+        this.file = file;
+        this.suffix = suffix;
+        this.completed = completed;
+        this.writer = writer;
+    }
+
+    /**
+     * Abre el diario del directorio de salida. Si se reanuda y existe un diario
+     * del mismo esquema, se cargan sus tablas terminadas y se sigue añadiendo a
+     * él; en otro caso se empieza uno nuevo. Cada shard tiene su propio diario,
+     * con el sufijo del shard en el nombre ("" si no se reparte).
+     */
+    static ExportJournal open(Path directory, String suffix, String schema, boolean resume) throws IOException {
+        Path file = directory.resolve(FILE_NAME + suffix);
+        Set<String> completed = new HashSet<>();
+
+        if (resume && Files.exists(file)) {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && lines.get(0).equals(HEADER + schema)) {
+                // La última línea puede haber quedado a medias: no coincidirá con ninguna tabla
+                completed.addAll(lines.subList(1, lines.size()));
+                log.info("Reanudando una exportación interrumpida: {} tablas ya terminadas", completed.size());
+                return new ExportJournal(file, suffix, completed, Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND));
+            }
+            log.warn("El diario de exportación pertenece a otro esquema: se descarta");
+        }
+
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write(HEADER + schema);
+        writer.newLine();
+        writer.flush();
+        return new ExportJournal(file, suffix, completed, writer);
+    }
+
+    boolean isCompleted(String tableName) {
+        return completed.contains(tableName);
+    }
+
+    /**
+     * Registra una tabla terminada. Se vuelca al sistema operativo en cada
+     * línea para que sobreviva a una caída de la JVM.
+     */
+    synchronized void completed(String tableName) throws IOException {
+        writer.write(tableName);
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Cierra el diario de una ejecución terminada: lo borra y guarda la lista de
+     * tablas con error definitivo (o la elimina si no hay ninguna).
+     */
+    void finish(Collection<String> failedTables) throws IOException {
+        close();
+        Files.deleteIfExists(file);
+        saveFailed(file.getParent(), suffix, failedTables);
+    }
+
+    /**
+     * Guarda la lista de tablas con error definitivo, o la elimina si no hay
+     * ninguna.
+     */
+    static void saveFailed(Path directory, String suffix, Collection<String> failedTables) throws IOException {
+        Path failedFile = directory.resolve(FAILED_FILE_NAME + suffix);
+        if (failedTables.isEmpty()) {
+            Files.deleteIfExists(failedFile);
+        } else {
+            Files.write(failedFile, new TreeSet<>(failedTables), StandardCharsets.UTF_8);
+            log.warn("{} tablas con error definitivo, listadas en {}", failedTables.size(), failedFile.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Cierra el diario sin borrarlo, para poder reanudar la exportación.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Tablas con error definitivo en la última ejecución terminada.
+     */
+    static List<String> loadFailed(Path directory, String suffix) throws IOException {
+        Path failedFile = directory.resolve(FAILED_FILE_NAME + suffix);
+        if (!Files.exists(failedFile)) {
+            return Collections.emptyList();
+        }
+        List<String> failed = new ArrayList<>();
+        for (String line : Files.readAllLines(failedFile, StandardCharsets.UTF_8)) {
+            if (!line.trim().isEmpty()) {
+                failed.add(line.trim());
+            }
+        }
+        return failed;
+    }
+}
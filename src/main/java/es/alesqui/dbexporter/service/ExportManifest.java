@@ -0,0 +1,182 @@
+package es.alesqui.dbexporter.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manifiesto de la última exportación. Para cada tabla guarda la clave de
+ * cambio (fecha de modificación en el catálogo más, si se documentan índices,
+ * vistas o estadísticas, la clave de esos detalles), el hash del documento
+ * generado y, si se documentan las referencias entrantes, la huella de éstas,
+ * de modo que la siguiente ejecución sólo exporte las tablas nuevas o
+ * modificadas.
+ */
+class ExportManifest {
+
+    static final String FILE_NAME = ".export-manifest";
+
+    private static final String HEADER = "# TABLE\tCHANGE_TIME\tSHA-256\tREFERENCES";
+    private static final String NULL_VALUE = "-";
+
+    /**
+     * Estado de una tabla en el manifiesto.
+     */
+    @Data
+    @AllArgsConstructor
+    static class Entry {
+        private String changeTime;
+        private String hash;
+        private String referencesHash;
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Carga el manifiesto del directorio de salida. Si no existe, devuelve uno vacío.
+     */
+    static ExportManifest load(Path directory) throws IOException {
+        return load(directory, FILE_NAME);
+    }
+
+    /**
+     * Carga un manifiesto con otro nombre, como la parte de un shard.
+     */
+    static ExportManifest load(Path directory, String fileName) throws IOException {
+        ExportManifest manifest = new ExportManifest();
+        Path file = directory.resolve(fileName);
+        if (!Files.exists(file)) {
+            return manifest;
+        }
+
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            // Los manifiestos anteriores no tienen la columna de referencias
+            if (fields.length == 3 || fields.length == 4) {
+                manifest.entries.put(fields[0], new Entry(fromField(fields[1]), fromField(fields[2]),
+                    fields.length == 4 ? fromField(fields[3]) : null));
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Guarda el manifiesto en el directorio de salida, ordenado por tabla. Se
+     * escribe primero a un temporal para no dejar un manifiesto a medias.
+     */
+    void save(Path directory) throws IOException {
+        save(directory, FILE_NAME);
+    }
+
+    void save(Path directory, String fileName) throws IOException {
+        Path file = directory.resolve(fileName);
+        Path temp = directory.resolve(fileName + ".tmp");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet()) {
+                writer.write(entry.getKey());
+                writer.write('\t');
+                writer.write(toField(entry.getValue().getChangeTime()));
+                writer.write('\t');
+                writer.write(toField(entry.getValue().getHash()));
+                writer.write('\t');
+                writer.write(toField(entry.getValue().getReferencesHash()));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    Entry get(String tableName) {
+        return entries.get(tableName);
+    }
+
+    void put(String tableName, String changeTime, String hash, String referencesHash) {
+        entries.put(tableName, new Entry(changeTime, hash, referencesHash));
+    }
+
+    /**
+     * Combina las fechas de modificación con las claves de índices, vistas y
+     * estadísticas, que cambian sin tocar la fecha. Sin claves de detalle
+     * devuelve las fechas tal cual; una tabla sin alguna de las dos queda sin
+     * clave y se considera modificada.
+     */
+    static Map<String, String> changeKeys(Map<String, String> changeTimes, Map<String, String> detailKeys) {
+        if (detailKeys.isEmpty()) {
+            return changeTimes;
+        }
+        Map<String, String> keys = new HashMap<>();
+        changeTimes.forEach((tableName, changeTime) -> {
+            String detailKey = detailKeys.get(tableName);
+            keys.put(tableName, changeTime != null && detailKey != null ? changeTime + "|" + detailKey : null);
+        });
+        return keys;
+    }
+
+    /**
+     * Indica si la tabla no ha cambiado desde la última exportación. Sin clave de
+     * cambio conocida la tabla se considera siempre modificada; también si han
+     * cambiado las FK que la referencian.
+     */
+    boolean isUpToDate(String tableName, String changeTime, String referencesHash) {
+        Entry entry = entries.get(tableName);
+        return entry != null && changeTime != null && changeTime.equals(entry.getChangeTime())
+            && Objects.equals(referencesHash, entry.getReferencesHash());
+    }
+
+    Set<String> getTableNames() {
+        return entries.keySet();
+    }
+
+    void putAll(ExportManifest other) {
+        entries.putAll(other.entries);
+    }
+
+    /**
+     * Deja sólo las tablas del shard, sin tratar las demás como borradas.
+     */
+    void retainPartition(ExportPartition partition) {
+        entries.keySet().removeIf(tableName -> !partition.contains(tableName));
+    }
+
+    /**
+     * Elimina del manifiesto las tablas que ya no existen y las devuelve.
+     */
+    List<String> retainOnly(Set<String> tableNames) {
+        List<String> dropped = new ArrayList<>();
+        for (String tableName : entries.keySet()) {
+            if (!tableNames.contains(tableName)) {
+                dropped.add(tableName);
+            }
+        }
+        dropped.forEach(entries::remove);
+        return dropped;
+    }
+
+    private static String toField(String value) {
+        return value != null ? value : NULL_VALUE;
+    }
+
+    private static String fromField(String field) {
+        return NULL_VALUE.equals(field) ? null : field;
+    }
+}
@@ -0,0 +1,216 @@
+package es.alesqui.dbexporter.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro ligero de métricas de una exportación: tiempos por operación
+ * (consultas al catálogo, render y escritura), tiempo acumulado por tabla y
+ * contadores. Al final de la ejecución genera un informe con p50/p95/máximo
+ * por operación y las tablas más lentas.
+ */
+@Slf4j
+@Component
+public class ExportMetrics {
+
+    /**
+     * Filas de catálogo estimadas a partir del modelo leído (una por tabla,
+     * columna, columna de PK y de FK...), no contadas en los ResultSet.
+     */
+    public static final String ROWS_FETCHED = "rows.fetched";
+    public static final String BYTES_WRITTEN = "bytes.written";
+
+    private static final int SLOWEST_TABLES = 10;
+
+    /**
+     * Muestras de tiempo de una operación, en nanosegundos. Se guardan todas
+     * para calcular los percentiles exactos al final.
+     */
+    private static final class Timer {
+        private long[] samples = new long[64];
+        private int count;
+
+        synchronized void record(long nanos) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(samples, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> tableTimes = new ConcurrentHashMap<>();
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * Descarta las métricas de la ejecución anterior.
+     */
+    public void reset() {
+        timers.clear();
+        counters.clear();
+        tableTimes.clear();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Registra la duración de una operación.
+     */
+    public void record(String operation, long nanos) {
+        timers.computeIfAbsent(operation, k -> new Timer()).record(nanos);
+    }
+
+    /**
+     * Acumula tiempo dedicado a una tabla concreta.
+     */
+    public void recordTable(String tableName, long nanos) {
+        tableTimes.computeIfAbsent(tableName, k -> new LongAdder()).add(nanos);
+    }
+
+    public void increment(String counter, long delta) {
+        counters.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+    }
+
+    public long getCounter(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * Escribe el informe de la ejecución en el log y, si se indica un archivo,
+     * también en JSON.
+     */
+    public void report(Path jsonFile) throws IOException {
+        Map<String, long[]> operations = new TreeMap<>();
+        timers.forEach((name, timer) -> operations.put(name, timer.sorted()));
+        List<Map.Entry<String, Long>> slowest = slowestTables();
+        long elapsed = System.nanoTime() - startNanos;
+
+        log.info("========================================");
+        log.info("Informe de rendimiento ({} s):", String.format("%.1f", elapsed / 1e9));
+        log.info(String.format("%-32s %8s %10s %9s %9s %9s", "Operación", "n", "total ms", "p50 ms", "p95 ms", "max ms"));
+        for (Map.Entry<String, long[]> entry : operations.entrySet()) {
+            long[] samples = entry.getValue();
+            log.info(String.format("%-32s %8d %10.1f %9.2f %9.2f %9.2f", entry.getKey(), samples.length,
+                millis(sum(samples)), millis(percentile(samples, 50)), millis(percentile(samples, 95)),
+                millis(samples.length > 0 ? samples[samples.length - 1] : 0)));
+        }
+        log.info("Tablas más lentas:");
+        for (Map.Entry<String, Long> entry : slowest) {
+            log.info(String.format("  %-40s %9.2f ms", entry.getKey(), millis(entry.getValue())));
+        }
+        log.info("Filas leídas del catálogo (estimadas): {}", getCounter(ROWS_FETCHED));
+        log.info("Bytes escritos: {}", getCounter(BYTES_WRITTEN));
+        log.info("========================================");
+
+        if (jsonFile != null) {
+            writeJson(jsonFile, elapsed, operations, slowest);
+            log.info("Informe de rendimiento guardado en {}", jsonFile.toAbsolutePath());
+        }
+    }
+
+    private List<Map.Entry<String, Long>> slowestTables() {
+        List<Map.Entry<String, Long>> tables = new ArrayList<>();
+        tableTimes.forEach((name, nanos) -> tables.add(new AbstractMap.SimpleEntry<>(name, nanos.sum())));
+        tables.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return tables.subList(0, Math.min(SLOWEST_TABLES, tables.size()));
+    }
+
+    private void writeJson(Path file, long elapsed, Map<String, long[]> operations,
+            List<Map.Entry<String, Long>> slowest) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("{\n");
+            out.write("  \"elapsedMs\": " + format(millis(elapsed)) + ",\n");
+            out.write("  \"operations\": {");
+            String separator = "\n";
+            for (Map.Entry<String, long[]> entry : operations.entrySet()) {
+                long[] samples = entry.getValue();
+                out.write(separator);
+                out.write("    " + quote(entry.getKey()) + ": {\"count\": " + samples.length
+                    + ", \"totalMs\": " + format(millis(sum(samples)))
+                    + ", \"p50Ms\": " + format(millis(percentile(samples, 50)))
+                    + ", \"p95Ms\": " + format(millis(percentile(samples, 95)))
+                    + ", \"maxMs\": " + format(millis(samples.length > 0 ? samples[samples.length - 1] : 0)) + "}");
+                separator = ",\n";
+            }
+            out.write("\n  },\n");
+            out.write("  \"slowestTables\": [");
+            separator = "\n";
+            for (Map.Entry<String, Long> entry : slowest) {
+                out.write(separator);
+                out.write("    {\"table\": " + quote(entry.getKey()) + ", \"ms\": " + format(millis(entry.getValue())) + "}");
+                separator = ",\n";
+            }
+            out.write("\n  ],\n");
+            out.write("  \"rowsFetchedEstimate\": " + getCounter(ROWS_FETCHED) + ",\n");
+            out.write("  \"bytesWritten\": " + getCounter(BYTES_WRITTEN) + "\n");
+            out.write("}\n");
+        }
+    }
+
+    /**
+     * Percentil por el método del rango más cercano sobre muestras ordenadas.
+     */
+    static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static long sum(long[] samples) {
+        long total = 0;
+        for (long sample : samples) {
+            total += sample;
+        }
+        return total;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
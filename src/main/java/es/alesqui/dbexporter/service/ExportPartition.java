@@ -0,0 +1,320 @@
+package es.alesqui.dbexporter.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Parte de las tablas que exporta un worker cuando la exportación se reparte
+ * entre varios procesos o máquinas (app.shard=i/N). Las tablas se asignan por
+ * el CRC32 de su nombre, así que el reparto no depende del orden del catálogo
+ * y una tabla cae siempre en el mismo shard.
+ *
+ * <p>Cada worker guarda su parte del manifiesto (.export-manifest.i-of-N) y sus
+ * totales (.export-shard.i-of-N). {@link #merge(Path)} comprueba que están
+ * todos los shards y que han visto la misma lista de tablas, y los combina en
+ * el manifiesto y la lista de tablas con error de una exportación normal.
+ */
+@Slf4j
+@Getter
+public final class ExportPartition {
+
+    static final String SUMMARY_FILE_NAME = ".export-shard";
+
+    private static final Pattern SPEC = Pattern.compile("\\s*(\\d+)\\s*/\\s*(\\d+)\\s*");
+    private static final Pattern SUFFIX = Pattern.compile("\\.(\\d+)-of-(\\d+)");
+    private static final char LIST_SEPARATOR = '\t';
+
+    private final int index;
+    private final int count;
+
+    private ExportPartition(int index, int count) {
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Shard i/N, numerado desde 1, o null si el valor está vacío.
+     */
+    public static ExportPartition parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        Matcher matcher = SPEC.matcher(value);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Valor no válido para app.shard: " + value + " (formato i/N, p. ej. 1/4)");
+        }
+        int index = Integer.parseInt(matcher.group(1));
+        int count = Integer.parseInt(matcher.group(2));
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("Valor no válido para app.shard: " + value
+                + " (el shard va de 1 a N)");
+        }
+        return new ExportPartition(index, count);
+    }
+
+    boolean contains(String tableName) {
+        CRC32 crc = new CRC32();
+        crc.update(tableName.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue() % count == index - 1;
+    }
+
+    /**
+     * Las tablas del shard, en el mismo orden.
+     */
+    List<String> filter(List<String> tables) {
+        List<String> retained = new ArrayList<>();
+        for (String tableName : tables) {
+            if (contains(tableName)) {
+                retained.add(tableName);
+            }
+        }
+        return retained;
+    }
+
+    /**
+     * Sufijo de los archivos de control del shard: ".2-of-4".
+     */
+    String getSuffix() {
+        return "." + index + "-of-" + count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+
+    /**
+     * Guarda los totales del shard junto con el número y la huella de las
+     * tablas del esquema, que deben coincidir en todos los workers, y la lista
+     * de las tablas que le han tocado.
+     */
+    void writeSummary(Path directory, List<String> schemaTables, ExportResult result) throws IOException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("schema", result.getSchema());
+        fields.put("shard", toString());
+        fields.put("schema-tables", String.valueOf(schemaTables.size()));
+        fields.put("schema-hash", fingerprint(schemaTables));
+        fields.put("shard-tables", String.join(String.valueOf(LIST_SEPARATOR), new TreeSet<>(filter(schemaTables))));
+        fields.put("tables", String.valueOf(result.getTables()));
+        fields.put("exported", String.valueOf(result.getExported()));
+        fields.put("errors", String.valueOf(result.getErrors()));
+        fields.put("unchanged", String.valueOf(result.getUnchanged()));
+        fields.put("elapsed-ms", String.valueOf(result.getElapsedMillis()));
+        fields.put("failed", String.join(String.valueOf(LIST_SEPARATOR), new TreeSet<>(result.getFailedTables())));
+        if (result.getError() != null) {
+            fields.put("error", result.getError());
+        }
+
+        Path file = directory.resolve(SUMMARY_FILE_NAME + getSuffix());
+        Path temp = directory.resolve(SUMMARY_FILE_NAME + getSuffix() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                writer.write(field.getKey());
+                writer.write('\t');
+                writer.write(field.getValue().replace('\n', ' '));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Combina los shards del directorio: comprueba que están todos, que han
+     * terminado y que han repartido la misma lista de tablas; escribe el
+     * manifiesto y las tablas con error conjuntos y borra los archivos de los
+     * shards. Devuelve los totales de cada shard, por nombre ("shard 2/4").
+     *
+     * @throws IllegalStateException si falta algún shard o no son coherentes
+     */
+    public static Map<String, ExportResult> merge(Path directory) throws IOException {
+        Map<Integer, Map<String, String>> summaries = new TreeMap<>();
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SUMMARY_FILE_NAME + ".*-of-*")) {
+            for (Path file : files) {
+                Matcher matcher = SUFFIX.matcher(file.getFileName().toString().substring(SUMMARY_FILE_NAME.length()));
+                if (!matcher.matches()) {
+                    continue;
+                }
+                int shardCount = Integer.parseInt(matcher.group(2));
+                if (count != 0 && shardCount != count) {
+                    throw new IllegalStateException("Hay shards de repartos distintos (" + count + " y "
+                        + shardCount + ") en " + directory.toAbsolutePath());
+                }
+                count = shardCount;
+                int shardIndex = Integer.parseInt(matcher.group(1));
+                if (shardIndex < 1 || shardIndex > count) {
+                    throw new IllegalStateException("Shard fuera del reparto: " + file.getFileName());
+                }
+                summaries.put(shardIndex, readSummary(file));
+            }
+        }
+        if (count == 0) {
+            throw new IllegalStateException("No hay shards que combinar en " + directory.toAbsolutePath());
+        }
+        List<String> missing = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            if (!summaries.containsKey(i)) {
+                missing.add(i + "/" + count);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Faltan los shards " + String.join(", ", missing));
+        }
+
+        Map<String, String> first = summaries.get(1);
+        List<String> assigned = new ArrayList<>();
+        for (Map.Entry<Integer, Map<String, String>> shard : summaries.entrySet()) {
+            Map<String, String> summary = shard.getValue();
+            String name = shard.getKey() + "/" + count;
+            if (summary.containsKey("error")) {
+                throw new IllegalStateException("El shard " + name + " no ha terminado: " + summary.get("error"));
+            }
+            if (!first.get("schema").equals(summary.get("schema"))
+                    || !first.get("schema-hash").equals(summary.get("schema-hash"))) {
+                throw new IllegalStateException("El shard " + name + " ha repartido otra lista de tablas (esquema "
+                    + summary.get("schema") + ", " + summary.get("schema-tables") + " tablas): vuelva a exportarlo");
+            }
+            ExportPartition partition = new ExportPartition(shard.getKey(), count);
+            for (String tableName : list(summary.get("shard-tables"))) {
+                if (!partition.contains(tableName)) {
+                    throw new IllegalStateException("La tabla " + tableName + " no pertenece al shard " + partition);
+                }
+                assigned.add(tableName);
+            }
+        }
+        if (assigned.size() != Integer.parseInt(first.get("schema-tables"))
+                || !fingerprint(assigned).equals(first.get("schema-hash"))) {
+            throw new IllegalStateException("Los shards suman " + assigned.size() + " tablas y el esquema tiene "
+                + first.get("schema-tables"));
+        }
+
+        // Manifiesto conjunto: cada tabla debe venir del shard que le corresponde
+        ExportManifest manifest = new ExportManifest();
+        List<String> failed = new ArrayList<>();
+        List<Path> merged = new ArrayList<>();
+        Map<String, ExportResult> results = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Map<String, String>> shard : summaries.entrySet()) {
+            ExportPartition partition = new ExportPartition(shard.getKey(), count);
+            String manifestName = ExportManifest.FILE_NAME + partition.getSuffix();
+            if (!Files.exists(directory.resolve(manifestName))) {
+                throw new IllegalStateException("Falta el manifiesto del shard " + partition + ": " + manifestName);
+            }
+            ExportManifest partial = ExportManifest.load(directory, manifestName);
+            Map<String, String> summary = shard.getValue();
+            List<String> failedTables = list(summary.get("failed"));
+
+            // Cada tabla del shard tiene que estar en su manifiesto o entre las fallidas
+            Set<String> expected = new TreeSet<>(list(summary.get("shard-tables")));
+            Set<String> covered = new TreeSet<>(partial.getTableNames());
+            covered.addAll(failedTables);
+            if (!covered.equals(expected)) {
+                Set<String> missingTables = new TreeSet<>(expected);
+                missingTables.removeAll(covered);
+                covered.removeAll(expected);
+                throw new IllegalStateException("El manifiesto del shard " + partition + " no coincide con sus tablas"
+                    + (missingTables.isEmpty() ? "" : "; faltan " + sample(missingTables))
+                    + (covered.isEmpty() ? "" : "; sobran " + sample(covered)) + ": vuelva a exportarlo");
+            }
+            manifest.putAll(partial);
+
+            failed.addAll(failedTables);
+            results.put("shard " + partition, new ExportResult(summary.get("schema"),
+                Integer.parseInt(summary.get("tables")), Integer.parseInt(summary.get("exported")),
+                Integer.parseInt(summary.get("errors")), Integer.parseInt(summary.get("unchanged")), failedTables,
+                directory, Long.parseLong(summary.get("elapsed-ms")), null));
+
+            merged.add(directory.resolve(manifestName));
+            merged.add(directory.resolve(SUMMARY_FILE_NAME + partition.getSuffix()));
+            merged.add(directory.resolve(ExportJournal.FAILED_FILE_NAME + partition.getSuffix()));
+        }
+
+        manifest.save(directory);
+        ExportJournal.saveFailed(directory, "", failed);
+        for (Path file : merged) {
+            Files.deleteIfExists(file);
+        }
+        log.info("{} shards combinados: {} tablas en el manifiesto, {} con error", count, manifest.getTableNames().size(),
+            failed.size());
+        return results;
+    }
+
+    private static Map<String, String> readSummary(Path file) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            if (tab > 0) {
+                fields.put(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+        for (String required : new String[] {"schema", "schema-tables", "schema-hash", "shard-tables", "tables",
+                "exported", "errors", "unchanged", "elapsed-ms"}) {
+            if (!fields.containsKey(required)) {
+                throw new IllegalStateException("Resumen de shard incompleto, falta " + required + ": " + file);
+            }
+        }
+        return fields;
+    }
+
+    private static List<String> list(String value) {
+        return value == null || value.isEmpty() ? Collections.emptyList()
+            : Arrays.asList(value.split(String.valueOf(LIST_SEPARATOR)));
+    }
+
+    /**
+     * Las primeras tablas de la lista, para los mensajes de error.
+     */
+    private static String sample(Set<String> tables) {
+        List<String> first = new ArrayList<>();
+        for (String tableName : tables) {
+            if (first.size() == 10) {
+                first.add("... (" + tables.size() + " en total)");
+                break;
+            }
+            first.add(tableName);
+        }
+        return String.join(", ", first);
+    }
+
+    /**
+     * SHA-256 de los nombres de las tablas, ordenados.
+     */
+    private static String fingerprint(List<String> tables) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String tableName : new TreeSet<>(tables)) {
+                digest.update(tableName.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.TableInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Pipeline de exportación en tres etapas enlazadas por colas acotadas:
+ * lectura del catálogo (varios hilos), generación de los documentos y escritura.
+ * Cada tabla se lee una vez y se genera en todos los formatos configurados.
+ * La memoria en uso queda limitada por la capacidad de las colas y por el
+ * número de buffers de render, que se reutilizan de una tabla a otra.
+ *
+ * <p>Con varios hilos de lectura las tablas llegan en cualquier orden. Si la
+ * salida lo necesita (un archivo comprimido o los shards), se escriben bloque a
+ * bloque, y las de cada bloque en el orden en que las entrega su lectura. Las
+ * de bloques posteriores que se adelantan esperan en memoria hasta su turno,
+ * pero como mucho tantas como la capacidad de las colas: a partir de ahí la
+ * lectura de esos bloques se detiene hasta que termine el bloque en curso.
+ */
+@Slf4j
+class ExportPipeline {
+
+    /**
+     * Etapa de lectura: obtiene un bloque de tablas del catálogo y entrega cada
+     * una al pipeline con {@link ExportPipeline#submit(TableInfo)}.
+     */
+    interface ChunkReader {
+        void read(List<String> chunk, ExportPipeline pipeline) throws InterruptedException;
+    }
+
+    /**
+     * Etapa de escritura: persiste los documentos ya generados de una tabla, uno
+     * por formato y en el orden de los renderers.
+     */
+    interface Output {
+        void write(TableInfo tableInfo, List<RenderBuffer> documents) throws IOException;
+    }
+
+    /**
+     * Buffer de render reutilizable. El documento se genera en UTF-8 directamente
+     * sobre el array interno, que se conserva entre tablas y se amplía de una vez
+     * según el tamaño estimado del documento.
+     */
+    static class RenderBuffer extends ByteArrayOutputStream {
+        private Writer writer = newWriter();
+        private String extension;
+
+        RenderBuffer() {
+            super(8 * 1024);
+        }
+
+        /**
+         * Extensión del formato en que se ha generado el documento.
+         */
+        String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Reserva al menos la capacidad indicada, sin copias intermedias al escribir.
+         */
+        void ensureCapacity(int capacity) {
+            if (capacity > buf.length) {
+                buf = Arrays.copyOf(buf, capacity);
+            }
+        }
+
+        /**
+         * Descarta el contenido y lo que el writer tenga pendiente tras un error
+         * de render, conservando el array interno.
+         */
+        void discard() {
+            writer = newWriter();
+            reset();
+        }
+
+        /**
+         * Vista del contenido del buffer, sin copiarlo.
+         */
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+        /**
+         * Añade el contenido del buffer al digest, sin copiarlo.
+         */
+        void updateDigest(MessageDigest digest) {
+            digest.update(buf, 0, count);
+        }
+
+        private Writer newWriter() {
+            return new BufferedWriter(new OutputStreamWriter(this, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Documentos de una tabla, uno por renderer.
+     */
+    private static final class RenderedTable {
+        private final List<RenderBuffer> documents = new ArrayList<>();
+        private TableInfo tableInfo;
+
+        RenderedTable(int formats) {
+            for (int i = 0; i < formats; i++) {
+                documents.add(new RenderBuffer());
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (RenderBuffer document : documents) {
+                size += document.size();
+            }
+            return size;
+        }
+    }
+
+    private static final TableInfo END = TableInfo.builder().build();
+
+    private final RenderedTable endTable = new RenderedTable(0);
+    // Avisa a la etapa de escritura de que una tabla ha fallado antes de llegar a ella
+    private final RenderedTable wakeUp = new RenderedTable(0);
+    private final int readThreads;
+    private final List<TableRenderer> renderers;
+    private final Output output;
+    private final boolean ordered;
+    private final ExportMetrics metrics;
+    private final BlockingQueue<TableInfo> renderQueue;
+    private final BlockingQueue<RenderedTable> writeQueue;
+    private final BlockingQueue<RenderedTable> freeBuffers;
+    private final int window;
+    private final int maxBuffers;
+    private int allocated;
+
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final ConcurrentLinkedQueue<String> failedTables = new ConcurrentLinkedQueue<>();
+    private int total;
+
+    // Orden de escritura: bloque de cada tabla, tablas de cada bloque que faltan
+    // por escribir o por fallar, y tablas ya entregadas o fallidas
+    private final Map<String, Integer> chunkOf = new HashMap<>();
+    private AtomicIntegerArray remaining;
+    private final Set<String> settled = ConcurrentHashMap.newKeySet();
+
+    // Bloque en curso y tablas de bloques posteriores admitidas por adelantado
+    private final Object turn = new Object();
+    private int current;
+    private int ahead;
+    private final Set<String> admittedAhead = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param ordered escribir las tablas en el orden de los bloques, sea cual
+     *                sea el orden en que se terminen de leer. Las de bloques
+     *                posteriores que pueden adelantarse son como mucho {@code capacity}
+     */
+    ExportPipeline(int readThreads, int capacity, List<TableRenderer> renderers, Output output, boolean ordered,
+            ExportMetrics metrics) {
+        this.readThreads = readThreads;
+        this.renderers = renderers;
+        this.output = output;
+        this.ordered = ordered;
+        this.metrics = metrics;
+        this.renderQueue = new ArrayBlockingQueue<>(capacity);
+        this.writeQueue = new ArrayBlockingQueue<>(capacity + 1);
+        // Las tablas que esperan su turno se quedan con sus buffers: la reserva
+        // crece hasta cubrirlas, pero no más
+        this.window = ordered ? capacity : 0;
+        this.maxBuffers = capacity + window;
+        this.freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+        for (int i = 0; i < capacity; i++) {
+            freeBuffers.add(new RenderedTable(renderers.size()));
+        }
+        this.allocated = capacity;
+    }
+
+    /**
+     * Ejecuta el pipeline sobre los bloques de tablas y espera a que todas las
+     * etapas terminen.
+     */
+    void run(List<List<String>> chunks, ChunkReader reader) throws InterruptedException {
+        total = chunks.stream().mapToInt(List::size).sum();
+        if (ordered) {
+            remaining = new AtomicIntegerArray(chunks.size());
+            for (int i = 0; i < chunks.size(); i++) {
+                for (String tableName : chunks.get(i)) {
+                    chunkOf.put(tableName, i);
+                }
+                remaining.set(i, chunks.get(i).size());
+            }
+        }
+
+        Thread renderThread = new Thread(this::renderLoop, "export-render");
+        Thread writeThread = new Thread(this::writeLoop, "export-write");
+        renderThread.start();
+        writeThread.start();
+
+        ExecutorService readers = Executors.newFixedThreadPool(readThreads, new CustomizableThreadFactory("export-read-"));
+        try {
+            List<Future<?>> pending = new ArrayList<>();
+            for (List<String> chunk : chunks) {
+                pending.add(readers.submit(() -> {
+                    try {
+                        reader.read(chunk, this);
+                    } finally {
+                        if (ordered) {
+                            abandon(chunk);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : pending) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error("Error inesperado leyendo un bloque de tablas: {}", e.getCause().getMessage(), e.getCause());
+                }
+            }
+            renderQueue.put(END);
+            renderThread.join();
+            writeThread.join();
+        } catch (InterruptedException e) {
+            renderThread.interrupt();
+            writeThread.interrupt();
+            throw e;
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    /**
+     * Registra el inicio del procesamiento de una tabla.
+     */
+    void started(String tableName) {
+        log.info("Procesando tabla {}/{}: {}", processed.incrementAndGet(), total, tableName);
+    }
+
+    /**
+     * Entrega una tabla leída a la etapa de render. Bloquea si la cola está llena
+     * o, con escritura ordenada, si la tabla es de un bloque posterior al que se
+     * está escribiendo y ya hay demasiadas adelantadas.
+     */
+    void submit(TableInfo tableInfo) throws InterruptedException {
+        if (ordered) {
+            admit(tableInfo.getNombre());
+        }
+        renderQueue.put(tableInfo);
+    }
+
+    /**
+     * Registra el fallo de una tabla en cualquiera de las etapas.
+     */
+    void failed(String tableName, Exception e) {
+        recordFailure(tableName, e);
+        if (ordered && chunkOf.containsKey(tableName)) {
+            settled.add(tableName);
+            settle(tableName);
+            // Si la cola está llena la escritura ya tiene trabajo y lo verá después
+            writeQueue.offer(wakeUp);
+        }
+    }
+
+    private void admit(String tableName) throws InterruptedException {
+        Integer chunk = chunkOf.get(tableName);
+        if (chunk == null) {
+            return;
+        }
+        settled.add(tableName);
+        synchronized (turn) {
+            while (chunk > current && ahead >= window) {
+                turn.wait();
+            }
+            if (chunk > current) {
+                ahead++;
+                admittedAhead.add(tableName);
+            }
+        }
+    }
+
+    /**
+     * Una tabla deja de estar pendiente en su bloque: se ha escrito o ha fallado.
+     */
+    private void settle(String tableName) {
+        remaining.decrementAndGet(chunkOf.get(tableName));
+        if (admittedAhead.remove(tableName)) {
+            synchronized (turn) {
+                ahead--;
+                turn.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Las tablas de un bloque que su lectura no llegó a entregar ni a dar por
+     * fallidas (por un error inesperado) ya no llegarán.
+     */
+    private void abandon(List<String> chunk) {
+        boolean abandoned = false;
+        for (String tableName : chunk) {
+            if (settled.add(tableName)) {
+                settle(tableName);
+                abandoned = true;
+            }
+        }
+        if (abandoned) {
+            writeQueue.offer(wakeUp);
+        }
+    }
+
+    private void recordFailure(String tableName, Exception e) {
+        errors.incrementAndGet();
+        failedTables.add(tableName);
+        log.error("Error procesando tabla {}: {}", tableName, e.getMessage(), e);
+    }
+
+    int getProcessed() {
+        return processed.get();
+    }
+
+    int getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Tablas que han fallado en alguna etapa.
+     */
+    List<String> getFailedTables() {
+        return new ArrayList<>(failedTables);
+    }
+
+    private void record(String stage, String tableName, long nanos) {
+        metrics.record(stage, nanos);
+        metrics.recordTable(tableName, nanos);
+    }
+
+    private void renderLoop() {
+        try {
+            while (true) {
+                TableInfo tableInfo = renderQueue.take();
+                if (tableInfo == END) {
+                    writeQueue.put(endTable);
+                    return;
+                }
+
+                RenderedTable rendered = freeBuffers.take();
+                long start = System.nanoTime();
+                try {
+                    rendered.tableInfo = tableInfo;
+                    for (int i = 0; i < renderers.size(); i++) {
+                        TableRenderer renderer = renderers.get(i);
+                        RenderBuffer buffer = rendered.documents.get(i);
+                        buffer.reset();
+                        buffer.ensureCapacity(renderer.estimateSize(tableInfo));
+                        buffer.extension = renderer.getFileExtension();
+                        renderer.render(tableInfo, buffer.writer);
+                        buffer.writer.flush();
+                    }
+                    record("render", tableInfo.getNombre(), System.nanoTime() - start);
+                } catch (IOException | RuntimeException e) {
+                    failed(tableInfo.getNombre(), e);
+                    // Los writers pueden haber quedado con datos pendientes: se descartan
+                    // y los buffers vuelven a la reserva
+                    rendered.tableInfo = null;
+                    for (RenderBuffer buffer : rendered.documents) {
+                        buffer.discard();
+                    }
+                    freeBuffers.offer(rendered);
+                    continue;
+                }
+                writeQueue.put(rendered);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        // Tablas de bloques posteriores que han llegado antes de su turno, por bloque
+        TreeMap<Integer, List<RenderedTable>> waiting = new TreeMap<>();
+        try {
+            while (true) {
+                RenderedTable rendered = writeQueue.take();
+                if (rendered == endTable) {
+                    advance(waiting);
+                    // Las que sigan esperando es porque falta alguna tabla anterior
+                    for (List<RenderedTable> remainingTables : waiting.values()) {
+                        for (RenderedTable table : remainingTables) {
+                            write(table);
+                        }
+                    }
+                    return;
+                }
+                if (rendered != wakeUp) {
+                    Integer chunk = ordered ? chunkOf.get(rendered.tableInfo.getNombre()) : null;
+                    if (chunk == null || chunk <= current) {
+                        write(rendered);
+                    } else {
+                        // Se queda con el buffer hasta su turno: el render recibe otro
+                        waiting.computeIfAbsent(chunk, k -> new ArrayList<>()).add(rendered);
+                        if (allocated < maxBuffers) {
+                            allocated++;
+                            freeBuffers.offer(new RenderedTable(renderers.size()));
+                        }
+                    }
+                }
+                advance(waiting);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pasa al bloque siguiente mientras el actual esté completo y escribe las
+     * tablas que esperaban su turno.
+     */
+    private void advance(TreeMap<Integer, List<RenderedTable>> waiting) {
+        if (!ordered) {
+            return;
+        }
+        while (current < remaining.length() && remaining.get(current) == 0) {
+            synchronized (turn) {
+                current++;
+                turn.notifyAll();
+            }
+            List<RenderedTable> ready = waiting.remove(current);
+            if (ready != null) {
+                for (RenderedTable table : ready) {
+                    write(table);
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe una tabla y devuelve sus buffers a la etapa de render.
+     */
+    private void write(RenderedTable rendered) {
+        String tableName = rendered.tableInfo.getNombre();
+        long start = System.nanoTime();
+        try {
+            output.write(rendered.tableInfo, rendered.documents);
+            record("write", tableName, System.nanoTime() - start);
+            metrics.increment(ExportMetrics.BYTES_WRITTEN, rendered.size());
+        } catch (IOException | RuntimeException e) {
+            recordFailure(tableName, e);
+        }
+        rendered.tableInfo = null;
+        freeBuffers.offer(rendered);
+        if (ordered && chunkOf.containsKey(tableName)) {
+            settle(tableName);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package es.alesqui.dbexporter.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una exportación: lo que se muestra en el resumen final y lo que
+ * se usa para el resumen conjunto de varios esquemas.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class ExportResult {
+
+    private final String schema;
+
+    /**
+     * Tablas del esquema que pasan el filtro.
+     */
+    private final int tables;
+
+    private final int exported;
+
+    private final int errors;
+
+    /**
+     * Tablas que no se han vuelto a escribir en una exportación incremental.
+     */
+    private final int unchanged;
+
+    private final List<String> failedTables;
+
+    private final Path location;
+
+    private final long elapsedMillis;
+
+    /**
+     * Motivo por el que la exportación no ha terminado, o null si ha terminado.
+     */
+    private final String error;
+
+    /**
+     * Exportación que no ha llegado a terminar.
+     */
+    public static ExportResult failed(String schema, Path location, long elapsedMillis, String error) {
+        return new ExportResult(schema, 0, 0, 0, 0, Collections.emptyList(), location, elapsedMillis, error);
+    }
+
+    public boolean isCompleted() {
+        return error == null;
+    }
+}
@@ -0,0 +1,37 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.TableInfo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Destino alternativo de los documentos generados, en lugar de un archivo por
+ * tabla. Sólo lo usa el hilo de escritura del pipeline, por lo que las
+ * implementaciones no necesitan ser seguras entre hilos.
+ */
+interface ExportSink extends Closeable {
+
+    /**
+     * Añade el documento de una tabla. El contenido sólo es válido durante la llamada.
+     */
+    void write(TableInfo tableInfo, ExportPipeline.RenderBuffer content) throws IOException;
+
+    /**
+     * Archivo o directorio donde queda la exportación.
+     */
+    Path getLocation();
+
+    /**
+     * Publica la exportación, sustituyendo a la anterior.
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Descarta una exportación que no ha terminado sin publicarla: se conserva
+     * la anterior.
+     */
+    void discard() throws IOException;
+}
@@ -0,0 +1,80 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.TableInfo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Reparte los documentos entre un destino por formato, según su extensión.
+ * Lo usan los shards cuando se exportan varios formatos: los nombres de los
+ * shards no llevan la tabla, así que cada formato necesita sus propios
+ * archivos.
+ */
+final class FormatRoutingSink implements ExportSink {
+
+    private final Map<String, ExportSink> sinks;
+    private final Path location;
+
+    /**
+     * @param sinks    destino de cada extensión
+     * @param location ubicación de la exportación, la del formato principal
+     */
+    FormatRoutingSink(Map<String, ExportSink> sinks, Path location) {
+        this.sinks = sinks;
+        this.location = location;
+    }
+
+    @Override
+    public void write(TableInfo tableInfo, ExportPipeline.RenderBuffer content) throws IOException {
+        ExportSink sink = sinks.get(content.getExtension());
+        if (sink == null) {
+            throw new IllegalStateException("No hay destino para los documentos " + content.getExtension());
+        }
+        sink.write(tableInfo, content);
+    }
+
+    @Override
+    public Path getLocation() {
+        return location;
+    }
+
+    /**
+     * Cierra todos los destinos aunque alguno falle; se lanza el primer error.
+     */
+    @Override
+    public void close() throws IOException {
+        forEach(ExportSink::close);
+    }
+
+    /**
+     * Descarta todos los destinos aunque alguno falle; se lanza el primer error.
+     */
+    @Override
+    public void discard() throws IOException {
+        forEach(ExportSink::discard);
+    }
+
+    private interface SinkAction {
+        void apply(ExportSink sink) throws IOException;
+    }
+
+    private void forEach(SinkAction action) throws IOException {
+        IOException error = null;
+        for (ExportSink sink : sinks.values()) {
+            try {
+                action.apply(sink);
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -0,0 +1,681 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Extractor de metadatos genérico basado en {@link DatabaseMetaData}, válido
+ * para cualquier driver JDBC (PostgreSQL, MySQL, SQL Server, H2, Derby...).
+ *
+ * <p>En la lectura en bloque las tablas y columnas se recorren una sola vez
+ * para todo el esquema (patrón de tabla nulo) con un cursor de sólo avance, y
+ * cada tabla se entrega en cuanto se completan sus columnas, sin retener las
+ * columnas de las demás. Antes del recorrido se leen en memoria los
+ * comentarios y las claves primarias y foráneas de todas las tablas pedidas,
+ * así que esa parte sí crece con el catálogo. Las claves se leen tabla a
+ * tabla, ya que la especificación JDBC exige el nombre de la tabla y no todos
+ * los drivers admiten un valor nulo.
+ *
+ * <p>Como el recorrido cubre el esquema completo, la exportación lo pide en un
+ * único bloque y lo lee con un solo hilo: {@code app.export.threads} no acelera
+ * la lectura con este extractor.
+ */
+@Slf4j
+public class JdbcMetadataExtractor implements DatabaseMetadataExtractor {
+
+    private static final String[] TABLE_TYPES = {"TABLE"};
+    private static final Pattern SIZED_TYPE =
+        Pattern.compile("CHAR|BINARY|GRAPHIC|RAW|DECIMAL|NUMERIC|NUMBER", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DECIMAL_TYPE =
+        Pattern.compile("DECIMAL|NUMERIC|NUMBER", Pattern.CASE_INSENSITIVE);
+
+    private final DataSource dataSource;
+    private final int fetchSize;
+    private final boolean schemaWideKeys;
+    private final int queryTimeoutSeconds;
+
+    /**
+     * @param fetchSize           filas por viaje a la base de datos en los cursores de metadatos
+     * @param schemaWideKeys      leer las claves de todo el esquema con un patrón de tabla nulo,
+     *                            sólo para drivers que lo admiten (PostgreSQL, Oracle...)
+     * @param queryTimeoutSeconds tiempo máximo de espera de cada respuesta del servidor; 0, sin límite
+     */
+    public JdbcMetadataExtractor(DataSource dataSource, int fetchSize, boolean schemaWideKeys,
+            int queryTimeoutSeconds) {
+        this.dataSource = dataSource;
+        this.fetchSize = fetchSize;
+        this.schemaWideKeys = schemaWideKeys;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    /**
+     * Catálogo y esquema en los que buscar, según cómo organice los objetos la
+     * base de datos (MySQL usa catálogos en lugar de esquemas).
+     */
+    private static class Scope {
+        String catalog;
+        String schema;
+        String schemaPattern;
+    }
+
+    /**
+     * Acceso a los metadatos con una conexión del pool.
+     */
+    private interface MetadataCallback<T> {
+        T doWith(DatabaseMetaData metaData, Scope scope) throws SQLException;
+    }
+
+    @Override
+    public List<String> getTables(String schema) {
+        return getTables(schema, TableFilter.ALL);
+    }
+
+    /**
+     * Una única inclusión glob o LIKE se pasa al driver como patrón de nombre de
+     * tabla; el resto del filtro se aplica al recorrer el resultado.
+     */
+    @Override
+    public List<String> getTables(String schema, TableFilter filter) {
+        return execute(schema, (md, scope) -> {
+            List<String> tables = new ArrayList<>();
+            String tablePattern = filter.toSearchPattern(md.getSearchStringEscape());
+            try (ResultSet rs = md.getTables(scope.catalog, scope.schemaPattern, tablePattern, TABLE_TYPES)) {
+                applyFetchSize(rs);
+                while (rs.next()) {
+                    String tableName = rs.getString("TABLE_NAME");
+                    if (filter.matches(tableName)) {
+                        tables.add(tableName);
+                    }
+                }
+            }
+            tables.sort(null);
+            return tables;
+        });
+    }
+
+    @Override
+    public String getTableComment(String schema, String tableName) {
+        return execute(schema, (md, scope) -> {
+            try (ResultSet rs = md.getTables(scope.catalog, scope.schemaPattern, escape(md, tableName), TABLE_TYPES)) {
+                while (rs.next()) {
+                    if (tableName.equals(rs.getString("TABLE_NAME"))) {
+                        return normalizeComment(rs.getString("REMARKS"));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<ColumnInfo> getColumns(String schema, String tableName) {
+        return execute(schema, (md, scope) -> {
+            List<ColumnInfo> columns = new ArrayList<>();
+            try (ResultSet rs = md.getColumns(scope.catalog, scope.schemaPattern, escape(md, tableName), null)) {
+                applyFetchSize(rs);
+                while (rs.next()) {
+                    if (tableName.equals(rs.getString("TABLE_NAME"))) {
+                        columns.add(mapColumn(rs));
+                    }
+                }
+            }
+            return columns;
+        });
+    }
+
+    @Override
+    public List<String> getPrimaryKeyColumns(String schema, String tableName) {
+        return execute(schema, (md, scope) -> readPrimaryKey(md, scope, tableName).columns());
+    }
+
+    @Override
+    public String getPrimaryKeyName(String schema, String tableName) {
+        return execute(schema, (md, scope) -> readPrimaryKey(md, scope, tableName).name);
+    }
+
+    @Override
+    public List<ForeignKeyInfo> getForeignKeys(String schema, String tableName) {
+        return execute(schema, (md, scope) -> {
+            Map<String, Map<String, ForeignKeyData>> fkMaps = new HashMap<>();
+            try (ResultSet rs = md.getImportedKeys(scope.catalog, scope.schema, tableName)) {
+                while (rs.next()) {
+                    accumulateForeignKey(fkMaps, rs);
+                }
+            }
+            return toForeignKeys(fkMaps.get(tableName));
+        });
+    }
+
+    /**
+     * Con app.jdbc.schema-wide-keys una única llamada a getImportedKeys para todo
+     * el esquema; si no, una por tabla con la misma conexión.
+     */
+    @Override
+    public Map<String, List<ForeignKeyInfo>> getSchemaForeignKeys(String schema, List<String> tableNames) {
+        return execute(schema, (md, scope) -> {
+            Map<String, Map<String, ForeignKeyData>> fkMaps =
+                readForeignKeys(md, scope, tableNames, new HashSet<>(tableNames));
+            Map<String, List<ForeignKeyInfo>> foreignKeys = new HashMap<>();
+            for (String tableName : tableNames) {
+                foreignKeys.put(tableName, toForeignKeys(fkMaps.get(tableName)));
+            }
+            return foreignKeys;
+        });
+    }
+
+    /**
+     * Índices leídos con getIndexInfo, una llamada por tabla con la misma
+     * conexión. JDBC no indica qué índice es el de la clave primaria.
+     */
+    @Override
+    public Map<String, List<IndexInfo>> getIndexes(String schema, List<String> tableNames) {
+        Map<String, List<IndexInfo>> indexes = new HashMap<>();
+        readIndexInfo(schema, tableNames, indexes, null);
+        return indexes;
+    }
+
+    /**
+     * Estadísticas de la fila tableIndexStatistic de getIndexInfo, pedida en modo
+     * aproximado para que el driver no recorra la tabla. Sólo se incluyen las
+     * tablas para las que el driver la devuelve.
+     */
+    @Override
+    public Map<String, TableStatistics> getTableStatistics(String schema, List<String> tableNames) {
+        Map<String, TableStatistics> statistics = new HashMap<>();
+        readIndexInfo(schema, tableNames, null, statistics);
+        return statistics;
+    }
+
+    /**
+     * Índices y estadísticas salen de la misma llamada a getIndexInfo: se hace
+     * una sola por tabla.
+     */
+    @Override
+    public IndexesAndStatistics getIndexesAndStatistics(String schema, List<String> tableNames) {
+        Map<String, List<IndexInfo>> indexes = new HashMap<>();
+        Map<String, TableStatistics> statistics = new HashMap<>();
+        readIndexInfo(schema, tableNames, indexes, statistics);
+        return new IndexesAndStatistics(indexes, statistics);
+    }
+
+    private void readIndexInfo(String schema, List<String> tableNames, Map<String, List<IndexInfo>> indexes,
+            Map<String, TableStatistics> statistics) {
+        execute(schema, (md, scope) -> {
+            for (String tableName : tableNames) {
+                readIndexInfo(md, scope, tableName, indexes, statistics);
+            }
+            return null;
+        });
+    }
+
+    private void readIndexInfo(DatabaseMetaData md, Scope scope, String tableName,
+            Map<String, List<IndexInfo>> indexes, Map<String, TableStatistics> statistics) throws SQLException {
+        Map<String, IndexInfo> tableIndexes = new LinkedHashMap<>();
+        try (ResultSet rs = md.getIndexInfo(scope.catalog, scope.schema, tableName, false, true)) {
+            while (rs.next()) {
+                short type = rs.getShort("TYPE");
+                if (type == DatabaseMetaData.tableIndexStatistic) {
+                    if (statistics != null) {
+                        long card = rs.getLong("CARDINALITY");
+                        boolean hasCard = !rs.wasNull();
+                        long pages = rs.getLong("PAGES");
+                        boolean hasPages = !rs.wasNull();
+                        statistics.put(tableName, TableStatistics.builder()
+                            .filas(hasCard && card >= 0 ? card : null)
+                            .paginas(hasPages && pages >= 0 ? pages : null)
+                            .build());
+                    }
+                    continue;
+                }
+                String indexName = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (indexes == null || indexName == null || column == null) {
+                    continue;
+                }
+                boolean unique = !rs.getBoolean("NON_UNIQUE");
+                IndexInfo index = tableIndexes.computeIfAbsent(indexName, k -> IndexInfo.builder()
+                    .nombre(indexName)
+                    .columnas(new ArrayList<>())
+                    .columnasIncluidas(new ArrayList<>())
+                    .unico(unique)
+                    .cluster(type == DatabaseMetaData.tableIndexClustered)
+                    .build());
+                index.getColumnas().add("D".equals(rs.getString("ASC_OR_DESC")) ? column + " DESC" : column);
+            }
+        }
+        if (indexes != null) {
+            indexes.put(tableName, new ArrayList<>(tableIndexes.values()));
+        }
+    }
+
+    @Override
+    public List<TableInfo> getTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys) {
+        List<TableInfo> tables = new ArrayList<>(tableNames.size());
+        try {
+            readTablesInfo(schema, tableNames, includeForeignKeys, tables::add);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Lectura de metadatos interrumpida", e);
+        }
+        return tables;
+    }
+
+    /**
+     * Un único bloque para todo el esquema, leído por un solo hilo.
+     */
+    @Override
+    public boolean isSchemaWideBulkRead() {
+        return true;
+    }
+
+    /**
+     * Lectura en bloque: comentarios y claves primero (pocos datos), y después
+     * un único recorrido de las columnas de todo el esquema. Según la
+     * especificación JDBC las columnas llegan ordenadas por tabla, así que cada
+     * tabla se entrega en cuanto empieza la siguiente.
+     */
+    @Override
+    public void readTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys,
+            TableInfoHandler handler) throws InterruptedException {
+        readTablesInfo(schema, tableNames, includeForeignKeys, false, false, handler);
+    }
+
+    /**
+     * Los índices y estadísticas de cada tabla se piden con getIndexInfo, con la
+     * misma conexión, justo antes de entregarla: la primera tabla no espera a los
+     * del esquema completo y sólo se retienen los de la tabla en curso.
+     */
+    @Override
+    public void readTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys,
+            boolean includeIndexes, boolean includeStatistics, TableInfoHandler handler) throws InterruptedException {
+        if (tableNames.isEmpty()) {
+            return;
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            applyTimeout(connection);
+            DatabaseMetaData md = connection.getMetaData();
+            Scope scope = scope(md, schema);
+            Set<String> requested = new HashSet<>(tableNames);
+
+            Map<String, String> comments = new HashMap<>();
+            try (ResultSet rs = md.getTables(scope.catalog, scope.schemaPattern, null, TABLE_TYPES)) {
+                applyFetchSize(rs);
+                while (rs.next()) {
+                    String tableName = rs.getString("TABLE_NAME");
+                    if (requested.contains(tableName)) {
+                        comments.put(tableName, normalizeComment(rs.getString("REMARKS")));
+                    }
+                }
+            }
+
+            Map<String, PrimaryKeyData> primaryKeys = readPrimaryKeys(md, scope, tableNames, requested);
+            Map<String, Map<String, ForeignKeyData>> foreignKeys = includeForeignKeys
+                ? readForeignKeys(md, scope, tableNames, requested) : new HashMap<>();
+
+            Set<String> pending = new LinkedHashSet<>(tableNames);
+            try (ResultSet rs = md.getColumns(scope.catalog, scope.schemaPattern, null, null)) {
+                applyFetchSize(rs);
+                String current = null;
+                List<ColumnInfo> columns = null;
+                while (rs.next()) {
+                    String tableName = rs.getString("TABLE_NAME");
+                    if (!requested.contains(tableName)) {
+                        continue;
+                    }
+                    if (!tableName.equals(current)) {
+                        if (current != null && pending.remove(current)) {
+                            TableInfo tableInfo = buildTable(schema, current, comments, columns,
+                                primaryKeys, foreignKeys);
+                            handler.handle(withDetails(md, scope, tableInfo, includeIndexes, includeStatistics));
+                        }
+                        current = tableName;
+                        columns = new ArrayList<>();
+                    }
+                    columns.add(mapColumn(rs));
+                }
+                if (current != null && pending.remove(current)) {
+                    TableInfo tableInfo = buildTable(schema, current, comments, columns, primaryKeys, foreignKeys);
+                    handler.handle(withDetails(md, scope, tableInfo, includeIndexes, includeStatistics));
+                }
+            }
+
+            // Tablas sin columnas visibles
+            for (String tableName : pending) {
+                TableInfo tableInfo = buildTable(schema, tableName, comments, new ArrayList<>(),
+                    primaryKeys, foreignKeys);
+                handler.handle(withDetails(md, scope, tableInfo, includeIndexes, includeStatistics));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error leyendo los metadatos del esquema " + schema + ": " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private TableInfo withDetails(DatabaseMetaData md, Scope scope, TableInfo tableInfo, boolean includeIndexes,
+            boolean includeStatistics) throws SQLException {
+        if (!includeIndexes && !includeStatistics) {
+            return tableInfo;
+        }
+        String tableName = tableInfo.getNombre();
+        Map<String, List<IndexInfo>> indexes = includeIndexes ? new HashMap<>() : null;
+        Map<String, TableStatistics> statistics = includeStatistics ? new HashMap<>() : null;
+        readIndexInfo(md, scope, tableName, indexes, statistics);
+        if (includeIndexes) {
+            tableInfo.setIndices(indexes.get(tableName));
+        }
+        if (includeStatistics) {
+            tableInfo.setEstadisticas(statistics.get(tableName));
+        }
+        return tableInfo;
+    }
+
+    private TableInfo buildTable(String schema, String tableName, Map<String, String> comments,
+            List<ColumnInfo> columns, Map<String, PrimaryKeyData> primaryKeys,
+            Map<String, Map<String, ForeignKeyData>> foreignKeys) {
+        PrimaryKeyData primaryKey = primaryKeys.getOrDefault(tableName, new PrimaryKeyData());
+        return TableInfo.builder()
+            .nombre(tableName)
+            .esquema(schema)
+            .comentario(comments.get(tableName))
+            .columnas(columns)
+            .primaryKeyColumns(primaryKey.columns())
+            .primaryKeyName(primaryKey.name)
+            .foreignKeys(toForeignKeys(foreignKeys.get(tableName)))
+            .build();
+    }
+
+    private Map<String, PrimaryKeyData> readPrimaryKeys(DatabaseMetaData md, Scope scope, List<String> tableNames,
+            Set<String> requested) throws SQLException {
+        Map<String, PrimaryKeyData> primaryKeys = new HashMap<>();
+        if (schemaWideKeys) {
+            try (ResultSet rs = md.getPrimaryKeys(scope.catalog, scope.schema, null)) {
+                while (rs.next()) {
+                    String tableName = rs.getString("TABLE_NAME");
+                    if (requested.contains(tableName)) {
+                        accumulatePrimaryKey(primaryKeys.computeIfAbsent(tableName, k -> new PrimaryKeyData()), rs);
+                    }
+                }
+            }
+        } else {
+            for (String tableName : tableNames) {
+                primaryKeys.put(tableName, readPrimaryKey(md, scope, tableName));
+            }
+        }
+        return primaryKeys;
+    }
+
+    private Map<String, Map<String, ForeignKeyData>> readForeignKeys(DatabaseMetaData md, Scope scope,
+            List<String> tableNames, Set<String> requested) throws SQLException {
+        Map<String, Map<String, ForeignKeyData>> fkMaps = new HashMap<>();
+        if (schemaWideKeys) {
+            try (ResultSet rs = md.getImportedKeys(scope.catalog, scope.schema, null)) {
+                while (rs.next()) {
+                    if (requested.contains(rs.getString("FKTABLE_NAME"))) {
+                        accumulateForeignKey(fkMaps, rs);
+                    }
+                }
+            }
+        } else {
+            for (String tableName : tableNames) {
+                try (ResultSet rs = md.getImportedKeys(scope.catalog, scope.schema, tableName)) {
+                    while (rs.next()) {
+                        accumulateForeignKey(fkMaps, rs);
+                    }
+                }
+            }
+        }
+        return fkMaps;
+    }
+
+    private PrimaryKeyData readPrimaryKey(DatabaseMetaData md, Scope scope, String tableName) throws SQLException {
+        PrimaryKeyData primaryKey = new PrimaryKeyData();
+        try (ResultSet rs = md.getPrimaryKeys(scope.catalog, scope.schema, tableName)) {
+            while (rs.next()) {
+                accumulatePrimaryKey(primaryKey, rs);
+            }
+        }
+        return primaryKey;
+    }
+
+    /**
+     * Clase auxiliar para ordenar las columnas de la PK por KEY_SEQ
+     * (getPrimaryKeys las devuelve ordenadas por nombre).
+     */
+    private static class PrimaryKeyData {
+        String name;
+        TreeMap<Short, String> columnsBySeq = new TreeMap<>();
+
+        List<String> columns() {
+            return new ArrayList<>(columnsBySeq.values());
+        }
+    }
+
+    private void accumulatePrimaryKey(PrimaryKeyData primaryKey, ResultSet rs) throws SQLException {
+        primaryKey.name = rs.getString("PK_NAME");
+        primaryKey.columnsBySeq.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+    }
+
+    /**
+     * Clase auxiliar para agrupar datos de FK durante la consulta.
+     */
+    private static class ForeignKeyData {
+        String nombre;
+        String tablaDestino;
+        String esquemaDestino;
+        String onDeleteAction;
+        String onUpdateAction;
+        TreeMap<Short, String[]> columnsBySeq = new TreeMap<>();
+    }
+
+    /**
+     * Añade una fila de getImportedKeys al mapa de agrupación (tabla → FK).
+     * Las FK sin nombre se identifican por la tabla referenciada. El esquema
+     * referenciado (o el catálogo, en las bases de datos sin esquemas) sólo se
+     * guarda si es distinto del de la tabla.
+     */
+    private void accumulateForeignKey(Map<String, Map<String, ForeignKeyData>> fkMaps, ResultSet rs)
+            throws SQLException {
+        String tableName = rs.getString("FKTABLE_NAME");
+        String fkName = rs.getString("FK_NAME");
+        String targetTable = rs.getString("PKTABLE_NAME");
+        String key = fkName != null ? fkName : "FK_" + tableName + "_" + targetTable;
+
+        ForeignKeyData fkData = fkMaps.computeIfAbsent(tableName, k -> new TreeMap<>())
+            .computeIfAbsent(key, k -> new ForeignKeyData());
+        fkData.nombre = key;
+        fkData.tablaDestino = targetTable;
+        String targetSchema = rs.getString("PKTABLE_SCHEM");
+        String targetCatalog = rs.getString("PKTABLE_CAT");
+        fkData.esquemaDestino = targetSchema != null
+            ? (targetSchema.equals(rs.getString("FKTABLE_SCHEM")) ? null : targetSchema)
+            : (targetCatalog != null && !targetCatalog.equals(rs.getString("FKTABLE_CAT")) ? targetCatalog : null);
+        fkData.onDeleteAction = mapRule(rs.getShort("DELETE_RULE"));
+        fkData.onUpdateAction = mapRule(rs.getShort("UPDATE_RULE"));
+        fkData.columnsBySeq.put(rs.getShort("KEY_SEQ"),
+            new String[]{rs.getString("FKCOLUMN_NAME"), rs.getString("PKCOLUMN_NAME")});
+    }
+
+    private List<ForeignKeyInfo> toForeignKeys(Map<String, ForeignKeyData> fkMap) {
+        List<ForeignKeyInfo> foreignKeys = new ArrayList<>();
+        if (fkMap == null) {
+            return foreignKeys;
+        }
+        for (ForeignKeyData fkData : fkMap.values()) {
+            List<String> origen = new ArrayList<>();
+            List<String> destino = new ArrayList<>();
+            for (String[] pair : fkData.columnsBySeq.values()) {
+                origen.add(pair[0]);
+                destino.add(pair[1]);
+            }
+            foreignKeys.add(ForeignKeyInfo.builder()
+                .nombre(fkData.nombre)
+                .tablaDestino(fkData.tablaDestino)
+                .esquemaDestino(fkData.esquemaDestino)
+                .onDeleteAction(fkData.onDeleteAction)
+                .onUpdateAction(fkData.onUpdateAction)
+                .columnasOrigen(origen)
+                .columnasDestino(destino)
+                .build());
+        }
+        return foreignKeys;
+    }
+
+    private String mapRule(short rule) {
+        switch (rule) {
+            case DatabaseMetaData.importedKeyCascade: return "CASCADE";
+            case DatabaseMetaData.importedKeyRestrict: return "RESTRICT";
+            case DatabaseMetaData.importedKeySetNull: return "SET NULL";
+            case DatabaseMetaData.importedKeySetDefault: return "SET DEFAULT";
+            default: return "NO ACTION";
+        }
+    }
+
+    /**
+     * Convierte una fila de getColumns en un ColumnInfo.
+     */
+    private ColumnInfo mapColumn(ResultSet rs) throws SQLException {
+        int size = rs.getInt("COLUMN_SIZE");
+        Integer longitud = rs.wasNull() ? null : size;
+        int digits = rs.getInt("DECIMAL_DIGITS");
+        Integer escala = rs.wasNull() ? null : digits;
+
+        return ColumnInfo.builder()
+            .nombre(rs.getString("COLUMN_NAME"))
+            .tipo(rs.getString("TYPE_NAME"))
+            .longitud(longitud)
+            .escala(escala)
+            .nullable(rs.getInt("NULLABLE") == DatabaseMetaData.columnNullable)
+            .valorDefault(rs.getString("COLUMN_DEF"))
+            .comentario(normalizeComment(rs.getString("REMARKS")))
+            .build();
+    }
+
+    @Override
+    public String formatColumnType(ColumnInfo col) {
+        return genericColumnType(col);
+    }
+
+    /**
+     * Formato genérico TIPO(longitud[,escala]). El catálogo informa una
+     * longitud para todos los tipos (la precisión de INTEGER, DATE...), pero
+     * solo se escribe en los tipos que la admiten, para que el tipo sirva
+     * también en un CREATE TABLE.
+     */
+    static String genericColumnType(ColumnInfo col) {
+        String type = col.getTipo();
+        if (type == null || col.getLongitud() == null || col.getLongitud() <= 0
+            || !SIZED_TYPE.matcher(type).find()) {
+            return type;
+        }
+        return col.getEscala() != null && col.getEscala() > 0 && DECIMAL_TYPE.matcher(type).find()
+            ? type + "(" + col.getLongitud() + "," + col.getEscala() + ")"
+            : type + "(" + col.getLongitud() + ")";
+    }
+
+    @Override
+    public String formatDefault(String defaultValue, String dataType) {
+        return " DEFAULT " + defaultValue.trim();
+    }
+
+    private <T> T execute(String schema, MetadataCallback<T> callback) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            applyTimeout(connection);
+            DatabaseMetaData md = connection.getMetaData();
+            return callback.doWith(md, scope(md, schema));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error leyendo los metadatos del esquema " + schema + ": " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private Scope scope(DatabaseMetaData md, String schema) throws SQLException {
+        String name = schema;
+        if (md.storesUpperCaseIdentifiers()) {
+            name = schema.toUpperCase();
+        } else if (md.storesLowerCaseIdentifiers()) {
+            name = schema.toLowerCase();
+        }
+
+        Scope scope = new Scope();
+        if (!md.supportsSchemasInTableDefinitions() && md.supportsCatalogsInTableDefinitions()) {
+            scope.catalog = name;
+        } else {
+            scope.schema = name;
+            scope.schemaPattern = escape(md, name);
+        }
+        return scope;
+    }
+
+    /**
+     * Escapa los comodines de LIKE en los parámetros que son patrones.
+     */
+    private String escape(DatabaseMetaData md, String name) throws SQLException {
+        String escape = md.getSearchStringEscape();
+        if (escape == null || escape.isEmpty()) {
+            return name;
+        }
+        return name.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+
+    /**
+     * DatabaseMetaData no expone las sentencias que lanza, así que el límite se
+     * aplica como timeout de red de la conexión. El pool lo restablece al
+     * devolverla.
+     */
+    private void applyTimeout(Connection connection) {
+        if (queryTimeoutSeconds <= 0) {
+            return;
+        }
+        try {
+            connection.setNetworkTimeout(Runnable::run, (int) TimeUnit.SECONDS.toMillis(queryTimeoutSeconds));
+        } catch (SQLException | AbstractMethodError | UnsupportedOperationException e) {
+            log.debug("El driver no admite timeout de red: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * El tamaño de fetch es sólo una sugerencia: algunos drivers no lo admiten
+     * en los cursores de metadatos.
+     */
+    private void applyFetchSize(ResultSet rs) {
+        if (fetchSize <= 0) {
+            return;
+        }
+        try {
+            rs.setFetchSize(fetchSize);
+        } catch (SQLException e) {
+            log.debug("El driver no admite fetch size en los metadatos: {}", e.getMessage());
+        }
+    }
+
+    private String normalizeComment(String comment) {
+        return (comment != null && !comment.trim().isEmpty()) ? comment.trim() : null;
+    }
+}
@@ -0,0 +1,205 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.ReferenceInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Formato JSON, un objeto por tabla, para herramientas. Los tipos se guardan
+ * tal como los da el catálogo, con su longitud y escala por separado. Las
+ * secciones que no se han leído (referencias entrantes, índices, vistas,
+ * estadísticas) se omiten en lugar de escribirse vacías.
+ */
+public class JsonTableRenderer implements TableRenderer {
+
+    @Override
+    public String getFileExtension() {
+        return ".json";
+    }
+
+    @Override
+    public void render(TableInfo tableInfo, Writer out) throws IOException {
+        TableIndex index = new TableIndex(tableInfo);
+
+        out.write("{\n  \"schema\": ");
+        writeString(out, tableInfo.getEsquema());
+        out.write(",\n  \"table\": ");
+        writeString(out, tableInfo.getNombre());
+        out.write(",\n  \"comment\": ");
+        writeString(out, text(tableInfo.getComentario()));
+
+        out.write(",\n  \"columns\": [");
+        List<ColumnInfo> columns = tableInfo.getColumnas();
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnInfo col = columns.get(i);
+            out.write(i > 0 ? ",\n    {\"name\": " : "\n    {\"name\": ");
+            writeString(out, col.getNombre());
+            out.write(", \"type\": ");
+            writeString(out, col.getTipo());
+            out.write(", \"length\": ");
+            out.write(String.valueOf(col.getLongitud()));
+            out.write(", \"scale\": ");
+            out.write(String.valueOf(col.getEscala()));
+            out.write(col.isNullable() ? ", \"nullable\": true" : ", \"nullable\": false");
+            out.write(", \"default\": ");
+            writeString(out, text(col.getValorDefault()));
+            out.write(index.primaryKeyPosition(col.getNombre()) >= 0 ? ", \"primaryKey\": true"
+                : ", \"primaryKey\": false");
+            out.write(", \"comment\": ");
+            writeString(out, text(col.getComentario()));
+            out.write('}');
+        }
+        out.write(columns.isEmpty() ? "]" : "\n  ]");
+
+        out.write(",\n  \"primaryKey\": ");
+        if (tableInfo.getPrimaryKeyColumns().isEmpty()) {
+            out.write("null");
+        } else {
+            out.write("{\"name\": ");
+            writeString(out, tableInfo.getPrimaryKeyName());
+            out.write(", \"columns\": ");
+            writeStrings(out, tableInfo.getPrimaryKeyColumns());
+            out.write('}');
+        }
+
+        out.write(",\n  \"foreignKeys\": [");
+        List<ForeignKeyInfo> foreignKeys = tableInfo.getForeignKeys();
+        for (int i = 0; i < foreignKeys.size(); i++) {
+            ForeignKeyInfo fk = foreignKeys.get(i);
+            out.write(i > 0 ? ",\n    " : "\n    ");
+            writeForeignKey(out, fk.getNombre(), fk);
+        }
+        out.write(foreignKeys.isEmpty() ? "]" : "\n  ]");
+
+        List<ReferenceInfo> referencedBy = tableInfo.getReferencedBy();
+        if (referencedBy != null) {
+            out.write(",\n  \"referencedBy\": [");
+            for (int i = 0; i < referencedBy.size(); i++) {
+                ReferenceInfo ref = referencedBy.get(i);
+                out.write(i > 0 ? ",\n    {\"table\": " : "\n    {\"table\": ");
+                writeString(out, ref.getTablaOrigen());
+                out.write(", \"foreignKey\": ");
+                writeForeignKey(out, ref.getForeignKey().getNombre(), ref.getForeignKey());
+                out.write('}');
+            }
+            out.write(referencedBy.isEmpty() ? "]" : "\n  ]");
+        }
+
+        List<IndexInfo> indexes = tableInfo.getIndices();
+        if (indexes != null) {
+            out.write(",\n  \"indexes\": [");
+            for (int i = 0; i < indexes.size(); i++) {
+                IndexInfo idx = indexes.get(i);
+                out.write(i > 0 ? ",\n    {\"name\": " : "\n    {\"name\": ");
+                writeString(out, idx.getNombre());
+                out.write(", \"columns\": ");
+                writeStrings(out, idx.getColumnas());
+                if (idx.getColumnasIncluidas() != null && !idx.getColumnasIncluidas().isEmpty()) {
+                    out.write(", \"includedColumns\": ");
+                    writeStrings(out, idx.getColumnasIncluidas());
+                }
+                out.write(idx.isUnico() ? ", \"unique\": true" : ", \"unique\": false");
+                out.write(idx.isClavePrimaria() ? ", \"primaryKey\": true" : ", \"primaryKey\": false");
+                out.write(idx.isCluster() ? ", \"clustered\": true}" : ", \"clustered\": false}");
+            }
+            out.write(indexes.isEmpty() ? "]" : "\n  ]");
+        }
+
+        if (tableInfo.getVistas() != null) {
+            out.write(",\n  \"views\": ");
+            writeStrings(out, tableInfo.getVistas());
+        }
+
+        TableStatistics statistics = tableInfo.getEstadisticas();
+        if (statistics != null) {
+            out.write(",\n  \"statistics\": {\"rows\": ");
+            out.write(String.valueOf(statistics.getFilas()));
+            out.write(", \"pages\": ");
+            out.write(String.valueOf(statistics.getPaginas()));
+            out.write(", \"collected\": ");
+            writeString(out, statistics.getFechaEstadisticas());
+            out.write('}');
+        }
+        out.write("\n}\n");
+    }
+
+    @Override
+    public int estimateSize(TableInfo tableInfo) {
+        // Las columnas ocupan una línea más larga que en el formato descriptivo
+        return TableRenderer.super.estimateSize(tableInfo) + tableInfo.getColumnas().size() * 64;
+    }
+
+    private static void writeForeignKey(Writer out, String name, ForeignKeyInfo fk) throws IOException {
+        out.write("{\"name\": ");
+        writeString(out, name);
+        out.write(", \"columns\": ");
+        writeStrings(out, fk.getColumnasOrigen());
+        out.write(", \"referencedTable\": ");
+        writeString(out, fk.getTablaDestino());
+        out.write(", \"referencedColumns\": ");
+        writeStrings(out, fk.getColumnasDestino());
+        out.write(", \"onDelete\": ");
+        writeString(out, fk.getOnDeleteAction());
+        out.write(", \"onUpdate\": ");
+        writeString(out, fk.getOnUpdateAction());
+        out.write('}');
+    }
+
+    private static void writeStrings(Writer out, List<String> values) throws IOException {
+        out.write('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            writeString(out, values.get(i));
+        }
+        out.write(']');
+    }
+
+    /**
+     * Cadena JSON con los caracteres de control escapados, o null.
+     */
+    static void writeString(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                out.write(value, start, i - start);
+                if (c == '"' || c == '\\') {
+                    out.write('\\');
+                    out.write(c);
+                } else if (c == '\n') {
+                    out.write("\\n");
+                } else if (c == '\r') {
+                    out.write("\\r");
+                } else if (c == '\t') {
+                    out.write("\\t");
+                } else {
+                    out.write(String.format("\\u%04x", (int) c));
+                }
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    /**
+     * El texto sin espacios en los extremos, o null si está vacío.
+     */
+    private static String text(String value) {
+        return TableIndex.hasText(value) ? value.trim() : null;
+    }
+}
@@ -0,0 +1,218 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.ReferenceInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Formato Markdown, para publicar la documentación en un wiki o un
+ * repositorio. Las columnas, las FK y los índices se escriben como tablas;
+ * las celdas se escriben en una línea y con las barras escapadas.
+ */
+public class MarkdownTableRenderer implements TableRenderer {
+
+    private static final String NO_ACTION = "NO ACTION";
+
+    @Override
+    public String getFileExtension() {
+        return ".md";
+    }
+
+    @Override
+    public void render(TableInfo tableInfo, Writer out) throws IOException {
+        TableIndex index = new TableIndex(tableInfo);
+        List<String> pkColumns = tableInfo.getPrimaryKeyColumns();
+
+        out.write("# ");
+        writeCell(out, tableInfo.getNombre());
+        out.write("\n\n");
+        if (tableInfo.getEsquema() != null) {
+            out.write("Schema: `");
+            out.write(tableInfo.getEsquema());
+            out.write("`\n\n");
+        }
+        if (TableIndex.hasText(tableInfo.getComentario())) {
+            writeCell(out, tableInfo.getComentario());
+            out.write("\n\n");
+        }
+
+        out.write("## Columns\n\n");
+        out.write("| # | Column | Type | Nullable | Default | Key | Description |\n");
+        out.write("|---|--------|------|----------|---------|-----|-------------|\n");
+        int colNum = 1;
+        for (ColumnInfo col : tableInfo.getColumnas()) {
+            out.write("| ");
+            DescriptiveTableRenderer.writeInt(out, colNum++);
+            out.write(" | ");
+            writeCell(out, col.getNombre());
+            out.write(" | ");
+            writeCell(out, type(col));
+            out.write(col.isNullable() ? " | YES | " : " | NO | ");
+            if (TableIndex.hasText(col.getValorDefault())) {
+                out.write('`');
+                writeCell(out, col.getValorDefault().trim());
+                out.write('`');
+            }
+            out.write(" | ");
+            String separator = "";
+            if (index.primaryKeyPosition(col.getNombre()) >= 0) {
+                out.write("PK");
+                separator = ", ";
+            }
+            for (TableIndex.ForeignKeyRef ref : index.foreignKeyRefs(col.getNombre())) {
+                out.write(separator);
+                out.write("FK → ");
+                writeCell(out, ref.foreignKey.getTablaDestino() + "." + ref.targetColumn);
+                separator = ", ";
+            }
+            out.write(" | ");
+            if (TableIndex.hasText(col.getComentario())) {
+                writeCell(out, col.getComentario().trim());
+            }
+            out.write(" |\n");
+        }
+        out.write('\n');
+
+        if (!pkColumns.isEmpty()) {
+            out.write("## Primary key\n\n");
+            out.write(tableInfo.getPrimaryKeyName() != null ? "`" + tableInfo.getPrimaryKeyName() + "`" : "Unnamed");
+            out.write(": ");
+            writeList(out, pkColumns);
+            out.write("\n\n");
+        }
+
+        List<ForeignKeyInfo> foreignKeys = tableInfo.getForeignKeys();
+        if (!foreignKeys.isEmpty()) {
+            out.write("## Foreign keys\n\n");
+            out.write("| Name | Columns | References | On delete | On update |\n");
+            out.write("|------|---------|------------|-----------|-----------|\n");
+            for (ForeignKeyInfo fk : foreignKeys) {
+                out.write("| ");
+                writeCell(out, String.valueOf(fk.getNombre()));
+                out.write(" | ");
+                writeList(out, fk.getColumnasOrigen());
+                out.write(" | ");
+                writeCell(out, String.valueOf(fk.getTablaDestino()));
+                out.write(" (");
+                writeList(out, fk.getColumnasDestino());
+                out.write(") | ");
+                writeCell(out, String.valueOf(fk.getOnDeleteAction()));
+                out.write(" | ");
+                writeCell(out, String.valueOf(fk.getOnUpdateAction()));
+                out.write(" |\n");
+            }
+            out.write('\n');
+        }
+
+        List<ReferenceInfo> referencedBy = tableInfo.getReferencedBy();
+        if (referencedBy != null && !referencedBy.isEmpty()) {
+            out.write("## Referenced by\n\n");
+            out.write("| Table | Foreign key | Columns | Referenced columns | On delete |\n");
+            out.write("|-------|-------------|---------|--------------------|-----------|\n");
+            for (ReferenceInfo ref : referencedBy) {
+                ForeignKeyInfo fk = ref.getForeignKey();
+                out.write("| ");
+                writeCell(out, ref.getTablaOrigen());
+                out.write(" | ");
+                writeCell(out, String.valueOf(fk.getNombre()));
+                out.write(" | ");
+                writeList(out, fk.getColumnasOrigen());
+                out.write(" | ");
+                writeList(out, fk.getColumnasDestino());
+                out.write(" | ");
+                out.write(NO_ACTION.equals(fk.getOnDeleteAction()) ? "" : String.valueOf(fk.getOnDeleteAction()));
+                out.write(" |\n");
+            }
+            out.write('\n');
+        }
+
+        List<IndexInfo> indexes = tableInfo.getIndices();
+        if (indexes != null && !indexes.isEmpty()) {
+            out.write("## Indexes\n\n");
+            out.write("| Name | Columns | Included columns | Type | Clustered |\n");
+            out.write("|------|---------|------------------|------|-----------|\n");
+            for (IndexInfo idx : indexes) {
+                out.write("| ");
+                writeCell(out, String.valueOf(idx.getNombre()));
+                out.write(" | ");
+                writeList(out, idx.getColumnas());
+                out.write(" | ");
+                if (idx.getColumnasIncluidas() != null) {
+                    writeList(out, idx.getColumnasIncluidas());
+                }
+                out.write(idx.isClavePrimaria() ? " | Primary key" : idx.isUnico() ? " | Unique" : " | Non-unique");
+                out.write(idx.isCluster() ? " | YES |\n" : " | NO |\n");
+            }
+            out.write('\n');
+        }
+
+        List<String> views = tableInfo.getVistas();
+        if (views != null && !views.isEmpty()) {
+            out.write("## Used by views\n\n");
+            for (String view : views) {
+                out.write("- ");
+                writeCell(out, view);
+                out.write('\n');
+            }
+            out.write('\n');
+        }
+
+        TableStatistics statistics = tableInfo.getEstadisticas();
+        if (statistics != null) {
+            out.write("## Statistics\n\n");
+            out.write("- Rows (catalog estimate): ");
+            out.write(statistics.getFilas() != null ? String.valueOf(statistics.getFilas()) : "unknown");
+            out.write("\n- Pages: ");
+            out.write(statistics.getPaginas() != null ? String.valueOf(statistics.getPaginas()) : "unknown");
+            out.write("\n- Collected: ");
+            out.write(statistics.getFechaEstadisticas() != null ? statistics.getFechaEstadisticas() : "never");
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Tipo con longitud y escala, como en el formato descriptivo.
+     */
+    private static String type(ColumnInfo col) {
+        String type = String.valueOf(col.getTipo());
+        if (col.getLongitud() == null || col.getLongitud() <= 0) {
+            return type;
+        }
+        return col.getEscala() != null && col.getEscala() > 0
+            ? type + "(" + col.getLongitud() + "," + col.getEscala() + ")"
+            : type + "(" + col.getLongitud() + ")";
+    }
+
+    private static void writeList(Writer out, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            writeCell(out, String.valueOf(values.get(i)));
+        }
+    }
+
+    /**
+     * Escribe el texto en una sola línea y con las barras escapadas, para que
+     * no rompa la tabla.
+     */
+    private static void writeCell(Writer out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '|') {
+                out.write("\\|");
+            } else if (c == '\r' || c == '\n') {
+                out.write(' ');
+            } else {
+                out.write(c);
+            }
+        }
+    }
+}
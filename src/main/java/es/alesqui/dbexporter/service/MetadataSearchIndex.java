@@ -0,0 +1,507 @@
+package es.alesqui.dbexporter.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import static es.alesqui.dbexporter.service.MetadataSearchIndexCodec.COLUMN;
+import static es.alesqui.dbexporter.service.MetadataSearchIndexCodec.COMMENT;
+import static es.alesqui.dbexporter.service.MetadataSearchIndexCodec.REFERENCES;
+import static es.alesqui.dbexporter.service.MetadataSearchIndexCodec.TABLE;
+import static es.alesqui.dbexporter.service.MetadataSearchIndexCodec.TYPE;
+
+/**
+ * Índice de búsqueda sobre los metadatos exportados (ver
+ * {@link MetadataSearchIndexCodec}). Al abrirlo sólo se cargan los índices de
+ * posiciones; cada consulta lee del archivo los términos de la búsqueda
+ * binaria, sus entradas y las tablas del resultado.
+ *
+ * <p>Una consulta es una lista de condiciones separadas por espacios que se
+ * deben cumplir todas:
+ *
+ * <ul>
+ * <li>{@code column:CUST_ID}: columnas con ese nombre.</li>
+ * <li>{@code type:DECIMAL(15,2)} o {@code type:DECIMAL}: columnas de ese tipo.</li>
+ * <li>{@code comment:factura}: tablas o columnas con esa palabra en el comentario.</li>
+ * <li>{@code references:CLIENTES}: columnas de las FK que apuntan a esa tabla.</li>
+ * <li>{@code table:PEDIDOS}: la tabla con ese nombre.</li>
+ * <li>Sin campo: nombre de tabla, nombre de columna o palabra de comentario.</li>
+ * </ul>
+ *
+ * Un asterisco final busca por prefijo ({@code column:CUST*}). Las mayúsculas
+ * y los acentos no cuentan. Una condición de tabla combinada con una de
+ * columna devuelve las columnas de esa tabla que cumplen la segunda.
+ */
+public class MetadataSearchIndex implements Closeable {
+
+    /**
+     * Nombre del índice dentro del directorio de salida.
+     */
+    public static final String FILE_NAME = ".export-search-index";
+
+    /**
+     * Coincidencia de una búsqueda: una columna o, si la condición era de la
+     * tabla, la tabla entera (columna y tipo nulos).
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Hit {
+        private final String schema;
+        private final String table;
+        private final String column;
+        private final String type;
+    }
+
+    // A partir de este número de coincidencias se leen juntos los registros de las tablas
+    private static final int BATCH_READ_KEYS = 256;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final String schema;
+    private final int[] termOffsets;
+    private final int[] tableOffsets;
+    private final String[] types;
+    private final int termsEnd;
+    private final int tablesEnd;
+
+    private MetadataSearchIndex(Path file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        long size = channel.size();
+        if (size < 12 + MetadataSearchIndexCodec.FOOTER_SIZE || size > Integer.MAX_VALUE) {
+            throw invalid();
+        }
+
+        ByteBuffer header = read(0, (int) Math.min(size, 4096));
+        if (header.getLong() != MetadataSearchIndexCodec.MAGIC) {
+            throw invalid();
+        }
+        int version = header.getInt();
+        if (version != MetadataSearchIndexCodec.VERSION) {
+            throw new IOException("Versión de índice de búsqueda no soportada: " + version + " en " + file);
+        }
+        schema = MetadataSearchIndexCodec.readText(header);
+
+        ByteBuffer footer = read(size - MetadataSearchIndexCodec.FOOTER_SIZE, MetadataSearchIndexCodec.FOOTER_SIZE);
+        int termDirectory = footer.getInt();
+        int termCount = footer.getInt();
+        int tableDirectory = footer.getInt();
+        int tableCount = footer.getInt();
+        int typeList = footer.getInt();
+        int typeCount = footer.getInt();
+        if (footer.getLong() != MetadataSearchIndexCodec.MAGIC) {
+            throw invalid();
+        }
+        termOffsets = readInts(termDirectory, termCount);
+        tableOffsets = readInts(tableDirectory, tableCount);
+        ByteBuffer typeData = read(typeList, termDirectory - typeList);
+        types = new String[typeCount];
+        for (int i = 0; i < typeCount; i++) {
+            types[i] = MetadataSearchIndexCodec.readText(typeData);
+        }
+        tablesEnd = typeList;
+        termsEnd = tableCount > 0 ? tableOffsets[0] : tablesEnd;
+    }
+
+    /**
+     * Abre el índice. Falla si el archivo no es un índice válido.
+     */
+    public static MetadataSearchIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new MetadataSearchIndex(file, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public int getTableCount() {
+        return tableOffsets.length;
+    }
+
+    public int getTermCount() {
+        return termOffsets.length;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Posición del primer término; los términos van seguidos y en orden.
+     */
+    int getTermsStart() {
+        return termOffsets.length > 0 ? termOffsets[0] : termsEnd;
+    }
+
+    /**
+     * Ejecuta una consulta. Devuelve las coincidencias ordenadas por tabla y
+     * posición de la columna.
+     *
+     * @throws IllegalArgumentException si la consulta no es válida
+     */
+    public List<Hit> search(String query) throws IOException {
+        long[] keys = null;
+        for (String condition : query.trim().split("\\s+")) {
+            if (condition.isEmpty()) {
+                continue;
+            }
+            long[] matches = evaluate(condition);
+            keys = keys == null ? matches : intersect(keys, matches);
+        }
+        if (keys == null) {
+            throw new IllegalArgumentException("Consulta vacía");
+        }
+        return hits(keys);
+    }
+
+    /**
+     * Entradas de una condición, como claves tabla (32 bits altos) y
+     * columna más uno (32 bits bajos), ordenadas y sin repetir.
+     */
+    private long[] evaluate(String condition) throws IOException {
+        int colon = condition.indexOf(':');
+        String field = colon > 0 ? condition.substring(0, colon).toLowerCase(Locale.ROOT) : "";
+        String value = colon > 0 ? condition.substring(colon + 1) : condition;
+        boolean prefix = value.endsWith("*");
+        if (prefix) {
+            value = value.substring(0, value.length() - 1);
+        }
+        if (value.isEmpty() && (!prefix || field.isEmpty())) {
+            throw new IllegalArgumentException("Condición sin valor: " + condition);
+        }
+
+        switch (field) {
+            case "table":
+                return lookup(TABLE + MetadataSearchIndexCodec.name(value), prefix);
+            case "column":
+                return lookup(COLUMN + MetadataSearchIndexCodec.name(value), prefix);
+            case "type":
+                return lookup(TYPE + MetadataSearchIndexCodec.type(value), prefix);
+            case "references":
+                return lookup(REFERENCES + MetadataSearchIndexCodec.name(value), prefix);
+            case "comment":
+                return commentWords(value, prefix, condition);
+            case "":
+                long[] names = union(lookup(TABLE + MetadataSearchIndexCodec.name(value), prefix),
+                    lookup(COLUMN + MetadataSearchIndexCodec.name(value), prefix));
+                List<String> words = MetadataSearchIndexCodec.words(value);
+                return words.size() == 1 ? union(names, lookup(COMMENT + words.get(0), prefix)) : names;
+            default:
+                throw new IllegalArgumentException("Campo de búsqueda no válido: " + field
+                    + " (admitidos: table, column, type, comment, references)");
+        }
+    }
+
+    /**
+     * Un comentario de varias palabras exige todas; el prefijo se aplica a la
+     * última.
+     */
+    private long[] commentWords(String value, boolean prefix, String condition) throws IOException {
+        List<String> words = MetadataSearchIndexCodec.words(value);
+        if (words.isEmpty()) {
+            if (prefix) {
+                return lookup(COMMENT, true);
+            }
+            throw new IllegalArgumentException("Condición sin palabras: " + condition);
+        }
+        long[] keys = null;
+        for (int i = 0; i < words.size(); i++) {
+            long[] matches = lookup(COMMENT + words.get(i), prefix && i == words.size() - 1);
+            keys = keys == null ? matches : intersect(keys, matches);
+        }
+        return keys;
+    }
+
+    /**
+     * Entradas del término o, por prefijo, de todos los términos que empiezan
+     * por él.
+     */
+    private long[] lookup(String term, boolean prefix) throws IOException {
+        int from = lowerBound(term);
+        int to;
+        if (prefix) {
+            // Los términos que empiezan por el prefijo van seguidos
+            to = lowerBound(term + Character.MAX_VALUE);
+        } else {
+            to = from < termOffsets.length && term(from).equals(term) ? from + 1 : from;
+        }
+        KeyList keys = new KeyList();
+        postings(from, to, keys);
+        long[] result = keys.toArray();
+        return to - from > 1 ? sortedUnique(result) : result;
+    }
+
+    private int lowerBound(String term) throws IOException {
+        int low = 0;
+        int high = termOffsets.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (term(middle).compareTo(term) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Término de la posición indicada del diccionario.
+     */
+    String term(int index) throws IOException {
+        int offset = termOffsets[index];
+        ByteBuffer start = read(offset, Math.min(128, termEnd(index) - offset));
+        int length = MetadataSearchIndexCodec.readVarint(start) - 1;
+        if (length > start.remaining()) {
+            start = read(offset, start.position() + length);
+        }
+        start.position(0);
+        return MetadataSearchIndexCodec.readText(start);
+    }
+
+    /**
+     * Añade las entradas de los términos de las posiciones indicadas, leídos
+     * de una vez.
+     */
+    private void postings(int from, int to, KeyList keys) throws IOException {
+        if (from >= to) {
+            return;
+        }
+        ByteBuffer records = read(termOffsets[from], termEnd(to - 1) - termOffsets[from]);
+        for (int index = from; index < to; index++) {
+            int length = MetadataSearchIndexCodec.readVarint(records) - 1;
+            records.position(records.position() + length);
+            int count = MetadataSearchIndexCodec.readVarint(records);
+            long table = 0;
+            for (int i = 0; i < count; i++) {
+                table += MetadataSearchIndexCodec.readVarint(records);
+                keys.add(table << 32 | MetadataSearchIndexCodec.readVarint(records));
+            }
+        }
+    }
+
+    /**
+     * Registro de una tabla tal como está en el archivo: nombre y, por
+     * columna, nombre y tipo.
+     */
+    ByteBuffer tableRecord(int table) throws IOException {
+        return read(tableOffsets[table], tableEnd(table) - tableOffsets[table]);
+    }
+
+    String tableName(int table) throws IOException {
+        return MetadataSearchIndexCodec.readText(tableRecord(table));
+    }
+
+    /**
+     * Tipo de la lista de tipos (posición más uno), o null para 0.
+     */
+    String type(int id) throws IOException {
+        if (id < 0 || id > types.length) {
+            throw invalid();
+        }
+        return id == 0 ? null : types[id - 1];
+    }
+
+    private int tableEnd(int table) {
+        return table + 1 < tableOffsets.length ? tableOffsets[table + 1] : tablesEnd;
+    }
+
+    private int termEnd(int index) {
+        return index + 1 < termOffsets.length ? termOffsets[index + 1] : termsEnd;
+    }
+
+    /**
+     * Coincidencias de las dos condiciones, tabla a tabla: las columnas que
+     * cumplen las dos y, si una de ellas se cumple para toda la tabla, las
+     * columnas que cumplen la otra. La tabla sólo aparece como coincidencia
+     * propia si la cumplen las dos.
+     */
+    private static long[] intersect(long[] a, long[] b) {
+        KeyList result = new KeyList();
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            long tableA = a[i] >>> 32;
+            long tableB = b[j] >>> 32;
+            if (tableA != tableB) {
+                if (tableA < tableB) {
+                    i = nextTable(a, i);
+                } else {
+                    j = nextTable(b, j);
+                }
+                continue;
+            }
+            int endA = nextTable(a, i);
+            int endB = nextTable(b, j);
+            boolean wholeA = (int) a[i] == 0;
+            boolean wholeB = (int) b[j] == 0;
+            if (wholeA && wholeB) {
+                result.add(a[i]);
+            }
+            int x = wholeA ? i + 1 : i;
+            int y = wholeB ? j + 1 : j;
+            while (x < endA || y < endB) {
+                if (y >= endB || (x < endA && a[x] < b[y])) {
+                    if (wholeB) {
+                        result.add(a[x]);
+                    }
+                    x++;
+                } else if (x >= endA || b[y] < a[x]) {
+                    if (wholeA) {
+                        result.add(b[y]);
+                    }
+                    y++;
+                } else {
+                    result.add(a[x]);
+                    x++;
+                    y++;
+                }
+            }
+            i = endA;
+            j = endB;
+        }
+        return result.toArray();
+    }
+
+    private static int nextTable(long[] keys, int from) {
+        long table = keys[from] >>> 32;
+        int i = from + 1;
+        while (i < keys.length && keys[i] >>> 32 == table) {
+            i++;
+        }
+        return i;
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        long[] all = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        return sortedUnique(all);
+    }
+
+    private static long[] sortedUnique(long[] keys) {
+        Arrays.sort(keys);
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (size == 0 || keys[i] != keys[size - 1]) {
+                keys[size++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * Resuelve las claves con los registros de sus tablas, leyendo cada tabla
+     * una sola vez. Con muchas tablas se leen todos sus registros de una vez.
+     */
+    private List<Hit> hits(long[] keys) throws IOException {
+        List<Hit> hits = new ArrayList<>(keys.length);
+        ByteBuffer span = null;
+        int spanStart = 0;
+        if (keys.length > BATCH_READ_KEYS) {
+            spanStart = tableOffsets[(int) (keys[0] >>> 32)];
+            span = read(spanStart, tableEnd((int) (keys[keys.length - 1] >>> 32)) - spanStart);
+        }
+        int from = 0;
+        while (from < keys.length) {
+            int to = nextTable(keys, from);
+            int id = (int) (keys[from] >>> 32);
+            ByteBuffer record = span != null ? span : tableRecord(id);
+            if (span != null) {
+                span.position(tableOffsets[id] - spanStart);
+            }
+            String table = MetadataSearchIndexCodec.readText(record);
+            int columnCount = MetadataSearchIndexCodec.readVarint(record);
+            int position = 0;
+            for (int k = from; k < to; k++) {
+                int column = (int) keys[k];
+                if (column == 0) {
+                    hits.add(new Hit(schema, table, null, null));
+                    continue;
+                }
+                if (column > columnCount) {
+                    throw invalid();
+                }
+                // Las claves están ordenadas: basta con avanzar hasta la columna
+                String name = null;
+                String type = null;
+                while (position < column) {
+                    name = MetadataSearchIndexCodec.readText(record);
+                    type = type(MetadataSearchIndexCodec.readVarint(record));
+                    position++;
+                }
+                hits.add(new Hit(schema, table, name, type));
+            }
+            from = to;
+        }
+        // Los identificadores siguen el orden de exportación; se presentan por nombre
+        List<Hit> sorted = new ArrayList<>(hits);
+        sorted.sort(Comparator.comparing(Hit::getTable));
+        return sorted;
+    }
+
+    private int[] readInts(long position, int count) throws IOException {
+        int[] values = new int[count];
+        read(position, count * 4).asIntBuffer().get(values);
+        return values;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (position < 0 || length < 0 || position + length > channel.size()) {
+            throw invalid();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException(file.toString());
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private IOException invalid() {
+        return new IOException("El archivo no es un índice de búsqueda válido: " + file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Lista de claves ampliable, sin objetos por elemento.
+     */
+    private static final class KeyList {
+        private long[] keys = new long[16];
+        private int size;
+
+        void add(long key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = key;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(keys, size);
+        }
+    }
+}
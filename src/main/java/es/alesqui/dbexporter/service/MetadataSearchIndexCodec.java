@@ -0,0 +1,172 @@
+package es.alesqui.dbexporter.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Formato del índice de búsqueda de metadatos.
+ *
+ * <pre>
+ * cabecera: MAGIC (long), VERSION (int), esquema
+ * términos: por término, en orden: término, número de entradas (varint) y entradas
+ * tablas:   por tabla: nombre, número de columnas (varint) y, por columna, nombre
+ *           y tipo (varint: posición en la lista de tipos más uno, o 0)
+ * tipos:    los tipos distintos, ya formateados
+ * índices:  posición de cada término (int) y de cada tabla (int)
+ * pie:      posición y número de términos, de tablas y de tipos (int, int cada uno), MAGIC (long)
+ * </pre>
+ *
+ * Las cadenas se guardan como longitud más uno (varint, 0 para null) y UTF-8.
+ * Cada entrada es una tabla o una columna de una tabla: la diferencia con la
+ * tabla de la entrada anterior (varint) y la posición de la columna más uno,
+ * o 0 si la entrada es de la tabla (varint). Las entradas de un término están
+ * ordenadas por tabla y columna.
+ *
+ * <p>Los términos tienen la forma campo:valor. Los nombres y los tipos se
+ * guardan en mayúsculas; las palabras de los comentarios, en minúsculas y
+ * sin acentos.
+ */
+final class MetadataSearchIndexCodec {
+
+    static final long MAGIC = 0x4442455850494458L; // "DBEXPIDX"
+    static final int VERSION = 1;
+    static final int FOOTER_SIZE = 32;
+
+    static final String TABLE = "table:";
+    static final String COLUMN = "column:";
+    static final String TYPE = "type:";
+    static final String COMMENT = "comment:";
+    static final String REFERENCES = "references:";
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private MetadataSearchIndexCodec() {
+    }
+
+    static String name(String value) {
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * DECIMAL (15, 2) -> DECIMAL(15,2)
+     */
+    static String type(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isWhitespace(value.charAt(i))) {
+                return SPACES.matcher(value).replaceAll("").toUpperCase(Locale.ROOT);
+            }
+        }
+        return value.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Palabras de un comentario, en minúsculas y sin acentos: "Número de
+     * factura" -> [numero, de, factura].
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        if (isAscii(text)) {
+            // Caso habitual, sin expresiones regulares
+            int start = -1;
+            for (int i = 0; i <= text.length(); i++) {
+                boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+                if (letter && start < 0) {
+                    start = i;
+                } else if (!letter && start >= 0) {
+                    words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                    start = -1;
+                }
+            }
+            return words;
+        }
+        String plain = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String word : NON_WORD.split(plain.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static void writeText(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    static String readText(DataInput in) throws IOException {
+        int length = readVarint(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static String readText(ByteBuffer in) {
+        int length = readVarint(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,717 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import static es.alesqui.dbexporter.service.MetadataSearchIndexCodec.COLUMN;
+import static es.alesqui.dbexporter.service.MetadataSearchIndexCodec.COMMENT;
+import static es.alesqui.dbexporter.service.MetadataSearchIndexCodec.REFERENCES;
+import static es.alesqui.dbexporter.service.MetadataSearchIndexCodec.TABLE;
+import static es.alesqui.dbexporter.service.MetadataSearchIndexCodec.TYPE;
+
+/**
+ * Construye el índice de búsqueda ({@link MetadataSearchIndex}) a medida que se
+ * exportan las tablas.
+ *
+ * <p>La memoria no depende del tamaño del esquema: las entradas se acumulan
+ * hasta unos pocos MB y se vuelcan ordenadas a archivos temporales, que al
+ * terminar se mezclan en el índice final. En la mezcla entra también el índice
+ * anterior, del que se conservan las tablas que siguen en el esquema y no se
+ * han vuelto a exportar; así una exportación incremental sólo indexa las
+ * tablas que cambian.
+ */
+@Slf4j
+class MetadataSearchIndexWriter implements Closeable {
+
+    // Memoria aproximada de las entradas pendientes antes de volcarlas: poca,
+    // para que no sobrevivan a muchas recolecciones
+    private static final long RUN_SIZE = 2L * 1024 * 1024;
+    private static final int TERM_OVERHEAD = 96;
+    // Volcados del mismo nivel que se mezclan en uno del siguiente
+    private static final int RUNS_PER_LEVEL = 16;
+
+    private final Path file;
+    private final String schema;
+    private final DatabaseMetadataExtractor extractor;
+    private final MetadataSearchIndex previous;
+    private final List<String> previousTables;
+    private final Set<String> previousSet;
+
+    private final Set<String> indexed = new HashSet<>();
+    private final Path tablesTemp;
+    private final DataOutputStream tables;
+    private int[] tableOffsets = new int[64];
+    private final Map<String, Integer> typeIds = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+
+    private final Map<String, Postings> pending = new HashMap<>();
+    private long pendingBytes;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Integer> runLevels = new ArrayList<>();
+    private int termCount;
+    private int tableCount;
+
+    private MetadataSearchIndexWriter(Path file, String schema, DatabaseMetadataExtractor extractor,
+            MetadataSearchIndex previous) throws IOException {
+        this.file = file;
+        this.schema = schema;
+        this.extractor = extractor;
+        this.previous = previous;
+        this.previousTables = new ArrayList<>();
+        if (previous != null) {
+            for (int table = 0; table < previous.getTableCount(); table++) {
+                previousTables.add(previous.tableName(table));
+            }
+        }
+        this.previousSet = new HashSet<>(previousTables);
+        // Los temporales se borran al terminar; si la exportación falla, al salir
+        this.tablesTemp = Files.createTempFile("search-index-", ".tables");
+        tablesTemp.toFile().deleteOnExit();
+        this.tables = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tablesTemp)));
+    }
+
+    /**
+     * Prepara el índice del archivo indicado, partiendo del que ya exista si
+     * es del mismo esquema.
+     */
+    static MetadataSearchIndexWriter open(Path file, String schema, DatabaseMetadataExtractor extractor)
+            throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        MetadataSearchIndex previous = null;
+        if (Files.exists(file)) {
+            try {
+                previous = MetadataSearchIndex.open(file);
+                if (!Objects.equals(schema, previous.getSchema())) {
+                    log.info("El índice de búsqueda anterior es del esquema {}: se reconstruye", previous.getSchema());
+                    previous.close();
+                    previous = null;
+                }
+            } catch (IOException e) {
+                log.warn("No se puede leer el índice de búsqueda anterior, se reconstruye: {}", e.getMessage());
+            }
+        }
+        try {
+            return new MetadataSearchIndexWriter(file, schema, extractor, previous);
+        } catch (IOException | RuntimeException e) {
+            if (previous != null) {
+                previous.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Indica si la tabla estaba en el índice anterior.
+     */
+    boolean isIndexed(String tableName) {
+        return previousSet.contains(tableName);
+    }
+
+    /**
+     * Añade una tabla al índice. Una tabla ya añadida se ignora.
+     */
+    synchronized void add(TableInfo table) throws IOException {
+        if (!indexed.add(table.getNombre())) {
+            return;
+        }
+        int id = indexed.size() - 1;
+        if (id == tableOffsets.length) {
+            tableOffsets = Arrays.copyOf(tableOffsets, id * 2);
+        }
+        tableOffsets[id] = tables.size();
+
+        // Las entradas de un término han de quedar ordenadas por posición: 0 la
+        // tabla y 1..n las columnas, en orden
+        MetadataSearchIndexCodec.writeText(tables, table.getNombre());
+        post(TABLE + MetadataSearchIndexCodec.name(table.getNombre()), id, 0);
+        for (String word : MetadataSearchIndexCodec.words(table.getComentario())) {
+            post(COMMENT + word, id, 0);
+        }
+
+        List<ColumnInfo> columns = table.getColumnas();
+        MetadataSearchIndexCodec.writeVarint(tables, columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnInfo col = columns.get(i);
+            String type = col.getTipo() != null ? extractor.formatColumnType(col) : null;
+            MetadataSearchIndexCodec.writeText(tables, col.getNombre());
+            MetadataSearchIndexCodec.writeVarint(tables, typeId(type));
+
+            post(COLUMN + MetadataSearchIndexCodec.name(col.getNombre()), id, i + 1);
+            if (type != null) {
+                post(TYPE + MetadataSearchIndexCodec.type(col.getTipo()), id, i + 1);
+                post(TYPE + MetadataSearchIndexCodec.type(type), id, i + 1);
+            }
+            for (String word : MetadataSearchIndexCodec.words(col.getComentario())) {
+                post(COMMENT + word, id, i + 1);
+            }
+        }
+
+        // Las FK se indexan en sus columnas de origen, que pueden venir en cualquier orden
+        if (table.getForeignKeys() != null && !table.getForeignKeys().isEmpty()) {
+            Map<String, BitSet> references = new HashMap<>();
+            for (ForeignKeyInfo fk : table.getForeignKeys()) {
+                BitSet positions = references.computeIfAbsent(
+                    REFERENCES + MetadataSearchIndexCodec.name(fk.getTablaDestino()), k -> new BitSet());
+                boolean located = false;
+                for (String column : fk.getColumnasOrigen()) {
+                    int position = position(columns, column);
+                    if (position > 0) {
+                        positions.set(position);
+                        located = true;
+                    }
+                }
+                if (!located) {
+                    positions.set(0);
+                }
+            }
+            for (Map.Entry<String, BitSet> reference : references.entrySet()) {
+                BitSet positions = reference.getValue();
+                for (int position = positions.nextSetBit(0); position >= 0;
+                        position = positions.nextSetBit(position + 1)) {
+                    post(reference.getKey(), id, position);
+                }
+            }
+        }
+        if (pendingBytes >= RUN_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Posición del tipo en la lista de tipos más uno, o 0 si no tiene.
+     */
+    private int typeId(String type) {
+        if (type == null) {
+            return 0;
+        }
+        Integer id = typeIds.get(type);
+        if (id == null) {
+            types.add(type);
+            id = types.size();
+            typeIds.put(type, id);
+        }
+        return id;
+    }
+
+    private void post(String term, int table, int position) {
+        Postings postings = pending.get(term);
+        if (postings == null) {
+            postings = new Postings();
+            pending.put(term, postings);
+            pendingBytes += TERM_OVERHEAD + 2L * term.length();
+        }
+        pendingBytes += postings.add(table, position);
+    }
+
+    /**
+     * Posición de la columna más uno, o 0 si la tabla no la tiene.
+     */
+    private static int position(List<ColumnInfo> columns, String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getNombre().equals(name)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Vuelca las entradas pendientes, ordenadas por término, a un archivo
+     * temporal.
+     */
+    private void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> sorted = new ArrayList<>(pending.keySet());
+        sorted.sort(Comparator.naturalOrder());
+        Path run = createRun(0);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+            for (String term : sorted) {
+                Postings postings = pending.get(term);
+                MetadataSearchIndexCodec.writeText(out, term);
+                MetadataSearchIndexCodec.writeVarint(out, postings.count);
+                MetadataSearchIndexCodec.writeVarint(out, postings.size);
+                out.write(postings.bytes, 0, postings.size);
+            }
+        }
+        log.debug("Índice de búsqueda: {} términos volcados a {}", sorted.size(), run);
+        pending.clear();
+        pendingBytes = 0;
+        compactRuns();
+    }
+
+    private Path createRun(int level) throws IOException {
+        Path run = Files.createTempFile("search-index-", ".run");
+        run.toFile().deleteOnExit();
+        runs.add(run);
+        runLevels.add(level);
+        return run;
+    }
+
+    /**
+     * Mezcla los últimos volcados cuando hay RUNS_PER_LEVEL del mismo nivel,
+     * para no tener abiertos al final más archivos que unos pocos por nivel.
+     * Los volcados siguen en orden de tabla porque siempre se mezclan los
+     * últimos.
+     */
+    private void compactRuns() throws IOException {
+        while (runs.size() >= RUNS_PER_LEVEL) {
+            int from = runs.size() - RUNS_PER_LEVEL;
+            // Los niveles no crecen a lo largo de la lista
+            int level = runLevels.get(from);
+            if (runLevels.get(runs.size() - 1) != level) {
+                return;
+            }
+            List<Path> merged = new ArrayList<>(runs.subList(from, runs.size()));
+            runs.subList(from, runs.size()).clear();
+            runLevels.subList(from, runLevels.size()).clear();
+            Path run = createRun(level + 1);
+            List<TermSource> sources = new ArrayList<>();
+            try {
+                for (Path source : merged) {
+                    sources.add(new RunSource(sources.size(), source));
+                }
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(run), 64 * 1024))) {
+                    merge(sources, out, true);
+                }
+            } finally {
+                for (TermSource source : sources) {
+                    source.close();
+                }
+                for (Path source : merged) {
+                    Files.deleteIfExists(source);
+                }
+            }
+            log.debug("Índice de búsqueda: {} volcados mezclados en {}", merged.size(), run);
+        }
+    }
+
+    /**
+     * Escribe el índice final: las tablas añadidas y las del índice anterior
+     * que siguen en el esquema y no se han vuelto a añadir. Se escribe primero a
+     * un temporal para no dejar un índice a medias.
+     */
+    synchronized void finish(Collection<String> currentTables) throws IOException {
+        flush();
+        tables.close();
+
+        Set<String> current = new HashSet<>(currentTables);
+        int added = indexed.size();
+        int[] remap = new int[previousTables.size()];
+        List<Integer> kept = new ArrayList<>();
+        for (int table = 0; table < remap.length; table++) {
+            String name = previousTables.get(table);
+            remap[table] = current.contains(name) && !indexed.contains(name) ? added + kept.size() : -1;
+            if (remap[table] >= 0) {
+                kept.add(table);
+            }
+        }
+
+        List<TermSource> sources = new ArrayList<>();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            for (Path run : runs) {
+                sources.add(new RunSource(sources.size(), run));
+            }
+            if (previous != null && !kept.isEmpty()) {
+                sources.add(new PreviousSource(sources.size(), previous, remap));
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp),
+                    64 * 1024))) {
+                out.writeLong(MetadataSearchIndexCodec.MAGIC);
+                out.writeInt(MetadataSearchIndexCodec.VERSION);
+                MetadataSearchIndexCodec.writeText(out, schema);
+
+                int[] termOffsets = merge(sources, out, false);
+
+                // Tablas añadidas, ya escritas en el temporal, y las conservadas
+                int tablesStart = out.size();
+                Files.copy(tablesTemp, out);
+                int[] offsets = new int[added + kept.size()];
+                for (int table = 0; table < added; table++) {
+                    offsets[table] = tablesStart + tableOffsets[table];
+                }
+                for (int i = 0; i < kept.size(); i++) {
+                    offsets[added + i] = out.size();
+                    copyTable(previous.tableRecord(kept.get(i)), out);
+                }
+                int typeList = out.size();
+                for (String type : types) {
+                    MetadataSearchIndexCodec.writeText(out, type);
+                }
+
+                int termDirectory = out.size();
+                for (int offset : termOffsets) {
+                    out.writeInt(offset);
+                }
+                int tableDirectory = out.size();
+                for (int offset : offsets) {
+                    out.writeInt(offset);
+                }
+                out.writeInt(termDirectory);
+                out.writeInt(termOffsets.length);
+                out.writeInt(tableDirectory);
+                out.writeInt(offsets.length);
+                out.writeInt(typeList);
+                out.writeInt(types.size());
+                out.writeLong(MetadataSearchIndexCodec.MAGIC);
+                if (out.size() == Integer.MAX_VALUE) {
+                    throw new IOException("El índice de búsqueda supera los 2 GB");
+                }
+                termCount = termOffsets.length;
+                tableCount = offsets.length;
+            }
+        } finally {
+            for (TermSource source : sources) {
+                source.close();
+            }
+            close();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("Índice de búsqueda: {} tablas añadidas, {} conservadas del índice anterior", added, kept.size());
+    }
+
+    /**
+     * Copia el registro de una tabla del índice anterior, con los tipos
+     * referidos a la lista de tipos del nuevo.
+     */
+    private void copyTable(ByteBuffer record, DataOutputStream out) throws IOException {
+        MetadataSearchIndexCodec.writeText(out, MetadataSearchIndexCodec.readText(record));
+        int columns = MetadataSearchIndexCodec.readVarint(record);
+        MetadataSearchIndexCodec.writeVarint(out, columns);
+        for (int i = 0; i < columns; i++) {
+            MetadataSearchIndexCodec.writeText(out, MetadataSearchIndexCodec.readText(record));
+            String type = previous.type(MetadataSearchIndexCodec.readVarint(record));
+            MetadataSearchIndexCodec.writeVarint(out, typeId(type));
+        }
+    }
+
+    /**
+     * Mezcla los términos de todas las fuentes en orden. Las fuentes están
+     * ordenadas por identificador de tabla, así que las entradas de un mismo
+     * término se concatenan sin reordenar ni descodificar más que la diferencia
+     * de tabla. Devuelve la posición de cada término; con runFormat se escribe
+     * como un volcado, con la longitud de las entradas.
+     */
+    private static int[] merge(List<TermSource> sources, DataOutputStream out, boolean runFormat)
+            throws IOException {
+        PriorityQueue<TermSource> queue = new PriorityQueue<>(
+            Comparator.comparing(TermSource::term).thenComparingInt(TermSource::index));
+        for (TermSource source : sources) {
+            if (source.advance()) {
+                queue.add(source);
+            }
+        }
+
+        int[] offsets = new int[1024];
+        int count = 0;
+        List<TermSource> same = new ArrayList<>();
+        Postings merged = new Postings();
+        while (!queue.isEmpty()) {
+            String term = queue.peek().term();
+            same.clear();
+            while (!queue.isEmpty() && queue.peek().term().equals(term)) {
+                same.add(queue.poll());
+            }
+            merged.clear();
+            for (TermSource source : same) {
+                source.postings(merged);
+                if (source.advance()) {
+                    queue.add(source);
+                }
+            }
+            if (merged.count == 0) {
+                continue;
+            }
+
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = out.size();
+            MetadataSearchIndexCodec.writeText(out, term);
+            MetadataSearchIndexCodec.writeVarint(out, merged.count);
+            if (runFormat) {
+                MetadataSearchIndexCodec.writeVarint(out, merged.size);
+            }
+            out.write(merged.bytes, 0, merged.size);
+        }
+        return Arrays.copyOf(offsets, count);
+    }
+
+    /**
+     * Tablas del índice final, incluidas las conservadas del anterior.
+     */
+    int getTableCount() {
+        return tableCount;
+    }
+
+    /**
+     * Tablas añadidas en esta ejecución.
+     */
+    int getUpdatedCount() {
+        return indexed.size();
+    }
+
+    int getTermCount() {
+        return termCount;
+    }
+
+    /**
+     * Libera el índice anterior y borra los temporales. Se llama también al
+     * terminar {@link #finish}.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            tables.close();
+            if (previous != null) {
+                previous.close();
+            }
+        } finally {
+            Files.deleteIfExists(tablesTemp);
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            runs.clear();
+            runLevels.clear();
+        }
+    }
+
+    /**
+     * Entradas de un término pendientes de volcar, como pares diferencia de
+     * tabla y posición en varint.
+     */
+    private static final class Postings {
+        private byte[] bytes = new byte[8];
+        private int size;
+        private int count;
+        private int lastTable;
+        private int lastPosition = -1;
+
+        void clear() {
+            size = 0;
+            count = 0;
+            lastTable = 0;
+            lastPosition = -1;
+        }
+
+        /**
+         * Añade las entradas codificadas en bytes, con la tabla cambiada según
+         * remap (o descartadas si es -1); sin remap se copian tal cual.
+         */
+        void addAll(byte[] encoded, int length, int entries, int[] remap) {
+            ByteBuffer buffer = ByteBuffer.wrap(encoded, 0, length);
+            int table = 0;
+            for (int i = 0; i < entries; i++) {
+                table += MetadataSearchIndexCodec.readVarint(buffer);
+                int position = MetadataSearchIndexCodec.readVarint(buffer);
+                int target = remap == null ? table : remap[table];
+                if (target >= 0) {
+                    add(target, position);
+                }
+            }
+        }
+
+        /**
+         * Añade una entrada y devuelve los bytes que ocupa. Una entrada repetida
+         * (la misma palabra dos veces en un comentario) se ignora.
+         */
+        int add(int table, int position) {
+            if (table == lastTable && position == lastPosition) {
+                return 0;
+            }
+            int start = size;
+            write(table - lastTable);
+            write(position);
+            lastTable = table;
+            lastPosition = position;
+            count++;
+            return size - start;
+        }
+
+        private void write(int value) {
+            if (size + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+
+    /**
+     * Fuente ordenada de términos para la mezcla.
+     */
+    private abstract static class TermSource implements Closeable {
+        private final int index;
+        protected String term;
+
+        TermSource(int index) {
+            this.index = index;
+        }
+
+        int index() {
+            return index;
+        }
+
+        String term() {
+            return term;
+        }
+
+        /**
+         * Pasa al siguiente término; devuelve false al terminar.
+         */
+        abstract boolean advance() throws IOException;
+
+        /**
+         * Añade las entradas del término actual.
+         */
+        abstract void postings(Postings target);
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    /**
+     * Archivo temporal escrito por {@link #flush()}.
+     */
+    private static final class RunSource extends TermSource {
+        private final DataInputStream in;
+        private byte[] postings = new byte[0];
+        private int count;
+
+        RunSource(int index, Path run) throws IOException {
+            super(index);
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 64 * 1024));
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (!hasMore(in)) {
+                term = null;
+                return false;
+            }
+            term = MetadataSearchIndexCodec.readText(in);
+            count = MetadataSearchIndexCodec.readVarint(in);
+            postings = new byte[MetadataSearchIndexCodec.readVarint(in)];
+            in.readFully(postings);
+            return true;
+        }
+
+        @Override
+        void postings(Postings target) {
+            target.addAll(postings, postings.length, count, null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private static boolean hasMore(InputStream in) throws IOException {
+            in.mark(1);
+            int next = in.read();
+            in.reset();
+            return next >= 0;
+        }
+    }
+
+    /**
+     * Índice anterior, leído en secuencia: las entradas de las tablas
+     * conservadas, con su nuevo identificador.
+     */
+    private static final class PreviousSource extends TermSource {
+        private final DataInputStream in;
+        private final int[] remap;
+        private final Postings kept = new Postings();
+        private byte[] postings = new byte[64];
+        private int remaining;
+
+        PreviousSource(int sourceIndex, MetadataSearchIndex index, int[] remap) throws IOException {
+            super(sourceIndex);
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index.getFile()),
+                64 * 1024));
+            this.remap = remap;
+            this.remaining = index.getTermCount();
+            long skip = index.getTermsStart();
+            while (skip > 0) {
+                long skipped = in.skip(skip);
+                if (skipped <= 0) {
+                    throw new EOFException(index.getFile().toString());
+                }
+                skip -= skipped;
+            }
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                term = null;
+                return false;
+            }
+            remaining--;
+            term = MetadataSearchIndexCodec.readText(in);
+            // El índice no guarda la longitud de las entradas: se leen varint a varint
+            int count = MetadataSearchIndexCodec.readVarint(in);
+            int length = 0;
+            for (int varints = 2 * count; varints > 0; ) {
+                if (length == postings.length) {
+                    postings = Arrays.copyOf(postings, length * 2);
+                }
+                byte b = in.readByte();
+                postings[length++] = b;
+                if (b >= 0) {
+                    varints--;
+                }
+            }
+            kept.clear();
+            kept.addAll(postings, length, count, remap);
+            return true;
+        }
+
+        @Override
+        void postings(Postings target) {
+            target.addAll(kept.bytes, kept.size, kept.count, null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Formato binario de las instantáneas de metadatos.
+ *
+ * <pre>
+ * cabecera: MAGIC (long), VERSION (int)
+ * registros: un bloque comprimido (deflate) por tabla; desde la versión 3
+ *           incluyen índices, vistas dependientes y estadísticas, y desde la 4
+ *           el esquema de la tabla referenciada por cada FK
+ * índice:   número de tablas (int) y, por tabla, nombre, posición (long), longitud (int)
+ *           y huella del contenido (long, desde la versión 2)
+ * pie:      posición del índice (long), MAGIC (long)
+ * </pre>
+ *
+ * El índice está ordenado por nombre de tabla y permite cargar cada tabla por
+ * separado sin leer el resto del archivo. La huella permite además saber si una
+ * tabla ha cambiado entre dos instantáneas sin descomprimirla.
+ */
+final class MetadataSnapshotCodec {
+
+    static final long MAGIC = 0x4442455850534E50L; // "DBEXPSNP"
+    static final int VERSION = 4;
+    static final int FIRST_VERSION_WITH_FINGERPRINTS = 2;
+    static final int FIRST_VERSION_WITH_DETAILS = 3;
+    static final int FIRST_VERSION_WITH_TARGET_SCHEMA = 4;
+    static final int HEADER_SIZE = 12;
+    static final int FOOTER_SIZE = 16;
+
+    private MetadataSnapshotCodec() {
+    }
+
+    /**
+     * Serializa una tabla (sin comprimir).
+     */
+    static void writeTable(DataOutputStream out, TableInfo table) throws IOException {
+        writeString(out, table.getNombre());
+        writeString(out, table.getEsquema());
+        writeContent(out, table);
+    }
+
+    /**
+     * Huella de 64 bits (SHA-256 truncado) del contenido de una tabla, sin su
+     * nombre ni su esquema: dos tablas con la misma huella tienen la misma
+     * estructura, aunque estén en esquemas distintos. Cubre también los índices,
+     * las vistas y las estadísticas.
+     */
+    static long fingerprint(TableInfo table) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }, digest))) {
+            writeContent(out, table);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    private static void writeContent(DataOutputStream out, TableInfo table) throws IOException {
+        writeString(out, table.getComentario());
+        writeString(out, table.getPrimaryKeyName());
+        writeStrings(out, table.getPrimaryKeyColumns());
+
+        List<ColumnInfo> columns = table.getColumnas();
+        out.writeInt(columns.size());
+        for (ColumnInfo col : columns) {
+            writeString(out, col.getNombre());
+            writeString(out, col.getTipo());
+            writeInteger(out, col.getLongitud());
+            writeInteger(out, col.getEscala());
+            out.writeBoolean(col.isNullable());
+            writeString(out, col.getValorDefault());
+            writeString(out, col.getComentario());
+        }
+
+        List<ForeignKeyInfo> foreignKeys = table.getForeignKeys();
+        out.writeInt(foreignKeys.size());
+        for (ForeignKeyInfo fk : foreignKeys) {
+            writeString(out, fk.getNombre());
+            writeStrings(out, fk.getColumnasOrigen());
+            writeString(out, fk.getTablaDestino());
+            writeStrings(out, fk.getColumnasDestino());
+            writeString(out, fk.getOnDeleteAction());
+            writeString(out, fk.getOnUpdateAction());
+            writeString(out, fk.getEsquemaDestino());
+        }
+
+        // Índices, vistas y estadísticas: null si no se han leído
+        List<IndexInfo> indexes = table.getIndices();
+        out.writeInt(indexes != null ? indexes.size() : -1);
+        if (indexes != null) {
+            for (IndexInfo index : indexes) {
+                writeString(out, index.getNombre());
+                writeStrings(out, index.getColumnas());
+                writeStrings(out, index.getColumnasIncluidas() != null ? index.getColumnasIncluidas()
+                    : Collections.<String>emptyList());
+                out.writeBoolean(index.isUnico());
+                out.writeBoolean(index.isClavePrimaria());
+                out.writeBoolean(index.isCluster());
+            }
+        }
+        out.writeBoolean(table.getVistas() != null);
+        if (table.getVistas() != null) {
+            writeStrings(out, table.getVistas());
+        }
+        TableStatistics statistics = table.getEstadisticas();
+        out.writeBoolean(statistics != null);
+        if (statistics != null) {
+            writeLong(out, statistics.getFilas());
+            writeLong(out, statistics.getPaginas());
+            writeString(out, statistics.getFechaEstadisticas());
+        }
+    }
+
+    /**
+     * Lee una tabla serializada con {@link #writeTable} en la versión indicada.
+     */
+    static TableInfo readTable(DataInputStream in, int version) throws IOException {
+        TableInfo.TableInfoBuilder table = TableInfo.builder()
+            .nombre(readString(in))
+            .esquema(readString(in))
+            .comentario(readString(in))
+            .primaryKeyName(readString(in))
+            .primaryKeyColumns(readStrings(in));
+
+        int columnCount = in.readInt();
+        List<ColumnInfo> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            columns.add(ColumnInfo.builder()
+                .nombre(readString(in))
+                .tipo(readString(in))
+                .longitud(readInteger(in))
+                .escala(readInteger(in))
+                .nullable(in.readBoolean())
+                .valorDefault(readString(in))
+                .comentario(readString(in))
+                .build());
+        }
+
+        int fkCount = in.readInt();
+        List<ForeignKeyInfo> foreignKeys = new ArrayList<>(fkCount);
+        for (int i = 0; i < fkCount; i++) {
+            foreignKeys.add(ForeignKeyInfo.builder()
+                .nombre(readString(in))
+                .columnasOrigen(readStrings(in))
+                .tablaDestino(readString(in))
+                .columnasDestino(readStrings(in))
+                .onDeleteAction(readString(in))
+                .onUpdateAction(readString(in))
+                .esquemaDestino(version >= FIRST_VERSION_WITH_TARGET_SCHEMA ? readString(in) : null)
+                .build());
+        }
+
+        table.columnas(columns).foreignKeys(foreignKeys);
+        if (version < FIRST_VERSION_WITH_DETAILS) {
+            return table.build();
+        }
+
+        int indexCount = in.readInt();
+        if (indexCount >= 0) {
+            List<IndexInfo> indexes = new ArrayList<>(indexCount);
+            for (int i = 0; i < indexCount; i++) {
+                indexes.add(IndexInfo.builder()
+                    .nombre(readString(in))
+                    .columnas(readStrings(in))
+                    .columnasIncluidas(readStrings(in))
+                    .unico(in.readBoolean())
+                    .clavePrimaria(in.readBoolean())
+                    .cluster(in.readBoolean())
+                    .build());
+            }
+            table.indices(indexes);
+        }
+        if (in.readBoolean()) {
+            table.vistas(readStrings(in));
+        }
+        if (in.readBoolean()) {
+            table.estadisticas(TableStatistics.builder()
+                .filas(readLong(in))
+                .paginas(readLong(in))
+                .fechaEstadisticas(readString(in))
+                .build());
+        }
+        return table.build();
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+}
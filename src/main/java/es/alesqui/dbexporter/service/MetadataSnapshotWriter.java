@@ -0,0 +1,126 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.TableInfo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Escribe una instantánea de los metadatos extraídos, para poder volver a
+ * generar la documentación sin consultar la base de datos. Admite llamadas
+ * concurrentes a {@link #append(TableInfo)}.
+ */
+public class MetadataSnapshotWriter implements Closeable {
+
+    private final Path file;
+    private final Path temp;
+    private final FileChannel channel;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8 * 1024);
+    private final List<IndexEntry> index = new ArrayList<>();
+
+    private static class IndexEntry {
+        final String tableName;
+        final long offset;
+        final int length;
+        final long fingerprint;
+
+        IndexEntry(String tableName, long offset, int length, long fingerprint) {
+            this.tableName = tableName;
+            this.offset = offset;
+            this.length = length;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    public MetadataSnapshotWriter(Path file) throws IOException {
+        this.file = file;
+        this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(MetadataSnapshotCodec.HEADER_SIZE);
+        header.putLong(MetadataSnapshotCodec.MAGIC).putInt(MetadataSnapshotCodec.VERSION).flip();
+        writeFully(header);
+    }
+
+    /**
+     * Añade una tabla a la instantánea.
+     */
+    public synchronized void append(TableInfo table) throws IOException {
+        buffer.reset();
+        deflater.reset();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(buffer, deflater))) {
+            MetadataSnapshotCodec.writeTable(out, table);
+        }
+
+        long offset = channel.position();
+        writeFully(ByteBuffer.wrap(buffer.toByteArray()));
+        index.add(new IndexEntry(table.getNombre(), offset, buffer.size(), MetadataSnapshotCodec.fingerprint(table)));
+    }
+
+    /**
+     * Escribe el índice y el pie, y publica el archivo final.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            index.sort(Comparator.comparing(entry -> entry.tableName));
+
+            buffer.reset();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(index.size());
+            for (IndexEntry entry : index) {
+                MetadataSnapshotCodec.writeString(out, entry.tableName);
+                out.writeLong(entry.offset);
+                out.writeInt(entry.length);
+                out.writeLong(entry.fingerprint);
+            }
+            long indexOffset = channel.position();
+            out.writeLong(indexOffset);
+            out.writeLong(MetadataSnapshotCodec.MAGIC);
+            out.flush();
+
+            writeFully(ByteBuffer.wrap(buffer.toByteArray()));
+            channel.force(false);
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Descarta la instantánea sin publicarla: se conserva la anterior.
+     */
+    public synchronized void discard() throws IOException {
+        try {
+            deflater.end();
+            channel.close();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.ReferenceInfo;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grafo de relaciones del esquema, construido a partir de las foreign keys de
+ * todas las tablas leídas en una sola pasada. Cada FK es una arista de la tabla
+ * que la contiene a la tabla referenciada. Guarda, para cada tabla, las FK de
+ * otras tablas que la referencian ("referenced by"), de modo que no hace falta
+ * una consulta inversa por tabla.
+ *
+ * <p>Las aristas se guardan en arrays de adyacencia compactos (salientes y
+ * entrantes) y todos los recorridos son lineales en tablas más FK: tablas más
+ * conectadas, orden de dependencias y grupos de tablas con dependencias
+ * circulares (componentes fuertemente conexas, algoritmo de Tarjan iterativo).
+ */
+final class RelationshipGraph {
+
+    static final int HUB_COUNT = 20;
+
+    private final String[] names;
+    private final int tableCount;
+    private final int[] outStart;
+    private final int[] outTarget;
+    private final int[] inStart;
+    private final Map<String, Integer> ids;
+    private final Map<String, List<ForeignKeyInfo>> foreignKeys;
+    private final List<List<ReferenceInfo>> referencedBy;
+
+    private RelationshipGraph(List<String> tables, Map<String, List<ForeignKeyInfo>> foreignKeys) {
+        this.foreignKeys = foreignKeys;
+        this.tableCount = tables.size();
+        ids = new HashMap<>(Math.max(16, tables.size() * 2));
+        List<String> nodes = new ArrayList<>(tables);
+        for (int i = 0; i < tables.size(); i++) {
+            ids.put(tables.get(i), i);
+        }
+
+        int edgeCount = 0;
+        for (String tableName : tables) {
+            edgeCount += foreignKeys(tableName).size();
+        }
+
+        // Aristas en el orden de las tablas; las tablas referenciadas que no se
+        // exportan (otro esquema o excluidas por el filtro) se añaden al final
+        int[] source = new int[edgeCount];
+        int[] target = new int[edgeCount];
+        referencedBy = new ArrayList<>(Collections.nCopies(tables.size(), (List<ReferenceInfo>) null));
+        int e = 0;
+        for (int v = 0; v < tables.size(); v++) {
+            for (ForeignKeyInfo fk : foreignKeys(tables.get(v))) {
+                String targetName = targetName(fk);
+                Integer w = ids.get(targetName);
+                if (w == null) {
+                    w = nodes.size();
+                    ids.put(targetName, w);
+                    nodes.add(targetName);
+                    referencedBy.add(null);
+                }
+                source[e] = v;
+                target[e] = w;
+                e++;
+                if (referencedBy.get(w) == null) {
+                    referencedBy.set(w, new ArrayList<>(2));
+                }
+                referencedBy.get(w).add(new ReferenceInfo(tables.get(v), fk));
+            }
+        }
+        names = nodes.toArray(new String[0]);
+
+        outStart = new int[names.length + 1];
+        inStart = new int[names.length + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            outStart[source[i] + 1]++;
+            inStart[target[i] + 1]++;
+        }
+        for (int v = 0; v < names.length; v++) {
+            outStart[v + 1] += outStart[v];
+            inStart[v + 1] += inStart[v];
+        }
+        // Las aristas ya están agrupadas por tabla de origen
+        outTarget = target;
+    }
+
+    /**
+     * Nodo de la tabla referenciada: las de otro esquema se cualifican con él,
+     * para no confundirlas con una tabla del esquema con el mismo nombre.
+     */
+    private static String targetName(ForeignKeyInfo fk) {
+        return fk.getEsquemaDestino() != null ? fk.getEsquemaDestino() + "." + fk.getTablaDestino()
+            : fk.getTablaDestino();
+    }
+
+    /**
+     * Construye el grafo de las tablas indicadas con sus foreign keys, tal como
+     * las devuelve {@link DatabaseMetadataExtractor#getSchemaForeignKeys}.
+     */
+    static RelationshipGraph build(List<String> tables, Map<String, List<ForeignKeyInfo>> foreignKeys) {
+        return new RelationshipGraph(tables, foreignKeys);
+    }
+
+    /**
+     * Foreign keys de la tabla, leídas en la pasada por el esquema.
+     */
+    List<ForeignKeyInfo> foreignKeys(String tableName) {
+        List<ForeignKeyInfo> tableForeignKeys = foreignKeys.get(tableName);
+        return tableForeignKeys != null ? tableForeignKeys : Collections.emptyList();
+    }
+
+    /**
+     * FK de otras tablas (o de la propia) que apuntan a la tabla, ordenadas por
+     * tabla de origen.
+     */
+    List<ReferenceInfo> referencedBy(String tableName) {
+        Integer id = ids.get(tableName);
+        List<ReferenceInfo> references = id != null ? referencedBy.get(id) : null;
+        return references != null ? references : Collections.emptyList();
+    }
+
+    /**
+     * Huella de las referencias entrantes de la tabla. Permite a la exportación
+     * incremental detectar que ha cambiado una FK que apunta a la tabla, aunque
+     * la tabla en sí no se haya modificado.
+     */
+    String referencesHash(String tableName) {
+        long hash = 17;
+        for (ReferenceInfo reference : referencedBy(tableName)) {
+            ForeignKeyInfo fk = reference.getForeignKey();
+            hash = 31 * hash + reference.getTablaOrigen().hashCode();
+            hash = 31 * hash + String.valueOf(fk.getNombre()).hashCode();
+            hash = 31 * hash + fk.getColumnasOrigen().hashCode();
+            hash = 31 * hash + fk.getColumnasDestino().hashCode();
+            hash = 31 * hash + String.valueOf(fk.getOnDeleteAction()).hashCode();
+            hash = 31 * hash + String.valueOf(fk.getOnUpdateAction()).hashCode();
+        }
+        return Long.toHexString(hash);
+    }
+
+    int getTableCount() {
+        return tableCount;
+    }
+
+    int getForeignKeyCount() {
+        return outTarget.length;
+    }
+
+    /**
+     * Componentes fuertemente conexas con el algoritmo de Tarjan, sin recursión
+     * para no agotar la pila con esquemas grandes. Las componentes se numeran en
+     * el orden en que se cierran: una componente siempre después de todas las
+     * que referencia, así que la numeración ya es un orden de dependencias.
+     */
+    private int[] components() {
+        int n = names.length;
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] next = new int[n];
+        int[] component = new int[n];
+        int[] stack = new int[n];
+        int[] call = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+
+        int counter = 0;
+        int componentCount = 0;
+        for (int s = 0; s < n; s++) {
+            if (index[s] != -1) {
+                continue;
+            }
+            int sp = 0;
+            int cp = 0;
+            index[s] = low[s] = counter++;
+            next[s] = outStart[s];
+            stack[sp++] = s;
+            onStack[s] = true;
+            call[cp++] = s;
+
+            while (cp > 0) {
+                int v = call[cp - 1];
+                if (next[v] < outStart[v + 1]) {
+                    int w = outTarget[next[v]++];
+                    if (index[w] == -1) {
+                        index[w] = low[w] = counter++;
+                        next[w] = outStart[w];
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        call[cp++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                } else {
+                    cp--;
+                    if (cp > 0) {
+                        int u = call[cp - 1];
+                        low[u] = Math.min(low[u], low[v]);
+                    }
+                    if (low[v] == index[v]) {
+                        int w;
+                        do {
+                            w = stack[--sp];
+                            onStack[w] = false;
+                            component[w] = componentCount;
+                        } while (w != v);
+                        componentCount++;
+                    }
+                }
+            }
+        }
+        return component;
+    }
+
+    /**
+     * Escribe el resumen de relaciones del esquema: tablas más conectadas, orden
+     * de dependencias (las tablas referenciadas primero) y dependencias
+     * circulares.
+     */
+    void writeSummary(Writer out, String schema) throws IOException {
+        int n = names.length;
+        int[] component = components();
+        int componentCount = 0;
+        for (int c : component) {
+            componentCount = Math.max(componentCount, c + 1);
+        }
+
+        // Tamaño de cada componente y tablas que se referencian a sí mismas
+        int[] componentSize = new int[componentCount];
+        for (int v = 0; v < n; v++) {
+            componentSize[component[v]]++;
+        }
+        List<String> selfReferencing = new ArrayList<>();
+        for (int v = 0; v < tableCount; v++) {
+            for (int e = outStart[v]; e < outStart[v + 1]; e++) {
+                if (outTarget[e] == v) {
+                    selfReferencing.add(names[v]);
+                    break;
+                }
+            }
+        }
+
+        // Nivel de cada componente: uno más que el mayor de las que referencia.
+        // Las componentes se recorren en orden de cierre, así que las
+        // referenciadas ya tienen su nivel; las tablas externas no cuentan
+        int[] members = membersByComponent(component, componentCount);
+        int[] memberStart = memberStarts(component, componentCount);
+        int[] level = new int[componentCount];
+        int maxLevel = -1;
+        for (int c = 0; c < componentCount; c++) {
+            for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+                int v = members[m];
+                for (int e = outStart[v]; e < outStart[v + 1]; e++) {
+                    int w = outTarget[e];
+                    if (w < tableCount && component[w] != c) {
+                        level[c] = Math.max(level[c], level[component[w]] + 1);
+                    }
+                }
+            }
+            if (members[memberStart[c]] < tableCount) {
+                maxLevel = Math.max(maxLevel, level[c]);
+            }
+        }
+
+        List<List<String>> levels = new ArrayList<>();
+        for (int l = 0; l <= maxLevel; l++) {
+            levels.add(new ArrayList<>());
+        }
+        List<List<String>> cycles = new ArrayList<>();
+        int[] cycleOf = new int[componentCount];
+        Arrays.fill(cycleOf, -1);
+        int isolated = 0;
+        for (int v = 0; v < tableCount; v++) {
+            int c = component[v];
+            levels.get(level[c]).add(names[v]);
+            if (componentSize[c] > 1) {
+                if (cycleOf[c] == -1) {
+                    cycleOf[c] = cycles.size();
+                    cycles.add(new ArrayList<>());
+                }
+                cycles.get(cycleOf[c]).add(names[v]);
+            }
+            if (outStart[v + 1] == outStart[v] && inStart[v + 1] == inStart[v]) {
+                isolated++;
+            }
+        }
+
+        out.write("==============================================\n");
+        out.write("SCHEMA RELATIONSHIPS: " + schema + "\n");
+        out.write("==============================================\n\n");
+
+        out.write("SUMMARY:\n");
+        out.write("------------------\n");
+        out.write("- Tables: " + tableCount + "\n");
+        out.write("- Foreign keys: " + getForeignKeyCount() + "\n");
+        out.write("- Tables without relationships: " + isolated + "\n");
+        out.write("- Referenced tables outside the export: " + (n - tableCount) + "\n");
+        out.write("- Dependency levels: " + (maxLevel + 1) + "\n");
+        out.write("- Circular dependency groups: " + cycles.size() + "\n");
+        out.write("- Self-referencing tables: " + selfReferencing.size() + "\n\n");
+
+        writeHubs(out);
+
+        if (!levels.isEmpty()) {
+            out.write("DEPENDENCY ORDER (referenced tables first):\n");
+            out.write("------------------\n");
+            for (int l = 0; l < levels.size(); l++) {
+                out.write("Level " + l + " (" + levels.get(l).size() + " tables): "
+                    + String.join(", ", levels.get(l)) + "\n");
+            }
+            out.write("\n");
+        }
+
+        if (!cycles.isEmpty() || !selfReferencing.isEmpty()) {
+            out.write("CIRCULAR DEPENDENCIES:\n");
+            out.write("------------------\n");
+            int number = 1;
+            for (List<String> cycle : cycles) {
+                out.write(number++ + ". " + String.join(", ", cycle) + "\n");
+            }
+            if (!selfReferencing.isEmpty()) {
+                out.write("- Self-referencing tables: " + String.join(", ", selfReferencing) + "\n");
+            }
+            out.write("\n");
+        }
+
+        if (n > tableCount) {
+            out.write("REFERENCED TABLES OUTSIDE THE EXPORT:\n");
+            out.write("------------------\n");
+            for (int v = tableCount; v < n; v++) {
+                out.write("- " + names[v] + " (referenced by " + (inStart[v + 1] - inStart[v])
+                    + " foreign keys)\n");
+            }
+            out.write("\n");
+        }
+    }
+
+    /**
+     * Escribe el resumen en un archivo UTF-8.
+     */
+    void writeSummary(Path file, String schema) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeSummary(out, schema);
+        }
+    }
+
+    /**
+     * Tablas con más FK entrantes y salientes. Se ordenan por cubetas de grado,
+     * sin comparar, y los empates se resuelven por el orden de las tablas.
+     */
+    private void writeHubs(Writer out) throws IOException {
+        int maxDegree = 0;
+        int[] degree = new int[tableCount];
+        for (int v = 0; v < tableCount; v++) {
+            degree[v] = (outStart[v + 1] - outStart[v]) + (inStart[v + 1] - inStart[v]);
+            maxDegree = Math.max(maxDegree, degree[v]);
+        }
+        if (maxDegree == 0) {
+            return;
+        }
+
+        int[] bucketStart = new int[maxDegree + 2];
+        for (int v = 0; v < tableCount; v++) {
+            bucketStart[maxDegree - degree[v] + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; d++) {
+            bucketStart[d + 1] += bucketStart[d];
+        }
+        int[] sorted = new int[tableCount];
+        for (int v = 0; v < tableCount; v++) {
+            sorted[bucketStart[maxDegree - degree[v]]++] = v;
+        }
+
+        out.write("HUB TABLES (most foreign keys in and out):\n");
+        out.write("------------------\n");
+        for (int i = 0; i < Math.min(HUB_COUNT, tableCount) && degree[sorted[i]] > 0; i++) {
+            int v = sorted[i];
+            out.write((i + 1) + ". " + names[v] + ": referenced by " + (inStart[v + 1] - inStart[v])
+                + ", references " + (outStart[v + 1] - outStart[v]) + "\n");
+        }
+        out.write("\n");
+    }
+
+    /**
+     * Nodos agrupados por componente (ordenación por cubetas), junto con
+     * {@link #memberStarts}.
+     */
+    private static int[] membersByComponent(int[] component, int componentCount) {
+        int[] start = memberStarts(component, componentCount);
+        int[] members = new int[component.length];
+        for (int v = 0; v < component.length; v++) {
+            members[start[component[v]]++] = v;
+        }
+        return members;
+    }
+
+    private static int[] memberStarts(int[] component, int componentCount) {
+        int[] start = new int[componentCount + 1];
+        for (int c : component) {
+            start[c + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            start[c + 1] += start[c];
+        }
+        return start;
+    }
+}
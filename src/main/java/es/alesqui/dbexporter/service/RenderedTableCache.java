@@ -0,0 +1,132 @@
+package es.alesqui.dbexporter.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché en memoria de los documentos ya generados, acotada por tamaño. Cuando
+ * se supera el límite se descartan los documentos usados hace más tiempo (LRU).
+ * Cada documento guarda la fecha de modificación de la tabla, la huella de sus
+ * metadatos y la de sus referencias entrantes, que el refresco usa para decidir
+ * si hay que volver a generarlo.
+ *
+ * <p>Todos los métodos están sincronizados: la lectura de un documento sólo
+ * toma el monitor el tiempo de localizarlo en el mapa.
+ */
+final class RenderedTableCache {
+
+    /**
+     * Documento de una tabla.
+     */
+    static final class Entry {
+        final byte[] content;
+        final String changeTime;
+        final long fingerprint;
+        final String referencesHash;
+
+        Entry(byte[] content, String changeTime, long fingerprint, String referencesHash) {
+            this.content = content;
+            this.changeTime = changeTime;
+            this.fingerprint = fingerprint;
+            this.referencesHash = referencesHash;
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    RenderedTableCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Documento de la tabla, o null si no está en la caché.
+     */
+    synchronized Entry get(String tableName) {
+        Entry entry = entries.get(tableName);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    /**
+     * Guarda el documento y descarta los menos usados hasta volver al límite.
+     * Un documento que por sí solo supera el límite no se guarda. Devuelve true
+     * si ha habido que descartar algún otro documento para hacerle sitio.
+     */
+    synchronized boolean put(String tableName, Entry entry) {
+        remove(tableName);
+        if (entry.content.length > maxBytes) {
+            return false;
+        }
+        entries.put(tableName, entry);
+        bytes += entry.content.length;
+
+        boolean evicted = false;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().content.length;
+            eldest.remove();
+            evictions++;
+            evicted = true;
+        }
+        return evicted;
+    }
+
+    /**
+     * Actualiza la fecha de modificación de un documento que no ha cambiado.
+     */
+    synchronized void touch(String tableName, String changeTime) {
+        Entry entry = entries.get(tableName);
+        if (entry != null) {
+            entries.put(tableName, new Entry(entry.content, changeTime, entry.fingerprint, entry.referencesHash));
+        }
+    }
+
+    synchronized void remove(String tableName) {
+        Entry removed = entries.remove(tableName);
+        if (removed != null) {
+            bytes -= removed.content.length;
+        }
+    }
+
+    /**
+     * Copia de los nombres y documentos guardados, para recorrerlos sin bloquear
+     * la caché.
+     */
+    synchronized Map<String, Entry> snapshot() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,91 @@
+package es.alesqui.dbexporter.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+
+/**
+ * Reintentos con espera exponencial acotada para los errores transitorios de
+ * acceso a la base de datos (conexión perdida, bloqueos, timeouts). El resto de
+ * errores se propagan al primer intento.
+ */
+@Slf4j
+class RetryPolicy {
+
+    /**
+     * Operación reintentable. Los errores de acceso a datos se propagan como
+     * excepciones no comprobadas.
+     */
+    interface Action<T> {
+        T run() throws InterruptedException;
+    }
+
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    RetryPolicy(int maxAttempts, long initialBackoffMs, long maxBackoffMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = Math.max(0, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+    }
+
+    /**
+     * Ejecuta la acción, reintentándola mientras falle por un error transitorio
+     * y queden intentos.
+     */
+    <T> T call(String description, Action<T> action) throws InterruptedException {
+        long backoff = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.run();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                log.warn("Error transitorio en {} (intento {}/{}), se reintenta en {} ms: {}",
+                    description, attempt, maxAttempts, backoff, e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(maxBackoffMs, backoff * 2);
+            }
+        }
+    }
+
+    /**
+     * Indica si el error, o alguna de sus causas, es transitorio.
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof TransientDataAccessException
+                    || e instanceof RecoverableDataAccessException
+                    || e instanceof DataAccessResourceFailureException
+                    || e instanceof SQLTransientException
+                    || e instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (e instanceof SQLException && isTransientSqlState(((SQLException) e).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * SQLSTATE transitorios: 08 (conexión), 40 (rollback por interbloqueo o
+     * timeout), 57011/57033 (recurso no disponible, bloqueo en DB2) y HYT00/HYT01
+     * (timeout).
+     */
+    private static boolean isTransientSqlState(String sqlState) {
+        if (sqlState == null) {
+            return false;
+        }
+        return sqlState.startsWith("08") || sqlState.startsWith("40")
+            || "57011".equals(sqlState) || "57033".equals(sqlState)
+            || "HYT00".equals(sqlState) || "HYT01".equals(sqlState);
+    }
+}
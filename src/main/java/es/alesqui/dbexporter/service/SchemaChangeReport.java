@@ -0,0 +1,267 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de comparar dos modelos de un esquema: tablas añadidas, eliminadas
+ * y modificadas y, en cada tabla modificada, columnas añadidas o eliminadas,
+ * cambios de tipo, nulabilidad, valor por defecto y comentario, y cambios de
+ * clave primaria y foreign keys.
+ *
+ * <p>Se puede escribir como texto o como JSON.
+ */
+@Getter
+final class SchemaChangeReport {
+
+    private static final Map<String, String> LABELS = new HashMap<>();
+
+    static {
+        LABELS.put("comment", "comentario");
+        LABELS.put("type", "tipo");
+        LABELS.put("nullable", "nulable");
+        LABELS.put("default", "valor por defecto");
+        LABELS.put("columnOrder", "orden de columnas");
+        LABELS.put("columns", "columnas");
+        LABELS.put("name", "nombre");
+        LABELS.put("target", "tabla destino");
+        LABELS.put("targetColumns", "columnas destino");
+        LABELS.put("onDelete", "ON DELETE");
+        LABELS.put("onUpdate", "ON UPDATE");
+    }
+
+    /**
+     * Columna añadida o eliminada, con su tipo ya formateado.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    static final class Column {
+        private final String name;
+        private final String type;
+        private final boolean nullable;
+    }
+
+    /**
+     * Cambio de una propiedad. {@code element} es "table", "column",
+     * "primaryKey" o "foreignKey"; los valores null indican que no existía.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    static final class Change {
+        private final String element;
+        private final String name;
+        private final String property;
+        private final String before;
+        private final String after;
+    }
+
+    /**
+     * Diferencias de una tabla presente en los dos modelos.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    static final class TableChange {
+        private final String table;
+        private final List<Column> addedColumns = new ArrayList<>();
+        private final List<Column> droppedColumns = new ArrayList<>();
+        private final List<ForeignKeyInfo> addedForeignKeys = new ArrayList<>();
+        private final List<ForeignKeyInfo> droppedForeignKeys = new ArrayList<>();
+        private final List<Change> changes = new ArrayList<>();
+
+        boolean isEmpty() {
+            return addedColumns.isEmpty() && droppedColumns.isEmpty() && addedForeignKeys.isEmpty()
+                && droppedForeignKeys.isEmpty() && changes.isEmpty();
+        }
+    }
+
+    private final List<String> addedTables = new ArrayList<>();
+    private final List<String> droppedTables = new ArrayList<>();
+    private final List<TableChange> changedTables = new ArrayList<>();
+    private final List<String> unreadableTables = new ArrayList<>();
+    private int unchangedTables;
+
+    void unchanged() {
+        unchangedTables++;
+    }
+
+    /**
+     * Ordena las listas por nombre de tabla, para que el informe no dependa del
+     * orden de lectura.
+     */
+    void sort() {
+        addedTables.sort(null);
+        droppedTables.sort(null);
+        unreadableTables.sort(null);
+        changedTables.sort(Comparator.comparing(TableChange::getTable));
+    }
+
+    boolean hasChanges() {
+        return !addedTables.isEmpty() || !droppedTables.isEmpty() || !changedTables.isEmpty();
+    }
+
+    /**
+     * Escribe el informe en texto, una línea por cambio.
+     */
+    void writeText(Writer out) throws IOException {
+        out.write(String.format("Tablas: %d añadidas, %d eliminadas, %d modificadas, %d sin cambios\n",
+            addedTables.size(), droppedTables.size(), changedTables.size(), unchangedTables));
+        for (String table : addedTables) {
+            out.write(String.format("\n+ %s\n", table));
+        }
+        for (String table : droppedTables) {
+            out.write(String.format("\n- %s\n", table));
+        }
+        for (TableChange change : changedTables) {
+            out.write(String.format("\n~ %s\n", change.getTable()));
+            for (Column column : change.getAddedColumns()) {
+                out.write(String.format("    + columna %s %s%s\n", column.getName(), column.getType(),
+                    column.isNullable() ? "" : " NOT NULL"));
+            }
+            for (Column column : change.getDroppedColumns()) {
+                out.write(String.format("    - columna %s\n", column.getName()));
+            }
+            for (Change c : change.getChanges()) {
+                out.write(String.format("    ~ %s: %s %s -> %s\n", describe(c), LABELS.getOrDefault(c.getProperty(),
+                    c.getProperty()), display(c.getBefore()), display(c.getAfter())));
+            }
+            for (ForeignKeyInfo fk : change.getAddedForeignKeys()) {
+                out.write(String.format("    + FK %s\n", describe(fk)));
+            }
+            for (ForeignKeyInfo fk : change.getDroppedForeignKeys()) {
+                out.write(String.format("    - FK %s\n", describe(fk)));
+            }
+        }
+        for (String table : unreadableTables) {
+            out.write(String.format("\n! %s (no se pudo leer)\n", table));
+        }
+    }
+
+    /**
+     * Escribe el informe en JSON.
+     */
+    void writeJson(Writer out) throws IOException {
+        out.write("{\n");
+        out.write("  \"addedTables\": " + strings(addedTables) + ",\n");
+        out.write("  \"droppedTables\": " + strings(droppedTables) + ",\n");
+        out.write("  \"unchangedTables\": " + unchangedTables + ",\n");
+        out.write("  \"unreadableTables\": " + strings(unreadableTables) + ",\n");
+        out.write("  \"changedTables\": [");
+        String separator = "\n";
+        for (TableChange change : changedTables) {
+            out.write(separator);
+            out.write("    {\"table\": " + ExportMetrics.quote(change.getTable()) + ",\n");
+            out.write("     \"addedColumns\": " + columns(change.getAddedColumns()) + ",\n");
+            out.write("     \"droppedColumns\": " + columns(change.getDroppedColumns()) + ",\n");
+            out.write("     \"changes\": " + changes(change.getChanges()) + ",\n");
+            out.write("     \"addedForeignKeys\": " + foreignKeys(change.getAddedForeignKeys()) + ",\n");
+            out.write("     \"droppedForeignKeys\": " + foreignKeys(change.getDroppedForeignKeys()) + "}");
+            separator = ",\n";
+        }
+        out.write("\n  ]\n}\n");
+    }
+
+    /**
+     * Escribe el informe en un archivo: JSON si la extensión es .json y texto en
+     * otro caso.
+     */
+    void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (file.getFileName().toString().toLowerCase().endsWith(".json")) {
+                writeJson(out);
+            } else {
+                writeText(out);
+            }
+        }
+    }
+
+    private static String describe(Change change) {
+        switch (change.getElement()) {
+            case "table":
+                return "tabla";
+            case "column":
+                return "columna " + change.getName();
+            case "primaryKey":
+                return "PK";
+            default:
+                return "FK " + change.getName();
+        }
+    }
+
+    private static String describe(ForeignKeyInfo fk) {
+        return (fk.getNombre() != null ? fk.getNombre() + " " : "") + "(" + String.join(", ", fk.getColumnasOrigen())
+            + ") -> " + fk.getTablaDestino() + " (" + String.join(", ", fk.getColumnasDestino()) + ")";
+    }
+
+    private static String display(String value) {
+        return value != null ? value : "(ninguno)";
+    }
+
+    private static String strings(List<String> values) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < values.size(); i++) {
+            json.append(i > 0 ? ", " : "").append(ExportMetrics.quote(values.get(i)));
+        }
+        return json.append(']').toString();
+    }
+
+    private static String nullable(String value) {
+        return value != null ? ExportMetrics.quote(value) : "null";
+    }
+
+    private static String columns(List<Column> columns) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            json.append(i > 0 ? ", " : "")
+                .append("{\"name\": ").append(ExportMetrics.quote(column.getName()))
+                .append(", \"type\": ").append(nullable(column.getType()))
+                .append(", \"nullable\": ").append(column.isNullable()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String changes(List<Change> changes) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < changes.size(); i++) {
+            Change change = changes.get(i);
+            json.append(i > 0 ? ", " : "")
+                .append("{\"element\": ").append(ExportMetrics.quote(change.getElement()))
+                .append(", \"name\": ").append(nullable(change.getName()))
+                .append(", \"property\": ").append(ExportMetrics.quote(change.getProperty()))
+                .append(", \"before\": ").append(nullable(change.getBefore()))
+                .append(", \"after\": ").append(nullable(change.getAfter())).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String foreignKeys(List<ForeignKeyInfo> foreignKeys) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < foreignKeys.size(); i++) {
+            ForeignKeyInfo fk = foreignKeys.get(i);
+            json.append(i > 0 ? ", " : "")
+                .append("{\"name\": ").append(nullable(fk.getNombre()))
+                .append(", \"columns\": ").append(strings(fk.getColumnasOrigen()))
+                .append(", \"target\": ").append(nullable(fk.getTablaDestino()))
+                .append(", \"targetColumns\": ").append(strings(fk.getColumnasDestino()))
+                .append(", \"onDelete\": ").append(nullable(fk.getOnDeleteAction()))
+                .append(", \"onUpdate\": ").append(nullable(fk.getOnUpdateAction())).append('}');
+        }
+        return json.append(']').toString();
+    }
+}
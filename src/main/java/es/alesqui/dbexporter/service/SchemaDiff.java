@@ -0,0 +1,232 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compara el modelo actual de un esquema, tabla a tabla según se lee, con una
+ * instantánea anterior. Las tablas se localizan por nombre en el índice de la
+ * instantánea y se comparan primero por su huella: si coincide, la tabla no ha
+ * cambiado y ni siquiera se descomprime. Sólo las tablas con huella distinta se
+ * comparan columna a columna.
+ */
+final class SchemaDiff {
+
+    private final SnapshotMetadataExtractor base;
+    private final boolean includeForeignKeys;
+    private final SchemaChangeReport report = new SchemaChangeReport();
+    private final Set<String> seen = new HashSet<>();
+
+    SchemaDiff(SnapshotMetadataExtractor base, boolean includeForeignKeys) {
+        this.base = base;
+        this.includeForeignKeys = includeForeignKeys;
+    }
+
+    /**
+     * Compara una tabla del modelo actual con la de la instantánea.
+     */
+    synchronized void accept(TableInfo current) {
+        String tableName = current.getNombre();
+        seen.add(tableName);
+        if (!base.containsTable(tableName)) {
+            report.getAddedTables().add(tableName);
+            return;
+        }
+
+        Long baseFingerprint = base.getFingerprint(tableName);
+        if (baseFingerprint != null && baseFingerprint == MetadataSnapshotCodec.fingerprint(current)) {
+            report.unchanged();
+            return;
+        }
+
+        SchemaChangeReport.TableChange change = compare(
+            base.getTableInfo(null, tableName, includeForeignKeys), current);
+        if (change.isEmpty()) {
+            report.unchanged();
+        } else {
+            report.getChangedTables().add(change);
+        }
+    }
+
+    /**
+     * Registra una tabla del modelo actual que no se ha podido leer.
+     */
+    synchronized void failed(String tableName) {
+        seen.add(tableName);
+        report.getUnreadableTables().add(tableName);
+    }
+
+    /**
+     * Completa el informe con las tablas de la instantánea que ya no existen.
+     */
+    synchronized SchemaChangeReport finish(TableFilter filter) {
+        for (String tableName : base.getTables(null)) {
+            if (!seen.contains(tableName) && filter.matches(tableName)) {
+                report.getDroppedTables().add(tableName);
+            }
+        }
+        report.sort();
+        return report;
+    }
+
+    private SchemaChangeReport.TableChange compare(TableInfo before, TableInfo after) {
+        SchemaChangeReport.TableChange change = new SchemaChangeReport.TableChange(after.getNombre());
+        List<SchemaChangeReport.Change> changes = change.getChanges();
+
+        if (!Objects.equals(trim(before.getComentario()), trim(after.getComentario()))) {
+            changes.add(new SchemaChangeReport.Change("table", null, "comment",
+                trim(before.getComentario()), trim(after.getComentario())));
+        }
+
+        compareColumns(before, after, change);
+        comparePrimaryKey(before, after, changes);
+        compareForeignKeys(before, after, change);
+        return change;
+    }
+
+    private void compareColumns(TableInfo before, TableInfo after, SchemaChangeReport.TableChange change) {
+        Map<String, ColumnInfo> beforeColumns = byName(before.getColumnas());
+        Map<String, ColumnInfo> afterColumns = byName(after.getColumnas());
+        List<String> beforeOrder = new ArrayList<>();
+        List<String> afterOrder = new ArrayList<>();
+
+        for (ColumnInfo column : beforeColumns.values()) {
+            if (afterColumns.containsKey(column.getNombre())) {
+                beforeOrder.add(column.getNombre());
+            } else {
+                change.getDroppedColumns().add(column(column));
+            }
+        }
+
+        for (ColumnInfo column : afterColumns.values()) {
+            ColumnInfo previous = beforeColumns.get(column.getNombre());
+            if (previous == null) {
+                change.getAddedColumns().add(column(column));
+                continue;
+            }
+            afterOrder.add(column.getNombre());
+
+            String name = column.getNombre();
+            List<SchemaChangeReport.Change> changes = change.getChanges();
+            String beforeType = base.formatColumnType(previous);
+            String afterType = base.formatColumnType(column);
+            if (!beforeType.equals(afterType)) {
+                changes.add(new SchemaChangeReport.Change("column", name, "type", beforeType, afterType));
+            }
+            if (previous.isNullable() != column.isNullable()) {
+                changes.add(new SchemaChangeReport.Change("column", name, "nullable",
+                    String.valueOf(previous.isNullable()), String.valueOf(column.isNullable())));
+            }
+            if (!Objects.equals(trim(previous.getValorDefault()), trim(column.getValorDefault()))) {
+                changes.add(new SchemaChangeReport.Change("column", name, "default",
+                    trim(previous.getValorDefault()), trim(column.getValorDefault())));
+            }
+            if (!Objects.equals(trim(previous.getComentario()), trim(column.getComentario()))) {
+                changes.add(new SchemaChangeReport.Change("column", name, "comment",
+                    trim(previous.getComentario()), trim(column.getComentario())));
+            }
+        }
+
+        if (!beforeOrder.equals(afterOrder)) {
+            change.getChanges().add(new SchemaChangeReport.Change("table", null, "columnOrder",
+                String.join(", ", beforeOrder), String.join(", ", afterOrder)));
+        }
+    }
+
+    private static void comparePrimaryKey(TableInfo before, TableInfo after, List<SchemaChangeReport.Change> changes) {
+        String beforeColumns = joinOrNull(before.getPrimaryKeyColumns());
+        String afterColumns = joinOrNull(after.getPrimaryKeyColumns());
+        if (!Objects.equals(beforeColumns, afterColumns)) {
+            changes.add(new SchemaChangeReport.Change("primaryKey", null, "columns", beforeColumns, afterColumns));
+        }
+        if (beforeColumns != null && afterColumns != null
+                && !Objects.equals(before.getPrimaryKeyName(), after.getPrimaryKeyName())) {
+            changes.add(new SchemaChangeReport.Change("primaryKey", null, "name",
+                before.getPrimaryKeyName(), after.getPrimaryKeyName()));
+        }
+    }
+
+    private static void compareForeignKeys(TableInfo before, TableInfo after, SchemaChangeReport.TableChange change) {
+        Map<String, ForeignKeyInfo> beforeKeys = foreignKeysByName(before.getForeignKeys());
+        Map<String, ForeignKeyInfo> afterKeys = foreignKeysByName(after.getForeignKeys());
+
+        for (Map.Entry<String, ForeignKeyInfo> entry : beforeKeys.entrySet()) {
+            if (!afterKeys.containsKey(entry.getKey())) {
+                change.getDroppedForeignKeys().add(entry.getValue());
+            }
+        }
+        for (Map.Entry<String, ForeignKeyInfo> entry : afterKeys.entrySet()) {
+            ForeignKeyInfo previous = beforeKeys.get(entry.getKey());
+            ForeignKeyInfo fk = entry.getValue();
+            if (previous == null) {
+                change.getAddedForeignKeys().add(fk);
+                continue;
+            }
+            List<SchemaChangeReport.Change> changes = change.getChanges();
+            String name = entry.getKey();
+            addIfChanged(changes, name, "columns", joinOrNull(previous.getColumnasOrigen()),
+                joinOrNull(fk.getColumnasOrigen()));
+            addIfChanged(changes, name, "target", previous.getTablaDestino(), fk.getTablaDestino());
+            addIfChanged(changes, name, "targetColumns", joinOrNull(previous.getColumnasDestino()),
+                joinOrNull(fk.getColumnasDestino()));
+            addIfChanged(changes, name, "onDelete", previous.getOnDeleteAction(), fk.getOnDeleteAction());
+            addIfChanged(changes, name, "onUpdate", previous.getOnUpdateAction(), fk.getOnUpdateAction());
+        }
+    }
+
+    private static void addIfChanged(List<SchemaChangeReport.Change> changes, String name, String property,
+            String before, String after) {
+        if (!Objects.equals(before, after)) {
+            changes.add(new SchemaChangeReport.Change("foreignKey", name, property, before, after));
+        }
+    }
+
+    private SchemaChangeReport.Column column(ColumnInfo column) {
+        return new SchemaChangeReport.Column(column.getNombre(), base.formatColumnType(column), column.isNullable());
+    }
+
+    private static Map<String, ColumnInfo> byName(List<ColumnInfo> columns) {
+        Map<String, ColumnInfo> byName = new LinkedHashMap<>();
+        for (ColumnInfo column : columns) {
+            byName.put(column.getNombre(), column);
+        }
+        return byName;
+    }
+
+    /**
+     * Foreign keys por nombre de constraint; las que no tienen nombre se
+     * identifican por sus columnas y su tabla destino.
+     */
+    private static Map<String, ForeignKeyInfo> foreignKeysByName(List<ForeignKeyInfo> foreignKeys) {
+        Map<String, ForeignKeyInfo> byName = new LinkedHashMap<>();
+        if (foreignKeys != null) {
+            for (ForeignKeyInfo fk : foreignKeys) {
+                String key = fk.getNombre() != null ? fk.getNombre()
+                    : "(" + String.join(", ", fk.getColumnasOrigen()) + ") -> " + fk.getTablaDestino();
+                byName.put(key, fk);
+            }
+        }
+        return byName;
+    }
+
+    private static String joinOrNull(List<String> values) {
+        return values == null || values.isEmpty() ? null : String.join(", ", values);
+    }
+
+    private static String trim(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -0,0 +1,137 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.TableInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Modo comparación: en lugar de exportar, compara el modelo actual del esquema
+ * (base de datos o app.snapshot.input) con una instantánea anterior
+ * (app.diff.base) y genera un informe de cambios.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SchemaDiffService {
+
+	private final DatabaseMetadataExtractor metadataExtractor;
+
+	@Value("${app.schema}")
+	private String schema;
+
+	@Value("${app.include.foreign.keys:true}")
+	private boolean includeForeignKeys;
+
+	@Value("${app.bulk.enabled:true}")
+	private boolean bulkExtraction;
+
+	@Value("${app.bulk.chunk-size:500}")
+	private int bulkChunkSize;
+
+	@Value("${app.tables.include:}")
+	private String tablesInclude;
+
+	@Value("${app.tables.exclude:}")
+	private String tablesExclude;
+
+	@Value("${app.diff.base:}")
+	private String diffBase;
+
+	@Value("${app.diff.report:}")
+	private String diffReport;
+
+	/**
+	 * Indica si se ha pedido una comparación en lugar de una exportación.
+	 */
+	public boolean isEnabled() {
+		return !diffBase.trim().isEmpty();
+	}
+
+	/**
+	 * Lee el modelo actual por bloques y lo compara, tabla a tabla, con la
+	 * instantánea base. Nunca se mantienen en memoria los dos modelos completos.
+	 */
+	public void compare() throws IOException, InterruptedException {
+		Path basePath = Paths.get(diffBase);
+		TableFilter filter = TableFilter.of(tablesInclude, tablesExclude);
+		SchemaChangeReport report;
+
+		try (SnapshotMetadataExtractor base = new SnapshotMetadataExtractor(basePath)) {
+			SchemaDiff diff = new SchemaDiff(base, includeForeignKeys);
+			List<String> tables = metadataExtractor.getTables(schema, filter);
+			log.info("Comparando {} tablas del esquema {} con {}", tables.size(), schema, basePath.toAbsolutePath());
+
+			int chunkSize = !bulkExtraction ? 1
+					: metadataExtractor.isSchemaWideBulkRead() ? Math.max(1, tables.size()) : Math.max(1, bulkChunkSize);
+			for (int from = 0; from < tables.size(); from += chunkSize) {
+				readChunk(tables.subList(from, Math.min(from + chunkSize, tables.size())), diff);
+			}
+			report = diff.finish(filter);
+		}
+
+		log.info("========================================");
+		log.info("Comparación completada:");
+		log.info("- Tablas añadidas: {}", report.getAddedTables().size());
+		log.info("- Tablas eliminadas: {}", report.getDroppedTables().size());
+		log.info("- Tablas modificadas: {}", report.getChangedTables().size());
+		log.info("- Tablas sin cambios: {}", report.getUnchangedTables());
+		if (!report.getUnreadableTables().isEmpty()) {
+			log.warn("- Tablas que no se pudieron leer: {}", report.getUnreadableTables().size());
+		}
+		log.info("========================================");
+
+		if (!diffReport.trim().isEmpty()) {
+			Path reportPath = Paths.get(diffReport);
+			report.write(reportPath);
+			log.info("Informe de cambios guardado en {}", reportPath.toAbsolutePath());
+		} else if (report.hasChanges()) {
+			StringWriter text = new StringWriter();
+			report.writeText(text);
+			log.info("Cambios:\n{}", text);
+		}
+	}
+
+	/**
+	 * Lee un bloque de tablas del modelo actual y las entrega a la comparación.
+	 * Si la lectura en bloque falla, las tablas que falten se leen una a una.
+	 */
+	private void readChunk(List<String> chunk, SchemaDiff diff) throws InterruptedException {
+		Set<String> pending = new LinkedHashSet<>(chunk);
+		if (bulkExtraction) {
+			try {
+				metadataExtractor.readTablesInfo(schema, chunk, includeForeignKeys, tableInfo -> {
+					if (pending.remove(tableInfo.getNombre())) {
+						diff.accept(tableInfo);
+					}
+				});
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				log.warn("Error en la lectura en bloque, se consultarán una a una las {} tablas restantes: {}",
+						pending.size(), e.getMessage());
+			}
+		}
+
+		for (String tableName : pending) {
+			TableInfo tableInfo;
+			try {
+				tableInfo = metadataExtractor.getTableInfo(schema, tableName, includeForeignKeys);
+			} catch (Exception e) {
+				log.error("Error leyendo la tabla {}: {}", tableName, e.getMessage());
+				diff.failed(tableName);
+				continue;
+			}
+			diff.accept(tableInfo);
+		}
+	}
+}
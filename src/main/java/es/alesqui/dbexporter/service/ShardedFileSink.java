@@ -0,0 +1,186 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.TableInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Agrupa los documentos de todas las tablas en unos pocos archivos ("shards")
+ * de tamaño limitado, en lugar de crear un archivo por tabla.
+ *
+ * <p>Los documentos se acumulan en un buffer de 1 MB y se vuelcan con
+ * escrituras secuenciales grandes sobre un {@link FileChannel}. Junto a cada
+ * shard {@code tables-00001.txt} se escribe su índice {@code tables-00001.idx},
+ * con una línea {@code TABLA\tPOSICIÓN\tLONGITUD} por tabla, que permite leer
+ * una tabla sin recorrer el shard. Las tablas se escriben bloque a bloque y,
+ * dentro de cada bloque, en el orden en que las entrega el catálogo, así que el
+ * contenido de cada shard no depende del número de hilos de lectura.
+ *
+ * <p>Los shards se escriben en un subdirectorio temporal y sustituyen a los de
+ * la exportación anterior al cerrarlos, de modo que una exportación
+ * interrumpida no deja los shards a medias.
+ */
+@Slf4j
+final class ShardedFileSink implements ExportSink {
+
+    static final String PREFIX = "tables-";
+    static final String INDEX_EXTENSION = ".idx";
+    static final String TEMP_DIRECTORY = ".tables-tmp";
+
+    private static final int STAGING_SIZE = 1024 * 1024;
+
+    private final Path directory;
+    private final Path temp;
+    private final String extension;
+    private final long maxShardSize;
+    private final ByteBuffer staging = ByteBuffer.allocateDirect(STAGING_SIZE);
+    private final List<String> index = new ArrayList<>();
+
+    private FileChannel channel;
+    private int shardNumber;
+    private long shardSize;
+
+    /**
+     * @param extension    extensión de los shards (la del formato de salida)
+     * @param maxShardSize tamaño máximo de cada shard en bytes; una tabla que no
+     *                     quepa ocupa un shard ella sola
+     */
+    ShardedFileSink(Path directory, String extension, long maxShardSize) throws IOException {
+        this.directory = directory;
+        this.temp = directory.resolve(TEMP_DIRECTORY);
+        this.extension = extension;
+        this.maxShardSize = maxShardSize;
+        // Restos de una exportación anterior que no terminó
+        deleteTemp();
+        Files.createDirectories(temp);
+    }
+
+    @Override
+    public void write(TableInfo tableInfo, ExportPipeline.RenderBuffer content) throws IOException {
+        int length = content.size();
+        if (channel == null || (shardSize > 0 && shardSize + length > maxShardSize)) {
+            nextShard();
+        }
+
+        index.add(tableInfo.getNombre() + "\t" + shardSize + "\t" + length);
+        shardSize += length;
+
+        ByteBuffer bytes = content.toByteBuffer();
+        if (length > staging.remaining()) {
+            flush();
+        }
+        if (length > staging.capacity()) {
+            writeFully(bytes);
+        } else {
+            staging.put(bytes);
+        }
+    }
+
+    @Override
+    public Path getLocation() {
+        return directory;
+    }
+
+    /**
+     * Sustituye los shards anteriores, que podían ser más, por los nuevos.
+     */
+    @Override
+    public void close() throws IOException {
+        closeShard();
+        deleteShards(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(temp)) {
+            for (Path file : files) {
+                Files.move(file, directory.resolve(file.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        Files.delete(temp);
+        log.info("Documentos agrupados en {} archivo(s) {}*{}", shardNumber, PREFIX, extension);
+    }
+
+    @Override
+    public void discard() throws IOException {
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            deleteTemp();
+        }
+    }
+
+    private void nextShard() throws IOException {
+        closeShard();
+        shardNumber++;
+        channel = FileChannel.open(shardFile(shardNumber, extension), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void closeShard() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(shardFile(shardNumber, INDEX_EXTENSION),
+                StandardCharsets.UTF_8)) {
+            for (String line : index) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        index.clear();
+        shardSize = 0;
+    }
+
+    private void flush() throws IOException {
+        staging.flip();
+        writeFully(staging);
+        staging.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private Path shardFile(int number, String suffix) {
+        return temp.resolve(String.format("%s%05d%s", PREFIX, number, suffix));
+    }
+
+    private void deleteTemp() throws IOException {
+        if (Files.isDirectory(temp)) {
+            deleteShards(temp);
+            Files.delete(temp);
+        }
+    }
+
+    /**
+     * Borra los shards de un directorio.
+     */
+    private static void deleteShards(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "[0-9]*")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Catálogo sintético para probar la exportación a escala sin base de datos.
+ * Genera un esquema con el número de tablas, columnas por tabla y foreign keys
+ * por tabla indicados, y simula una latencia fija por consulta.
+ *
+ * <p>Las tablas se generan a partir de su número cada vez que se piden, así
+ * que la memoria no depende del tamaño del esquema. El resultado es
+ * determinista: la misma configuración produce siempre el mismo catálogo.
+ *
+ * <p>Cada operación cuenta las consultas que lanzaría el extractor de DB2: una
+ * por método simple, y una por vista de SYSCAT y bloque de tablas en la
+ * lectura en bloque.
+ */
+public class SimulatedMetadataExtractor implements DatabaseMetadataExtractor {
+
+    private static final String CHANGE_TIME = "2024-01-01 00:00:00.0";
+    private static final String[] TYPES = {"INTEGER", "VARCHAR", "DECIMAL", "TIMESTAMP", "CHARACTER", "DATE",
+        "BIGINT", "VARCHAR"};
+
+    private final int tables;
+    private final int columnsPerTable;
+    private final double foreignKeysPerTable;
+    private final long latencyNanos;
+    private final String nameFormat;
+    private final DB2MetadataExtractor formatter = new DB2MetadataExtractor(null);
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    /**
+     * @param tables              tablas del esquema
+     * @param columnsPerTable     columnas de cada tabla, incluidas la clave y las de las FK
+     * @param foreignKeysPerTable media de foreign keys por tabla; admite decimales
+     * @param latencyMicros       latencia simulada de cada consulta al catálogo
+     */
+    public SimulatedMetadataExtractor(int tables, int columnsPerTable, double foreignKeysPerTable,
+            long latencyMicros) {
+        this.tables = Math.max(0, tables);
+        this.columnsPerTable = Math.max(1, columnsPerTable);
+        this.foreignKeysPerTable = Math.max(0, foreignKeysPerTable);
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, latencyMicros));
+        this.nameFormat = "T%0" + String.valueOf(Math.max(1, this.tables)).length() + "d";
+    }
+
+    /**
+     * Consultas al catálogo simuladas desde la creación o el último
+     * {@link #resetRoundTrips()}.
+     */
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    public void resetRoundTrips() {
+        roundTrips.set(0);
+    }
+
+    @Override
+    public List<String> getTables(String schema) {
+        query(1);
+        List<String> names = new ArrayList<>(tables);
+        for (int i = 0; i < tables; i++) {
+            names.add(tableName(i));
+        }
+        return names;
+    }
+
+    @Override
+    public Map<String, String> getTableChangeTimes(String schema) {
+        query(1);
+        Map<String, String> changeTimes = new HashMap<>();
+        for (int i = 0; i < tables; i++) {
+            changeTimes.put(tableName(i), CHANGE_TIME);
+        }
+        return changeTimes;
+    }
+
+    /**
+     * El catálogo simulado no cambia: la misma clave para todas las tablas.
+     */
+    @Override
+    public Map<String, String> getTableDetailKeys(String schema, TableFilter filter, boolean indexes,
+            boolean views, boolean statistics) {
+        query(1);
+        Map<String, String> keys = new HashMap<>();
+        for (int i = 0; i < tables; i++) {
+            keys.put(tableName(i), CHANGE_TIME);
+        }
+        return keys;
+    }
+
+    @Override
+    public String getTableComment(String schema, String tableName) {
+        query(1);
+        return comment(index(tableName));
+    }
+
+    @Override
+    public List<ColumnInfo> getColumns(String schema, String tableName) {
+        query(1);
+        return columns(index(tableName));
+    }
+
+    @Override
+    public List<String> getPrimaryKeyColumns(String schema, String tableName) {
+        query(1);
+        index(tableName);
+        return Collections.singletonList("ID");
+    }
+
+    @Override
+    public String getPrimaryKeyName(String schema, String tableName) {
+        query(1);
+        return "PK_" + tableName(index(tableName));
+    }
+
+    @Override
+    public List<ForeignKeyInfo> getForeignKeys(String schema, String tableName) {
+        query(1);
+        return foreignKeys(index(tableName));
+    }
+
+    @Override
+    public Map<String, List<ForeignKeyInfo>> getSchemaForeignKeys(String schema, List<String> tableNames) {
+        query(1);
+        Map<String, List<ForeignKeyInfo>> foreignKeys = new HashMap<>();
+        for (String tableName : tableNames) {
+            foreignKeys.put(tableName, foreignKeys(index(tableName)));
+        }
+        return foreignKeys;
+    }
+
+    @Override
+    public Map<String, List<IndexInfo>> getIndexes(String schema, List<String> tableNames) {
+        query(1);
+        Map<String, List<IndexInfo>> indexes = new HashMap<>();
+        for (String tableName : tableNames) {
+            int table = index(tableName);
+            List<IndexInfo> tableIndexes = new ArrayList<>();
+            tableIndexes.add(IndexInfo.builder()
+                .nombre("PK_" + tableName(table))
+                .columnas(Collections.singletonList("ID"))
+                .columnasIncluidas(Collections.emptyList())
+                .unico(true)
+                .clavePrimaria(true)
+                .build());
+            for (ForeignKeyInfo fk : foreignKeys(table)) {
+                tableIndexes.add(IndexInfo.builder()
+                    .nombre("IX_" + fk.getNombre().substring(3))
+                    .columnas(fk.getColumnasOrigen())
+                    .columnasIncluidas(Collections.emptyList())
+                    .build());
+            }
+            indexes.put(tableName, tableIndexes);
+        }
+        return indexes;
+    }
+
+    @Override
+    public Map<String, List<String>> getDependentViews(String schema, List<String> tableNames) {
+        query(1);
+        Map<String, List<String>> views = new HashMap<>();
+        for (String tableName : tableNames) {
+            int table = index(tableName);
+            views.put(tableName, table % 10 == 0
+                ? Collections.singletonList("V_" + tableName(table)) : Collections.emptyList());
+        }
+        return views;
+    }
+
+    @Override
+    public Map<String, TableStatistics> getTableStatistics(String schema, List<String> tableNames) {
+        query(1);
+        Map<String, TableStatistics> statistics = new HashMap<>();
+        for (String tableName : tableNames) {
+            long rows = mix(index(tableName)) % 1_000_000;
+            statistics.put(tableName, TableStatistics.builder()
+                .filas(rows)
+                .paginas(rows / 40 + 1)
+                .fechaEstadisticas(CHANGE_TIME)
+                .build());
+        }
+        return statistics;
+    }
+
+    /**
+     * Lectura en bloque como la de DB2: tablas, columnas y claves primarias en
+     * una consulta cada una para todo el bloque, más otra para las FK.
+     */
+    @Override
+    public void readTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys,
+            TableInfoHandler handler) throws InterruptedException {
+        if (tableNames.isEmpty()) {
+            return;
+        }
+        query(includeForeignKeys ? 4 : 3);
+        for (String tableName : tableNames) {
+            handler.handle(table(index(tableName), includeForeignKeys));
+        }
+    }
+
+    @Override
+    public String formatColumnType(ColumnInfo columnInfo) {
+        return formatter.formatColumnType(columnInfo);
+    }
+
+    @Override
+    public String formatDefault(String defaultValue, String dataType) {
+        return formatter.formatDefault(defaultValue, dataType);
+    }
+
+    private TableInfo table(int table, boolean includeForeignKeys) {
+        return TableInfo.builder()
+            .nombre(tableName(table))
+            .comentario(comment(table))
+            .columnas(columns(table))
+            .primaryKeyColumns(Collections.singletonList("ID"))
+            .primaryKeyName("PK_" + tableName(table))
+            .foreignKeys(includeForeignKeys ? foreignKeys(table) : new ArrayList<>())
+            .build();
+    }
+
+    private String tableName(int table) {
+        return String.format(nameFormat, table + 1);
+    }
+
+    private int index(String tableName) {
+        try {
+            int table = Integer.parseInt(tableName.substring(1)) - 1;
+            if (tableName.charAt(0) == 'T' && table >= 0 && table < tables && tableName(table).equals(tableName)) {
+                return table;
+            }
+        } catch (RuntimeException e) {
+            // Nombre con otro formato
+        }
+        throw new IllegalArgumentException("Tabla no encontrada en el catálogo simulado: " + tableName);
+    }
+
+    private static String comment(int table) {
+        return table % 3 == 0 ? null : "Tabla sintética número " + (table + 1);
+    }
+
+    /**
+     * La clave ID, después una columna por FK y el resto de tipos variados.
+     */
+    private List<ColumnInfo> columns(int table) {
+        List<ColumnInfo> columns = new ArrayList<>(columnsPerTable);
+        columns.add(ColumnInfo.builder().nombre("ID").tipo("INTEGER").longitud(4).escala(0).nullable(false)
+            .build());
+        for (ForeignKeyInfo fk : foreignKeys(table)) {
+            columns.add(ColumnInfo.builder().nombre(fk.getColumnasOrigen().get(0)).tipo("INTEGER").longitud(4)
+                .escala(0).nullable(true).build());
+        }
+        for (int c = columns.size(); c < columnsPerTable; c++) {
+            String type = TYPES[(table + c) % TYPES.length];
+            ColumnInfo.ColumnInfoBuilder column = ColumnInfo.builder()
+                .nombre(String.format("COL_%03d", c))
+                .tipo(type)
+                .nullable(c % 3 != 0)
+                .comentario(c % 4 == 0 ? "Columna " + c + " de la tabla " + tableName(table) : null);
+            switch (type) {
+                case "VARCHAR":
+                    column.longitud(10 + (int) (mix(table * 31L + c) % 246)).escala(0);
+                    break;
+                case "CHARACTER":
+                    column.longitud(1 + c % 10).escala(0).valorDefault(c % 5 == 0 ? "'N'" : null);
+                    break;
+                case "DECIMAL":
+                    column.longitud(15).escala(2).valorDefault(c % 5 == 0 ? "0" : null);
+                    break;
+                case "TIMESTAMP":
+                    column.longitud(10).escala(6).valorDefault(c % 5 == 0 ? "CURRENT TIMESTAMP" : null);
+                    break;
+                default:
+                    column.longitud(type.equals("BIGINT") ? 8 : 4).escala(0);
+            }
+            columns.add(column.build());
+        }
+        return columns;
+    }
+
+    /**
+     * FK a tablas elegidas de forma pseudoaleatoria; con suficientes tablas
+     * aparecen ciclos y autorreferencias, como en los esquemas reales.
+     */
+    private List<ForeignKeyInfo> foreignKeys(int table) {
+        int count = (int) foreignKeysPerTable;
+        if ((mix(table) % 1000) / 1000.0 < foreignKeysPerTable - count) {
+            count++;
+        }
+        count = Math.min(count, columnsPerTable - 1);
+        List<ForeignKeyInfo> foreignKeys = new ArrayList<>(count);
+        for (int k = 0; k < count && tables > 0; k++) {
+            String target = tableName((int) (mix(table * 64L + k + 1) % tables));
+            foreignKeys.add(ForeignKeyInfo.builder()
+                .nombre("FK_" + tableName(table) + "_" + (k + 1))
+                .columnasOrigen(Collections.singletonList("FK" + (k + 1) + "_" + target + "_ID"))
+                .tablaDestino(target)
+                .columnasDestino(Collections.singletonList("ID"))
+                .onDeleteAction(k % 4 == 0 ? "CASCADE" : "NO ACTION")
+                .onUpdateAction("NO ACTION")
+                .build());
+        }
+        return foreignKeys;
+    }
+
+    /**
+     * Dispersión de enteros (finalizador de SplitMix64), siempre positiva.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (z ^ (z >>> 31)) & Long.MAX_VALUE;
+    }
+
+    private void query(int count) {
+        roundTrips.addAndGet(count);
+        long deadline = System.nanoTime() + latencyNanos * count;
+        for (long remaining = latencyNanos * count; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Extractor de metadatos que lee de una instantánea local en lugar de la base
+ * de datos. Al arrancar sólo carga el índice; cada tabla se descomprime cuando
+ * se solicita.
+ */
+@Slf4j
+public class SnapshotMetadataExtractor implements DatabaseMetadataExtractor, Closeable {
+
+    private final FileChannel channel;
+    private final Map<String, long[]> index = new LinkedHashMap<>();
+    private int version;
+
+    public SnapshotMetadataExtractor(Path snapshotFile) throws IOException {
+        this.channel = FileChannel.open(snapshotFile, StandardOpenOption.READ);
+        try {
+            readIndex();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        log.info("Instantánea de metadatos cargada: {} ({} tablas)", snapshotFile.toAbsolutePath(), index.size());
+    }
+
+    private void readIndex() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = read(0, MetadataSnapshotCodec.HEADER_SIZE);
+        ByteBuffer footer = read(size - MetadataSnapshotCodec.FOOTER_SIZE, MetadataSnapshotCodec.FOOTER_SIZE);
+        if (header.getLong() != MetadataSnapshotCodec.MAGIC) {
+            throw new IOException("El archivo no es una instantánea de metadatos");
+        }
+        version = header.getInt();
+        if (version < 1 || version > MetadataSnapshotCodec.VERSION) {
+            throw new IOException("Versión de instantánea no soportada: " + version);
+        }
+        long indexOffset = footer.getLong();
+        if (footer.getLong() != MetadataSnapshotCodec.MAGIC) {
+            throw new IOException("Instantánea incompleta o dañada");
+        }
+
+        ByteBuffer indexBytes = read(indexOffset, (int) (size - MetadataSnapshotCodec.FOOTER_SIZE - indexOffset));
+        DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream(indexBytes.array(), 0, indexBytes.limit()));
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String tableName = MetadataSnapshotCodec.readString(in);
+            long offset = in.readLong();
+            int length = in.readInt();
+            index.put(tableName, version >= MetadataSnapshotCodec.FIRST_VERSION_WITH_FINGERPRINTS
+                ? new long[]{offset, length, in.readLong()} : new long[]{offset, length});
+        }
+    }
+
+    @Override
+    public List<String> getTables(String schema) {
+        return new ArrayList<>(index.keySet());
+    }
+
+    /**
+     * Indica si la tabla está en la instantánea.
+     */
+    boolean containsTable(String tableName) {
+        return index.containsKey(tableName);
+    }
+
+    /**
+     * Huella del contenido de la tabla guardada en el índice, o null si la
+     * instantánea es de una versión que no la incluye o que la calculaba sobre
+     * otro contenido y no se puede comparar con la actual.
+     */
+    Long getFingerprint(String tableName) {
+        long[] entry = index.get(tableName);
+        return entry != null && entry.length > 2 && version == MetadataSnapshotCodec.VERSION ? entry[2] : null;
+    }
+
+    @Override
+    public TableInfo getTableInfo(String schema, String tableName, boolean includeForeignKeys) {
+        long[] entry = index.get(tableName);
+        if (entry == null) {
+            throw new IllegalArgumentException("Tabla no incluida en la instantánea: " + tableName);
+        }
+
+        try {
+            ByteBuffer bytes = read(entry[0], (int) entry[1]);
+            try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                    new ByteArrayInputStream(bytes.array(), 0, bytes.limit())))) {
+                TableInfo table = MetadataSnapshotCodec.readTable(in, version);
+                if (!includeForeignKeys) {
+                    table.setForeignKeys(new ArrayList<>());
+                }
+                return table;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo la tabla " + tableName + " de la instantánea", e);
+        }
+    }
+
+    @Override
+    public String getTableComment(String schema, String tableName) {
+        return getTableInfo(schema, tableName, false).getComentario();
+    }
+
+    @Override
+    public List<ColumnInfo> getColumns(String schema, String tableName) {
+        return getTableInfo(schema, tableName, false).getColumnas();
+    }
+
+    @Override
+    public List<String> getPrimaryKeyColumns(String schema, String tableName) {
+        return getTableInfo(schema, tableName, false).getPrimaryKeyColumns();
+    }
+
+    @Override
+    public List<ForeignKeyInfo> getForeignKeys(String schema, String tableName) {
+        return getTableInfo(schema, tableName, true).getForeignKeys();
+    }
+
+    @Override
+    public String getPrimaryKeyName(String schema, String tableName) {
+        return getTableInfo(schema, tableName, false).getPrimaryKeyName();
+    }
+
+    /**
+     * La instantánea no conserva el dialecto de origen: se usa el formato
+     * genérico del extractor JDBC.
+     */
+    @Override
+    public String formatColumnType(ColumnInfo col) {
+        return JdbcMetadataExtractor.genericColumnType(col);
+    }
+
+    @Override
+    public String formatDefault(String defaultValue, String dataType) {
+        return " DEFAULT " + defaultValue.trim();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Lectura posicional: admite llamadas concurrentes desde varios hilos.
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Fin de archivo inesperado en la instantánea");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
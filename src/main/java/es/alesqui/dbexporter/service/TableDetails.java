@@ -0,0 +1,102 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índices, vistas dependientes y estadísticas del catálogo de un bloque de
+ * tablas. Se leen antes que las tablas del bloque, con una consulta por tipo
+ * para todo el bloque, y se añaden a cada tabla al entregarla. Si el bloque es
+ * el esquema completo, los índices y las estadísticas los lee el extractor
+ * tabla a tabla durante la lectura en bloque.
+ *
+ * <p>Son información complementaria: si una de las consultas falla con un
+ * error no transitorio se avisa y las tablas del bloque se exportan sin esa
+ * sección.
+ */
+@Slf4j
+final class TableDetails {
+
+    static final TableDetails NONE = new TableDetails(null, null, null);
+
+    private final Map<String, List<IndexInfo>> indexes;
+    private final Map<String, List<String>> views;
+    private final Map<String, TableStatistics> statistics;
+
+    private TableDetails(Map<String, List<IndexInfo>> indexes, Map<String, List<String>> views,
+            Map<String, TableStatistics> statistics) {
+        this.indexes = indexes;
+        this.views = views;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Lee los detalles pedidos de un bloque de tablas.
+     */
+    static TableDetails read(DatabaseMetadataExtractor extractor, String schema, List<String> tableNames,
+            boolean includeIndexes, boolean includeViews, boolean includeStatistics, RetryPolicy retry)
+            throws InterruptedException {
+        if (!includeIndexes && !includeViews && !includeStatistics || tableNames.isEmpty()) {
+            return NONE;
+        }
+        Map<String, List<IndexInfo>> indexes = null;
+        Map<String, List<String>> views = null;
+        Map<String, TableStatistics> statistics = null;
+        if (includeIndexes && includeStatistics) {
+            // Algunos extractores sacan los dos de la misma consulta
+            try {
+                DatabaseMetadataExtractor.IndexesAndStatistics both = retry.call("índices y estadísticas",
+                        () -> extractor.getIndexesAndStatistics(schema, tableNames));
+                indexes = both.getIndexes();
+                statistics = both.getStatistics();
+            } catch (RuntimeException e) {
+                log.warn("No se pudieron leer los índices ni las estadísticas de {} tablas: {}", tableNames.size(),
+                        e.getMessage());
+            }
+        } else if (includeIndexes) {
+            try {
+                indexes = retry.call("índices", () -> extractor.getIndexes(schema, tableNames));
+            } catch (RuntimeException e) {
+                log.warn("No se pudieron leer los índices de {} tablas: {}", tableNames.size(), e.getMessage());
+            }
+        }
+        try {
+            if (includeViews) {
+                views = retry.call("vistas", () -> extractor.getDependentViews(schema, tableNames));
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron leer las vistas de {} tablas: {}", tableNames.size(), e.getMessage());
+        }
+        if (includeStatistics && !includeIndexes) {
+            try {
+                statistics = retry.call("estadísticas", () -> extractor.getTableStatistics(schema, tableNames));
+            } catch (RuntimeException e) {
+                log.warn("No se pudieron leer las estadísticas de {} tablas: {}", tableNames.size(), e.getMessage());
+            }
+        }
+        return new TableDetails(indexes, views, statistics);
+    }
+
+    /**
+     * Añade a la tabla los detalles leídos. Las secciones que el extractor no
+     * sabe leer se quedan a null y no se documentan.
+     */
+    void apply(TableInfo tableInfo) {
+        String tableName = tableInfo.getNombre();
+        if (indexes != null) {
+            tableInfo.setIndices(indexes.getOrDefault(tableName, Collections.emptyList()));
+        }
+        if (views != null) {
+            tableInfo.setVistas(views.getOrDefault(tableName, Collections.emptyList()));
+        }
+        if (statistics != null) {
+            tableInfo.setEstadisticas(statistics.get(tableName));
+        }
+    }
+}
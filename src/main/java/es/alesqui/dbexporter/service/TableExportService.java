@@ -1,33 +1,49 @@
 package es.alesqui.dbexporter.service;
 
-import es.alesqui.dbexporter.model.ColumnInfo;
-import es.alesqui.dbexporter.model.ForeignKeyInfo;
 import es.alesqui.dbexporter.model.TableInfo;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Servicio para exportar la estructura de tablas a archivos de texto.
- * Genera archivos en formato descriptivo optimizado para NotebookLM.
+ * El formato de los archivos lo decide el {@link TableRenderer} configurado
+ * (por defecto, el formato descriptivo optimizado para NotebookLM); con
+ * app.output.formats cada tabla se genera además en JSON, Markdown o DDL sin
+ * volver a leer el catálogo. Con app.shard sólo se exporta una parte de las
+ * tablas, para repartir la exportación entre varios procesos.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TableExportService {
 
-	@Qualifier("db2Extractor") // Cambiar según la BD: db2Extractor, postgresExtractor, etc.
 	private final DatabaseMetadataExtractor metadataExtractor;
 
+	private final TableRenderer renderer;
+
+	private final ExportMetrics metrics;
+
 	@Value("${app.schema}")
 	private String schema;
 
@@ -37,226 +53,796 @@ public class TableExportService {
 	@Value("${app.include.foreign.keys:true}")
 	private boolean includeForeignKeys;
 
+	@Value("${app.bulk.enabled:true}")
+	private boolean bulkExtraction;
+
+	@Value("${app.bulk.chunk-size:500}")
+	private int bulkChunkSize;
+
+	@Value("${app.export.threads:1}")
+	private int exportThreads;
+
+	@Value("${spring.datasource.hikari.maximum-pool-size:10}")
+	private int connectionPoolSize;
+
+	@Value("${app.pipeline.queue-capacity:8}")
+	private int pipelineCapacity;
+
+	@Value("${app.incremental.enabled:false}")
+	private boolean incremental;
+
+	@Value("${app.snapshot.output:}")
+	private String snapshotOutput;
+
+	@Value("${app.shard:}")
+	private String shard;
+
+	@Value("${app.output.mode:files}")
+	private String outputMode;
+
+	@Value("${app.output.formats:text}")
+	private String outputFormats;
+
+	@Value("${app.output.shard-size-mb:64}")
+	private int shardSizeMb;
+
+	@Value("${app.output.compression-level:6}")
+	private int compressionLevel;
+
+	@Value("${app.metrics.enabled:true}")
+	private boolean metricsEnabled;
+
+	@Value("${app.metrics.report-file:}")
+	private String metricsReportFile;
+
+	@Value("${app.resume.enabled:true}")
+	private boolean resume;
+
+	@Value("${app.resume.only-failed:false}")
+	private boolean onlyFailed;
+
+	@Value("${app.retry.max-attempts:3}")
+	private int retryMaxAttempts;
+
+	@Value("${app.retry.initial-backoff-ms:500}")
+	private long retryInitialBackoffMs;
+
+	@Value("${app.retry.max-backoff-ms:10000}")
+	private long retryMaxBackoffMs;
+
+	@Value("${app.tables.include:}")
+	private String tablesInclude;
+
+	@Value("${app.tables.exclude:}")
+	private String tablesExclude;
+
+	@Value("${app.relationships.enabled:true}")
+	private boolean relationships;
+
+	@Value("${app.relationships.summary-file:}")
+	private String relationshipsSummaryFile;
+
+	@Value("${app.include.indexes:true}")
+	private boolean includeIndexes;
+
+	@Value("${app.include.views:true}")
+	private boolean includeViews;
+
+	@Value("${app.include.statistics:true}")
+	private boolean includeStatistics;
+
+	@Value("${app.search.enabled:true}")
+	private boolean searchIndexEnabled;
+
+	@Value("${app.search.index-file:}")
+	private String searchIndexFile;
+
 	/**
-	 * Exporta todas las tablas del esquema configurado a archivos individuales.
+	 * Exporta todas las tablas del esquema configurado a archivos individuales
+	 * o, según app.output.mode, agrupadas en shards o en un archivo comprimido.
+	 *
+	 * @return los totales del resumen final
 	 */
-	public void exportAllTables() {
+	public ExportResult exportAllTables() {
+		long start = System.nanoTime();
+		metrics.reset();
+		RetryPolicy retry = new RetryPolicy(retryMaxAttempts, retryInitialBackoffMs, retryMaxBackoffMs);
+		Map<String, TableRenderer> renderers = createRenderers();
+		ExportPartition partition = ExportPartition.parse(shard);
+		if (partition != null && !"files".equals(outputMode.trim().toLowerCase())) {
+			throw new IllegalArgumentException("app.shard sólo admite app.output.mode=files");
+		}
+		String controlSuffix = partition != null ? partition.getSuffix() : "";
+		// La instantánea tiene que tener todas las tablas del esquema
+		boolean snapshotRun = !snapshotOutput.trim().isEmpty();
+		if (snapshotRun && (partition != null || onlyFailed)) {
+			throw new IllegalArgumentException("app.snapshot.output necesita leer todas las tablas del esquema: "
+					+ "no se admite con app.shard ni con app.resume.only-failed");
+		}
+		List<String> extensions = new ArrayList<>();
+		for (TableRenderer format : renderers.values()) {
+			extensions.add(format.getFileExtension());
+		}
 		try {
-			// Crear directorio de salida
+			// Obtener lista de tablas, con el filtro de nombres ya aplicado en el catálogo
+			TableFilter filter = TableFilter.of(tablesInclude, tablesExclude);
+			if (!filter.isEmpty()) {
+				log.info("Filtro de tablas: {}", filter);
+			}
+			List<String> schemaTables = retry.call("lista de tablas", () -> metadataExtractor.getTables(schema, filter));
+			log.info("Se encontraron {} tablas en el esquema {}", schemaTables.size(), schema);
+
+			// Con app.shard este proceso sólo exporta su parte de las tablas
+			List<String> allTables = partition != null ? partition.filter(schemaTables) : schemaTables;
+			if (partition != null) {
+				log.info("Shard {}: {} de {} tablas", partition, allTables.size(), schemaTables.size());
+			}
+
+			// Archivo por tabla o destino alternativo (shards, archivo comprimido)
 			Path outputPath = Paths.get(outputDirectory);
-			Files.createDirectories(outputPath);
-			log.info("Directorio de salida creado: {}", outputPath.toAbsolutePath());
+			boolean sinkOutput = prepareOutput(outputPath);
+			boolean incrementalRun = incremental && !sinkOutput;
+			if (incremental && sinkOutput) {
+				log.warn("La exportación incremental sólo se aplica a archivos por tabla: se exportarán todas las tablas");
+			}
+
+			// Grafo de relaciones: las FK de todo el esquema en una sola pasada, que
+			// después se reparten entre las tablas junto con las referencias entrantes.
+			// Con shards todos lo necesitan completo, pero sólo el primero escribe el resumen
+			RelationshipGraph graph = relationships && includeForeignKeys
+					? RelationshipGraph.build(schemaTables, retry.call("foreign keys del esquema",
+							() -> metadataExtractor.getSchemaForeignKeys(schema, schemaTables)))
+					: null;
+			if (graph != null && (partition == null || partition.getIndex() == 1)) {
+				Path summaryPath = getRelationshipsSummaryPath(outputPath);
+				graph.writeSummary(summaryPath, schema);
+				log.info("Grafo de relaciones: {} tablas, {} foreign keys. Resumen en {}", graph.getTableCount(),
+						graph.getForeignKeyCount(), summaryPath.toAbsolutePath());
+			}
+
+			// Índice de búsqueda: se parte del anterior y se sustituyen las tablas que se exporten
+			Path searchIndexPath = getSearchIndexPath(outputPath);
+			MetadataSearchIndexWriter searchIndex = searchIndexEnabled && partition == null
+					? MetadataSearchIndexWriter.open(searchIndexPath, schema, metadataExtractor)
+					: null;
+			if (searchIndexEnabled && partition != null) {
+				log.info("El índice de búsqueda no se genera en las exportaciones con app.shard");
+			}
+
+			try {
+				// En modo incremental sólo se exportan las tablas nuevas o modificadas
+				ExportManifest previousManifest = incrementalRun ? loadManifest(outputPath, partition) : null;
+				Map<String, String> changeTimes = incrementalRun ? readChangeKeys(filter, retry) : new HashMap<>();
+				List<String> tables = incrementalRun
+						? prepareIncremental(allTables, previousManifest, changeTimes, graph, searchIndex, extensions,
+								outputPath)
+						: allTables;
+				if (incrementalRun && snapshotRun) {
+					// Se leen todas; las que no cambian no se vuelven a escribir
+					log.info("Con app.snapshot.output se leen todas las tablas, también las no modificadas");
+					tables = allTables;
+				}
+				int notModified = allTables.size() - tables.size();
+				AtomicInteger unchanged = new AtomicInteger();
 
-			// Obtener lista de tablas
-			List<String> tables = metadataExtractor.getTables(schema);
-			log.info("Se encontraron {} tablas en el esquema {}", tables.size(), schema);
+				// Sólo las tablas que fallaron en la última ejecución terminada
+				if (onlyFailed) {
+					tables = retainFailed(tables, outputPath, controlSuffix);
+				}
 
-			// Contador de progreso
-			int processed = 0;
-			int errors = 0;
+				// Diario de control: una ejecución interrumpida continúa donde se quedó
+				if (resume && snapshotRun && !sinkOutput
+						&& Files.exists(outputPath.resolve(ExportJournal.FILE_NAME + controlSuffix))) {
+					log.info("Con app.snapshot.output no se reanuda la exportación anterior: se leen todas las tablas");
+				}
+				ExportJournal journal = !sinkOutput
+						? ExportJournal.open(outputPath, controlSuffix, schema, resume && !snapshotRun)
+						: null;
+
+				// Las terminadas que aún no están en el índice de búsqueda se vuelven a
+				// exportar, porque la ejecución interrumpida no llegó a guardarlo
+				List<String> resumed = new ArrayList<>();
+				if (journal != null) {
+					List<String> remaining = new ArrayList<>();
+					for (String tableName : tables) {
+						if (journal.isCompleted(tableName) && (searchIndex == null || searchIndex.isIndexed(tableName))) {
+							resumed.add(tableName);
+						} else {
+							remaining.add(tableName);
+						}
+					}
+					tables = remaining;
+				}
 
-			// Procesar cada tabla
-			for (String tableName : tables) {
+				// Con shards siempre se guarda el manifiesto, que después se combina. Si se
+				// continúa una ejecución interrumpida o sólo se repiten las tablas con
+				// error, se parte del anterior para no perder las que no se exportan ahora
+				ExportManifest manifest = incrementalRun ? previousManifest
+						: partition == null ? null
+						: resumed.isEmpty() && !onlyFailed ? new ExportManifest()
+						: loadManifest(outputPath, partition);
+				if (manifest != null && !incrementalRun) {
+					manifest.retainOnly(new HashSet<>(allTables));
+				}
+				if (manifest != null) {
+					seedManifest(manifest, resumed, outputPath, extensions, graph);
+				}
+
+				// Repartir las tablas en bloques entre los hilos, sin superar el pool de conexiones
+				int threads = getExportThreads();
+				int chunkSize = getChunkSize(tables.size(), threads);
+				if (bulkExtraction && metadataExtractor.isSchemaWideBulkRead() && threads > 1) {
+					log.warn("app.export.threads={} no se aplica: el extractor lee el esquema completo en un único "
+							+ "recorrido, con un solo hilo", threads);
+					threads = 1;
+				}
+				log.info("Exportando con {} hilo(s) en bloques de {} tablas", threads, chunkSize);
+
+				List<List<String>> chunks = new ArrayList<>();
+				for (int from = 0; from < tables.size(); from += chunkSize) {
+					chunks.add(tables.subList(from, Math.min(from + chunkSize, tables.size())));
+				}
+
+				// El destino alternativo se crea justo antes de escribir: si la exportación
+				// no termina se descarta y se conserva la salida anterior
+				MetadataSnapshotWriter snapshot = snapshotOutput.trim().isEmpty() ? null
+						: new MetadataSnapshotWriter(Paths.get(snapshotOutput));
+				ExportSink sink = sinkOutput ? createSink(outputPath, renderers) : null;
+
+				// Lectura, render y escritura en etapas enlazadas por colas acotadas
+				ExportPipeline.Output output = sink != null ? (tableInfo, documents) -> {
+					for (ExportPipeline.RenderBuffer document : documents) {
+						sink.write(tableInfo, document);
+					}
+				} : (tableInfo, documents) -> {
+					writeTable(tableInfo, documents, manifest, changeTimes, graph, unchanged);
+					journal.completed(tableInfo.getNombre());
+				};
+				if (searchIndex != null) {
+					ExportPipeline.Output files = output;
+					output = (tableInfo, documents) -> {
+						files.write(tableInfo, documents);
+						searchIndex.add(tableInfo);
+					};
+				}
+				// Los shards y los archivos comprimidos se escriben en el orden de los
+				// bloques, para que no cambien de una ejecución a otra
+				ExportPipeline pipeline = new ExportPipeline(threads, Math.max(1, pipelineCapacity),
+						new ArrayList<>(renderers.values()), output, sink != null, metrics);
+				boolean completed = false;
 				try {
-					log.info("Procesando tabla {}/{}: {}", ++processed, tables.size(), tableName);
-					exportTable(tableName);
-				} catch (Exception e) {
-					errors++;
-					log.error("Error procesando tabla {}: {}", tableName, e.getMessage(), e);
+					pipeline.run(chunks, (chunk, stage) -> readChunk(chunk, stage, snapshot, graph, retry));
+					completed = true;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					log.error("Exportación interrumpida");
+				} finally {
+					if (sink != null) {
+						if (completed) {
+							sink.close();
+						} else {
+							sink.discard();
+							log.warn("Exportación incompleta: se conserva la salida anterior en {}",
+									sink.getLocation().toAbsolutePath());
+						}
+					}
+					// Si la ejecución no termina se conserva el diario para reanudarla
+					if (journal != null) {
+						if (completed) {
+							journal.finish(pipeline.getFailedTables());
+						} else {
+							journal.close();
+						}
+					}
+					// Una instantánea a medias no sustituye a la anterior
+					if (snapshot != null) {
+						if (completed) {
+							snapshot.close();
+							log.info("Instantánea de metadatos guardada en {}", Paths.get(snapshotOutput).toAbsolutePath());
+						} else {
+							snapshot.discard();
+							log.warn("Exportación incompleta: se conserva la instantánea anterior");
+						}
+					}
+				}
+
+				if (manifest != null) {
+					manifest.save(outputPath, ExportManifest.FILE_NAME + controlSuffix);
+				}
+				if (searchIndex != null) {
+					searchIndex.finish(allTables);
+					log.info("Índice de búsqueda: {} tablas ({} actualizadas), {} términos en {}",
+							searchIndex.getTableCount(), searchIndex.getUpdatedCount(), searchIndex.getTermCount(),
+							searchIndexPath.toAbsolutePath());
+				}
+
+				log.info("========================================");
+				log.info("Proceso completado:");
+				if (partition != null) {
+					log.info("- Shard: {} ({} de {} tablas)", partition, allTables.size(), schemaTables.size());
+				}
+				log.info("- Tablas procesadas: {}", pipeline.getProcessed() - pipeline.getErrors());
+				log.info("- Errores: {}", pipeline.getErrors());
+				if (incrementalRun) {
+					log.info("- Tablas sin cambios: {}", notModified + unchanged.get());
+				}
+				if (!resumed.isEmpty()) {
+					log.info("- Tablas ya exportadas en la ejecución interrumpida: {}", resumed.size());
+				}
+				if (sink != null && pipeline.getErrors() > 0) {
+					log.warn("- Tablas con error: {}", String.join(", ", pipeline.getFailedTables()));
+				}
+				log.info("- Salida: {}", (sink != null ? sink.getLocation() : outputPath).toAbsolutePath());
+				log.info("========================================");
+
+				if (metricsEnabled) {
+					metrics.report(metricsReportFile.trim().isEmpty() ? null : Paths.get(metricsReportFile));
 				}
-			}
 
-			log.info("========================================");
-			log.info("Proceso completado:");
-			log.info("- Tablas procesadas: {}", processed - errors);
-			log.info("- Errores: {}", errors);
-			log.info("- Directorio de salida: {}", outputPath.toAbsolutePath());
-			log.info("========================================");
+				ExportResult result = new ExportResult(schema, allTables.size(),
+						pipeline.getProcessed() - pipeline.getErrors(), pipeline.getErrors(),
+						incrementalRun ? notModified + unchanged.get() : 0, pipeline.getFailedTables(),
+						sink != null ? sink.getLocation() : outputPath, millisSince(start),
+						completed ? null : "Exportación interrumpida");
+				if (partition != null) {
+					partition.writeSummary(outputPath, schemaTables, result);
+				}
+				return result;
+			} finally {
+				// Si no se llega a escribir el índice se liberan el anterior y los temporales
+				if (searchIndex != null) {
+					searchIndex.close();
+				}
+			}
 
 		} catch (IOException e) {
 			log.error("Error creando directorio de salida: {}", e.getMessage(), e);
+			return ExportResult.failed(schema, Paths.get(outputDirectory), millisSince(start), e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.error("Exportación interrumpida");
+			return ExportResult.failed(schema, Paths.get(outputDirectory), millisSince(start),
+					"Exportación interrumpida");
+		}
+	}
+
+	private static long millisSince(long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	/**
+	 * Formatos de app.output.formats, en orden y por nombre: el primero es el
+	 * principal. "text" es el renderer configurado; el resto se crean aquí.
+	 */
+	private Map<String, TableRenderer> createRenderers() {
+		Map<String, TableRenderer> renderers = new LinkedHashMap<>();
+		for (String format : outputFormats.split(",")) {
+			String name = format.trim().toLowerCase();
+			if (name.isEmpty() || renderers.containsKey(name)) {
+				continue;
+			}
+			switch (name) {
+				case "text":
+					renderers.put(name, renderer);
+					break;
+				case "json":
+					renderers.put(name, new JsonTableRenderer());
+					break;
+				case "markdown":
+					renderers.put(name, new MarkdownTableRenderer());
+					break;
+				case "ddl":
+					renderers.put(name, new DdlTableRenderer(metadataExtractor));
+					break;
+				default:
+					throw new IllegalArgumentException("Valor no válido para app.output.formats: " + format.trim()
+							+ " (admitidos: text, json, markdown, ddl)");
+			}
+		}
+		if (renderers.isEmpty()) {
+			renderers.put("text", renderer);
+		}
+		Set<String> extensions = new HashSet<>();
+		for (TableRenderer format : renderers.values()) {
+			if (!extensions.add(format.getFileExtension())) {
+				throw new IllegalArgumentException("Dos formatos de app.output.formats generan archivos "
+						+ format.getFileExtension() + ": " + outputFormats);
+			}
 		}
+		return renderers;
 	}
 
 	/**
-	 * Exporta una tabla específica a un archivo de texto en formato descriptivo.
+	 * Prepara la salida según app.output.mode e indica si los documentos van a un
+	 * destino alternativo (shards o archivo comprimido) en lugar de a un archivo
+	 * por tabla, el modo por defecto.
 	 */
-	private void exportTable(String tableName) throws IOException {
-		// Obtener información completa de la tabla
-		TableInfo tableInfo = getTableInfo(tableName);
+	private boolean prepareOutput(Path outputPath) throws IOException {
+		String mode = outputMode.trim().toLowerCase();
+		switch (mode) {
+			case "files":
+			case "shards":
+				Files.createDirectories(outputPath);
+				log.info("Directorio de salida creado: {}", outputPath.toAbsolutePath());
+				return "shards".equals(mode);
+			case "zip":
+			case "tar.gz":
+				// El archivo y los resúmenes van junto al directorio de salida
+				if (outputPath.getParent() != null) {
+					Files.createDirectories(outputPath.getParent());
+				}
+				return true;
+			default:
+				throw new IllegalArgumentException("Valor no válido para app.output.mode: " + outputMode
+						+ " (admitidos: files, shards, zip, tar.gz)");
+		}
+	}
 
-		// Generar contenido descriptivo
-		String content = generateDescriptiveFormat(tableInfo);
+	/**
+	 * Crea el destino alternativo de los documentos. En el modo shards cada
+	 * formato además del principal va a un subdirectorio con su nombre.
+	 */
+	private ExportSink createSink(Path outputPath, Map<String, TableRenderer> renderers) throws IOException {
+		String mode = outputMode.trim().toLowerCase();
+		if ("shards".equals(mode)) {
+			long maxShardSize = Math.max(1, shardSizeMb) * 1024L * 1024L;
+			log.info("Salida agrupada en shards de hasta {} MB", Math.max(1, shardSizeMb));
+			Map<String, ExportSink> shards = new LinkedHashMap<>();
+			for (Map.Entry<String, TableRenderer> format : renderers.entrySet()) {
+				Path directory = shards.isEmpty() ? outputPath : outputPath.resolve(format.getKey());
+				Files.createDirectories(directory);
+				shards.put(format.getValue().getFileExtension(),
+						new ShardedFileSink(directory, format.getValue().getFileExtension(), maxShardSize));
+			}
+			return shards.size() == 1 ? shards.values().iterator().next()
+					: new FormatRoutingSink(shards, outputPath);
+		}
+		// El archivo sustituye al directorio: database_structure.zip
+		Path archive = outputPath.resolveSibling(outputPath.getFileName() + "." + mode);
+		log.info("Salida comprimida en {} (nivel {})", archive.toAbsolutePath(), compressionLevel);
+		return ArchiveSink.create(mode, archive, outputPath.getFileName().toString(), compressionLevel);
+	}
 
-		// Escribir archivo
-		Path filePath = Paths.get(outputDirectory, tableName + ".txt");
-		Files.write(filePath, content.getBytes("UTF-8"));
+	/**
+	 * Archivo del resumen de relaciones: app.relationships.summary-file o, por
+	 * defecto, _RELATIONSHIPS.txt dentro del directorio de salida (junto al
+	 * archivo comprimido en los modos zip y tar.gz).
+	 */
+	private Path getRelationshipsSummaryPath(Path outputPath) {
+		if (!relationshipsSummaryFile.trim().isEmpty()) {
+			return Paths.get(relationshipsSummaryFile);
+		}
+		String mode = outputMode.trim().toLowerCase();
+		return "zip".equals(mode) || "tar.gz".equals(mode)
+				? outputPath.resolveSibling(outputPath.getFileName() + "_RELATIONSHIPS.txt")
+				: outputPath.resolve("_RELATIONSHIPS.txt");
+	}
 
-		log.debug("Archivo creado: {} ({} columnas, {} PKs, {} FKs)", 
-				filePath.getFileName(),
-				tableInfo.getColumnas().size(), 
-				tableInfo.getPrimaryKeyColumns().size(),
-				tableInfo.getForeignKeys().size());
+	/**
+	 * Índice de búsqueda: app.search.index-file o, por defecto, .export-search-index
+	 * dentro del directorio de salida (junto al archivo comprimido en los modos
+	 * zip y tar.gz).
+	 */
+	private Path getSearchIndexPath(Path outputPath) {
+		if (!searchIndexFile.trim().isEmpty()) {
+			return Paths.get(searchIndexFile);
+		}
+		String mode = outputMode.trim().toLowerCase();
+		return "zip".equals(mode) || "tar.gz".equals(mode)
+				? outputPath.resolveSibling(outputPath.getFileName() + MetadataSearchIndex.FILE_NAME)
+				: outputPath.resolve(MetadataSearchIndex.FILE_NAME);
 	}
 
 	/**
-	 * Recopila toda la información de una tabla (columnas, PK, FK, comentarios).
+	 * Claves de cambio de las tablas: la fecha de modificación y, si se documentan
+	 * índices, vistas o estadísticas, la clave de esos detalles, que pueden
+	 * cambiar sin modificar la fecha (CREATE INDEX, RUNSTATS, una vista nueva).
 	 */
-	private TableInfo getTableInfo(String tableName) {
-		return TableInfo.builder().nombre(tableName).comentario(metadataExtractor.getTableComment(schema, tableName))
-				.columnas(metadataExtractor.getColumns(schema, tableName))
-				.primaryKeyColumns(metadataExtractor.getPrimaryKeyColumns(schema, tableName))
-				.primaryKeyName(metadataExtractor.getPrimaryKeyName(schema, tableName))
-				.foreignKeys(
-						includeForeignKeys ? metadataExtractor.getForeignKeys(schema, tableName) : new ArrayList<>())
-				.build();
+	private Map<String, String> readChangeKeys(TableFilter filter, RetryPolicy retry) throws InterruptedException {
+		Map<String, String> changeTimes = retry.call("fechas de modificación",
+				() -> metadataExtractor.getTableChangeTimes(schema, filter));
+		if (changeTimes.isEmpty() || !(includeIndexes || includeViews || includeStatistics)) {
+			return changeTimes;
+		}
+		Map<String, String> detailKeys = retry.call("cambios de índices, vistas y estadísticas",
+				() -> metadataExtractor.getTableDetailKeys(schema, filter, includeIndexes, includeViews,
+						includeStatistics));
+		return ExportManifest.changeKeys(changeTimes, detailKeys);
 	}
 
 	/**
-	 * Genera formato descriptivo optimizado para NotebookLM. Este formato prioriza
-	 * la claridad y el contexto para modelos de lenguaje.
+	 * Compara el catálogo con el manifiesto de la ejecución anterior: elimina los
+	 * archivos de las tablas borradas y devuelve las tablas nuevas o modificadas,
+	 * incluidas aquellas a las que ahora apunta una FK distinta, las que faltan
+	 * en el índice de búsqueda y las que no tienen archivo en algún formato.
 	 */
-	private String generateDescriptiveFormat(TableInfo tableInfo) {
-		StringBuilder desc = new StringBuilder();
-
-		// === ENCABEZADO ===
-		desc.append("==============================================\n");
-		desc.append("TABLE: ").append(tableInfo.getNombre()).append("\n");
-		desc.append("==============================================\n\n");
-
-		// === DESCRIPCIÓN DE LA TABLA ===
-		if (tableInfo.getComentario() != null && !tableInfo.getComentario().trim().isEmpty()) {
-			desc.append("TABLE DESCRIPTION:\n");
-			desc.append(tableInfo.getComentario().trim()).append("\n\n");
-		}
-
-		// === COLUMNAS ===
-		desc.append("COLUMNS:\n");
-		desc.append("------------------\n");
-
-		int colNum = 1;
-		for (ColumnInfo col : tableInfo.getColumnas()) {
-			desc.append(colNum++).append(". ").append(col.getNombre()).append("\n");
-
-			// Tipo de dato
-			desc.append("   - Type: ").append(col.getTipo());
-			if (col.getLongitud() != null && col.getLongitud() > 0) {
-				desc.append("(").append(col.getLongitud());
-				if (col.getEscala() != null && col.getEscala() > 0) {
-					desc.append(",").append(col.getEscala());
-				}
-				desc.append(")");
+	private List<String> prepareIncremental(List<String> tables, ExportManifest manifest,
+			Map<String, String> changeTimes, RelationshipGraph graph, MetadataSearchIndexWriter searchIndex,
+			List<String> extensions, Path outputPath) throws IOException {
+		if (changeTimes.isEmpty()) {
+			log.warn("La base de datos no informa de fechas de modificación: se exportarán todas las tablas");
+		}
+
+		for (String dropped : manifest.retainOnly(new HashSet<>(tables))) {
+			for (String extension : extensions) {
+				Files.deleteIfExists(outputPath.resolve(dropped + extension));
 			}
-			desc.append("\n");
+			log.info("Tabla eliminada del esquema o excluida por el filtro, se borra su archivo: {}", dropped);
+		}
 
-			// Nullable
-			desc.append("   - Nullable: ").append(col.isNullable() ? "YES" : "NO").append("\n");
+		List<String> changed = new ArrayList<>();
+		for (String tableName : tables) {
+			if (!manifest.isUpToDate(tableName, changeTimes.get(tableName), referencesHash(graph, tableName))
+					|| !allExist(outputPath, tableName, extensions)
+					|| (searchIndex != null && !searchIndex.isIndexed(tableName))) {
+				changed.add(tableName);
+			}
+		}
+		log.info("Exportación incremental: {} tablas nuevas o modificadas", changed.size());
+		return changed;
+	}
 
-			// Valor por defecto
-			if (col.getValorDefault() != null && !col.getValorDefault().trim().isEmpty()) {
-				String defaultValue = col.getValorDefault().trim();
-				// Limpiar valores por defecto para mejor legibilidad
-				if (defaultValue.startsWith("'") && defaultValue.endsWith("'")) {
-					defaultValue = defaultValue.substring(1, defaultValue.length() - 1);
-				}
-				desc.append("   - Default value: ").append(defaultValue).append("\n");
+	private static boolean allExist(Path directory, String tableName, List<String> extensions) {
+		for (String extension : extensions) {
+			if (!Files.exists(directory.resolve(tableName + extension))) {
+				return false;
 			}
+		}
+		return true;
+	}
 
-			// Es Primary Key?
-			if (tableInfo.getPrimaryKeyColumns().contains(col.getNombre())) {
-				desc.append("   - Constraint: PRIMARY KEY");
-				if (tableInfo.getPrimaryKeyColumns().size() > 1) {
-					desc.append(" (part of composite key)");
-				}
-				desc.append("\n");
+	/**
+	 * Manifiesto de la ejecución anterior. Un shard parte de su propia parte si
+	 * no se ha combinado todavía o, si no, de las tablas del shard en el
+	 * manifiesto combinado.
+	 */
+	private static ExportManifest loadManifest(Path outputPath, ExportPartition partition) throws IOException {
+		if (partition == null) {
+			return ExportManifest.load(outputPath);
+		}
+		String partial = ExportManifest.FILE_NAME + partition.getSuffix();
+		if (Files.exists(outputPath.resolve(partial))) {
+			return ExportManifest.load(outputPath, partial);
+		}
+		ExportManifest manifest = ExportManifest.load(outputPath);
+		manifest.retainPartition(partition);
+		return manifest;
+	}
+
+	/**
+	 * Añade al manifiesto las tablas terminadas en la ejecución interrumpida que
+	 * no llegaron a guardarse en él, con el hash de sus archivos. Se guardan sin
+	 * fecha de modificación, así que la siguiente exportación incremental las
+	 * vuelve a comprobar.
+	 */
+	private static void seedManifest(ExportManifest manifest, List<String> resumed, Path outputPath,
+			List<String> extensions, RelationshipGraph graph) throws IOException {
+		for (String tableName : resumed) {
+			if (manifest.get(tableName) == null) {
+				manifest.put(tableName, null, sha256(outputPath, tableName, extensions),
+						referencesHash(graph, tableName));
 			}
+		}
+	}
 
-			// Foreign Keys
-			for (ForeignKeyInfo fk : tableInfo.getForeignKeys()) {
-				if (fk.getColumnasOrigen().contains(col.getNombre())) {
-					int index = fk.getColumnasOrigen().indexOf(col.getNombre());
-					desc.append("   - Foreign Key: references ").append(fk.getTablaDestino()).append(".")
-							.append(fk.getColumnasDestino().get(index));
+	/**
+	 * Deja sólo las tablas listadas como fallidas en la última ejecución terminada.
+	 */
+	private List<String> retainFailed(List<String> tables, Path outputPath, String controlSuffix)
+			throws IOException {
+		Set<String> failed = new HashSet<>(ExportJournal.loadFailed(outputPath, controlSuffix));
+		List<String> retained = new ArrayList<>();
+		for (String tableName : tables) {
+			if (failed.contains(tableName)) {
+				retained.add(tableName);
+			}
+		}
+		log.info("Se reexportan sólo las tablas con error de la última ejecución: {}", retained.size());
+		return retained;
+	}
 
-					if (!"NO ACTION".equals(fk.getOnDeleteAction())) {
-						desc.append(" (ON DELETE ").append(fk.getOnDeleteAction()).append(")");
-					}
-					desc.append("\n");
-				}
+	/**
+	 * Etapa de lectura de un bloque de tablas. En modo bloque cada tabla se entrega
+	 * al pipeline en cuanto el extractor la completa; si la lectura en bloque falla,
+	 * las tablas que falten se consultan una a una. Los errores transitorios se
+	 * reintentan y el resto se aíslan por tabla.
+	 */
+	private void readChunk(List<String> chunk, ExportPipeline pipeline, MetadataSnapshotWriter snapshot,
+			RelationshipGraph graph, RetryPolicy retry) throws InterruptedException {
+		Set<String> pending = new LinkedHashSet<>(chunk);
+		// Con el grafo, las FK ya están leídas
+		boolean readForeignKeys = includeForeignKeys && graph == null;
+		// Si el bloque es el esquema completo, índices y estadísticas se leen tabla
+		// a tabla durante el recorrido en lugar de todos antes de la primera tabla
+		boolean streamDetails = bulkExtraction && metadataExtractor.isSchemaWideBulkRead();
+		boolean streamIndexes = streamDetails && includeIndexes;
+		boolean streamStatistics = streamDetails && includeStatistics;
+		// El resto, con una consulta por tipo para todo el bloque
+		TableDetails details = TableDetails.read(metadataExtractor, schema, chunk, includeIndexes && !streamIndexes,
+				includeViews, includeStatistics && !streamStatistics, retry);
+
+		if (bulkExtraction) {
+			try {
+				// Cada reintento pide sólo las tablas que aún no se han entregado
+				retry.call("lectura en bloque", () -> {
+					metadataExtractor.readTablesInfo(schema, new ArrayList<>(pending), readForeignKeys, streamIndexes,
+							streamStatistics, tableInfo -> {
+								if (pending.remove(tableInfo.getNombre())) {
+									pipeline.started(tableInfo.getNombre());
+									deliver(tableInfo, pipeline, snapshot, graph, details);
+								}
+							});
+					return null;
+				});
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				log.warn("Error en la lectura en bloque, se consultarán una a una las {} tablas restantes: {}",
+						pending.size(), e.getMessage());
 			}
+		}
 
-			// Comentario/Descripción de la columna
-			if (col.getComentario() != null && !col.getComentario().trim().isEmpty()) {
-				desc.append("   - Description: ").append(col.getComentario().trim()).append("\n");
+		for (String tableName : pending) {
+			TableInfo tableInfo;
+			try {
+				pipeline.started(tableName);
+				tableInfo = retry.call("tabla " + tableName,
+						() -> metadataExtractor.getTableInfo(schema, tableName, readForeignKeys));
+				TableDetails.read(metadataExtractor, schema, Collections.singletonList(tableName), streamIndexes,
+						false, streamStatistics, retry).apply(tableInfo);
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				pipeline.failed(tableName, e);
+				continue;
 			}
+			deliver(tableInfo, pipeline, snapshot, graph, details);
+		}
+	}
 
-			desc.append("\n");
-		}
-
-		// === PRIMARY KEY ===
-		if (!tableInfo.getPrimaryKeyColumns().isEmpty()) {
-			desc.append("PRIMARY KEY:\n");
-			desc.append("------------------\n");
-			desc.append("- Constraint name: ")
-					.append(tableInfo.getPrimaryKeyName() != null ? tableInfo.getPrimaryKeyName() : "[Unnamed]")
-					.append("\n");
-			desc.append("- Columns: ").append(String.join(", ", tableInfo.getPrimaryKeyColumns())).append("\n");
-			desc.append("- Type: ").append(tableInfo.getPrimaryKeyColumns().size() > 1 ? "Composite key" : "Simple key")
-					.append("\n\n");
-		}
-
-		// === FOREIGN KEYS ===
-		if (!tableInfo.getForeignKeys().isEmpty()) {
-			desc.append("FOREIGN KEYS:\n");
-			desc.append("------------------\n");
-
-			int fkNum = 1;
-			for (ForeignKeyInfo fk : tableInfo.getForeignKeys()) {
-				desc.append(fkNum++).append(". ").append(fk.getNombre()).append("\n");
-				desc.append("   - Source columns: ").append(String.join(", ", fk.getColumnasOrigen())).append("\n");
-				desc.append("   - Target table: ").append(fk.getTablaDestino()).append("\n");
-				desc.append("   - Target columns: ").append(String.join(", ", fk.getColumnasDestino())).append("\n");
-
-				if (!"NO ACTION".equals(fk.getOnDeleteAction()) || !"NO ACTION".equals(fk.getOnUpdateAction())) {
-					desc.append("   - Rules: ");
-					if (!"NO ACTION".equals(fk.getOnDeleteAction())) {
-						desc.append("ON DELETE ").append(fk.getOnDeleteAction());
-					}
-					if (!"NO ACTION".equals(fk.getOnUpdateAction())) {
-						if (!"NO ACTION".equals(fk.getOnDeleteAction())) {
-							desc.append(", ");
-						}
-						desc.append("ON UPDATE ").append(fk.getOnUpdateAction());
-					}
-					desc.append("\n");
-				}
-				desc.append("\n");
+	/**
+	 * Entrega una tabla leída a la etapa de render y, si se ha pedido, la guarda
+	 * también en la instantánea de metadatos. Con el grafo de relaciones se
+	 * completa antes con sus FK y con las FK que la referencian.
+	 */
+	private void deliver(TableInfo tableInfo, ExportPipeline pipeline, MetadataSnapshotWriter snapshot,
+			RelationshipGraph graph, TableDetails details) throws InterruptedException {
+		details.apply(tableInfo);
+		if (graph != null) {
+			tableInfo.setForeignKeys(graph.foreignKeys(tableInfo.getNombre()));
+			tableInfo.setReferencedBy(graph.referencedBy(tableInfo.getNombre()));
+		}
+		if (snapshot != null) {
+			try {
+				snapshot.append(tableInfo);
+			} catch (IOException e) {
+				pipeline.failed(tableInfo.getNombre(), e);
+				return;
+			}
+		}
+		pipeline.submit(tableInfo);
+	}
+
+	/**
+	 * Número de hilos de exportación. Nunca supera el tamaño del pool de
+	 * conexiones, ya que cada hilo mantiene una consulta abierta.
+	 */
+	private int getExportThreads() {
+		int poolSize = Math.max(1, connectionPoolSize);
+		return exportThreads <= 0 ? poolSize : Math.min(exportThreads, poolSize);
+	}
+
+	/**
+	 * Tamaño de bloque: en modo bloque se reduce si hace falta para que todos los
+	 * hilos tengan trabajo; sin modo bloque cada tabla es una unidad de trabajo.
+	 * Los extractores que recorren el esquema completo reciben un único bloque.
+	 */
+	private int getChunkSize(int tableCount, int threads) {
+		if (!bulkExtraction) {
+			return 1;
+		}
+		if (metadataExtractor.isSchemaWideBulkRead()) {
+			return Math.max(1, tableCount);
+		}
+		int perThread = (tableCount + threads - 1) / threads;
+		return Math.max(1, Math.min(bulkChunkSize, perThread));
+	}
+
+	/**
+	 * Etapa de escritura: vuelca los documentos ya generados a los archivos de la
+	 * tabla, uno por formato. En modo incremental no se reescriben si su contenido
+	 * no ha cambiado; la huella del manifiesto cubre todos los formatos.
+	 */
+	private void writeTable(TableInfo tableInfo, List<ExportPipeline.RenderBuffer> documents,
+			ExportManifest manifest, Map<String, String> changeTimes, RelationshipGraph graph,
+			AtomicInteger unchanged) throws IOException {
+		Path filePath = Paths.get(outputDirectory, tableInfo.getNombre() + documents.get(0).getExtension());
+
+		String hash = null;
+		if (manifest != null) {
+			hash = sha256(documents);
+			ExportManifest.Entry previous = manifest.get(tableInfo.getNombre());
+			if (previous != null && hash.equals(previous.getHash())
+					&& allExist(filePath.getParent(), tableInfo.getNombre(), extensions(documents))) {
+				manifest.put(tableInfo.getNombre(), changeTimes.get(tableInfo.getNombre()), hash,
+						referencesHash(graph, tableInfo.getNombre()));
+				unchanged.incrementAndGet();
+				log.debug("Archivo sin cambios: {}", filePath.getFileName());
+				return;
+			}
+		}
+
+		for (ExportPipeline.RenderBuffer content : documents) {
+			try (OutputStream out = Files.newOutputStream(
+					filePath.resolveSibling(tableInfo.getNombre() + content.getExtension()))) {
+				content.writeTo(out);
 			}
 		}
+		if (manifest != null) {
+			manifest.put(tableInfo.getNombre(), changeTimes.get(tableInfo.getNombre()), hash,
+					referencesHash(graph, tableInfo.getNombre()));
+		}
+
+		log.debug("Archivo creado: {} ({} columnas, {} PKs, {} FKs)", 
+				filePath.getFileName(),
+				tableInfo.getColumnas().size(), 
+				tableInfo.getPrimaryKeyColumns().size(),
+				tableInfo.getForeignKeys().size());
+	}
 
-		// === RESUMEN ===
-		desc.append("SUMMARY:\n");
-		desc.append("------------------\n");
-		desc.append("- Total columns: ").append(tableInfo.getColumnas().size()).append("\n");
-		desc.append("- Has primary key: ").append(tableInfo.getPrimaryKeyColumns().isEmpty() ? "NO" : "YES")
-				.append("\n");
+	private static List<String> extensions(List<ExportPipeline.RenderBuffer> documents) {
+		List<String> extensions = new ArrayList<>(documents.size());
+		for (ExportPipeline.RenderBuffer content : documents) {
+			extensions.add(content.getExtension());
+		}
+		return extensions;
+	}
 
-		if (!tableInfo.getPrimaryKeyColumns().isEmpty()) {
-			desc.append("- Primary key type: ")
-					.append(tableInfo.getPrimaryKeyColumns().size() > 1 ? "Composite" : "Simple").append("\n");
+	private String sha256(List<ExportPipeline.RenderBuffer> documents) {
+		MessageDigest digest = sha256();
+		for (ExportPipeline.RenderBuffer content : documents) {
+			content.updateDigest(digest);
 		}
+		return hex(digest);
+	}
 
-		desc.append("- Number of foreign keys: ").append(tableInfo.getForeignKeys().size()).append("\n");
+	/**
+	 * El mismo hash calculado sobre los archivos ya escritos de la tabla, o null
+	 * si falta alguno.
+	 */
+	private static String sha256(Path directory, String tableName, List<String> extensions) throws IOException {
+		MessageDigest digest = sha256();
+		for (String extension : extensions) {
+			Path file = directory.resolve(tableName + extension);
+			if (!Files.exists(file)) {
+				return null;
+			}
+			digest.update(Files.readAllBytes(file));
+		}
+		return hex(digest);
+	}
 
-		// Contar columnas obligatorias
-		long requiredColumns = tableInfo.getColumnas().stream().filter(col -> !col.isNullable()).count();
-		desc.append("- Required columns (NOT NULL): ").append(requiredColumns).append("\n");
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 no disponible", e);
+		}
+	}
 
-		// Contar columnas con valores por defecto
-		long columnsWithDefaults = tableInfo.getColumnas().stream()
-				.filter(col -> col.getValorDefault() != null && !col.getValorDefault().trim().isEmpty()).count();
-		desc.append("- Columns with default values: ").append(columnsWithDefaults).append("\n");
+	private static String hex(MessageDigest digest) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
 
-		return desc.toString();
+	/**
+	 * Huella de las referencias entrantes que se guarda en el manifiesto, o null
+	 * si no se documentan.
+	 */
+	private static String referencesHash(RelationshipGraph graph, String tableName) {
+		return graph != null ? graph.referencesHash(tableName) : null;
 	}
-}
\ No newline at end of file
+}
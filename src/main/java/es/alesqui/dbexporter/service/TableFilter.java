@@ -0,0 +1,279 @@
+package es.alesqui.dbexporter.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Filtro de tablas por nombre con patrones de inclusión y exclusión. Una tabla
+ * se exporta si coincide con algún patrón de inclusión (o no hay ninguno) y con
+ * ninguno de exclusión.
+ *
+ * <p>Cada patrón puede ser un glob ({@code STG_*}, {@code T?_HIST}), un patrón
+ * LIKE de SQL con el prefijo {@code like:} ({@code like:%\_BAK}) o una expresión
+ * regular con el prefijo {@code regex:}. Los globs y los LIKE se pueden
+ * trasladar a la consulta del catálogo; las expresiones regulares sólo se
+ * aplican en el cliente.
+ *
+ * <p>Los patrones se separan con comas. Las comas entre paréntesis, corchetes
+ * o llaves forman parte del patrón, así que {@code regex:T{1,3}_HIST} o
+ * {@code regex:[A,B]_.*} no se parten; en una expresión regular también se
+ * puede escribir {@code \,}.
+ */
+public final class TableFilter {
+
+    /**
+     * Filtro que acepta todas las tablas.
+     */
+    public static final TableFilter ALL = new TableFilter(Collections.emptyList(), Collections.emptyList());
+
+    /**
+     * Carácter de escape de los patrones LIKE generados.
+     */
+    static final char LIKE_ESCAPE = '!';
+
+    /**
+     * Patrón ya analizado: la expresión regular equivalente, siempre, y el
+     * patrón LIKE si se puede expresar en SQL.
+     */
+    private static final class NamePattern {
+        private final String source;
+        private final Pattern regex;
+        private final String like;
+
+        private NamePattern(String source, Pattern regex, String like) {
+            this.source = source;
+            this.regex = regex;
+            this.like = like;
+        }
+    }
+
+    private final List<NamePattern> includes;
+    private final List<NamePattern> excludes;
+
+    private TableFilter(List<NamePattern> includes, List<NamePattern> excludes) {
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    /**
+     * Crea el filtro a partir de listas de patrones separados por comas de primer
+     * nivel.
+     */
+    public static TableFilter of(String include, String exclude) {
+        List<NamePattern> includes = parse(include);
+        List<NamePattern> excludes = parse(exclude);
+        return includes.isEmpty() && excludes.isEmpty() ? ALL : new TableFilter(includes, excludes);
+    }
+
+    public boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty();
+    }
+
+    /**
+     * Indica si la tabla pasa el filtro.
+     */
+    public boolean matches(String tableName) {
+        if (!includes.isEmpty() && !anyMatches(includes, tableName)) {
+            return false;
+        }
+        return !anyMatches(excludes, tableName);
+    }
+
+    /**
+     * Aplica el filtro en el cliente, manteniendo el orden de la lista.
+     */
+    public List<String> apply(List<String> tableNames) {
+        if (isEmpty()) {
+            return tableNames;
+        }
+        List<String> filtered = new ArrayList<>(tableNames.size());
+        for (String tableName : tableNames) {
+            if (matches(tableName)) {
+                filtered.add(tableName);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Condición SQL equivalente a la parte del filtro que se puede expresar con
+     * LIKE, para añadir a un WHERE ({@code " AND ..."}, o vacía). Los parámetros
+     * se añaden a la lista. Las inclusiones sólo se trasladan si todas son LIKE;
+     * el resultado debe pasar igualmente por {@link #apply(List)}.
+     */
+    public String toSqlPredicate(String column, List<Object> params) {
+        StringBuilder sql = new StringBuilder();
+        if (!includes.isEmpty() && allLike(includes)) {
+            sql.append(" AND (");
+            for (int i = 0; i < includes.size(); i++) {
+                sql.append(i > 0 ? " OR " : "").append(column).append(" LIKE ? ESCAPE '").append(LIKE_ESCAPE).append("'");
+                params.add(includes.get(i).like);
+            }
+            sql.append(')');
+        }
+        for (NamePattern exclude : excludes) {
+            if (exclude.like != null) {
+                sql.append(" AND ").append(column).append(" NOT LIKE ? ESCAPE '").append(LIKE_ESCAPE).append("'");
+                params.add(exclude.like);
+            }
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Patrón de búsqueda para {@code DatabaseMetaData.getTables} cuando el filtro
+     * tiene una única inclusión expresable como LIKE, con el carácter de escape
+     * del driver. Devuelve null si no se puede usar.
+     */
+    public String toSearchPattern(String searchStringEscape) {
+        if (includes.size() != 1 || includes.get(0).like == null
+                || searchStringEscape == null || searchStringEscape.isEmpty()) {
+            return null;
+        }
+        String like = includes.get(0).like;
+        StringBuilder pattern = new StringBuilder(like.length());
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (c == LIKE_ESCAPE && i + 1 < like.length()) {
+                pattern.append(searchStringEscape).append(like.charAt(++i));
+            } else {
+                pattern.append(c);
+            }
+        }
+        return pattern.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "incluir=" + sources(includes) + ", excluir=" + sources(excludes);
+    }
+
+    private static List<NamePattern> parse(String patterns) {
+        List<NamePattern> parsed = new ArrayList<>();
+        if (patterns == null) {
+            return parsed;
+        }
+        for (String pattern : split(patterns)) {
+            pattern = pattern.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            if (pattern.startsWith("regex:")) {
+                parsed.add(new NamePattern(pattern, Pattern.compile(pattern.substring(6)), null));
+            } else if (pattern.startsWith("like:")) {
+                parsed.add(fromLike(pattern, pattern.substring(5)));
+            } else {
+                parsed.add(fromGlob(pattern));
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Separa la lista por las comas que no están dentro de paréntesis, corchetes
+     * o llaves. El carácter que sigue a una barra invertida no cuenta, para que
+     * {@code \(} o {@code \,} de una expresión regular no cambien el reparto;
+     * la barra se conserva en el patrón.
+     */
+    private static List<String> split(String patterns) {
+        List<String> split = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < patterns.length(); i++) {
+            char c = patterns.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '(' || c == '[' || c == '{') {
+                depth++;
+            } else if ((c == ')' || c == ']' || c == '}') && depth > 0) {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                split.add(patterns.substring(start, i));
+                start = i + 1;
+            }
+        }
+        split.add(patterns.substring(start));
+        return split;
+    }
+
+    private static NamePattern fromGlob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder like = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+                like.append('%');
+            } else if (c == '?') {
+                regex.append('.');
+                like.append('_');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                appendLikeLiteral(like, c);
+            }
+        }
+        return new NamePattern(glob, Pattern.compile(regex.toString()), like.toString());
+    }
+
+    /**
+     * Patrón LIKE escrito por el usuario: {@code %} y {@code _} son comodines y
+     * la barra invertida escapa el carácter siguiente.
+     */
+    private static NamePattern fromLike(String source, String pattern) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder like = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                char literal = pattern.charAt(++i);
+                regex.append(Pattern.quote(String.valueOf(literal)));
+                appendLikeLiteral(like, literal);
+            } else if (c == '%') {
+                regex.append(".*");
+                like.append('%');
+            } else if (c == '_') {
+                regex.append('.');
+                like.append('_');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                appendLikeLiteral(like, c);
+            }
+        }
+        return new NamePattern(source, Pattern.compile(regex.toString()), like.toString());
+    }
+
+    private static void appendLikeLiteral(StringBuilder like, char c) {
+        if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+            like.append(LIKE_ESCAPE);
+        }
+        like.append(c);
+    }
+
+    private static boolean anyMatches(List<NamePattern> patterns, String tableName) {
+        for (NamePattern pattern : patterns) {
+            if (pattern.regex.matcher(tableName).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean allLike(List<NamePattern> patterns) {
+        for (NamePattern pattern : patterns) {
+            if (pattern.like == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> sources(List<NamePattern> patterns) {
+        List<String> sources = new ArrayList<>(patterns.size());
+        for (NamePattern pattern : patterns) {
+            sources.add(pattern.source);
+        }
+        return sources;
+    }
+}
@@ -0,0 +1,116 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índices de búsqueda de una tabla, construidos en una sola pasada sobre la PK
+ * y las FK: posición de cada columna en la PK y referencias de cada columna a
+ * otras tablas. Permiten generar el documento en tiempo lineal aunque la tabla
+ * tenga muchas columnas y muchas FK.
+ */
+final class TableIndex {
+
+    /**
+     * Columna de origen de una FK y su columna de destino.
+     */
+    static final class ForeignKeyRef {
+        final ForeignKeyInfo foreignKey;
+        final String targetColumn;
+
+        ForeignKeyRef(ForeignKeyInfo foreignKey, String targetColumn) {
+            this.foreignKey = foreignKey;
+            this.targetColumn = targetColumn;
+        }
+    }
+
+    private final Map<String, Integer> primaryKeyPositions;
+    private final Map<String, List<ForeignKeyRef>> foreignKeyRefs;
+    private final int requiredColumns;
+    private final int columnsWithDefaults;
+
+    TableIndex(TableInfo tableInfo) {
+        List<String> pkColumns = tableInfo.getPrimaryKeyColumns();
+        primaryKeyPositions = new HashMap<>(capacity(pkColumns.size()));
+        for (int i = 0; i < pkColumns.size(); i++) {
+            primaryKeyPositions.putIfAbsent(pkColumns.get(i), i);
+        }
+
+        // Las referencias de cada columna conservan el orden de las FK; dentro de
+        // una FK sólo cuenta la primera aparición de la columna
+        foreignKeyRefs = new HashMap<>();
+        for (ForeignKeyInfo fk : tableInfo.getForeignKeys()) {
+            List<String> source = fk.getColumnasOrigen();
+            List<String> target = fk.getColumnasDestino();
+            for (int i = 0; i < source.size(); i++) {
+                List<ForeignKeyRef> refs = foreignKeyRefs.computeIfAbsent(source.get(i), k -> new ArrayList<>(1));
+                if (refs.isEmpty() || refs.get(refs.size() - 1).foreignKey != fk) {
+                    refs.add(new ForeignKeyRef(fk, target.get(i)));
+                }
+            }
+        }
+
+        int required = 0;
+        int withDefaults = 0;
+        for (ColumnInfo col : tableInfo.getColumnas()) {
+            if (!col.isNullable()) {
+                required++;
+            }
+            if (hasText(col.getValorDefault())) {
+                withDefaults++;
+            }
+        }
+        requiredColumns = required;
+        columnsWithDefaults = withDefaults;
+    }
+
+    /**
+     * Posición de la columna en la PK, o -1 si no forma parte de ella.
+     */
+    int primaryKeyPosition(String column) {
+        Integer position = primaryKeyPositions.get(column);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Referencias de la columna a otras tablas, en el orden de las FK.
+     */
+    List<ForeignKeyRef> foreignKeyRefs(String column) {
+        return foreignKeyRefs.getOrDefault(column, Collections.emptyList());
+    }
+
+    int getRequiredColumns() {
+        return requiredColumns;
+    }
+
+    int getColumnsWithDefaults() {
+        return columnsWithDefaults;
+    }
+
+    /**
+     * Equivale a {@code value != null && !value.trim().isEmpty()} sin crear
+     * cadenas intermedias.
+     */
+    static boolean hasText(String value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int capacity(int size) {
+        return Math.max(4, (int) (size / 0.75f) + 1);
+    }
+}
@@ -0,0 +1,34 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.TableInfo;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Genera el documento de una tabla en un formato de salida concreto.
+ * Las implementaciones no deben guardar estado entre llamadas.
+ */
+public interface TableRenderer {
+
+    /**
+     * Escribe el documento de la tabla en el writer indicado.
+     */
+    void render(TableInfo tableInfo, Writer out) throws IOException;
+
+    /**
+     * Extensión de los archivos generados, incluido el punto.
+     */
+    String getFileExtension();
+
+    /**
+     * Tamaño aproximado del documento en bytes, para reservar el buffer de
+     * salida de una vez.
+     */
+    default int estimateSize(TableInfo tableInfo) {
+        int references = tableInfo.getReferencedBy() != null ? tableInfo.getReferencedBy().size() : 0;
+        int indexes = tableInfo.getIndices() != null ? tableInfo.getIndices().size() : 0;
+        return 512 + tableInfo.getColumnas().size() * 128
+                + (tableInfo.getForeignKeys().size() + references + indexes) * 192;
+    }
+}
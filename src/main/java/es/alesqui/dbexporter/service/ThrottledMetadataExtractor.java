@@ -0,0 +1,199 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Decorador que hace pasar cada llamada al extractor por un
+ * {@link CatalogThrottle}. Las operaciones compuestas del extractor decorado
+ * ocupan un único turno.
+ *
+ * <p>En la lectura en streaming el turno se mantiene mientras el cursor sigue
+ * abierto, pero la latencia que se registra no incluye el tiempo que el
+ * receptor tarda en aceptar cada tabla.
+ */
+public class ThrottledMetadataExtractor implements DatabaseMetadataExtractor, Closeable {
+
+    private static final String THROTTLE_WAIT = "throttle.wait";
+
+    private final DatabaseMetadataExtractor delegate;
+    private final CatalogThrottle throttle;
+    private final ExportMetrics metrics;
+
+    public ThrottledMetadataExtractor(DatabaseMetadataExtractor delegate, CatalogThrottle throttle,
+            ExportMetrics metrics) {
+        this.delegate = delegate;
+        this.throttle = throttle;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<String> getTables(String schema) {
+        return throttled(() -> delegate.getTables(schema));
+    }
+
+    @Override
+    public List<String> getTables(String schema, TableFilter filter) {
+        return throttled(() -> delegate.getTables(schema, filter));
+    }
+
+    @Override
+    public Map<String, String> getTableChangeTimes(String schema) {
+        return throttled(() -> delegate.getTableChangeTimes(schema));
+    }
+
+    @Override
+    public Map<String, String> getTableChangeTimes(String schema, TableFilter filter) {
+        return throttled(() -> delegate.getTableChangeTimes(schema, filter));
+    }
+
+    @Override
+    public Map<String, String> getTableDetailKeys(String schema, TableFilter filter, boolean indexes,
+            boolean views, boolean statistics) {
+        return throttled(() -> delegate.getTableDetailKeys(schema, filter, indexes, views, statistics));
+    }
+
+    @Override
+    public String getTableComment(String schema, String tableName) {
+        return throttled(() -> delegate.getTableComment(schema, tableName));
+    }
+
+    @Override
+    public List<ColumnInfo> getColumns(String schema, String tableName) {
+        return throttled(() -> delegate.getColumns(schema, tableName));
+    }
+
+    @Override
+    public List<String> getPrimaryKeyColumns(String schema, String tableName) {
+        return throttled(() -> delegate.getPrimaryKeyColumns(schema, tableName));
+    }
+
+    @Override
+    public List<ForeignKeyInfo> getForeignKeys(String schema, String tableName) {
+        return throttled(() -> delegate.getForeignKeys(schema, tableName));
+    }
+
+    @Override
+    public Map<String, List<ForeignKeyInfo>> getSchemaForeignKeys(String schema, List<String> tableNames) {
+        return throttled(() -> delegate.getSchemaForeignKeys(schema, tableNames));
+    }
+
+    @Override
+    public Map<String, List<IndexInfo>> getIndexes(String schema, List<String> tableNames) {
+        return throttled(() -> delegate.getIndexes(schema, tableNames));
+    }
+
+    @Override
+    public Map<String, List<String>> getDependentViews(String schema, List<String> tableNames) {
+        return throttled(() -> delegate.getDependentViews(schema, tableNames));
+    }
+
+    @Override
+    public Map<String, TableStatistics> getTableStatistics(String schema, List<String> tableNames) {
+        return throttled(() -> delegate.getTableStatistics(schema, tableNames));
+    }
+
+    @Override
+    public IndexesAndStatistics getIndexesAndStatistics(String schema, List<String> tableNames) {
+        return throttled(() -> delegate.getIndexesAndStatistics(schema, tableNames));
+    }
+
+    @Override
+    public String getPrimaryKeyName(String schema, String tableName) {
+        return throttled(() -> delegate.getPrimaryKeyName(schema, tableName));
+    }
+
+    @Override
+    public TableInfo getTableInfo(String schema, String tableName, boolean includeForeignKeys) {
+        return throttled(() -> delegate.getTableInfo(schema, tableName, includeForeignKeys));
+    }
+
+    @Override
+    public List<TableInfo> getTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys) {
+        return throttled(() -> delegate.getTablesInfo(schema, tableNames, includeForeignKeys));
+    }
+
+    @Override
+    public void readTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys,
+            TableInfoHandler handler) throws InterruptedException {
+        readTablesInfo(schema, tableNames, includeForeignKeys, false, false, handler);
+    }
+
+    @Override
+    public void readTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys,
+            boolean includeIndexes, boolean includeStatistics, TableInfoHandler handler) throws InterruptedException {
+        acquire();
+        long[] handlerNanos = new long[1];
+        long start = System.nanoTime();
+        try {
+            delegate.readTablesInfo(schema, tableNames, includeForeignKeys, includeIndexes, includeStatistics,
+                    tableInfo -> {
+                        long handlerStart = System.nanoTime();
+                        try {
+                            handler.handle(tableInfo);
+                        } finally {
+                            handlerNanos[0] += System.nanoTime() - handlerStart;
+                        }
+                    });
+        } finally {
+            throttle.release(System.nanoTime() - start - handlerNanos[0]);
+        }
+    }
+
+    @Override
+    public boolean isSchemaWideBulkRead() {
+        return delegate.isSchemaWideBulkRead();
+    }
+
+    @Override
+    public String formatColumnType(ColumnInfo columnInfo) {
+        return delegate.formatColumnType(columnInfo);
+    }
+
+    @Override
+    public String formatDefault(String defaultValue, String dataType) {
+        return delegate.formatDefault(defaultValue, dataType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    private void acquire() throws InterruptedException {
+        long waited = throttle.acquire();
+        if (metrics != null) {
+            metrics.record(THROTTLE_WAIT, waited);
+        }
+    }
+
+    /**
+     * Las consultas que fallan también cuentan: un timeout es la señal más
+     * clara de que hay que reducir la carga.
+     */
+    private <T> T throttled(Supplier<T> call) {
+        try {
+            acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando turno para consultar el catálogo", e);
+        }
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            throttle.release(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.ColumnInfo;
+import es.alesqui.dbexporter.model.ForeignKeyInfo;
+import es.alesqui.dbexporter.model.IndexInfo;
+import es.alesqui.dbexporter.model.TableInfo;
+import es.alesqui.dbexporter.model.TableStatistics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Decorador que mide cada llamada al extractor de metadatos y cuenta las filas
+ * obtenidas del catálogo.
+ *
+ * <p>Si el extractor no sobrescribe las operaciones compuestas
+ * ({@code getTableInfo}, {@code getTablesInfo}, {@code readTablesInfo}) se
+ * ejecuta aquí su implementación por defecto, de modo que cada consulta
+ * interna (columnas, PK, FK, comentario) se mide por separado.
+ */
+public class TimedMetadataExtractor implements DatabaseMetadataExtractor, Closeable {
+
+    private static final String PREFIX = "extractor.";
+
+    private final DatabaseMetadataExtractor delegate;
+    private final ExportMetrics metrics;
+    private final boolean defaultTableInfo;
+    private final boolean defaultTablesInfo;
+    private final boolean defaultReadTablesInfo;
+    private final boolean defaultReadTablesDetails;
+    private final boolean defaultIndexesAndStatistics;
+
+    public TimedMetadataExtractor(DatabaseMetadataExtractor delegate, ExportMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.defaultTableInfo = usesDefault("getTableInfo", String.class, String.class, boolean.class);
+        this.defaultTablesInfo = usesDefault("getTablesInfo", String.class, List.class, boolean.class);
+        this.defaultReadTablesInfo = usesDefault("readTablesInfo", String.class, List.class, boolean.class,
+            TableInfoHandler.class);
+        this.defaultReadTablesDetails = usesDefault("readTablesInfo", String.class, List.class, boolean.class,
+            boolean.class, boolean.class, TableInfoHandler.class);
+        this.defaultIndexesAndStatistics = usesDefault("getIndexesAndStatistics", String.class, List.class);
+    }
+
+    @Override
+    public List<String> getTables(String schema) {
+        List<String> tables = time("getTables", () -> delegate.getTables(schema));
+        metrics.increment(ExportMetrics.ROWS_FETCHED, tables.size());
+        return tables;
+    }
+
+    @Override
+    public List<String> getTables(String schema, TableFilter filter) {
+        List<String> tables = time("getTables", () -> delegate.getTables(schema, filter));
+        metrics.increment(ExportMetrics.ROWS_FETCHED, tables.size());
+        return tables;
+    }
+
+    @Override
+    public Map<String, String> getTableChangeTimes(String schema) {
+        Map<String, String> changeTimes = time("getTableChangeTimes", () -> delegate.getTableChangeTimes(schema));
+        metrics.increment(ExportMetrics.ROWS_FETCHED, changeTimes.size());
+        return changeTimes;
+    }
+
+    @Override
+    public Map<String, String> getTableChangeTimes(String schema, TableFilter filter) {
+        Map<String, String> changeTimes = time("getTableChangeTimes",
+            () -> delegate.getTableChangeTimes(schema, filter));
+        metrics.increment(ExportMetrics.ROWS_FETCHED, changeTimes.size());
+        return changeTimes;
+    }
+
+    @Override
+    public Map<String, String> getTableDetailKeys(String schema, TableFilter filter, boolean indexes,
+            boolean views, boolean statistics) {
+        Map<String, String> keys = time("getTableDetailKeys",
+            () -> delegate.getTableDetailKeys(schema, filter, indexes, views, statistics));
+        metrics.increment(ExportMetrics.ROWS_FETCHED, keys.size());
+        return keys;
+    }
+
+    @Override
+    public String getTableComment(String schema, String tableName) {
+        String comment = time("getTableComment", () -> delegate.getTableComment(schema, tableName));
+        metrics.increment(ExportMetrics.ROWS_FETCHED, 1);
+        return comment;
+    }
+
+    @Override
+    public List<ColumnInfo> getColumns(String schema, String tableName) {
+        List<ColumnInfo> columns = time("getColumns", () -> delegate.getColumns(schema, tableName));
+        metrics.increment(ExportMetrics.ROWS_FETCHED, columns.size());
+        return columns;
+    }
+
+    @Override
+    public List<String> getPrimaryKeyColumns(String schema, String tableName) {
+        List<String> columns = time("getPrimaryKeyColumns", () -> delegate.getPrimaryKeyColumns(schema, tableName));
+        metrics.increment(ExportMetrics.ROWS_FETCHED, columns.size());
+        return columns;
+    }
+
+    @Override
+    public List<ForeignKeyInfo> getForeignKeys(String schema, String tableName) {
+        List<ForeignKeyInfo> foreignKeys = time("getForeignKeys", () -> delegate.getForeignKeys(schema, tableName));
+        metrics.increment(ExportMetrics.ROWS_FETCHED, foreignKeyRows(foreignKeys));
+        return foreignKeys;
+    }
+
+    @Override
+    public Map<String, List<ForeignKeyInfo>> getSchemaForeignKeys(String schema, List<String> tableNames) {
+        Map<String, List<ForeignKeyInfo>> foreignKeys = time("getSchemaForeignKeys",
+            () -> delegate.getSchemaForeignKeys(schema, tableNames));
+        for (List<ForeignKeyInfo> tableForeignKeys : foreignKeys.values()) {
+            metrics.increment(ExportMetrics.ROWS_FETCHED, foreignKeyRows(tableForeignKeys));
+        }
+        return foreignKeys;
+    }
+
+    @Override
+    public Map<String, List<IndexInfo>> getIndexes(String schema, List<String> tableNames) {
+        Map<String, List<IndexInfo>> indexes = time("getIndexes", () -> delegate.getIndexes(schema, tableNames));
+        countIndexRows(indexes);
+        return indexes;
+    }
+
+    @Override
+    public Map<String, List<String>> getDependentViews(String schema, List<String> tableNames) {
+        Map<String, List<String>> views = time("getDependentViews",
+            () -> delegate.getDependentViews(schema, tableNames));
+        if (views != null) {
+            for (List<String> tableViews : views.values()) {
+                metrics.increment(ExportMetrics.ROWS_FETCHED, tableViews.size());
+            }
+        }
+        return views;
+    }
+
+    @Override
+    public Map<String, TableStatistics> getTableStatistics(String schema, List<String> tableNames) {
+        Map<String, TableStatistics> statistics = time("getTableStatistics",
+            () -> delegate.getTableStatistics(schema, tableNames));
+        if (statistics != null) {
+            metrics.increment(ExportMetrics.ROWS_FETCHED, statistics.size());
+        }
+        return statistics;
+    }
+
+    @Override
+    public IndexesAndStatistics getIndexesAndStatistics(String schema, List<String> tableNames) {
+        if (defaultIndexesAndStatistics) {
+            return DatabaseMetadataExtractor.super.getIndexesAndStatistics(schema, tableNames);
+        }
+        IndexesAndStatistics result = time("getIndexesAndStatistics",
+            () -> delegate.getIndexesAndStatistics(schema, tableNames));
+        countIndexRows(result.getIndexes());
+        if (result.getStatistics() != null) {
+            metrics.increment(ExportMetrics.ROWS_FETCHED, result.getStatistics().size());
+        }
+        return result;
+    }
+
+    @Override
+    public String getPrimaryKeyName(String schema, String tableName) {
+        String name = time("getPrimaryKeyName", () -> delegate.getPrimaryKeyName(schema, tableName));
+        metrics.increment(ExportMetrics.ROWS_FETCHED, 1);
+        return name;
+    }
+
+    @Override
+    public TableInfo getTableInfo(String schema, String tableName, boolean includeForeignKeys) {
+        long start = System.nanoTime();
+        TableInfo tableInfo;
+        if (defaultTableInfo) {
+            tableInfo = DatabaseMetadataExtractor.super.getTableInfo(schema, tableName, includeForeignKeys);
+        } else {
+            tableInfo = delegate.getTableInfo(schema, tableName, includeForeignKeys);
+            metrics.increment(ExportMetrics.ROWS_FETCHED, tableRows(tableInfo));
+        }
+        long elapsed = System.nanoTime() - start;
+        metrics.record(PREFIX + "getTableInfo", elapsed);
+        metrics.recordTable(tableName, elapsed);
+        return tableInfo;
+    }
+
+    @Override
+    public List<TableInfo> getTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys) {
+        if (defaultTablesInfo) {
+            return DatabaseMetadataExtractor.super.getTablesInfo(schema, tableNames, includeForeignKeys);
+        }
+        List<TableInfo> tables = time("getTablesInfo",
+            () -> delegate.getTablesInfo(schema, tableNames, includeForeignKeys));
+        tables.forEach(tableInfo -> metrics.increment(ExportMetrics.ROWS_FETCHED, tableRows(tableInfo)));
+        return tables;
+    }
+
+    /**
+     * En la lectura en streaming no se cuenta el tiempo que el receptor tarda en
+     * aceptar cada tabla (espera por la cola del pipeline).
+     */
+    @Override
+    public void readTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys,
+            TableInfoHandler handler) throws InterruptedException {
+        if (defaultReadTablesInfo && defaultTablesInfo) {
+            DatabaseMetadataExtractor.super.readTablesInfo(schema, tableNames, includeForeignKeys, handler);
+            return;
+        }
+        timedReadTablesInfo(schema, tableNames, includeForeignKeys, false, false, handler);
+    }
+
+    /**
+     * Si el extractor no lee los detalles durante el recorrido, se cronometran
+     * por separado las consultas de índices y estadísticas y la lectura.
+     */
+    @Override
+    public void readTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys,
+            boolean includeIndexes, boolean includeStatistics, TableInfoHandler handler) throws InterruptedException {
+        if (defaultReadTablesDetails) {
+            DatabaseMetadataExtractor.super.readTablesInfo(schema, tableNames, includeForeignKeys, includeIndexes,
+                includeStatistics, handler);
+            return;
+        }
+        timedReadTablesInfo(schema, tableNames, includeForeignKeys, includeIndexes, includeStatistics, handler);
+    }
+
+    private void timedReadTablesInfo(String schema, List<String> tableNames, boolean includeForeignKeys,
+            boolean includeIndexes, boolean includeStatistics, TableInfoHandler handler) throws InterruptedException {
+        long[] handlerNanos = new long[1];
+        long start = System.nanoTime();
+        try {
+            delegate.readTablesInfo(schema, tableNames, includeForeignKeys, includeIndexes, includeStatistics,
+                tableInfo -> {
+                    metrics.increment(ExportMetrics.ROWS_FETCHED, tableRows(tableInfo));
+                    long handlerStart = System.nanoTime();
+                    try {
+                        handler.handle(tableInfo);
+                    } finally {
+                        handlerNanos[0] += System.nanoTime() - handlerStart;
+                    }
+                });
+        } finally {
+            metrics.record(PREFIX + "readTablesInfo", System.nanoTime() - start - handlerNanos[0]);
+        }
+    }
+
+    @Override
+    public boolean isSchemaWideBulkRead() {
+        return delegate.isSchemaWideBulkRead();
+    }
+
+    @Override
+    public String formatColumnType(ColumnInfo columnInfo) {
+        return delegate.formatColumnType(columnInfo);
+    }
+
+    @Override
+    public String formatDefault(String defaultValue, String dataType) {
+        return delegate.formatDefault(defaultValue, dataType);
+    }
+
+    /**
+     * Cierra el extractor decorado si mantiene recursos abiertos (instantánea).
+     */
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    private <T> T time(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            metrics.record(PREFIX + operation, System.nanoTime() - start);
+        }
+    }
+
+    private void countIndexRows(Map<String, List<IndexInfo>> indexes) {
+        if (indexes != null) {
+            for (List<IndexInfo> tableIndexes : indexes.values()) {
+                for (IndexInfo index : tableIndexes) {
+                    metrics.increment(ExportMetrics.ROWS_FETCHED,
+                        index.getColumnas().size() + index.getColumnasIncluidas().size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica si el extractor usa la implementación por defecto del interfaz.
+     */
+    private boolean usesDefault(String method, Class<?>... parameterTypes) {
+        try {
+            return delegate.getClass().getMethod(method, parameterTypes).getDeclaringClass()
+                == DatabaseMetadataExtractor.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Filas de catálogo equivalentes a una tabla completa: la propia tabla, sus
+     * columnas, las columnas de la PK y las de cada FK.
+     */
+    private static long tableRows(TableInfo tableInfo) {
+        return 1 + tableInfo.getColumnas().size() + tableInfo.getPrimaryKeyColumns().size()
+            + foreignKeyRows(tableInfo.getForeignKeys());
+    }
+
+    private static long foreignKeyRows(List<ForeignKeyInfo> foreignKeys) {
+        long rows = 0;
+        for (ForeignKeyInfo fk : foreignKeys) {
+            rows += fk.getColumnasOrigen().size();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,172 @@
+package es.alesqui.dbexporter.service;
+
+import es.alesqui.dbexporter.model.TableInfo;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ExportPipelineTest {
+
+    /**
+     * Genera el nombre de la tabla. Con la tabla indicada avisa de que ha
+     * empezado, espera a la señal y falla después de haber escrito parte del
+     * documento.
+     */
+    private static TableRenderer renderer(String failing, CountDownLatch started, CountDownLatch failSignal) {
+        return new TableRenderer() {
+            @Override
+            public void render(TableInfo tableInfo, Writer out) throws IOException {
+                out.write("<" + tableInfo.getNombre());
+                if (tableInfo.getNombre().equals(failing)) {
+                    started.countDown();
+                    try {
+                        failSignal.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IOException("Error generando " + tableInfo.getNombre());
+                }
+                out.write(">");
+            }
+
+            @Override
+            public String getFileExtension() {
+                return ".txt";
+            }
+        };
+    }
+
+    private static TableInfo table(String name) {
+        return TableInfo.builder()
+                .nombre(name)
+                .columnas(new ArrayList<>())
+                .foreignKeys(new ArrayList<>())
+                .build();
+    }
+
+    /**
+     * Las tablas del segundo bloque llegan antes que la del primero y la
+     * siguiente falla al generarse cuando la escritura ya ha devuelto sus
+     * buffers y la reserva está llena: el pipeline termina y el buffer de la
+     * tabla fallida se reutiliza sin restos del documento a medias.
+     */
+    @Test(timeout = 10000)
+    public void orderedRunFinishesWhenARenderFailsAfterReordering() throws InterruptedException {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch failingStarted = new CountDownLatch(1);
+        CountDownLatch reordered = new CountDownLatch(1);
+        ExportPipeline.Output output = (tableInfo, documents) -> {
+            if (tableInfo.getNombre().equals("T0")) {
+                // El render ya tiene el buffer de T3 cuando se devuelven los de T0, T1 y T2
+                try {
+                    failingStarted.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            written.add(new String(documents.get(0).toByteArray(), StandardCharsets.UTF_8));
+            if (tableInfo.getNombre().equals("T2")) {
+                reordered.countDown();
+            }
+        };
+        // Con capacidad 3 las tres tablas del segundo bloque pueden adelantarse
+        TableRenderer renderer = renderer("T3", failingStarted, reordered);
+        ExportPipeline pipeline = new ExportPipeline(2, 3, Collections.singletonList(renderer), output, true,
+                new ExportMetrics());
+
+        CountDownLatch laterTablesSubmitted = new CountDownLatch(1);
+        CountDownLatch firstTableSubmitted = new CountDownLatch(1);
+        List<List<String>> chunks = Arrays.asList(
+                Collections.singletonList("T0"),
+                Arrays.asList("T1", "T2", "T3", "T4"));
+        pipeline.run(chunks, (chunk, stage) -> {
+            if (chunk.contains("T0")) {
+                laterTablesSubmitted.await();
+                stage.submit(table("T0"));
+                firstTableSubmitted.countDown();
+                return;
+            }
+            stage.submit(table("T1"));
+            stage.submit(table("T2"));
+            laterTablesSubmitted.countDown();
+            firstTableSubmitted.await();
+            stage.submit(table("T3"));
+            stage.submit(table("T4"));
+        });
+
+        assertEquals(Arrays.asList("<T0>", "<T1>", "<T2>", "<T4>"), written);
+        assertEquals(Collections.singletonList("T3"), pipeline.getFailedTables());
+        assertEquals(1, pipeline.getErrors());
+    }
+
+    /**
+     * Las tablas de bloques posteriores no se adelantan más que la capacidad:
+     * la lectura del segundo bloque se detiene hasta que se escribe el primero.
+     */
+    @Test(timeout = 10000)
+    public void orderedRunLimitsTablesAheadOfTheCurrentChunk() throws InterruptedException {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        ExportPipeline.Output output = (tableInfo, documents) -> written.add(tableInfo.getNombre());
+        ExportPipeline pipeline = new ExportPipeline(2, 2, Collections.singletonList(renderer(null, null, null)),
+                output, true, new ExportMetrics());
+
+        CountDownLatch laterTablesSubmitted = new CountDownLatch(1);
+        AtomicBoolean overtook = new AtomicBoolean();
+        List<List<String>> chunks = Arrays.asList(
+                Collections.singletonList("A0"),
+                Arrays.asList("B0", "B1", "B2", "B3"));
+        pipeline.run(chunks, (chunk, stage) -> {
+            if (chunk.contains("A0")) {
+                overtook.set(laterTablesSubmitted.await(500, TimeUnit.MILLISECONDS));
+                stage.submit(table("A0"));
+                return;
+            }
+            for (String tableName : chunk) {
+                stage.submit(table(tableName));
+            }
+            laterTablesSubmitted.countDown();
+        });
+
+        assertFalse(overtook.get());
+        assertEquals(Arrays.asList("A0", "B0", "B1", "B2", "B3"), written);
+    }
+
+    /**
+     * Si la lectura de un bloque se interrumpe con un error, las tablas que no
+     * llegó a entregar no bloquean la escritura de los bloques siguientes.
+     */
+    @Test(timeout = 10000)
+    public void orderedRunFinishesWhenAChunkReaderFails() throws InterruptedException {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        ExportPipeline.Output output = (tableInfo, documents) -> written.add(tableInfo.getNombre());
+        ExportPipeline pipeline = new ExportPipeline(2, 2, Collections.singletonList(renderer(null, null, null)),
+                output, true, new ExportMetrics());
+
+        List<List<String>> chunks = Arrays.asList(
+                Arrays.asList("A0", "A1"),
+                Arrays.asList("B0", "B1", "B2", "B3"));
+        pipeline.run(chunks, (chunk, stage) -> {
+            if (chunk.contains("A0")) {
+                stage.submit(table("A0"));
+                throw new IllegalStateException("Conexión perdida");
+            }
+            for (String tableName : chunk) {
+                stage.submit(table(tableName));
+            }
+        });
+
+        assertEquals(Arrays.asList("A0", "B0", "B1", "B2", "B3"), written);
+    }
+}